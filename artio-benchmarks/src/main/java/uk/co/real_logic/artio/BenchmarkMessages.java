@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.builder.ExecutionReportEncoder;
+import uk.co.real_logic.artio.builder.HeartbeatEncoder;
+import uk.co.real_logic.artio.builder.NewOrderSingleEncoder;
+import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+/**
+ * FIX messages that are used as the input to benchmarks, encoded with the generated session dictionary codecs.
+ */
+public final class BenchmarkMessages
+{
+    public static final String SENDER_COMP_ID = "initiator";
+    public static final String TARGET_COMP_ID = "acceptor";
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private BenchmarkMessages()
+    {
+    }
+
+    public static NewOrderSingleEncoder newOrderSingle(final NewOrderSingleEncoder newOrderSingle)
+    {
+        newOrderSingle
+            .clOrdID("CLORD-00000001")
+            .side(Side.BUY)
+            .ordType(OrdType.LIMIT)
+            .price(10_125, 3);
+        newOrderSingle.instrument().symbol("MSFT");
+        newOrderSingle.orderQtyData().orderQty(100, 0);
+
+        return newOrderSingle;
+    }
+
+    public static ExecutionReportEncoder executionReport(final ExecutionReportEncoder executionReport)
+    {
+        executionReport
+            .orderID("ORDER-00000001")
+            .execID("EXEC-00000001")
+            .execType(ExecType.FILL)
+            .ordStatus(OrdStatus.FILLED)
+            .side(Side.BUY);
+        executionReport.instrument().symbol("MSFT");
+
+        return executionReport;
+    }
+
+    public static byte[] newOrderSingle(final int msgSeqNum, final long sendingTimeInMs)
+    {
+        final NewOrderSingleEncoder newOrderSingle = newOrderSingle(new NewOrderSingleEncoder());
+        final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+        newOrderSingle.transactTime(timestampEncoder.buffer(), timestampEncoder.encode(sendingTimeInMs));
+
+        return encode(newOrderSingle, msgSeqNum, sendingTimeInMs);
+    }
+
+    public static byte[] heartbeat(final int msgSeqNum, final long sendingTimeInMs)
+    {
+        return encode(new HeartbeatEncoder(), msgSeqNum, sendingTimeInMs);
+    }
+
+    public static byte[] encode(final Encoder encoder, final int msgSeqNum, final long sendingTimeInMs)
+    {
+        final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+        encoder.header()
+            .senderCompID(SENDER_COMP_ID)
+            .targetCompID(TARGET_COMP_ID)
+            .msgSeqNum(msgSeqNum)
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.encode(sendingTimeInMs));
+
+        final MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[MAX_MESSAGE_LENGTH]);
+        final long result = encoder.encode(buffer, 0);
+        final int offset = Encoder.offset(result);
+        final int length = Encoder.length(result);
+
+        final byte[] message = new byte[length];
+        buffer.getBytes(offset, message);
+        return message;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.co.real_logic.artio.builder.ExecutionReportEncoder;
+import uk.co.real_logic.artio.builder.NewOrderSingleEncoder;
+import uk.co.real_logic.artio.decoder.ExecutionReportDecoder;
+import uk.co.real_logic.artio.decoder.NewOrderSingleDecoder;
+import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes application messages with the codecs generated from the session dictionary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodecBenchmark
+{
+    private final NewOrderSingleEncoder newOrderSingleEncoder = new NewOrderSingleEncoder();
+    private final NewOrderSingleDecoder newOrderSingleDecoder = new NewOrderSingleDecoder();
+    private final ExecutionReportEncoder executionReportEncoder = new ExecutionReportEncoder();
+    private final ExecutionReportDecoder executionReportDecoder = new ExecutionReportDecoder();
+    private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private final MutableAsciiBuffer encodeBuffer = new MutableAsciiBuffer(new byte[1024]);
+
+    private MutableAsciiBuffer newOrderSingle;
+    private MutableAsciiBuffer executionReport;
+    private int msgSeqNum;
+
+    @Setup
+    public void setup()
+    {
+        final long timeInMs = System.currentTimeMillis();
+        timestampEncoder.initialise(timeInMs);
+
+        BenchmarkMessages.newOrderSingle(newOrderSingleEncoder).header()
+            .senderCompID(BenchmarkMessages.SENDER_COMP_ID)
+            .targetCompID(BenchmarkMessages.TARGET_COMP_ID);
+        BenchmarkMessages.executionReport(executionReportEncoder).header()
+            .senderCompID(BenchmarkMessages.TARGET_COMP_ID)
+            .targetCompID(BenchmarkMessages.SENDER_COMP_ID);
+
+        newOrderSingle = new MutableAsciiBuffer(BenchmarkMessages.newOrderSingle(1, timeInMs));
+        executionReport = new MutableAsciiBuffer(BenchmarkMessages.encode(
+            BenchmarkMessages.executionReport(new ExecutionReportEncoder()), 1, timeInMs));
+    }
+
+    @Benchmark
+    public long encodeNewOrderSingle()
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+        final int timestampLength = timestampEncoder.update(System.currentTimeMillis());
+
+        final NewOrderSingleEncoder encoder = this.newOrderSingleEncoder;
+        encoder.transactTime(timestampEncoder.buffer(), timestampLength);
+        encoder.header()
+            .msgSeqNum(++msgSeqNum)
+            .sendingTime(timestampEncoder.buffer(), timestampLength);
+
+        return encoder.encode(encodeBuffer, 0);
+    }
+
+    @Benchmark
+    public void decodeNewOrderSingle(final Blackhole bh)
+    {
+        final NewOrderSingleDecoder decoder = this.newOrderSingleDecoder;
+        final MutableAsciiBuffer buffer = this.newOrderSingle;
+
+        decoder.reset();
+        bh.consume(decoder.decode(buffer, 0, buffer.capacity()));
+
+        bh.consume(decoder.header().msgSeqNum());
+        bh.consume(decoder.clOrdID());
+        bh.consume(decoder.side());
+        bh.consume(decoder.price());
+        bh.consume(decoder.orderQty());
+    }
+
+    @Benchmark
+    public long encodeExecutionReport()
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+        final int timestampLength = timestampEncoder.update(System.currentTimeMillis());
+
+        final ExecutionReportEncoder encoder = this.executionReportEncoder;
+        encoder.header()
+            .msgSeqNum(++msgSeqNum)
+            .sendingTime(timestampEncoder.buffer(), timestampLength);
+
+        return encoder.encode(encodeBuffer, 0);
+    }
+
+    @Benchmark
+    public void decodeExecutionReport(final Blackhole bh)
+    {
+        final ExecutionReportDecoder decoder = this.executionReportDecoder;
+        final MutableAsciiBuffer buffer = this.executionReport;
+
+        decoder.reset();
+        bh.consume(decoder.decode(buffer, 0, buffer.capacity()));
+
+        bh.consume(decoder.header().msgSeqNum());
+        bh.consume(decoder.orderID());
+        bh.consume(decoder.execType());
+        bh.consume(decoder.ordStatus());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.logbuffer.FragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.OffsetEpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.BenchmarkMessages;
+import uk.co.real_logic.artio.TestFixtures;
+import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.NO_THROTTLE_WINDOW;
+import static uk.co.real_logic.artio.messages.ConnectionType.ACCEPTOR;
+
+/**
+ * Frames batches of messages read from a TCP channel with an authenticated {@link FixReceiverEndPoint} and writes
+ * them onto an IPC publication, as the receiver end point does for every read in the Framer's duty cycle.
+ *
+ * The channel is a stub that serves the same batch of messages for every read, the framer and gateway sessions are
+ * only used when sessions logon or disconnect so they're stubs as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OperationsPerInvocation(FixReceiverEndPointBenchmark.MESSAGES_PER_READ)
+public class FixReceiverEndPointBenchmark
+{
+    static final int MESSAGES_PER_READ = 16;
+
+    private static final String CHANNEL = CommonContext.IPC_CHANNEL;
+    private static final int STREAM_ID = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FRAGMENT_LIMIT = 2 * MESSAGES_PER_READ;
+    private static final long CONNECTION_ID = 1;
+    private static final long SESSION_ID = 1;
+    private static final int LIBRARY_ID = 1;
+
+    private final FragmentHandler drainHandler = (buffer, offset, length, header) -> {};
+
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private Subscription subscription;
+    private FixReceiverEndPoint endPoint;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        mediaDriver = TestFixtures.launchJustMediaDriver();
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+        subscription = aeron.addSubscription(CHANNEL, STREAM_ID);
+        final ExclusivePublication exclusivePublication = aeron.addExclusivePublication(CHANNEL, STREAM_ID);
+        while (!exclusivePublication.isConnected())
+        {
+            Thread.yield();
+        }
+
+        final EpochNanoClock clock = new OffsetEpochNanoClock();
+        final GatewayPublication publication = new GatewayPublication(
+            exclusivePublication, newCounter(), new YieldingIdleStrategy(), clock, 1);
+
+        final FixDictionary fixDictionary = FixDictionary.of(FixDictionary.findDefault());
+        final FixContexts fixContexts = mock(FixContexts.class, withSettings().stubOnly());
+
+        endPoint = new FixReceiverEndPoint(
+            new BatchTcpChannel(messages()),
+            BUFFER_SIZE,
+            publication,
+            CONNECTION_ID,
+            SESSION_ID,
+            0,
+            fixContexts,
+            newCounter(),
+            mock(Framer.class, withSettings().stubOnly()),
+            Throwable::printStackTrace,
+            LIBRARY_ID,
+            mock(FixGatewaySessions.class, withSettings().stubOnly()),
+            clock,
+            new AcceptorFixDictionaryLookup(fixDictionary, new HashMap<>()),
+            new FixReceiverEndPoint.FixReceiverEndPointFormatters(),
+            NO_THROTTLE_WINDOW,
+            NO_THROTTLE_WINDOW,
+            false,
+            SessionLatencyHistograms.DISABLED,
+            false);
+
+        final SessionContext context = new SessionContext(
+            null, SESSION_ID, 0, 0, 0, fixContexts, 0, 0, fixDictionary, false);
+        endPoint.gatewaySession(new FixGatewaySession(
+            CONNECTION_ID,
+            context,
+            "localhost",
+            ACCEPTOR,
+            null,
+            endPoint,
+            null,
+            null,
+            false,
+            0,
+            false,
+            false,
+            fixDictionary,
+            new EngineConfiguration()));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CloseHelper.closeAll(aeron, mediaDriver);
+        mediaDriver.context().deleteDirectory();
+    }
+
+    @Benchmark
+    public int poll()
+    {
+        final int bytesRead = endPoint.poll();
+        subscription.poll(drainHandler, FRAGMENT_LIMIT);
+        return bytesRead;
+    }
+
+    private static byte[] messages()
+    {
+        final long timeInMs = System.currentTimeMillis();
+        final byte[][] messages = new byte[MESSAGES_PER_READ][];
+        int length = 0;
+        for (int i = 0; i < MESSAGES_PER_READ; i++)
+        {
+            messages[i] = BenchmarkMessages.newOrderSingle(i + 1, timeInMs);
+            length += messages[i].length;
+        }
+
+        final byte[] batch = new byte[length];
+        int offset = 0;
+        for (final byte[] message : messages)
+        {
+            System.arraycopy(message, 0, batch, offset, message.length);
+            offset += message.length;
+        }
+        return batch;
+    }
+
+    private static AtomicCounter newCounter()
+    {
+        return new AtomicCounter(new UnsafeBuffer(new byte[64]), 0);
+    }
+
+    static final class BatchTcpChannel extends TcpChannel
+    {
+        private final byte[] batch;
+
+        BatchTcpChannel(final byte[] batch) throws Exception
+        {
+            super("localhost:0");
+            this.batch = batch;
+        }
+
+        public int read(final ByteBuffer dst)
+        {
+            final byte[] batch = this.batch;
+            dst.put(batch);
+            return batch.length;
+        }
+
+        public int write(final ByteBuffer src, final int seqNum, final boolean replay)
+        {
+            final int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        public SelectionKey register(final Selector sel, final int ops, final Object att)
+        {
+            return null;
+        }
+
+        public void close()
+        {
+        }
+
+        public void onReplayComplete(final long correlationId)
+        {
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.BenchmarkMessages;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.messages.MessageStatus;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.nio.ByteBuffer;
+
+import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static io.aeron.logbuffer.LogBufferDescriptor.positionBitsToShift;
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static io.aeron.protocol.HeaderFlyweight.HDR_TYPE_DATA;
+import static uk.co.real_logic.artio.decoder.NewOrderSingleDecoder.MESSAGE_TYPE;
+
+/**
+ * Unfragmented FixMessage frames in a term buffer that are presented to indexers as if they were being read from a
+ * recording. The frames are encoded once and cycled through, only their Aeron header's position is advanced so the
+ * indexers see a stream that keeps moving forward and rolls over terms at the usual rate.
+ */
+final class FixMessageFrames
+{
+    static final int TERM_LENGTH = 16 * 1024 * 1024;
+    static final int AERON_SESSION_ID = 42;
+    static final int INITIAL_TERM_ID = 0;
+
+    private final UnsafeBuffer termBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(TERM_LENGTH));
+    private final DataHeaderFlyweight dataHeader = new DataHeaderFlyweight();
+    private final Header header = new Header(INITIAL_TERM_ID, positionBitsToShift(TERM_LENGTH));
+    private final int[] frameOffsets;
+    private final int[] fragmentLengths;
+
+    private int index;
+    private int termId = INITIAL_TERM_ID;
+    private int termOffset;
+    private long position;
+
+    /**
+     * Encode messages for each session, the sessions' messages are interleaved with each other.
+     *
+     * @param streamId the stream id to put in the Aeron header.
+     * @param sessionCount the number of FIX sessions, session ids start at 1.
+     * @param messagesPerSession the number of messages per session, sequence numbers start at 1.
+     */
+    FixMessageFrames(final int streamId, final int sessionCount, final int messagesPerSession)
+    {
+        final int frameCount = sessionCount * messagesPerSession;
+        frameOffsets = new int[frameCount];
+        fragmentLengths = new int[frameCount];
+        header.buffer(termBuffer);
+
+        final MessageHeaderEncoder messageHeader = new MessageHeaderEncoder();
+        final FixMessageEncoder fixMessage = new FixMessageEncoder();
+        final long timeInMs = System.currentTimeMillis();
+
+        int offset = 0;
+        int frame = 0;
+        for (int msgSeqNum = 1; msgSeqNum <= messagesPerSession; msgSeqNum++)
+        {
+            for (int sessionId = 1; sessionId <= sessionCount; sessionId++)
+            {
+                final byte[] body = BenchmarkMessages.newOrderSingle(msgSeqNum, timeInMs);
+                fixMessage
+                    .wrapAndApplyHeader(termBuffer, offset + HEADER_LENGTH, messageHeader)
+                    .session(sessionId)
+                    .connection(sessionId)
+                    .status(MessageStatus.OK)
+                    .sequenceIndex(0)
+                    .libraryId(1)
+                    .messageType(MESSAGE_TYPE)
+                    .putMetaData(new byte[0], 0, 0)
+                    .putBody(new MutableAsciiBuffer(body), 0, body.length);
+
+                final int fragmentLength = MessageHeaderEncoder.ENCODED_LENGTH + fixMessage.encodedLength();
+                final int frameLength = HEADER_LENGTH + fragmentLength;
+                dataHeader.wrap(termBuffer, offset, HEADER_LENGTH);
+                dataHeader
+                    .sessionId(AERON_SESSION_ID)
+                    .streamId(streamId)
+                    .frameLength(frameLength)
+                    .headerType(HDR_TYPE_DATA)
+                    .flags(UNFRAGMENTED);
+
+                frameOffsets[frame] = offset;
+                fragmentLengths[frame] = fragmentLength;
+                frame++;
+                offset += BitUtil.align(frameLength, FRAME_ALIGNMENT);
+            }
+        }
+    }
+
+    /**
+     * Move onto the next frame, giving it the next position in the stream.
+     *
+     * @return the offset of the next fragment within the {@link #buffer()}.
+     */
+    int next()
+    {
+        int index = this.index;
+        if (index == frameOffsets.length)
+        {
+            index = 0;
+        }
+        this.index = index + 1;
+
+        final int frameOffset = frameOffsets[index];
+        final int alignedLength = BitUtil.align(HEADER_LENGTH + fragmentLengths[index], FRAME_ALIGNMENT);
+        if (termOffset + alignedLength > TERM_LENGTH)
+        {
+            termId++;
+            termOffset = 0;
+        }
+
+        dataHeader.wrap(termBuffer, frameOffset, HEADER_LENGTH);
+        dataHeader.termId(termId).termOffset(termOffset);
+        header.offset(frameOffset);
+        termOffset += alignedLength;
+        position = header.position();
+
+        return frameOffset + HEADER_LENGTH;
+    }
+
+    int length()
+    {
+        return fragmentLengths[index - 1];
+    }
+
+    long position()
+    {
+        return position;
+    }
+
+    UnsafeBuffer buffer()
+    {
+        return termBuffer;
+    }
+
+    Header header()
+    {
+        return header;
+    }
+}
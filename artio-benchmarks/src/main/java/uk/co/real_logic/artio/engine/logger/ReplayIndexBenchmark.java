@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.CountersManager;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
+import uk.co.real_logic.artio.messages.FixPProtocolType;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.session.Session.UNKNOWN;
+
+/**
+ * Indexes messages interleaved across a number of sessions into their replay index files, optionally also
+ * maintaining the session and message type index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplayIndexBenchmark
+{
+    private static final int STREAM_ID = DEFAULT_OUTBOUND_LIBRARY_STREAM;
+    private static final long RECORDING_ID = 1;
+    private static final int MESSAGES_PER_SESSION = 64;
+
+    @Param({"1", "100"})
+    public int sessionCount;
+
+    @Param({"false", "true"})
+    public boolean sessionMessageTypeIndexEnabled;
+
+    private File logFileDir;
+    private FixMessageFrames frames;
+    private ReplayIndex replayIndex;
+
+    @Setup
+    public void setup()
+    {
+        logFileDir = new File(IoUtil.tmpDirName(), "artio-replay-index-benchmark");
+        IoUtil.delete(logFileDir, true);
+        IoUtil.ensureDirectoryExists(logFileDir, logFileDir.getName());
+
+        frames = new FixMessageFrames(STREAM_ID, sessionCount, MESSAGES_PER_SESSION);
+
+        final CountersManager counters = new CountersManager(
+            new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[16 * 1024]));
+        replayIndex = new ReplayIndex(
+            new SequenceNumberExtractor(),
+            logFileDir.getAbsolutePath(),
+            STREAM_ID,
+            DEFAULT_REPLAY_INDEX_RECORD_CAPACITY,
+            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY,
+            LoggerUtil::map,
+            new UnsafeBuffer(new byte[DEFAULT_REPLAY_POSITION_BUFFER_SIZE]),
+            Throwable::printStackTrace,
+            new RecordingIdLookup(new YieldingIdleStrategy(), counters),
+            new Long2LongHashMap(UNKNOWN),
+            FixPProtocolType.ILINK_3,
+            mock(SequenceNumberIndexReader.class, withSettings().stubOnly()),
+            DEFAULT_TIME_INDEX_FLUSH_INTERVAL_IN_NS,
+            sessionMessageTypeIndexEnabled,
+            DEFAULT_SESSION_MESSAGE_TYPE_INDEX_BLOCK_GAP_IN_BYTES,
+            true,
+            DEFAULT_INDEX_CHECKSUM_ENABLED,
+            new ReplayEvictionHandler(Throwable::printStackTrace),
+            null);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        replayIndex.close();
+        IoUtil.delete(logFileDir, true);
+    }
+
+    @Benchmark
+    public int onFragment()
+    {
+        final FixMessageFrames frames = this.frames;
+        final int offset = frames.next();
+        replayIndex.onCatchup(frames.buffer(), offset, frames.length(), frames.header(), RECORDING_ID);
+        return replayIndex.doWork();
+    }
+}
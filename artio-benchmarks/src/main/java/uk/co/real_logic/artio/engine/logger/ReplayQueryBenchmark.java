@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.ExclusivePublication;
+import io.aeron.Subscription;
+import io.aeron.archive.ArchivingMediaDriver;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.codecs.SourceLocation;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.CountersReader;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.LogTag;
+import uk.co.real_logic.artio.TestFixtures;
+import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
+import uk.co.real_logic.artio.messages.FixPProtocolType;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.agrona.concurrent.status.CountersReader.NULL_COUNTER_ID;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.session.Session.UNKNOWN;
+
+/**
+ * Looks up a range of a session's messages in its replay index and replays them from the archive, which is the work
+ * that the Replayer does for each resend request. With a {@link RecentMessageCache} the messages are served from
+ * memory instead.
+ *
+ * Runs against an embedded archiving media driver that has recorded and indexed messages from a number of sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplayQueryBenchmark
+{
+    private static final String CHANNEL = CommonContext.IPC_CHANNEL;
+    private static final int STREAM_ID = DEFAULT_OUTBOUND_LIBRARY_STREAM;
+    private static final int SESSION_COUNT = 10;
+    private static final int MESSAGES_PER_SESSION = 256;
+    private static final long SESSION_ID = 1;
+    private static final int SEQUENCE_INDEX = 0;
+
+    @Param({"1", "100"})
+    public int replayedMessages;
+
+    @Param({"0", "1048576"})
+    public int recentMessageCacheCapacity;
+
+    private final ControlledFragmentHandler replayHandler = (buffer, offset, length, header) -> CONTINUE;
+    private final IdleStrategy idleStrategy = new YieldingIdleStrategy();
+
+    private File logFileDir;
+    private ArchivingMediaDriver mediaDriver;
+    private AeronArchive aeronArchive;
+    private ReplayIndex replayIndex;
+    private ReplayQuery query;
+    private int beginSequenceNumber;
+
+    @Setup
+    public void setup()
+    {
+        logFileDir = new File(IoUtil.tmpDirName(), "artio-replay-query-benchmark");
+        IoUtil.delete(logFileDir, true);
+        IoUtil.ensureDirectoryExists(logFileDir, logFileDir.getName());
+
+        mediaDriver = TestFixtures.launchMediaDriver();
+        aeronArchive = AeronArchive.connect(TestFixtures.aeronArchiveContext());
+        final Aeron aeron = aeronArchive.context().aeron();
+        final CountersReader counters = aeron.countersReader();
+        final RecordingIdLookup recordingIdLookup = new RecordingIdLookup(new YieldingIdleStrategy(), counters);
+
+        aeronArchive.startRecording(CHANNEL, STREAM_ID, SourceLocation.LOCAL);
+        final ExclusivePublication publication = aeron.addExclusivePublication(CHANNEL, STREAM_ID);
+        final Subscription subscription = aeron.addSubscription(CHANNEL, STREAM_ID);
+        final RecentMessageCache recentMessageCache = recentMessageCacheCapacity == 0 ?
+            null : new RecentMessageCache(recentMessageCacheCapacity);
+
+        replayIndex = new ReplayIndex(
+            new SequenceNumberExtractor(),
+            logFileDir.getAbsolutePath(),
+            STREAM_ID,
+            DEFAULT_REPLAY_INDEX_RECORD_CAPACITY,
+            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY,
+            LoggerUtil::map,
+            new UnsafeBuffer(new byte[DEFAULT_REPLAY_POSITION_BUFFER_SIZE]),
+            Throwable::printStackTrace,
+            recordingIdLookup,
+            new Long2LongHashMap(UNKNOWN),
+            FixPProtocolType.ILINK_3,
+            mock(SequenceNumberIndexReader.class, withSettings().stubOnly()),
+            DEFAULT_TIME_INDEX_FLUSH_INTERVAL_IN_NS,
+            DEFAULT_SESSION_MESSAGE_TYPE_INDEX_ENABLED,
+            DEFAULT_SESSION_MESSAGE_TYPE_INDEX_BLOCK_GAP_IN_BYTES,
+            true,
+            DEFAULT_INDEX_CHECKSUM_ENABLED,
+            new ReplayEvictionHandler(Throwable::printStackTrace),
+            recentMessageCache);
+
+        recordAndIndex(publication, subscription, counters);
+        CloseHelper.closeAll(publication, subscription);
+
+        query = new ReplayQuery(
+            logFileDir.getAbsolutePath(),
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            LoggerUtil::mapExistingFile,
+            STREAM_ID,
+            new NoOpIdleStrategy(),
+            aeronArchive,
+            Throwable::printStackTrace,
+            DEFAULT_ARCHIVE_REPLAY_STREAM,
+            DEFAULT_REPLAY_INDEX_RECORD_CAPACITY,
+            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY,
+            recentMessageCache);
+
+        beginSequenceNumber = 1;
+    }
+
+    private void recordAndIndex(
+        final ExclusivePublication publication, final Subscription subscription, final CountersReader counters)
+    {
+        int counterId;
+        while ((counterId = RecordingPos.findCounterIdBySession(counters, publication.sessionId())) == NULL_COUNTER_ID)
+        {
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+
+        final FixMessageFrames frames = new FixMessageFrames(STREAM_ID, SESSION_COUNT, MESSAGES_PER_SESSION);
+        final int frameCount = SESSION_COUNT * MESSAGES_PER_SESSION;
+        for (int i = 0; i < frameCount; i++)
+        {
+            final int offset = frames.next();
+            while (publication.offer(frames.buffer(), offset, frames.length()) <= 0)
+            {
+                idleStrategy.idle();
+            }
+            idleStrategy.reset();
+        }
+
+        int indexed = 0;
+        while (indexed < frameCount)
+        {
+            indexed += subscription.poll(replayIndex, frameCount);
+            replayIndex.doWork();
+        }
+
+        while (counters.getCounterValue(counterId) < publication.position())
+        {
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CloseHelper.closeAll(query, replayIndex, aeronArchive);
+        TestFixtures.cleanupMediaDriver(mediaDriver);
+        IoUtil.delete(logFileDir, true);
+    }
+
+    @Benchmark
+    public int query()
+    {
+        int beginSequenceNumber = this.beginSequenceNumber;
+        int endSequenceNumber = beginSequenceNumber + replayedMessages - 1;
+        if (endSequenceNumber > MESSAGES_PER_SESSION)
+        {
+            beginSequenceNumber = 1;
+            endSequenceNumber = replayedMessages;
+        }
+        this.beginSequenceNumber = endSequenceNumber + 1;
+
+        final ReplayOperation operation = query.query(
+            SESSION_ID,
+            beginSequenceNumber,
+            SEQUENCE_INDEX,
+            endSequenceNumber,
+            SEQUENCE_INDEX,
+            LogTag.REPLAY,
+            new FixMessageTracker(LogTag.REPLAY, replayHandler, SESSION_ID));
+
+        final IdleStrategy idleStrategy = this.idleStrategy;
+        while (!operation.pollReplay())
+        {
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+
+        return operation.replayedMessages();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.SystemEpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.CountersManager;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.engine.MappedFile;
+import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
+import uk.co.real_logic.artio.messages.FixPProtocolType;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.session.Session.UNKNOWN;
+
+/**
+ * Indexes the sequence numbers of messages interleaved across a number of sessions, including the periodic saving of
+ * the index file that happens when the indexed stream rolls over a term.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SequenceNumberIndexWriterBenchmark
+{
+    private static final int STREAM_ID = DEFAULT_INBOUND_LIBRARY_STREAM;
+    private static final long RECORDING_ID = 1;
+    private static final int MESSAGES_PER_SESSION = 64;
+
+    @Param({"1", "100"})
+    public int sessionCount;
+
+    private File indexDir;
+    private FixMessageFrames frames;
+    private SequenceNumberIndexWriter writer;
+
+    @Setup
+    public void setup()
+    {
+        indexDir = new File(IoUtil.tmpDirName(), "artio-sequence-number-index-benchmark");
+        IoUtil.delete(indexDir, true);
+        IoUtil.ensureDirectoryExists(indexDir, indexDir.getName());
+
+        frames = new FixMessageFrames(STREAM_ID, sessionCount, MESSAGES_PER_SESSION);
+
+        final CountersManager counters = new CountersManager(
+            new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[16 * 1024]));
+        final MappedFile indexFile = MappedFile.map(
+            new File(indexDir, DEFAULT_SEQUENCE_NUMBERS_RECEIVED_FILE), DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE);
+        writer = new SequenceNumberIndexWriter(
+            new SequenceNumberExtractor(),
+            new UnsafeBuffer(new byte[DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE]),
+            indexFile,
+            Throwable::printStackTrace,
+            STREAM_ID,
+            new RecordingIdLookup(new YieldingIdleStrategy(), counters),
+            DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS,
+            SystemEpochClock.INSTANCE,
+            null,
+            new Long2LongHashMap(UNKNOWN),
+            FixPProtocolType.ILINK_3,
+            false,
+            DEFAULT_INDEX_CHECKSUM_ENABLED,
+            true);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        writer.close();
+        IoUtil.delete(indexDir, true);
+    }
+
+    @Benchmark
+    public int onFragment()
+    {
+        final FixMessageFrames frames = this.frames;
+        final int offset = frames.next();
+        writer.onCatchup(frames.buffer(), offset, frames.length(), frames.header(), RECORDING_ID);
+        return writer.doWork();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.FragmentAssembler;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.BenchmarkMessages;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.messages.MessageStatus;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static io.aeron.protocol.HeaderFlyweight.HDR_TYPE_DATA;
+import static uk.co.real_logic.artio.decoder.NewOrderSingleDecoder.MESSAGE_TYPE;
+
+/**
+ * Merges streams of messages with interleaved timestamps into timestamp order, as the {@link FixArchiveScanner} does
+ * when scanning the inbound and outbound recordings together. Each poll of a stream returns a burst of messages so
+ * that messages which are ahead of the other streams get buffered and reordered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StreamTimestampZipperBenchmark
+{
+    private static final int FRAGMENT_LIMIT = 1024;
+    private static final int MESSAGES_PER_POLL = 8;
+    private static final int COMPACTION_SIZE = 64 * 1024;
+    private static final int MAXIMUM_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    @Param({"2", "4"})
+    public int streamCount;
+
+    @Param({"false", "true"})
+    public boolean lazilyCompact;
+
+    private StreamTimestampZipper zipper;
+    private long messagesHandled;
+
+    @Setup
+    public void setup()
+    {
+        final StreamTimestampZipper.Poller[] pollers = new StreamTimestampZipper.Poller[streamCount];
+        for (int i = 0; i < streamCount; i++)
+        {
+            pollers[i] = new SyntheticPoller(i, streamCount);
+        }
+
+        zipper = new StreamTimestampZipper(
+            (message, buffer, offset, length, header) -> messagesHandled++,
+            (fixPMessage, buffer, offset, header) -> messagesHandled++,
+            COMPACTION_SIZE,
+            MAXIMUM_BUFFER_SIZE,
+            lazilyCompact,
+            pollers);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        zipper.close();
+    }
+
+    @Benchmark
+    public int poll()
+    {
+        return zipper.poll(FRAGMENT_LIMIT);
+    }
+
+    static final class SyntheticPoller implements StreamTimestampZipper.Poller
+    {
+        private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+        private final Header header = new Header(0, 0);
+        private final FixMessageEncoder fixMessage = new FixMessageEncoder();
+        private final int streamId;
+        private final int streamCount;
+        private long timestamp;
+
+        SyntheticPoller(final int streamIndex, final int streamCount)
+        {
+            this.streamId = streamIndex + 1;
+            this.streamCount = streamCount;
+            timestamp = streamIndex;
+
+            final byte[] body = BenchmarkMessages.newOrderSingle(1, System.currentTimeMillis());
+            fixMessage
+                .wrapAndApplyHeader(buffer, HEADER_LENGTH, new MessageHeaderEncoder())
+                .session(streamId)
+                .connection(streamId)
+                .status(MessageStatus.OK)
+                .sequenceIndex(0)
+                .libraryId(1)
+                .messageType(MESSAGE_TYPE)
+                .putMetaData(new byte[0], 0, 0)
+                .putBody(new MutableAsciiBuffer(body), 0, body.length);
+
+            new DataHeaderFlyweight(buffer)
+                .streamId(streamId)
+                .frameLength(HEADER_LENGTH + fragmentLength())
+                .headerType(HDR_TYPE_DATA)
+                .flags(UNFRAGMENTED);
+            header.buffer(buffer);
+            header.offset(0);
+        }
+
+        public int poll(final FragmentAssembler fragmentAssembler, final int fragmentLimit)
+        {
+            final int messages = Math.min(MESSAGES_PER_POLL, fragmentLimit);
+            final int fragmentLength = fragmentLength();
+            for (int i = 0; i < messages; i++)
+            {
+                fixMessage.timestamp(timestamp);
+                timestamp += streamCount;
+                fragmentAssembler.onFragment(buffer, HEADER_LENGTH, fragmentLength, header);
+            }
+            return messages;
+        }
+
+        private int fragmentLength()
+        {
+            return MessageHeaderEncoder.ENCODED_LENGTH + fixMessage.encodedLength();
+        }
+
+        public int streamId()
+        {
+            return streamId;
+        }
+
+        public void close()
+        {
+        }
+
+        public boolean isComplete()
+        {
+            return false;
+        }
+    }
+}
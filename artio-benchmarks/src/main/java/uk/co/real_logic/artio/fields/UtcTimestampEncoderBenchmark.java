@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.fields;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes timestamps that advance by a millisecond on every operation, so {@link UtcTimestampEncoder#update(long)}
+ * mostly hits its cached date and time path in the same way that encoding sending times does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UtcTimestampEncoderBenchmark
+{
+    @Param({"MILLISECONDS", "MICROSECONDS", "NANOSECONDS"})
+    public EpochFractionFormat precision;
+
+    private UtcTimestampEncoder timestampEncoder;
+    private long epochFraction;
+    private long increment;
+
+    @Setup
+    public void setup()
+    {
+        final long timeInMs = System.currentTimeMillis();
+        timestampEncoder = new UtcTimestampEncoder(precision);
+        switch (precision)
+        {
+            case MICROSECONDS:
+                epochFraction = TimeUnit.MILLISECONDS.toMicros(timeInMs);
+                increment = TimeUnit.MILLISECONDS.toMicros(1);
+                break;
+
+            case NANOSECONDS:
+                epochFraction = TimeUnit.MILLISECONDS.toNanos(timeInMs);
+                increment = TimeUnit.MILLISECONDS.toNanos(1);
+                break;
+
+            default:
+                epochFraction = timeInMs;
+                increment = 1;
+                break;
+        }
+
+        timestampEncoder.initialise(epochFraction);
+    }
+
+    @Benchmark
+    public int encode()
+    {
+        epochFraction += increment;
+        return timestampEncoder.encode(epochFraction);
+    }
+
+    @Benchmark
+    public int update()
+    {
+        epochFraction += increment;
+        return timestampEncoder.update(epochFraction);
+    }
+}
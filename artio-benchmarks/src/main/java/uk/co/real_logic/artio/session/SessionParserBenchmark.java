@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.OffsetEpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.openjdk.jmh.annotations.*;
+import uk.co.real_logic.artio.BenchmarkMessages;
+import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.library.OnMessageInfo;
+import uk.co.real_logic.artio.messages.SessionState;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.EpochFractionClocks;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+import uk.co.real_logic.artio.validation.MessageValidationStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS;
+import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_RESEND_REQUEST_CONTROLLER;
+import static uk.co.real_logic.artio.messages.ConnectionType.ACCEPTOR;
+import static uk.co.real_logic.artio.util.MessageTypeEncoding.packMessageType;
+
+/**
+ * Parses in-order messages through the {@link SessionParser} of an active acceptor session, which covers header
+ * decoding, sequence number and sending time validation and the session's state updates.
+ *
+ * Nothing is published for in-order messages so the publications and proxy are stubs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SessionParserBenchmark
+{
+    private static final int MESSAGE_COUNT = 1024;
+    private static final int HEARTBEAT_INTERVAL_IN_S = 10;
+    private static final long SENDING_TIME_WINDOW_IN_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    @Param({"0", "D"})
+    public String messageType;
+
+    private final MutableAsciiBuffer[] messages = new MutableAsciiBuffer[MESSAGE_COUNT];
+
+    private InternalSession session;
+    private SessionParser parser;
+    private long packedMessageType;
+    private int index;
+
+    @Setup
+    public void setup()
+    {
+        final EpochNanoClock clock = new OffsetEpochNanoClock();
+        final SessionIdStrategy sessionIdStrategy = SessionIdStrategy.senderAndTarget();
+        final OnMessageInfo messageInfo = new OnMessageInfo();
+        final GatewayPublication publication = mock(GatewayPublication.class, withSettings().stubOnly());
+
+        session = new InternalSession(
+            HEARTBEAT_INTERVAL_IN_S,
+            1,
+            clock,
+            SessionState.ACTIVE,
+            false,
+            mock(SessionProxy.class, withSettings().stubOnly()),
+            publication,
+            publication,
+            sessionIdStrategy,
+            SENDING_TIME_WINDOW_IN_MS,
+            newCounter(),
+            newCounter(),
+            1,
+            1,
+            0,
+            DEFAULT_REASONABLE_TRANSMISSION_TIME_IN_MS,
+            new MutableAsciiBuffer(new byte[BUFFER_SIZE]),
+            false,
+            SessionCustomisationStrategy.none(),
+            messageInfo,
+            EpochFractionClocks.millisClock(clock),
+            ACCEPTOR,
+            DEFAULT_RESEND_REQUEST_CONTROLLER,
+            0,
+            false,
+            true,
+            new InternalSession.Formatters());
+
+        final FixDictionary fixDictionary = FixDictionary.of(FixDictionary.findDefault());
+        session.fixDictionary(fixDictionary);
+        session.sessionProcessHandler(mock(FixSessionOwner.class, withSettings().stubOnly()));
+
+        parser = new SessionParser(
+            session,
+            MessageValidationStrategy.none(),
+            Throwable::printStackTrace,
+            false,
+            false,
+            messageInfo,
+            sessionIdStrategy);
+        parser.fixDictionary(fixDictionary);
+
+        packedMessageType = packMessageType(messageType);
+        final long timeInMs = System.currentTimeMillis();
+        for (int i = 0; i < MESSAGE_COUNT; i++)
+        {
+            final int msgSeqNum = i + 1;
+            final byte[] message = "0".equals(messageType) ?
+                BenchmarkMessages.heartbeat(msgSeqNum, timeInMs) :
+                BenchmarkMessages.newOrderSingle(msgSeqNum, timeInMs);
+            messages[i] = new MutableAsciiBuffer(message);
+        }
+
+        session.lastReceivedMsgSeqNumOnly(0);
+        index = 0;
+    }
+
+    @Benchmark
+    public Object onMessage()
+    {
+        int index = this.index;
+        if (index == MESSAGE_COUNT)
+        {
+            session.lastReceivedMsgSeqNumOnly(0);
+            index = 0;
+        }
+        this.index = index + 1;
+
+        final MutableAsciiBuffer message = messages[index];
+        return parser.onMessage(message, 0, message.capacity(), packedMessageType, index);
+    }
+
+    private static AtomicCounter newCounter()
+    {
+        return new AtomicCounter(new UnsafeBuffer(new byte[64]), 0);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.builder;
+
+import org.agrona.DirectBuffer;
+import uk.co.real_logic.artio.fields.ReadOnlyDecimalFloat;
+import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.Arrays;
+
+import static uk.co.real_logic.artio.util.MutableAsciiBuffer.SEPARATOR;
+
+/**
+ * A pre-encoded message that can be sent repeatedly with only some of its field values changed, for example a quote
+ * or an order with a new price, quantity and ids.
+ *
+ * The message is encoded once using a generated {@link Encoder} and the fields that change are then updated in place
+ * using the put methods. Updating a field only touches the bytes of that field, the body length and the checksum,
+ * which is updated incrementally. If the new value has a different length to the old one then the rest of the
+ * message is moved, so values that are kept at a fixed width, eg: by padding them, are cheapest to update.
+ *
+ * Fields are referred to by a handle returned from {@link #field(int)}, which is the first field in the message
+ * with that tag. This class isn't thread safe.
+ */
+public final class MessageTemplate
+{
+    public static final int NO_FIELD = -1;
+
+    // Space before the message so that the body length field can grow.
+    private static final int HEAD_ROOM = 16;
+    private static final int SCRATCH_LENGTH = 64;
+    private static final int CHECKSUM_VALUE_LENGTH = 3;
+    private static final int TRAILER_LENGTH = "10=000\001".length();
+    private static final int INITIAL_FIELD_CAPACITY = 8;
+
+    private final MutableAsciiBuffer buffer;
+    private final MutableAsciiBuffer scratchBuffer = new MutableAsciiBuffer(new byte[SCRATCH_LENGTH]);
+
+    private int[] tags = new int[INITIAL_FIELD_CAPACITY];
+    private int[] valueOffsets = new int[INITIAL_FIELD_CAPACITY];
+    private int[] valueLengths = new int[INITIAL_FIELD_CAPACITY];
+    private int fieldCount;
+
+    private byte[] beginString = new byte[0];
+    private long messageType;
+    private int messageOffset;
+    private int bodyStart;
+    private int bodyLength;
+    private int trailerOffset;
+    private int checksum;
+
+    /**
+     * Create a template.
+     *
+     * @param capacity the maximum length of the message that the template holds.
+     */
+    public MessageTemplate(final int capacity)
+    {
+        buffer = new MutableAsciiBuffer(new byte[HEAD_ROOM + capacity]);
+    }
+
+    /**
+     * Encode the message that is used as a template. Any previously looked up fields are forgotten.
+     *
+     * @param encoder the encoder of the message, with all the fields of the message set.
+     * @return this template.
+     * @throws IllegalArgumentException if the encoded message doesn't have a body length field and a trailer.
+     */
+    public MessageTemplate encode(final Encoder encoder)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final long result = encoder.encode(buffer, HEAD_ROOM);
+        final int messageOffset = Encoder.offset(result);
+        final int messageEnd = messageOffset + Encoder.length(result);
+
+        final int beginStringEnd = buffer.scan(messageOffset, messageEnd, SEPARATOR);
+        final int bodyLengthValueOffset = beginStringEnd + "\0019=".length();
+        final int bodyLengthEnd = beginStringEnd == AsciiBuffer.UNKNOWN_INDEX ?
+            AsciiBuffer.UNKNOWN_INDEX : buffer.scan(bodyLengthValueOffset, messageEnd, SEPARATOR);
+        final int trailerOffset = messageEnd - TRAILER_LENGTH;
+        if (bodyLengthEnd == AsciiBuffer.UNKNOWN_INDEX || trailerOffset < bodyLengthEnd)
+        {
+            throw new IllegalArgumentException("Encoded message must have a body length and a trailer");
+        }
+
+        beginString = new byte[bodyLengthValueOffset - messageOffset];
+        buffer.getBytes(messageOffset, beginString);
+
+        this.messageType = encoder.messageType();
+        this.messageOffset = messageOffset;
+        this.bodyStart = bodyLengthEnd + 1;
+        this.bodyLength = buffer.getInt(bodyLengthValueOffset, bodyLengthEnd);
+        this.trailerOffset = trailerOffset;
+        this.checksum = buffer.computeChecksum(messageOffset, trailerOffset);
+        fieldCount = 0;
+
+        return this;
+    }
+
+    /**
+     * Lookup a field of the message in order to update its value.
+     *
+     * @param tag the tag of the field.
+     * @return the handle of the field to pass to the put methods.
+     * @throws IllegalArgumentException if the message doesn't contain the field.
+     */
+    public int field(final int tag)
+    {
+        final int field = findField(tag);
+        if (field == NO_FIELD)
+        {
+            throw new IllegalArgumentException("Missing field: " + tag);
+        }
+        return field;
+    }
+
+    /**
+     * Lookup a field of the message in order to update its value.
+     *
+     * @param tag the tag of the field.
+     * @return the handle of the field to pass to the put methods or {@link #NO_FIELD} if the message doesn't
+     * contain the field.
+     */
+    public int findField(final int tag)
+    {
+        final int[] tags = this.tags;
+        final int fieldCount = this.fieldCount;
+        for (int i = 0; i < fieldCount; i++)
+        {
+            if (tags[i] == tag)
+            {
+                return i;
+            }
+        }
+
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = trailerOffset;
+        int position = bodyStart;
+        while (position < end)
+        {
+            final int equalsPosition = buffer.scan(position, end, '=');
+            final int endOfField = equalsPosition == AsciiBuffer.UNKNOWN_INDEX ?
+                AsciiBuffer.UNKNOWN_INDEX : buffer.scan(equalsPosition + 1, end, SEPARATOR);
+            if (endOfField == AsciiBuffer.UNKNOWN_INDEX)
+            {
+                break;
+            }
+
+            if (buffer.getInt(position, equalsPosition) == tag)
+            {
+                return addField(tag, equalsPosition + 1, endOfField - (equalsPosition + 1));
+            }
+
+            position = endOfField + 1;
+        }
+
+        return NO_FIELD;
+    }
+
+    private int addField(final int tag, final int valueOffset, final int valueLength)
+    {
+        final int field = fieldCount;
+        if (field == tags.length)
+        {
+            final int newCapacity = field * 2;
+            tags = Arrays.copyOf(tags, newCapacity);
+            valueOffsets = Arrays.copyOf(valueOffsets, newCapacity);
+            valueLengths = Arrays.copyOf(valueLengths, newCapacity);
+        }
+
+        tags[field] = tag;
+        valueOffsets[field] = valueOffset;
+        valueLengths[field] = valueLength;
+        fieldCount = field + 1;
+        return field;
+    }
+
+    public void putInt(final int field, final int value)
+    {
+        putScratch(field, scratchBuffer.putIntAscii(0, value));
+    }
+
+    public void putLong(final int field, final long value)
+    {
+        putScratch(field, scratchBuffer.putLongAscii(0, value));
+    }
+
+    public void putFloat(final int field, final ReadOnlyDecimalFloat value)
+    {
+        putScratch(field, scratchBuffer.putFloatAscii(0, value));
+    }
+
+    public void putFloat(final int field, final long value, final int scale)
+    {
+        putScratch(field, scratchBuffer.putFloatAscii(0, value, scale));
+    }
+
+    public void putChar(final int field, final char value)
+    {
+        putScratch(field, scratchBuffer.putCharAscii(0, value));
+    }
+
+    public void putBoolean(final int field, final boolean value)
+    {
+        putScratch(field, scratchBuffer.putBooleanAscii(0, value));
+    }
+
+    public void putChars(final int field, final char[] value, final int length)
+    {
+        final int valueOffset = startValue(field, length);
+        final MutableAsciiBuffer buffer = this.buffer;
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putByte(valueOffset + i, (byte)value[i]);
+        }
+        endValue(valueOffset, length);
+    }
+
+    public void putAscii(final int field, final CharSequence value)
+    {
+        final int length = value.length();
+        final int valueOffset = startValue(field, length);
+        final MutableAsciiBuffer buffer = this.buffer;
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putByte(valueOffset + i, (byte)value.charAt(i));
+        }
+        endValue(valueOffset, length);
+    }
+
+    public void putBytes(final int field, final DirectBuffer value, final int offset, final int length)
+    {
+        final int valueOffset = startValue(field, length);
+        buffer.putBytes(valueOffset, value, offset, length);
+        endValue(valueOffset, length);
+    }
+
+    public void putBytes(final int field, final byte[] value, final int length)
+    {
+        final int valueOffset = startValue(field, length);
+        buffer.putBytes(valueOffset, value, 0, length);
+        endValue(valueOffset, length);
+    }
+
+    private void putScratch(final int field, final int length)
+    {
+        final int valueOffset = startValue(field, length);
+        buffer.putBytes(valueOffset, scratchBuffer, 0, length);
+        endValue(valueOffset, length);
+    }
+
+    // Removes the old value from the checksum and makes space for the new value.
+    private int startValue(final int field, final int length)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int valueOffset = valueOffsets[field];
+        final int oldLength = valueLengths[field];
+        checksum -= buffer.computeChecksum(valueOffset, valueOffset + oldLength);
+
+        final int lengthDelta = length - oldLength;
+        if (lengthDelta != 0)
+        {
+            final int restOffset = valueOffset + oldLength;
+            final int messageEnd = trailerOffset + TRAILER_LENGTH;
+            buffer.checkLimit(messageEnd + lengthDelta);
+            buffer.putBytes(restOffset + lengthDelta, buffer, restOffset, messageEnd - restOffset);
+
+            final int[] valueOffsets = this.valueOffsets;
+            for (int i = 0, fieldCount = this.fieldCount; i < fieldCount; i++)
+            {
+                if (valueOffsets[i] > valueOffset)
+                {
+                    valueOffsets[i] += lengthDelta;
+                }
+            }
+            valueLengths[field] = length;
+            trailerOffset += lengthDelta;
+            updateBodyLength(bodyLength + lengthDelta);
+        }
+
+        return valueOffset;
+    }
+
+    // Adds the new value to the checksum.
+    private void endValue(final int valueOffset, final int length)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int checksum = (this.checksum + buffer.computeChecksum(valueOffset, valueOffset + length)) & 0xFF;
+        this.checksum = checksum;
+        buffer.putNaturalPaddedIntAscii(trailerOffset + TRAILER_LENGTH - (CHECKSUM_VALUE_LENGTH + 1),
+            CHECKSUM_VALUE_LENGTH, checksum);
+    }
+
+    // The body length field is written backwards from the start of the body, like HeaderEncoder.finishHeader().
+    private void updateBodyLength(final int bodyLength)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int bodyStart = this.bodyStart;
+        checksum -= buffer.computeChecksum(messageOffset, bodyStart);
+
+        final int bodyLengthOffset = buffer.putNaturalIntAsciiFromEnd(bodyLength, bodyStart - 1);
+        final byte[] beginString = this.beginString;
+        final int messageOffset = bodyLengthOffset - beginString.length;
+        buffer.putBytes(messageOffset, beginString);
+
+        checksum += buffer.computeChecksum(messageOffset, bodyStart);
+        this.messageOffset = messageOffset;
+        this.bodyLength = bodyLength;
+    }
+
+    public MutableAsciiBuffer buffer()
+    {
+        return buffer;
+    }
+
+    public int offset()
+    {
+        return messageOffset;
+    }
+
+    public int length()
+    {
+        return trailerOffset + TRAILER_LENGTH - messageOffset;
+    }
+
+    public long messageType()
+    {
+        return messageType;
+    }
+}
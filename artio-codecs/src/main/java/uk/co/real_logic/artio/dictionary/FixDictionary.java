@@ -16,6 +16,7 @@
 package uk.co.real_logic.artio.dictionary;
 
 import org.agrona.LangUtil;
+import org.agrona.collections.IntHashSet;
 import uk.co.real_logic.artio.builder.*;
 import uk.co.real_logic.artio.decoder.*;
 
@@ -99,4 +100,18 @@ public interface FixDictionary
     SessionHeaderDecoder makeHeaderDecoder();
 
     SessionHeaderEncoder makeHeaderEncoder();
+
+    /**
+     * Gets the tags of every field in the standard header of this dictionary, including any custom header fields
+     * and the fields of repeating groups in the header. This lets a message's header be scanned without decoding
+     * it, the first field that isn't in this set is the start of the message's body.
+     *
+     * The returned set is shared and must not be modified.
+     *
+     * @return the tags of the header fields or null if this dictionary doesn't provide them.
+     */
+    default IntHashSet headerFieldTags()
+    {
+        return null;
+    }
 }
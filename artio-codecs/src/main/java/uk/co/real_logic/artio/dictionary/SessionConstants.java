@@ -41,6 +41,7 @@ public final class SessionConstants
     public static final int TARGET_SUB_ID = 57;
     public static final int ORIG_SENDING_TIME = 122;
     public static final int SENDER_LOCATION_ID = 142;
+    public static final int LAST_MSG_SEQ_NUM_PROCESSED = 369;
     public static final int TARGET_LOCATION_ID = 143;
     public static final int PASSWORD = 554;
     public static final int NEW_PASSWORD = 925;
@@ -19,6 +19,8 @@ import org.agrona.generation.OutputManager;
 import org.agrona.generation.PackageOutputManager;
 
 import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.BiFunction;
 
 public final class CodecConfiguration
@@ -57,12 +59,40 @@ public final class CodecConfiguration
     public static final String REJECT_UNKNOWN_ENUM_VALUE_PROPERTY = "reject.unknown.enum.value";
     public static final String FIX_TAGS_IN_JAVADOC = "fix.codecs.tags_in_javadoc";
 
+    /**
+     * Boolean system property to track the fields seen by generated decoders using bitsets indexed by a dense per
+     * decoder field index, rather than hash sets. Defaults to false.
+     * <p>
+     * This reduces the cost of validation on every decode. Unknown fields aren't tracked in the bitsets, so
+     * a repeated unknown field is reported as an unknown field rather than as a field appearing more than once.
+     */
+    public static final String BITSET_FIELD_TRACKING_PROPERTY = "fix.codecs.bitset_field_tracking";
+
+    /**
+     * Comma separated list of tags for which projection decoders are generated, eg: "11,55,54". Unset by default,
+     * in which case no projection decoders are generated.
+     * <p>
+     * Projection decoders are generated into the <code>decoder_projection</code> package. They decode the header as
+     * normal but stop scanning a message's body once every projected field defined for that message has been seen,
+     * so the cost of decoding is proportional to the position of the fields that are needed rather than the width of
+     * the message. Fields after that point, including the trailer, aren't decoded, so these decoders shouldn't be
+     * validated. Fields within repeating groups can't be projected.
+     */
+    public static final String PROJECTED_FIELDS_PROPERTY = "fix.codecs.projected_fields";
+
+    /**
+     * Maximum number of tags that can be projected.
+     */
+    public static final int MAX_PROJECTED_FIELDS = Long.SIZE;
+
     public static final String DEFAULT_PARENT_PACKAGE = "uk.co.real_logic.artio";
     public static final String DEFAULT_FIX_TAGS_IN_JAVADOC = "true";
 
     private String parentPackage = System.getProperty(PARENT_PACKAGE_PROPERTY, DEFAULT_PARENT_PACKAGE);
     private boolean flyweightsEnabled = Boolean.getBoolean(FLYWEIGHTS_ENABLED_PROPERTY);
     private boolean wrapEmptyBuffer = Boolean.getBoolean(WRAP_EMPTY_BUFFER);
+    private boolean bitsetFieldTracking = Boolean.getBoolean(BITSET_FIELD_TRACKING_PROPERTY);
+    private Set<Integer> projectedFields = parseProjectedFields(System.getProperty(PROJECTED_FIELDS_PROPERTY));
     private boolean fixTagsInJavadoc = Boolean.parseBoolean(System.getProperty(
         FIX_TAGS_IN_JAVADOC, DEFAULT_FIX_TAGS_IN_JAVADOC));
     private SharedCodecConfiguration sharedCodecConfiguration;
@@ -129,6 +159,41 @@ public final class CodecConfiguration
         return this;
     }
 
+    /**
+     * Use bitsets indexed by a dense per decoder field index to track visited and missing required fields in
+     * generated decoders, rather than hash sets.
+     *
+     * Defaults to the value of {@link #BITSET_FIELD_TRACKING_PROPERTY} system property.
+     *
+     * @param bitsetFieldTracking true to track fields with bitsets, false to use hash sets (default)
+     * @return this
+     */
+    public CodecConfiguration bitsetFieldTracking(final boolean bitsetFieldTracking)
+    {
+        this.bitsetFieldTracking = bitsetFieldTracking;
+        return this;
+    }
+
+    /**
+     * Generate projection decoders that only decode the given tags, see {@link #PROJECTED_FIELDS_PROPERTY} for
+     * details.
+     *
+     * Defaults to the value of {@link #PROJECTED_FIELDS_PROPERTY} system property.
+     *
+     * @param projectedFields the tags of the fields to decode, no projection decoders are generated if empty.
+     * @return this
+     */
+    public CodecConfiguration projectedFields(final int... projectedFields)
+    {
+        final Set<Integer> fields = new HashSet<>();
+        for (final int field : projectedFields)
+        {
+            fields.add(field);
+        }
+        this.projectedFields = fields.isEmpty() ? null : fields;
+        return this;
+    }
+
     /**
      * Allow duplicate fields. Executable documentation can be found in the test "DuplicateFieldsTest".
      *
@@ -248,6 +313,16 @@ public final class CodecConfiguration
         return wrapEmptyBuffer;
     }
 
+    boolean bitsetFieldTracking()
+    {
+        return bitsetFieldTracking;
+    }
+
+    Set<Integer> projectedFields()
+    {
+        return projectedFields;
+    }
+
     String codecRejectUnknownEnumValueEnabled()
     {
         return codecRejectUnknownEnumValueEnabled;
@@ -287,8 +362,19 @@ public final class CodecConfiguration
                 rejectUnknownEnumPropertyValue : Generator.RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY;
         }
 
+        if (projectedFields != null && projectedFields.size() > MAX_PROJECTED_FIELDS)
+        {
+            throw new IllegalArgumentException(
+                "Cannot project more than " + MAX_PROJECTED_FIELDS + " fields: " + projectedFields);
+        }
+
         if (sharedCodecConfiguration != null)
         {
+            if (projectedFields != null)
+            {
+                throw new IllegalArgumentException("Projection decoders aren't supported with shared codecs");
+            }
+
             if (nonSharedDictionary.hasStreams())
             {
                 throw new IllegalArgumentException(
@@ -306,4 +392,19 @@ public final class CodecConfiguration
             }
         }
     }
+
+    private static Set<Integer> parseProjectedFields(final String projectedFields)
+    {
+        if (projectedFields == null || projectedFields.trim().isEmpty())
+        {
+            return null;
+        }
+
+        final Set<Integer> fields = new HashSet<>();
+        for (final String field : projectedFields.split(","))
+        {
+            fields.add(Integer.parseInt(field.trim()));
+        }
+        return fields;
+    }
 }
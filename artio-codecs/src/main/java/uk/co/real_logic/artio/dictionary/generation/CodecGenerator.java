@@ -140,6 +140,7 @@ public final class CodecGenerator
         final String encoderPackage = parentPackage + ".builder";
         final String decoderPackage = parentPackage + ".decoder";
         final String decoderFlyweightPackage = parentPackage + ".decoder_flyweight";
+        final String decoderProjectionPackage = parentPackage + ".decoder_projection";
 
         final BiFunction<String, String, OutputManager> outputManagerFactory =
             configuration.outputManagerFactory();
@@ -181,7 +182,9 @@ public final class CodecGenerator
             false,
             configuration.wrapEmptyBuffer(),
             codecRejectUnknownEnumValueEnabled,
-            configuration.fixTagsInJavadoc()).generate();
+            configuration.fixTagsInJavadoc(),
+            configuration.bitsetFieldTracking(),
+            null).generate();
 
         new PrinterGenerator(dictionary, decoderPackage, decoderOutput).generate();
         new AcceptorGenerator(dictionary, decoderPackage, decoderOutput).generate();
@@ -203,7 +206,45 @@ public final class CodecGenerator
                 true,
                 configuration.wrapEmptyBuffer(),
                 codecRejectUnknownEnumValueEnabled,
-                configuration.fixTagsInJavadoc()).generate();
+                configuration.fixTagsInJavadoc(),
+                configuration.bitsetFieldTracking(),
+                null).generate();
         }
+
+        if (configuration.projectedFields() != null)
+        {
+            generateProjectionDecoders(
+                configuration, outputPath, codecRejectUnknownEnumValueEnabled, dictionary, parentPackage,
+                encoderPackage, decoderProjectionPackage);
+        }
+    }
+
+    private static void generateProjectionDecoders(
+        final CodecConfiguration configuration,
+        final String outputPath,
+        final String codecRejectUnknownEnumValueEnabled,
+        final Dictionary dictionary,
+        final String parentPackage,
+        final String encoderPackage,
+        final String decoderProjectionPackage)
+    {
+        final PackageOutputManager projectionDecoderOutput =
+            new PackageOutputManager(outputPath, decoderProjectionPackage);
+
+        new DecoderGenerator(
+            dictionary,
+            1,
+            decoderProjectionPackage,
+            parentPackage,
+            encoderPackage, projectionDecoderOutput,
+            Validation.class,
+            RejectUnknownField.class,
+            RejectUnknownEnumValue.class,
+            configuration.flyweightsEnabled(),
+            configuration.wrapEmptyBuffer(),
+            codecRejectUnknownEnumValueEnabled,
+            configuration.fixTagsInJavadoc(),
+            configuration.bitsetFieldTracking(),
+            configuration.projectedFields()).generate();
     }
 }
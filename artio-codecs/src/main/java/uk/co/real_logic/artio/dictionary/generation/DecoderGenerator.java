@@ -72,6 +72,8 @@ class DecoderGenerator extends Generator
     public static final String REQUIRED_FIELDS = "REQUIRED_FIELDS";
     private static final String GROUP_FIELDS = "GROUP_FIELDS";
     private static final String ALL_GROUP_FIELDS = "ALL_GROUP_FIELDS";
+    private static final String TRACKED_FIELD_TAGS = "TRACKED_FIELD_TAGS";
+    private static final String REQUIRED_FIELD_BITS = "REQUIRED_FIELD_BITS";
 
     // Has to be generated everytime since HeaderDecoder and TrailerDecoder are generated.
     private static final String MESSAGE_DECODER =
@@ -119,6 +121,20 @@ class DecoderGenerator extends Generator
      * Wrap empty buffer instead of throwing an exception if an optional string is unset.
      */
     private final boolean wrapEmptyBuffer;
+    /**
+     * Track visited and missing required fields in bitsets indexed by a per-decoder dense field index rather than
+     * in hash sets.
+     */
+    private final boolean bitsetFieldTracking;
+    /**
+     * Tags that projection decoders decode, null if this isn't generating projection decoders. Message decoders stop
+     * scanning once they have seen every projected field that their message defines.
+     */
+    private final Set<Integer> projectedTags;
+    /**
+     * Bit within the seen projected fields bitset for each projected tag of the message being generated.
+     */
+    private final Map<Integer, Long> messageProjectedFieldBits = new HashMap<>();
 
     DecoderGenerator(
         final Dictionary dictionary,
@@ -133,13 +149,17 @@ class DecoderGenerator extends Generator
         final boolean flyweightsEnabled,
         final boolean wrapEmptyBuffer,
         final String codecRejectUnknownEnumValueEnabled,
-        final boolean fixTagsInJavadoc)
+        final boolean fixTagsInJavadoc,
+        final boolean bitsetFieldTracking,
+        final Set<Integer> projectedTags)
     {
         super(dictionary, thisPackage, commonPackage, outputManager, validationClass, rejectUnknownFieldClass,
             rejectUnknownEnumValueClass, flyweightsEnabled, codecRejectUnknownEnumValueEnabled, fixTagsInJavadoc);
         this.initialBufferSize = initialBufferSize;
         this.encoderPackage = encoderPackage;
         this.wrapEmptyBuffer = wrapEmptyBuffer;
+        this.bitsetFieldTracking = bitsetFieldTracking;
+        this.projectedTags = projectedTags;
     }
 
     public void generate()
@@ -471,16 +491,31 @@ class DecoderGenerator extends Generator
 
     private String additionalReset(final boolean isGroup)
     {
+        final String resetFieldTracking;
+        if (bitsetFieldTracking)
+        {
+            resetFieldTracking =
+                "            Arrays.fill(missingRequiredFieldBits, 0L);\n" +
+                (isGroup ? "" :
+                "            unknownFieldTag = MISSING_INT;\n" +
+                "            Arrays.fill(visitedFieldBits, 0L);\n");
+        }
+        else
+        {
+            resetFieldTracking =
+                "            missingRequiredFields.clear();\n" +
+                (isGroup ? "" :
+                "            unknownFields.clear();\n" +
+                "            alreadyVisitedFields.clear();\n");
+        }
+
         return
             "        buffer = null;\n" +
             "        if (" + CODEC_VALIDATION_ENABLED + ")\n" +
             "        {\n" +
             "            invalidTagId = Decoder.NO_ERROR;\n" +
             "            rejectReason = Decoder.NO_ERROR;\n" +
-            "            missingRequiredFields.clear();\n" +
-            (isGroup ? "" :
-                "            unknownFields.clear();\n" +
-                "            alreadyVisitedFields.clear();\n") +
+            resetFieldTracking +
             "        }\n";
     }
 
@@ -522,9 +557,13 @@ class DecoderGenerator extends Generator
         final boolean isMessage = type == MESSAGE;
         final boolean isGroup = type == GROUP;
         final String messageValidation = isMessage ?
+            (bitsetFieldTracking ?
+            "        if (" + CODEC_REJECT_UNKNOWN_FIELD_ENABLED + " && unknownFieldTag != MISSING_INT)\n" +
+            "        {\n" +
+            "            invalidTagId = unknownFieldTag;\n" :
             "        if (" + CODEC_REJECT_UNKNOWN_FIELD_ENABLED + " && unknownFieldsIterator.hasNext())\n" +
             "        {\n" +
-            "            invalidTagId = unknownFieldsIterator.nextValue();\n" +
+            "            invalidTagId = unknownFieldsIterator.nextValue();\n") +
             "            rejectReason = Constants.ALL_FIELDS.contains(invalidTagId) ? " +
             TAG_NOT_DEFINED_FOR_THIS_MESSAGE_TYPE + " : " + INVALID_TAG_NUMBER + ";\n" +
             "            return false;\n" +
@@ -543,6 +582,13 @@ class DecoderGenerator extends Generator
             "        }\n" :
             "";
 
+        if (bitsetFieldTracking)
+        {
+            out.append(generateBitsetValidation(aggregate, requiredFields, isMessage, isGroup,
+                messageValidation, enumValidation, groupValidation));
+            return;
+        }
+
         out.append(String.format(
             (isGroup ? generateAllGroupFields(aggregate) :
             "    private final IntHashSet alreadyVisitedFields = new IntHashSet(%5$d);\n\n" +
@@ -575,6 +621,132 @@ class DecoderGenerator extends Generator
             2 * aggregate.allFieldsIncludingComponents().count()));
     }
 
+    private String generateBitsetValidation(
+        final Aggregate aggregate,
+        final List<Field> requiredFields,
+        final boolean isMessage,
+        final boolean isGroup,
+        final String messageValidation,
+        final String enumValidation,
+        final String groupValidation)
+    {
+        final List<Field> trackedFields = trackedFields(aggregate);
+        final int fieldCount = trackedFields.size();
+        final int wordCount = (fieldCount + Long.SIZE - 1) / Long.SIZE;
+
+        final long[] requiredFieldBits = new long[wordCount];
+        for (final Field requiredField : requiredFields)
+        {
+            final int index = trackedFieldIndex(trackedFields, requiredField.number());
+            requiredFieldBits[index / Long.SIZE] |= 1L << index;
+        }
+
+        final String fieldTags = trackedFields
+            .stream()
+            .map((field) -> "Constants." + constantName(field.name()))
+            .collect(joining(", "));
+        final String requiredBits = Arrays
+            .stream(requiredFieldBits)
+            .mapToObj((bits) -> String.format("0x%016XL", bits))
+            .collect(joining(", "));
+
+        final StringBuilder indexCases = new StringBuilder();
+        for (int index = 0; index < fieldCount; index++)
+        {
+            indexCases.append(String.format(
+                "            case Constants.%1$s: return %2$d;\n",
+                constantName(trackedFields.get(index).name()),
+                index));
+        }
+
+        return String.format(
+            (isGroup ? generateAllGroupFields(aggregate) :
+            "    private final long[] visitedFieldBits = new long[%1$d];\n\n" +
+            "    private int unknownFieldTag = MISSING_INT;\n\n") +
+            "    private static final int[] " + TRACKED_FIELD_TAGS + " = { %2$s };\n\n" +
+            "    private static final long[] " + REQUIRED_FIELD_BITS + " = { %3$s };\n\n" +
+            "    private final long[] missingRequiredFieldBits = new long[%1$d];\n\n" +
+            "    private static int trackedFieldIndex(final int tag)\n" +
+            "    {\n" +
+            "        switch (tag)\n" +
+            "        {\n" +
+            "%4$s" +
+            "            default: return -1;\n" +
+            "        }\n" +
+            "    }\n\n" +
+            "    private int missingRequiredField()\n" +
+            "    {\n" +
+            "        for (int i = 0; i < missingRequiredFieldBits.length; i++)\n" +
+            "        {\n" +
+            "            final long missingBits = missingRequiredFieldBits[i];\n" +
+            "            if (missingBits != 0)\n" +
+            "            {\n" +
+            "                return " + TRACKED_FIELD_TAGS + "[(i << 6) + Long.numberOfTrailingZeros(missingBits)];\n" +
+            "            }\n" +
+            "        }\n" +
+            "        return MISSING_INT;\n" +
+            "    }\n\n" +
+            "    public boolean validate()\n" +
+            "    {\n" +
+            // validation for some tags performed in the decode method
+            "        if (rejectReason != Decoder.NO_ERROR)\n" +
+            "        {\n" +
+            "            return false;\n" +
+            "        }\n" +
+            "        final int missingFieldTag = missingRequiredField();\n" +
+            "%5$s" +
+            "        if (missingFieldTag != MISSING_INT)\n" +
+            "        {\n" +
+            "            invalidTagId = missingFieldTag;\n" +
+            "            rejectReason = " + REQUIRED_TAG_MISSING + ";\n" +
+            "            return false;\n" +
+            "        }\n" +
+            "%6$s" +
+            "%7$s" +
+            "        return true;\n" +
+            "    }\n\n",
+            wordCount,
+            fieldTags,
+            requiredBits,
+            indexCases,
+            messageValidation,
+            enumValidation,
+            groupValidation);
+    }
+
+    // The fields that have a case within the decode method's switch statement, in the order of their dense index.
+    private List<Field> trackedFields(final Aggregate aggregate)
+    {
+        final Map<Integer, Field> fieldsByNumber = new LinkedHashMap<>();
+        aggregate
+            .entries()
+            .stream()
+            .flatMap(this::extractDecodedFields)
+            .forEach((field) -> fieldsByNumber.putIfAbsent(field.number(), field));
+        return new ArrayList<>(fieldsByNumber.values());
+    }
+
+    private Stream<Field> extractDecodedFields(final Entry entry)
+    {
+        return entry.match(
+            (e, field) -> Stream.of(field),
+            (e, group) -> Stream.of((Field)group.numberField().element()),
+            (e, component) -> component.entries().stream().flatMap(this::extractDecodedFields));
+    }
+
+    private static int trackedFieldIndex(final List<Field> trackedFields, final int number)
+    {
+        for (int index = 0; index < trackedFields.size(); index++)
+        {
+            if (trackedFields.get(index).number() == number)
+            {
+                return index;
+            }
+        }
+
+        throw new IllegalStateException("Required field " + number + " isn't decoded by its aggregate");
+    }
+
     private String generateAllGroupFields(final Aggregate groupAggregate)
     {
         final List<Field> allGroupFields = groupAggregate
@@ -1659,10 +1831,13 @@ class DecoderGenerator extends Generator
         final boolean isGroup = type == GROUP;
         final boolean isHeader = type == HEADER;
         final String endGroupCheck = endGroupCheck(aggregate, isGroup);
-        final String prefix = generateDecodePrefix(aggregate, hasCommonCompounds, isGroup, isHeader, endGroupCheck);
+        final String projectionCheck = hasCommonCompounds ? projectionCheck(aggregate) : "";
+        final String prefix = generateDecodePrefix(
+            aggregate, hasCommonCompounds, isGroup, isHeader, endGroupCheck, projectionCheck);
         final String body = entries.stream()
             .map(this::decodeEntry)
             .collect(joining("\n", "", "\n"));
+        messageProjectedFieldBits.clear();
 
         final String suffix =
             "            default:\n" +
@@ -1670,6 +1845,8 @@ class DecoderGenerator extends Generator
             "                {\n" +
             (isGroup ?
             "                    seenFields.remove(tag);\n" :
+            // Unknown fields aren't tracked in the visited field bitset
+            bitsetFieldTracking ? "" :
             "                    alreadyVisitedFields.remove(tag);\n") +
             "                }\n" +
             (isGroup ? "" :
@@ -1677,7 +1854,12 @@ class DecoderGenerator extends Generator
             "                {\n" +
             "                    if (!" + unknownFieldPredicate(type) + ")\n" +
             "                    {\n" +
-            "                        unknownFields.add(tag);\n" +
+            (bitsetFieldTracking ?
+            "                        if (unknownFieldTag == MISSING_INT)\n" +
+            "                        {\n" +
+            "                            unknownFieldTag = tag;\n" +
+            "                        }\n" :
+            "                        unknownFields.add(tag);\n") +
             "                    }\n" +
             "                }\n") +
 
@@ -1704,7 +1886,8 @@ class DecoderGenerator extends Generator
         final boolean hasCommonCompounds,
         final boolean isGroup,
         final boolean isHeader,
-        final String endGroupCheck)
+        final String endGroupCheck,
+        final String projectionCheck)
     {
         return "    public int decode(final AsciiBuffer buffer, final int offset, final int length)\n" +
             "    {\n" +
@@ -1712,17 +1895,18 @@ class DecoderGenerator extends Generator
             "        int seenFieldCount = 0;\n" +
             "        if (" + CODEC_VALIDATION_ENABLED + ")\n" +
             "        {\n" +
-            "            missingRequiredFields.copy(" + REQUIRED_FIELDS + ");\n" +
-            (isGroup ? "" : "            alreadyVisitedFields.clear();\n") +
+            resetFieldTrackingOnDecode(isGroup) +
             "        }\n" +
             "        this.buffer = buffer;\n" +
             "        final int end = offset + length;\n" +
             "        int position = offset;\n" +
             (hasCommonCompounds ? "        position += header.decode(buffer, position, length);\n" : "") +
             (isGroup ? "        seenFields.clear();\n" : "") +
+            (projectionCheck.isEmpty() ? "" : "        long seenProjectedFieldBits = 0;\n") +
             "        int tag;\n\n" +
             "        while (position < end)\n" +
             "        {\n" +
+            projectionCheck +
             "            final int equalsPosition = buffer.scan(position, end, '=');\n" +
             "            if (equalsPosition == AsciiBuffer.UNKNOWN_INDEX)\n" +
             "            {\n" +
@@ -1747,17 +1931,93 @@ class DecoderGenerator extends Generator
             "                    rejectReason = " + TAG_SPECIFIED_WITHOUT_A_VALUE + ";\n" +
             "                }\n" +
             headerValidation(isHeader) +
+            trackVisitedField(isGroup) +
+            "                seenFieldCount++;\n" +
+            "            }\n\n" +
+            "            switch (tag)\n" +
+            "            {\n";
+    }
+
+    // Projection decoders return as soon as every projected field of the message has been seen, without scanning
+    // the rest of the body or the trailer.
+    private String projectionCheck(final Aggregate aggregate)
+    {
+        if (projectedTags == null)
+        {
+            return "";
+        }
+
+        long allProjectedFieldBits = 0;
+        final List<Entry> fields = aggregate.allFieldsIncludingComponents().collect(toList());
+        for (final Entry entry : fields)
+        {
+            final int tag = ((Field)entry.element()).number();
+            if (projectedTags.contains(tag) && !messageProjectedFieldBits.containsKey(tag))
+            {
+                final long bit = 1L << messageProjectedFieldBits.size();
+                messageProjectedFieldBits.put(tag, bit);
+                allProjectedFieldBits |= bit;
+            }
+        }
+
+        return String.format(
+            "            if (seenProjectedFieldBits == 0x%XL)\n" +
+            "            {\n" +
+            "                return position - offset;\n" +
+            "            }\n",
+            allProjectedFieldBits);
+    }
+
+    private String projectedFieldSeen(final Entry entry)
+    {
+        final Long bit = messageProjectedFieldBits.get(((Field)entry.element()).number());
+        return bit == null ? "" : String.format("                seenProjectedFieldBits |= 0x%XL;\n", bit);
+    }
+
+    private String resetFieldTrackingOnDecode(final boolean isGroup)
+    {
+        if (bitsetFieldTracking)
+        {
+            return
+                "            System.arraycopy(" + REQUIRED_FIELD_BITS + ", 0, missingRequiredFieldBits, 0, " +
+                REQUIRED_FIELD_BITS + ".length);\n" +
+                (isGroup ? "" : "            Arrays.fill(visitedFieldBits, 0L);\n");
+        }
+
+        return
+            "            missingRequiredFields.copy(" + REQUIRED_FIELDS + ");\n" +
+            (isGroup ? "" : "            alreadyVisitedFields.clear();\n");
+    }
+
+    private String trackVisitedField(final boolean isGroup)
+    {
+        if (bitsetFieldTracking)
+        {
+            return
+                "                final int trackedIndex = trackedFieldIndex(tag);\n" +
+                "                if (trackedIndex != -1)\n" +
+                "                {\n" +
+                "                    final int trackedWord = trackedIndex >>> 6;\n" +
+                "                    final long trackedBit = 1L << trackedIndex;\n" +
+                (isGroup ? "" :
+                "                    if ((visitedFieldBits[trackedWord] & trackedBit) != 0)\n" +
+                "                    {\n" +
+                "                        invalidTagId = tag;\n" +
+                "                        rejectReason = " + TAG_APPEARS_MORE_THAN_ONCE + ";\n" +
+                "                    }\n" +
+                "                    visitedFieldBits[trackedWord] |= trackedBit;\n") +
+                "                    missingRequiredFieldBits[trackedWord] &= ~trackedBit;\n" +
+                "                }\n";
+        }
+
+        return
             (isGroup ? "" :
             "                if (!alreadyVisitedFields.add(tag))\n" +
             "                {\n" +
             "                    invalidTagId = tag;\n" +
             "                    rejectReason = " + TAG_APPEARS_MORE_THAN_ONCE + ";\n" +
             "                }\n") +
-            "                missingRequiredFields.remove(tag);\n" +
-            "                seenFieldCount++;\n" +
-            "            }\n\n" +
-            "            switch (tag)\n" +
-            "            {\n";
+            "                missingRequiredFields.remove(tag);\n";
     }
 
     private String malformedMessageCheck()
@@ -1843,7 +2103,7 @@ class DecoderGenerator extends Generator
     private String decodeEntry(final Entry entry)
     {
         return entry.matchEntry(
-            (e) -> decodeField(e, ""),
+            (e) -> decodeField(e, projectedFieldSeen(e)),
             this::decodeGroup,
             this::decodeComponent);
     }
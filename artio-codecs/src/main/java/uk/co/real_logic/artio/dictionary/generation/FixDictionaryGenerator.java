@@ -18,9 +18,11 @@ package uk.co.real_logic.artio.dictionary.generation;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.agrona.LangUtil;
+import org.agrona.collections.IntHashSet;
 import org.agrona.generation.OutputManager;
 
 
@@ -37,7 +39,11 @@ import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.dictionary.Generated;
 import uk.co.real_logic.artio.dictionary.ir.Aggregate;
+import uk.co.real_logic.artio.dictionary.ir.Component;
 import uk.co.real_logic.artio.dictionary.ir.Dictionary;
+import uk.co.real_logic.artio.dictionary.ir.Entry;
+import uk.co.real_logic.artio.dictionary.ir.Field;
+import uk.co.real_logic.artio.dictionary.ir.Group;
 
 import static uk.co.real_logic.artio.dictionary.generation.GenerationUtil.GENERATED_ANNOTATION;
 import static uk.co.real_logic.artio.dictionary.generation.GenerationUtil.fileHeader;
@@ -62,6 +68,19 @@ class FixDictionaryGenerator
         "    {\n" +
         "        return new HeaderEncoder();\n" +
         "    }\n" +
+        "\n" +
+        "    public IntHashSet headerFieldTags()\n" +
+        "    {\n" +
+        "        return HEADER_FIELD_TAGS;\n" +
+        "    }\n" +
+        "\n";
+
+    private static final String HEADER_FIELD_TAGS_TEMPLATE =
+        "    private static final IntHashSet HEADER_FIELD_TAGS = new IntHashSet(%1$d);\n" +
+        "    static\n" +
+        "    {\n" +
+        "%2$s" +
+        "    }\n" +
         "\n";
 
     private static final String MAKE_TEMPLATE = "" +
@@ -107,9 +126,11 @@ class FixDictionaryGenerator
             try
             {
                 final StringBuilder sb = new StringBuilder(String.format(TEMPLATE, dictionary.beginString()));
+                sb.append(generateHeaderFieldTags());
                 out.append(fileHeader(parentPackage));
 
                 out.append(importFor(FixDictionary.class));
+                out.append(importFor(IntHashSet.class));
 
                 out.append(importFor(AbstractLogonEncoder.class));
                 addEncoderImport(out, encoderPackage, "Logon", allMessageNames, sb);
@@ -167,6 +188,42 @@ class FixDictionaryGenerator
         });
     }
 
+    private String generateHeaderFieldTags()
+    {
+        final Set<Integer> headerFieldTags = new TreeSet<>();
+        addFieldTags(dictionary.header(), headerFieldTags);
+
+        final String addTags = headerFieldTags
+            .stream()
+            .map((tag) -> "        HEADER_FIELD_TAGS.add(" + tag + ");\n")
+            .collect(Collectors.joining());
+
+        return String.format(
+            HEADER_FIELD_TAGS_TEMPLATE, ConstantGenerator.sizeHashSet(headerFieldTags), addTags);
+    }
+
+    private static void addFieldTags(final Aggregate aggregate, final Set<Integer> fieldTags)
+    {
+        for (final Entry entry : aggregate.entries())
+        {
+            final Entry.Element element = entry.element();
+            if (element instanceof Field)
+            {
+                fieldTags.add(((Field)element).number());
+            }
+            else if (element instanceof Group)
+            {
+                final Group group = (Group)element;
+                fieldTags.add(group.numberField().number());
+                addFieldTags(group, fieldTags);
+            }
+            else if (element instanceof Component)
+            {
+                addFieldTags((Component)element, fieldTags);
+            }
+        }
+    }
+
     private static void addEncoderImport(
         final Writer out,
         final String encoderPackage,
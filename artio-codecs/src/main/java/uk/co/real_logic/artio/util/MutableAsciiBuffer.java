@@ -25,6 +25,7 @@ import uk.co.real_logic.artio.util.float_parsing.DecimalFloatParser;
 
 import java.nio.ByteBuffer;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
 
@@ -36,6 +37,15 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
     private static final byte Y = (byte)'Y';
     private static final byte N = (byte)'N';
 
+    // Constants for word at a time (SWAR) scanning and checksumming
+    private static final long SWAR_ONES = 0x0101_0101_0101_0101L;
+    private static final long SWAR_LOW_BITS = 0x7F7F_7F7F_7F7F_7F7FL;
+    private static final long SWAR_HIGH_BITS = 0x8080_8080_8080_8080L;
+    private static final long SWAR_EVEN_BYTES = 0x00FF_00FF_00FF_00FFL;
+    private static final long SWAR_EVEN_SHORTS = 0x0000_FFFF_0000_FFFFL;
+    // 128 words add at most 128 * 2 * 255 = 65,280 to each 16 bit lane
+    private static final int CHECKSUM_WORDS_PER_FOLD = 128;
+
     public MutableAsciiBuffer()
     {
         super(0, 0);
@@ -218,24 +228,54 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
 
     public int scan(final int startInclusive, final int endExclusive, final byte terminator)
     {
-        int indexValue = UNKNOWN_INDEX;
-        for (int i = startInclusive; i < endExclusive; i++)
+        final long pattern = SWAR_ONES * (terminator & 0xFF);
+        final int wordLimit = endExclusive - Long.BYTES;
+
+        int index = startInclusive;
+        for (; index <= wordLimit; index += Long.BYTES)
         {
-            final byte value = getByte(i);
-            if (value == terminator)
+            final long matches = zeroBytes(getLong(index, LITTLE_ENDIAN) ^ pattern);
+            if (matches != 0)
             {
-                indexValue = i;
-                break;
+                return index + (Long.numberOfTrailingZeros(matches) >>> 3);
             }
         }
 
-        return indexValue;
+        for (; index < endExclusive; index++)
+        {
+            if (getByte(index) == terminator)
+            {
+                return index;
+            }
+        }
+
+        return UNKNOWN_INDEX;
     }
 
     public int computeChecksum(final int startInclusive, final int endExclusive)
     {
+        final int wordLimit = endExclusive - Long.BYTES;
+
         int total = 0;
-        for (int index = startInclusive; index < endExclusive; index++)
+        int index = startInclusive;
+        while (index <= wordLimit)
+        {
+            // Bytes are summed as unsigned values into 16 bit lanes, which can't overflow within a fold.
+            // The checksum is defined over signed bytes, so each negative byte is corrected by 256.
+            final int foldLimit = Math.min(wordLimit, index + (CHECKSUM_WORDS_PER_FOLD - 1) * Long.BYTES);
+            long lanes = 0;
+            int negativeBytes = 0;
+            for (; index <= foldLimit; index += Long.BYTES)
+            {
+                final long word = getLong(index, LITTLE_ENDIAN);
+                lanes += (word & SWAR_EVEN_BYTES) + ((word >>> 8) & SWAR_EVEN_BYTES);
+                negativeBytes += Long.bitCount(word & SWAR_HIGH_BITS);
+            }
+
+            total += sumLanes(lanes) - (negativeBytes << 8);
+        }
+
+        for (; index < endExclusive; index++)
         {
             total += getByte(index);
         }
@@ -243,6 +283,21 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
         return total % 256;
     }
 
+    /**
+     * Sets the high bit of each byte in the word that is zero, without any false positives from borrows.
+     */
+    private static long zeroBytes(final long word)
+    {
+        final long lowBits = (word & SWAR_LOW_BITS) + SWAR_LOW_BITS;
+        return ~(lowBits | word | SWAR_LOW_BITS);
+    }
+
+    private static int sumLanes(final long lanes)
+    {
+        final long pairs = (lanes & SWAR_EVEN_SHORTS) + ((lanes >>> 16) & SWAR_EVEN_SHORTS);
+        return (int)((pairs & 0xFFFF_FFFFL) + (pairs >>> 32));
+    }
+
     public int putAscii(final int index, final String string)
     {
         final byte[] bytes = string.getBytes(US_ASCII);
@@ -77,7 +77,7 @@ public class CopyToEncoderGeneratorTest
             MESSAGE_EXAMPLE, 1, TEST_PACKAGE,
             TEST_PARENT_PACKAGE, TEST_PACKAGE, outputManager, ValidationOn.class,
             RejectUnknownFieldOn.class, RejectUnknownEnumValueOn.class, false, false,
-            RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true);
+            RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true, false, null);
         final EncoderGenerator encoderGenerator = new EncoderGenerator(MESSAGE_EXAMPLE, TEST_PACKAGE,
             TEST_PARENT_PACKAGE, outputManager, ValidationOn.class, RejectUnknownFieldOn.class,
             RejectUnknownEnumValueOn.class, RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true);
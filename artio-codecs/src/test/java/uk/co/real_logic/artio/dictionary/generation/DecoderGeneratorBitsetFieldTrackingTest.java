@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.dictionary.generation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.co.real_logic.artio.builder.Decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.real_logic.artio.dictionary.ExampleDictionary.*;
+import static uk.co.real_logic.artio.dictionary.generation.DecoderGenerator.REQUIRED_TAG_MISSING;
+import static uk.co.real_logic.artio.dictionary.generation.DecoderGenerator.TAG_APPEARS_MORE_THAN_ONCE;
+
+public class DecoderGeneratorBitsetFieldTrackingTest extends AbstractDecoderGeneratorTest
+{
+    @BeforeClass
+    public static void generate() throws Exception
+    {
+        generate(true, true);
+    }
+
+    @Test
+    public void shouldClearTrackedFieldsBetweenDecodes() throws Exception
+    {
+        final Decoder decoder = newHeartbeat();
+
+        decode(TAG_APPEARS_MORE_THAN_ONCE_MESSAGE, decoder);
+        assertFalse(decoder.validate());
+        assertEquals(TAG_APPEARS_MORE_THAN_ONCE, decoder.rejectReason());
+
+        decoder.reset();
+        decode(ENCODED_MESSAGE, decoder);
+        assertTrue("Visited fields from the previous decode weren't cleared", decoder.validate());
+
+        decoder.reset();
+        decode(MISSING_REQUIRED_FIELDS_MESSAGE, decoder);
+        assertFalse(decoder.validate());
+        assertEquals(REQUIRED_TAG_MISSING, decoder.rejectReason());
+        assertEquals(INT_FIELD_TAG, decoder.invalidTagId());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.dictionary.generation;
+
+import org.agrona.generation.StringWriterOutputManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.co.real_logic.artio.builder.Decoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.agrona.generation.CompilerUtil.compileInMemory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.real_logic.artio.dictionary.ExampleDictionary.*;
+import static uk.co.real_logic.artio.dictionary.generation.AbstractDecoderGeneratorTest.CODEC_LOGGING;
+import static uk.co.real_logic.artio.dictionary.generation.Generator.RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY;
+import static uk.co.real_logic.artio.util.Reflection.get;
+import static uk.co.real_logic.artio.util.Reflection.getInt;
+
+public class DecoderGeneratorProjectionTest
+{
+    private static final int SOME_TIME_FIELD_TAG = 127;
+
+    private static Class<?> heartbeatProjectingIntField;
+    private static Class<?> heartbeatProjectingSomeTimeField;
+
+    private final MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[1024]);
+
+    @BeforeClass
+    public static void generate() throws Exception
+    {
+        heartbeatProjectingIntField = compileHeartbeat(TEST_REQ_ID_TAG, INT_FIELD_TAG);
+        heartbeatProjectingSomeTimeField = compileHeartbeat(INT_FIELD_TAG, SOME_TIME_FIELD_TAG);
+    }
+
+    private static Class<?> compileHeartbeat(final Integer... projectedTags) throws Exception
+    {
+        final Set<Integer> projection = new HashSet<>(Arrays.asList(projectedTags));
+        final StringWriterOutputManager outputManager = new StringWriterOutputManager();
+        new ConstantGenerator(MESSAGE_EXAMPLE, TEST_PACKAGE, null, outputManager).generate();
+        new EnumGenerator(MESSAGE_EXAMPLE, TEST_PARENT_PACKAGE, outputManager).generate();
+        new EncoderGenerator(MESSAGE_EXAMPLE, TEST_PACKAGE, TEST_PARENT_PACKAGE, outputManager,
+            ValidationOff.class, RejectUnknownFieldOff.class, RejectUnknownEnumValueOff.class,
+            RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true).generate();
+        new DecoderGenerator(MESSAGE_EXAMPLE, 1, TEST_PACKAGE, TEST_PARENT_PACKAGE, TEST_PACKAGE, outputManager,
+            ValidationOff.class, RejectUnknownFieldOff.class, RejectUnknownEnumValueOff.class, true, false,
+            RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true, false, projection).generate();
+
+        final Map<String, CharSequence> sources = outputManager.getSources();
+        final Class<?> heartbeat = compileInMemory(HEARTBEAT_DECODER, sources);
+        if (heartbeat == null || CODEC_LOGGING)
+        {
+            System.out.println(sources);
+        }
+        return heartbeat;
+    }
+
+    @Test
+    public void shouldStopDecodingOnceProjectedFieldsAreSeen() throws Exception
+    {
+        final Decoder decoder = (Decoder)heartbeatProjectingIntField.getConstructor().newInstance();
+
+        final int decodedLength = decode(ENCODED_MESSAGE, decoder);
+
+        assertEquals(ENCODED_MESSAGE.indexOf("117="), decodedLength);
+        assertEquals(2, getInt(decoder, INT_FIELD));
+        assertEquals("abc", get(decoder, "testReqIDAsString"));
+        assertFalse((boolean)get(decoder, HAS_BOOLEAN_FIELD));
+    }
+
+    @Test
+    public void shouldSkipTrailerWhenLastBodyFieldIsProjected() throws Exception
+    {
+        final Decoder decoder = (Decoder)heartbeatProjectingSomeTimeField.getConstructor().newInstance();
+
+        final int decodedLength = decode(ENCODED_MESSAGE, decoder);
+
+        assertEquals(ENCODED_MESSAGE.indexOf("10="), decodedLength);
+        assertEquals(2, getInt(decoder, INT_FIELD));
+        assertTrue((boolean)get(decoder, HAS_BOOLEAN_FIELD));
+    }
+
+    @Test
+    public void shouldDecodeWholeMessageWhenAProjectedFieldIsMissing() throws Exception
+    {
+        final Decoder decoder = (Decoder)heartbeatProjectingIntField.getConstructor().newInstance();
+
+        decode(ENCODED_MESSAGE, decoder);
+        decoder.reset();
+        final int decodedLength = decode(LONG_FIELD_MESSAGE, decoder);
+
+        assertEquals(LONG_FIELD_MESSAGE.length(), decodedLength);
+        assertEquals(2, getInt(decoder, INT_FIELD));
+    }
+
+    private int decode(final String message, final Decoder decoder)
+    {
+        buffer.putAscii(0, message);
+        return decoder.decode(buffer, 0, message.length());
+    }
+}
@@ -42,7 +42,7 @@ public class PrinterGeneratorTest
         MESSAGE_EXAMPLE, 1, TEST_PACKAGE, TEST_PARENT_PACKAGE, TEST_PACKAGE,
         OUTPUT_MANAGER, ValidationOn.class,
         RejectUnknownFieldOff.class, RejectUnknownEnumValueOn.class, false, false,
-        Generator.RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true);
+        Generator.RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY, true, false, null);
     private static final EncoderGenerator ENCODER_GENERATOR = new EncoderGenerator(
         MESSAGE_EXAMPLE, TEST_PACKAGE, TEST_PARENT_PACKAGE, OUTPUT_MANAGER, ValidationOn.class,
         RejectUnknownFieldOn.class, RejectUnknownEnumValueOn.class, RUNTIME_REJECT_UNKNOWN_ENUM_VALUE_PROPERTY,
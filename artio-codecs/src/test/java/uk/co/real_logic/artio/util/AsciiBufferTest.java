@@ -18,9 +18,13 @@ package uk.co.real_logic.artio.util;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
 import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
 
 public class AsciiBufferTest
@@ -140,6 +144,75 @@ public class AsciiBufferTest
         assertEquals(-1, value);
     }
 
+    @Test
+    public void shouldFindCharactersWhenScanningForwards()
+    {
+        value = buffer.scan(OFFSET, OFFSET + BYTES.length, '=');
+
+        assertEquals(OFFSET + 1, value);
+
+        value = buffer.scan(OFFSET + 2, OFFSET + BYTES.length, '=');
+
+        assertEquals(OFFSET + 12, value);
+    }
+
+    @Test
+    public void shouldNotFindCharactersBeyondEndWhenScanningForwards()
+    {
+        value = buffer.scan(OFFSET, OFFSET + 1, '=');
+
+        assertEquals(UNKNOWN_INDEX, value);
+    }
+
+    @Test
+    public void shouldScanConsistentlyAtEveryAlignment()
+    {
+        final byte[] bytes = new byte[64];
+        Arrays.fill(bytes, (byte)'A');
+        buffer.putBytes(0, bytes);
+
+        for (int separatorIndex = 0; separatorIndex < bytes.length; separatorIndex++)
+        {
+            buffer.putByte(separatorIndex, (byte)0x80);
+            buffer.putByte(separatorIndex + 1, SEPARATOR);
+
+            for (int start = 0; start <= separatorIndex + 1; start++)
+            {
+                for (int end = start; end <= bytes.length + 2; end++)
+                {
+                    final int expected = end > separatorIndex + 1 ? separatorIndex + 1 : UNKNOWN_INDEX;
+                    assertEquals("start=" + start + ",end=" + end, expected, buffer.scan(start, end, SEPARATOR));
+                }
+            }
+
+            buffer.putByte(separatorIndex, (byte)'A');
+            buffer.putByte(separatorIndex + 1, (byte)'A');
+        }
+    }
+
+    @Test
+    public void shouldComputeChecksumOverAllLengths()
+    {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[4096];
+        random.nextBytes(bytes);
+        buffer.putBytes(0, bytes);
+
+        for (int start = 0; start < 9; start++)
+        {
+            for (int end = start; end <= bytes.length; end += 1 + random.nextInt(31))
+            {
+                int total = 0;
+                for (int i = start; i < end; i++)
+                {
+                    total += bytes[i];
+                }
+
+                assertEquals("start=" + start + ",end=" + end, total % 256, buffer.computeChecksum(start, end));
+            }
+        }
+    }
+
     private void putAscii(final String value)
     {
         buffer.putBytes(0, value.getBytes(US_ASCII));
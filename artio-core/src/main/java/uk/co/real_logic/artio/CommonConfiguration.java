@@ -75,6 +75,14 @@ public class CommonConfiguration
      * Property name for directory of the conductor buffers
      */
     public static final String MONITORING_FILE_PROPERTY = "fix.monitoring.file";
+    /**
+     * Property name for the file that per session latency histograms are recorded to
+     */
+    public static final String LATENCY_HISTOGRAMS_FILE_PROPERTY = "fix.monitoring.latency_histograms_file";
+    /**
+     * Property name for the maximum number of sessions that latency histograms are recorded for, 0 disables them
+     */
+    public static final String LATENCY_HISTOGRAM_SESSIONS_PROPERTY = "fix.monitoring.latency_histogram_sessions";
     /**
      * Property name for the flag to enable or disable debug logging
      */
@@ -242,6 +250,9 @@ public class CommonConfiguration
     public static final int DEFAULT_MONITORING_BUFFER_LENGTH = 4 * 1024 * 1024;
     public static final String DEFAULT_DIRECTORY = optimalTmpDirName() + File.separator + "fix-%s";
     public static final String DEFAULT_MONITORING_FILE = DEFAULT_DIRECTORY + File.separator + "monitoring";
+    public static final String DEFAULT_LATENCY_HISTOGRAMS_FILE =
+        DEFAULT_DIRECTORY + File.separator + "latency-histograms";
+    public static final int DEFAULT_LATENCY_HISTOGRAM_SESSIONS = 0;
 
     public static final String DEFAULT_HISTOGRAM_LOGGING_FILE = DEFAULT_DIRECTORY + File.separator + "histograms";
     public static final String DEFAULT_NAME_PREFIX = "";
@@ -283,6 +294,9 @@ public class CommonConfiguration
     private int monitoringBuffersLength = getInteger(
         MONITORING_BUFFERS_LENGTH_PROPERTY, DEFAULT_MONITORING_BUFFER_LENGTH);
     private String monitoringFile = null;
+    private String latencyHistogramsFile = null;
+    private int latencyHistogramSessions = getInteger(
+        LATENCY_HISTOGRAM_SESSIONS_PROPERTY, DEFAULT_LATENCY_HISTOGRAM_SESSIONS);
     private long replyTimeoutInMs = DEFAULT_REPLY_TIMEOUT_IN_MS;
     private final Aeron.Context aeronContext = new Aeron.Context();
     private int sessionBufferSize = DEFAULT_SESSION_BUFFER_SIZE;
@@ -463,6 +477,35 @@ public class CommonConfiguration
         return this;
     }
 
+    /**
+     * Sets the location of the file that per session latency histograms are recorded to. This file can be read by
+     * a {@link uk.co.real_logic.artio.timing.LatencyHistogramsReader} from another process.
+     *
+     * @param latencyHistogramsFile the location of the latency histograms file.
+     * @return this
+     * @see CommonConfiguration#LATENCY_HISTOGRAMS_FILE_PROPERTY
+     */
+    public CommonConfiguration latencyHistogramsFile(final String latencyHistogramsFile)
+    {
+        this.latencyHistogramsFile = latencyHistogramsFile;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of sessions that latency histograms are recorded for at the same time. Each session
+     * takes up about 14KB of the latency histograms file. The default of 0 disables latency histograms.
+     *
+     * @param latencyHistogramSessions the maximum number of sessions that latency histograms are recorded for.
+     * @return this
+     * @see CommonConfiguration#LATENCY_HISTOGRAM_SESSIONS_PROPERTY
+     * @see uk.co.real_logic.artio.timing.LatencyStage
+     */
+    public CommonConfiguration latencyHistogramSessions(final int latencyHistogramSessions)
+    {
+        this.latencyHistogramSessions = latencyHistogramSessions;
+        return this;
+    }
+
     /**
      * The approach of setting a custom error consumer combined with this print flag has been deprecated in
      * a combination of {@link #errorHandlerFactory(ErrorHandlerFactory)}
@@ -936,6 +979,16 @@ public class CommonConfiguration
         return monitoringFile;
     }
 
+    public String latencyHistogramsFile()
+    {
+        return latencyHistogramsFile;
+    }
+
+    public int latencyHistogramSessions()
+    {
+        return latencyHistogramSessions;
+    }
+
     public long replyTimeoutInMs()
     {
         return replyTimeoutInMs;
@@ -1025,6 +1078,12 @@ public class CommonConfiguration
                     MONITORING_FILE_PROPERTY, String.format(DEFAULT_MONITORING_FILE, fixSuffix)));
             }
 
+            if (latencyHistogramsFile() == null)
+            {
+                latencyHistogramsFile(getProperty(
+                    LATENCY_HISTOGRAMS_FILE_PROPERTY, String.format(DEFAULT_LATENCY_HISTOGRAMS_FILE, fixSuffix)));
+            }
+
             if (histogramLoggingFile() == null)
             {
                 histogramLoggingFile(getProperty(
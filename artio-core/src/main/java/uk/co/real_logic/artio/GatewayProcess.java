@@ -25,8 +25,10 @@ import org.agrona.concurrent.CompositeAgent;
 import org.agrona.concurrent.SystemEpochClock;
 import uk.co.real_logic.artio.engine.FixEngine;
 import uk.co.real_logic.artio.timing.HistogramLogAgent;
+import uk.co.real_logic.artio.timing.LatencyHistograms;
 import uk.co.real_logic.artio.timing.Timer;
 
+import java.io.File;
 import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +45,7 @@ public abstract class GatewayProcess implements AutoCloseable
 
     protected CommonConfiguration configuration;
     protected MonitoringFile monitoringFile;
+    protected LatencyHistograms latencyHistograms = LatencyHistograms.DISABLED;
     protected FixCounters fixCounters;
     protected ErrorHandler errorHandler;
     protected Aeron aeron;
@@ -62,6 +65,15 @@ public abstract class GatewayProcess implements AutoCloseable
     {
         monitoringFile = new MonitoringFile(true, configuration);
         errorHandler = configuration.errorHandlerFactory().make(monitoringFile.errorBuffer());
+
+        final int latencyHistogramSessions = configuration.latencyHistogramSessions();
+        if (latencyHistogramSessions > 0)
+        {
+            latencyHistograms = new LatencyHistograms(
+                new File(configuration.latencyHistogramsFile()).getAbsoluteFile(),
+                latencyHistogramSessions,
+                configuration.epochNanoClock());
+        }
     }
 
     public Agent conductorAgent()
@@ -153,6 +165,7 @@ public abstract class GatewayProcess implements AutoCloseable
                 // Only record this as closed if the aeron.close() succeeded.
                 CloseChecker.onClose(configuration.aeronContext().aeronDirectoryName(), aeron);
             },
-            monitoringFile);
+            monitoringFile,
+            latencyHistograms);
     }
 }
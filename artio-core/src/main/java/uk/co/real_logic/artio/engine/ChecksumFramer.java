@@ -21,7 +21,6 @@ import org.agrona.concurrent.AtomicBuffer;
 import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
-// TODO: optimisation: write and checksum only needed bytes
 public class ChecksumFramer extends SectorFramer
 {
     private final CRC32 crc32 = new CRC32();
@@ -67,6 +66,33 @@ public class ChecksumFramer extends SectorFramer
         }
     }
 
+    /**
+     * Update the checksums of only the sectors that start before limit, for buffers that are filled from the start
+     * and where the remaining sectors haven't changed since their checksums were last updated.
+     *
+     * @param limit the offset after the last byte that has been written to.
+     */
+    public void updateChecksums(final int limit)
+    {
+        if (indexChecksumEnabled)
+        {
+            withChecksums(0, Math.min(nextSectorStart(limit - 1), capacity), saveChecksumFunc);
+        }
+    }
+
+    /**
+     * Update the checksum of a single sector.
+     *
+     * @param sectorStart the offset of the start of the sector, must be sector aligned.
+     */
+    public void updateChecksum(final int sectorStart)
+    {
+        if (indexChecksumEnabled)
+        {
+            withChecksums(sectorStart, sectorStart + SECTOR_SIZE, saveChecksumFunc);
+        }
+    }
+
     private void validateChecksum(final int checksumOffset, final int calculatedChecksum)
     {
         final int savedChecksum = buffer.getInt(checksumOffset);
@@ -76,13 +102,17 @@ public class ChecksumFramer extends SectorFramer
     }
 
     private void withChecksums(final ChecksumConsumer consumer)
+    {
+        withChecksums(0, capacity, consumer);
+    }
+
+    private void withChecksums(final int start, final int end, final ChecksumConsumer consumer)
     {
         final byte[] inMemoryBytes = buffer.byteArray();
         final ByteBuffer inMemoryByteBuffer = buffer.byteBuffer();
         final int wrapAdjustment = buffer.wrapAdjustment();
-        final int capacity = this.capacity;
 
-        for (int sectorEnd = SECTOR_SIZE; sectorEnd <= capacity; sectorEnd += SECTOR_SIZE)
+        for (int sectorEnd = start + SECTOR_SIZE; sectorEnd <= end; sectorEnd += SECTOR_SIZE)
         {
             final int sectorStart = sectorEnd - SECTOR_SIZE + wrapAdjustment;
             final int checksumOffset = sectorEnd - CHECKSUM_SIZE;
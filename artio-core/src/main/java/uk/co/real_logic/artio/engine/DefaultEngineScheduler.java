@@ -26,15 +26,87 @@ import java.util.concurrent.ThreadFactory;
 import static org.agrona.concurrent.AgentRunner.startOnThread;
 
 /**
+ * Runs the framer, archiving and monitoring agents on their own threads. The replayer can optionally be run on its
+ * own thread as well, rather than sharing the archiving thread with the indexers, so that replaying large resend
+ * requests and indexing live messages don't delay each other.
+ *
  * NB: Ensure that a new instance is created for each engine.
  */
 public class DefaultEngineScheduler implements EngineScheduler
 {
+    private final boolean separateReplayer;
+
     private AgentRunner framerRunner;
     private AgentRunner archivingRunner;
+    private AgentRunner replayingRunner;
     private AgentRunner monitoringRunner;
     private RecordingCoordinator recordingCoordinator;
 
+    public DefaultEngineScheduler()
+    {
+        this(false);
+    }
+
+    /**
+     * Create the scheduler.
+     *
+     * @param separateReplayer true to run the replayer on its own thread using
+     *                         {@link EngineConfiguration#replayerIdleStrategy()}, false to run it on the archiving
+     *                         thread with the indexers.
+     */
+    public DefaultEngineScheduler(final boolean separateReplayer)
+    {
+        this.separateReplayer = separateReplayer;
+    }
+
+    public boolean separateReplayer()
+    {
+        return separateReplayer;
+    }
+
+    public void launch(
+        final EngineConfiguration configuration,
+        final ErrorHandler errorHandler,
+        final Agent framer,
+        final Agent indexingAgent,
+        final Agent replayingAgent,
+        final Agent monitoringAgent,
+        final Agent conductorAgent,
+        final RecordingCoordinator recordingCoordinator)
+    {
+        if (!separateReplayer)
+        {
+            EngineScheduler.super.launch(
+                configuration,
+                errorHandler,
+                framer,
+                indexingAgent,
+                replayingAgent,
+                monitoringAgent,
+                conductorAgent,
+                recordingCoordinator);
+            return;
+        }
+
+        if (framerRunner != null)
+        {
+            EngineScheduler.fail();
+        }
+
+        replayingRunner = new AgentRunner(
+            configuration.replayerIdleStrategy(), errorHandler, null, replayingAgent);
+        startOnThread(replayingRunner, configuration.threadFactory());
+
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            indexingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
     public void launch(
         final EngineConfiguration configuration,
         final ErrorHandler errorHandler,
@@ -74,9 +146,11 @@ public class DefaultEngineScheduler implements EngineScheduler
     {
         EngineScheduler.awaitRunnerStart(framerRunner);
         EngineScheduler.awaitRunnerStart(archivingRunner);
+        EngineScheduler.awaitRunnerStart(replayingRunner);
         EngineScheduler.awaitRunnerStart(monitoringRunner);
 
-        Exceptions.closeAll(framerRunner, archivingRunner, recordingCoordinator, monitoringRunner);
+        // The indexers may be waiting on the replayer, so they're closed before it.
+        Exceptions.closeAll(framerRunner, archivingRunner, replayingRunner, recordingCoordinator, monitoringRunner);
     }
 
     public int pollFramer()
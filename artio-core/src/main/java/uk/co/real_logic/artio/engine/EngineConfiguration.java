@@ -37,6 +37,7 @@ import uk.co.real_logic.artio.dictionary.SessionConstants;
 import uk.co.real_logic.artio.engine.framer.DefaultTcpChannelSupplier;
 import uk.co.real_logic.artio.engine.framer.TcpChannelSupplier;
 import uk.co.real_logic.artio.engine.logger.FixArchiveScanner;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicates;
 import uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor;
 import uk.co.real_logic.artio.fields.EpochFractionFormat;
 import uk.co.real_logic.artio.fixp.FixPCancelOnDisconnectTimeoutHandler;
@@ -60,8 +61,10 @@ import java.util.function.Function;
 
 import static java.lang.Integer.getInteger;
 import static java.lang.System.getProperty;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+import static org.agrona.BitUtil.isPowerOfTwo;
 import static uk.co.real_logic.artio.admin.ArtioAdminConfiguration.DEFAULT_INBOUND_ADMIN_STREAM_ID;
 import static uk.co.real_logic.artio.admin.ArtioAdminConfiguration.DEFAULT_OUTBOUND_ADMIN_STREAM_ID;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
@@ -102,6 +105,17 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      */
     public static final String INDEX_CHECKSUM_ENABLED_PROP = "logging.checksum.enabled";
 
+    /**
+     * Property name for enabling the session and message type index used to optimise archive scans.
+     */
+    public static final String SESSION_MESSAGE_TYPE_INDEX_ENABLED_PROP = "logging.session_message_type_index.enabled";
+
+    /**
+     * Property name for the capacity in bytes of each session's cache of recently sent messages used to serve resend
+     * requests, 0 disables the cache.
+     */
+    public static final String RECENT_MESSAGE_CACHE_CAPACITY_PROP = "logging.recent_message_cache.capacity";
+
     /**
      * Deprecated property name for size of logging index files. Do not use this, set
      * {@link #REPLAY_INDEX_RECORD_CAPACITY_PROP} instead.
@@ -151,18 +165,54 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the size in bytes of the sequence number cache file
      */
     public static final String SEQUENCE_NUMBER_INDEX_SIZE_PROP = "fix.core.sequence_number_cache_size";
+    /**
+     * Property name for the maximum size in bytes that the sequence number cache file can grow to
+     */
+    public static final String SEQUENCE_NUMBER_INDEX_MAX_SIZE_PROP = "fix.core.sequence_number_cache_max_size";
     /**
      * Property name for the size in bytes of the session id file
      */
     public static final String SESSION_ID_BUFFER_SIZE_PROP = "fix.core.session_id_file_size";
+    /**
+     * Property name for the maximum size in bytes that the session id file can grow to
+     */
+    public static final String SESSION_ID_BUFFER_MAX_SIZE_PROP = "fix.core.session_id_file_max_size";
     /**
      * Property name for the maximum number of bytes to allow in the quarantine buffer before disconnection
      */
     public static final String SENDER_MAX_BYTES_IN_BUFFER_PROP = "fix.core.sender_max_bytes_in_buffer";
+    /**
+     * Property name for the size in bytes of the file that a connection's quarantine buffer is spilled to once it
+     * exceeds the sender max bytes in buffer, 0 disables spilling
+     */
+    public static final String SENDER_MAX_BYTES_IN_SPILL_FILE_PROP = "fix.core.sender_max_bytes_in_spill_file";
     /**
      * Property name for the timeout before a connection that hasn't sent a logon is disconnected
      */
     public static final String NO_LOGON_DISCONNECT_TIMEOUT_PROP = "fix.core.no_logon_disconnect";
+    /**
+     * Property name for the maximum number of bytes of outbound messages that are coalesced into a single TCP write,
+     * 0 disables batching
+     */
+    public static final String SENDER_BATCH_MAX_BYTES_PROP = "fix.core.sender_batch_max_bytes";
+    /**
+     * Property name for the maximum time in nanoseconds that an outbound message can wait in a batch
+     */
+    public static final String SENDER_BATCH_MAX_DELAY_IN_NS_PROP = "fix.core.sender_batch_max_delay_in_ns";
+    /**
+     * Property name for whether a summary of the standard header of inbound messages is extracted when framing them
+     */
+    public static final String HEADER_SUMMARY_ENABLED_PROP = "fix.core.header_summary_enabled";
+    /**
+     * Property name for a comma separated list of the bytes of outbound messages that each priority class can write
+     * per Framer duty cycle, eg: 65536,16384,4096. Not set by default, which disables outbound scheduling.
+     */
+    public static final String SENDER_PRIORITY_CLASS_BYTE_BUDGETS_PROP = "fix.core.sender_priority_class_byte_budgets";
+    /**
+     * Property name for the priority class that the replays of all sessions are scheduled in, defaults to the last
+     * priority class.
+     */
+    public static final String SENDER_REPLAY_PRIORITY_CLASS_PROP = "fix.core.sender_replay_priority_class";
 
     // ------------------------------------------------
     //          Configuration Defaults
@@ -181,10 +231,20 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     public static final int DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SENDER_SOCKET_BUFFER_SIZE = 1024 * 1024;
     public static final int DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_SEQUENCE_NUMBER_INDEX_MAX_SIZE = 64 * 1024 * 1024;
     public static final int DEFAULT_SESSION_ID_BUFFER_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_SESSION_ID_BUFFER_MAX_SIZE = 64 * 1024 * 1024;
     public static final int DEFAULT_SENDER_MAX_BYTES_IN_BUFFER = 4 * 1024 * 1024;
+    public static final int DEFAULT_SENDER_MAX_BYTES_IN_SPILL_FILE = 0;
     public static final int DEFAULT_REPLAY_POSITION_BUFFER_SIZE = 4 * 1024;
     public static final int DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT_IN_MS = (int)SECONDS.toMillis(5);
+    public static final int DEFAULT_SENDER_BATCH_MAX_BYTES = 0;
+    public static final long DEFAULT_SENDER_BATCH_MAX_DELAY_IN_NS = MICROSECONDS.toNanos(20);
+    public static final boolean DEFAULT_HEADER_SUMMARY_ENABLED = false;
+    /**
+     * Schedules replays in the last priority class configured by {@link #senderPriorityClassByteBudgets(int...)}.
+     */
+    public static final int DEFAULT_SENDER_REPLAY_PRIORITY_CLASS = -1;
     public static final String DEFAULT_SESSION_ID_FILE = "session_id_buffer";
     public static final String DEFAULT_FIXP_ID_FILE = "fixp_id_buffer";
     public static final String DEFAULT_SEQUENCE_NUMBERS_SENT_FILE = "sequence_numbers_sent";
@@ -212,6 +272,9 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     public static final long MAX_COD_TIMEOUT_IN_MS = 60_000L;
 
     public static final long DEFAULT_TIME_INDEX_FLUSH_INTERVAL_IN_NS = TimeUnit.SECONDS.toNanos(1);
+    public static final boolean DEFAULT_SESSION_MESSAGE_TYPE_INDEX_ENABLED = false;
+    public static final long DEFAULT_SESSION_MESSAGE_TYPE_INDEX_BLOCK_GAP_IN_BYTES = 64 * 1024;
+    public static final int DEFAULT_RECENT_MESSAGE_CACHE_CAPACITY = 0;
 
     static
     {
@@ -246,6 +309,7 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private boolean printStartupWarnings = true;
     private IdleStrategy framerIdleStrategy = backoffIdleStrategy();
     private IdleStrategy archiverIdleStrategy = backoffIdleStrategy();
+    private IdleStrategy replayerIdleStrategy = backoffIdleStrategy();
     private AtomicBuffer sentSequenceNumberBuffer;
     private AtomicBuffer receivedSequenceNumberBuffer;
     private MappedFile sentSequenceNumberIndex;
@@ -272,13 +336,27 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(SENDER_SOCKET_BUFFER_SIZE_PROP, DEFAULT_SENDER_SOCKET_BUFFER_SIZE);
     private final int sequenceNumberIndexSize =
         getInteger(SEQUENCE_NUMBER_INDEX_SIZE_PROP, DEFAULT_SEQUENCE_NUMBER_INDEX_SIZE);
+    private int sequenceNumberIndexMaxSize =
+        getInteger(SEQUENCE_NUMBER_INDEX_MAX_SIZE_PROP, DEFAULT_SEQUENCE_NUMBER_INDEX_MAX_SIZE);
     private final int sessionIdBufferSize =
         getInteger(SESSION_ID_BUFFER_SIZE_PROP, DEFAULT_SESSION_ID_BUFFER_SIZE);
+    private int sessionIdBufferMaxSize =
+        getInteger(SESSION_ID_BUFFER_MAX_SIZE_PROP, DEFAULT_SESSION_ID_BUFFER_MAX_SIZE);
     private int senderMaxBytesInBuffer =
         getInteger(SENDER_MAX_BYTES_IN_BUFFER_PROP, DEFAULT_SENDER_MAX_BYTES_IN_BUFFER);
+    private int senderMaxBytesInSpillFile =
+        getInteger(SENDER_MAX_BYTES_IN_SPILL_FILE_PROP, DEFAULT_SENDER_MAX_BYTES_IN_SPILL_FILE);
     private int noLogonDisconnectTimeoutInMs =
         getInteger(NO_LOGON_DISCONNECT_TIMEOUT_PROP, DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT_IN_MS);
     private boolean indexChecksumEnabled = getBoolean(INDEX_CHECKSUM_ENABLED_PROP, DEFAULT_INDEX_CHECKSUM_ENABLED);
+    private int senderBatchMaxBytes = getInteger(SENDER_BATCH_MAX_BYTES_PROP, DEFAULT_SENDER_BATCH_MAX_BYTES);
+    private long senderBatchMaxDelayInNs =
+        Long.getLong(SENDER_BATCH_MAX_DELAY_IN_NS_PROP, DEFAULT_SENDER_BATCH_MAX_DELAY_IN_NS);
+    private boolean headerSummaryEnabled = getBoolean(HEADER_SUMMARY_ENABLED_PROP, DEFAULT_HEADER_SUMMARY_ENABLED);
+    private int[] senderPriorityClassByteBudgets = getIntegers(SENDER_PRIORITY_CLASS_BYTE_BUDGETS_PROP);
+    private int senderReplayPriorityClass =
+        getInteger(SENDER_REPLAY_PRIORITY_CLASS_PROP, DEFAULT_SENDER_REPLAY_PRIORITY_CLASS);
+    private SenderPriorityStrategy senderPriorityStrategy = SenderPriorityStrategy.FIRST_PRIORITY_CLASS;
 
     private String libraryAeronChannel = null;
     private Function<EngineConfiguration, TcpChannelSupplier> channelSupplierFactory = DefaultTcpChannelSupplier::new;
@@ -319,6 +397,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private int throttleWindowInMs = NO_THROTTLE_WINDOW;
     private int throttleLimitOfMessages = NO_THROTTLE_WINDOW;
     private long timeIndexReplayFlushIntervalInNs = DEFAULT_TIME_INDEX_FLUSH_INTERVAL_IN_NS;
+    private boolean sessionMessageTypeIndexEnabled = getBoolean(
+        SESSION_MESSAGE_TYPE_INDEX_ENABLED_PROP, DEFAULT_SESSION_MESSAGE_TYPE_INDEX_ENABLED);
+    private long sessionMessageTypeIndexBlockGapInBytes = DEFAULT_SESSION_MESSAGE_TYPE_INDEX_BLOCK_GAP_IN_BYTES;
+    private int recentMessageCacheCapacity = getInteger(
+        RECENT_MESSAGE_CACHE_CAPACITY_PROP, DEFAULT_RECENT_MESSAGE_CACHE_CAPACITY);
 
     private EngineReproductionConfiguration reproductionConfiguration;
     private ReproductionMessageHandler reproductionMessageHandler = (connectionId, bytes) ->
@@ -597,6 +680,21 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the idle strategy for the Replayer thread. Only used when the {@link #scheduler(EngineScheduler)} runs the
+     * replayer on a different thread from the indexers, otherwise the replayer uses the
+     * {@link #archiverIdleStrategy(IdleStrategy)}.
+     *
+     * @param replayerIdleStrategy the idle strategy for the Replayer thread.
+     * @return this
+     * @see DefaultEngineScheduler#DefaultEngineScheduler(boolean)
+     */
+    public EngineConfiguration replayerIdleStrategy(final IdleStrategy replayerIdleStrategy)
+    {
+        this.replayerIdleStrategy = replayerIdleStrategy;
+        return this;
+    }
+
     /**
      * Sets the fragment limit for the subscription to outbound messages from libraries.
      *
@@ -642,6 +740,128 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the size of the file that a connection's buffer of messages waiting to be written to a back-pressured TCP
+     * connection is spilled to. Without a spill file a connection is disconnected as a slow consumer once this buffer
+     * exceeds {@link #senderMaxBytesInBuffer(int)}. With one the buffer is moved into a memory mapped file in the
+     * {@link #logFileDir()} instead, so a counterparty that is temporarily slow can absorb a larger burst of messages,
+     * and is only disconnected once that file is full. The file is deleted once the connection has caught up.
+     * Disabled by default.
+     *
+     * @param senderMaxBytesInSpillFile the size in bytes of the spill file, 0 disables spilling.
+     * @return this
+     * @see EngineConfiguration#SENDER_MAX_BYTES_IN_SPILL_FILE_PROP
+     */
+    public EngineConfiguration senderMaxBytesInSpillFile(final int senderMaxBytesInSpillFile)
+    {
+        this.senderMaxBytesInSpillFile = senderMaxBytesInSpillFile;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes of outbound messages for a connection that are coalesced into a single TCP
+     * write. Messages sent within a duty cycle of the Framer are batched until either this limit or the
+     * {@link #senderBatchMaxDelayInNs(long)} is reached, any remaining batch is written out at the end of the duty
+     * cycle. Batching is disabled by default and when reproduction is enabled.
+     *
+     * @param senderBatchMaxBytes the maximum number of bytes in a batch, 0 disables batching.
+     * @return this
+     * @see EngineConfiguration#SENDER_BATCH_MAX_BYTES_PROP
+     */
+    public EngineConfiguration senderBatchMaxBytes(final int senderBatchMaxBytes)
+    {
+        this.senderBatchMaxBytes = senderBatchMaxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time that an outbound message can wait in a batch before the batch is written out.
+     *
+     * @param senderBatchMaxDelayInNs the maximum time in nanoseconds that a message can wait in a batch.
+     * @return this
+     * @see EngineConfiguration#SENDER_BATCH_MAX_DELAY_IN_NS_PROP
+     * @see #senderBatchMaxBytes(int)
+     */
+    public EngineConfiguration senderBatchMaxDelayInNs(final long senderBatchMaxDelayInNs)
+    {
+        this.senderBatchMaxDelayInNs = senderBatchMaxDelayInNs;
+        return this;
+    }
+
+    /**
+     * Sets whether the MsgSeqNum, PossDupFlag, PossResend, SendingTime and the offsets of the standard header and body
+     * of inbound messages are extracted when framing them. They're carried along with the message, so that the session
+     * layer of the library doesn't need to decode the standard header again, see
+     * {@link uk.co.real_logic.artio.library.OnMessageInfo#headerSummary()}. Messages framed with a header summary are
+     * written in a newer version of the FixMessage format, so this shouldn't be enabled until all of the libraries
+     * and tools that read the engine's streams or archive have been upgraded. Disabled by default.
+     *
+     * @param headerSummaryEnabled true to extract a header summary, false otherwise.
+     * @return this
+     * @see EngineConfiguration#HEADER_SUMMARY_ENABLED_PROP
+     */
+    public EngineConfiguration headerSummaryEnabled(final boolean headerSummaryEnabled)
+    {
+        this.headerSummaryEnabled = headerSummaryEnabled;
+        return this;
+    }
+
+    /**
+     * Sets the byte budgets of the priority classes that the Framer schedules outbound messages in. Each duty cycle
+     * of the Framer a priority class can write up to its budget of bytes of messages to its sessions' TCP
+     * connections, messages beyond that are held back for a later duty cycle so that a burst of messages for one
+     * session, or a large replay, doesn't hold up the messages of sessions in other priority classes. Held back
+     * messages are written in priority class order, and round robin between the sessions of a priority class. A
+     * message is never held back behind its budget by more than {@link #senderMaxBytesInBuffer(int)} bytes per
+     * session. Not set by default, which writes every message as soon as it's received.
+     *
+     * @param senderPriorityClassByteBudgets the budget in bytes per duty cycle of each priority class, starting with
+     *                                       priority class 0.
+     * @return this
+     * @see EngineConfiguration#SENDER_PRIORITY_CLASS_BYTE_BUDGETS_PROP
+     * @see #senderPriorityStrategy(SenderPriorityStrategy)
+     * @see #senderReplayPriorityClass(int)
+     */
+    public EngineConfiguration senderPriorityClassByteBudgets(final int... senderPriorityClassByteBudgets)
+    {
+        this.senderPriorityClassByteBudgets = senderPriorityClassByteBudgets;
+        return this;
+    }
+
+    /**
+     * Sets the priority class that the replays of all sessions are scheduled in. Replays are read by the Framer from
+     * a single stream, so when the replay priority class is out of budget every session's replays wait until a
+     * later duty cycle. Scheduling all replays in one class means that a replay is only ever held back behind the
+     * replays of other sessions, never behind the budget of a priority class that other sessions' replays aren't in.
+     * Defaults to the last priority class.
+     *
+     * @param senderReplayPriorityClass the priority class that replays are scheduled in, between 0 inclusive and
+     *                                  the number of priority classes exclusive.
+     * @return this
+     * @see EngineConfiguration#SENDER_REPLAY_PRIORITY_CLASS_PROP
+     * @see #senderPriorityClassByteBudgets(int...)
+     */
+    public EngineConfiguration senderReplayPriorityClass(final int senderReplayPriorityClass)
+    {
+        this.senderReplayPriorityClass = senderReplayPriorityClass;
+        return this;
+    }
+
+    /**
+     * Sets the strategy that decides which priority class a session's outbound messages are scheduled in. Replays
+     * aren't scheduled by the strategy, see {@link #senderReplayPriorityClass(int)}.
+     *
+     * @param senderPriorityStrategy the strategy that decides which priority class a session's messages are
+     *                               scheduled in.
+     * @return this
+     * @see #senderPriorityClassByteBudgets(int...)
+     */
+    public EngineConfiguration senderPriorityStrategy(final SenderPriorityStrategy senderPriorityStrategy)
+    {
+        this.senderPriorityStrategy = senderPriorityStrategy;
+        return this;
+    }
+
     /**
      * Set the timeout in milliseconds for TCP connections which don't send a logon message.
      *
@@ -673,6 +893,96 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    private void validateSenderBatching()
+    {
+        if (senderBatchMaxBytes() < 0)
+        {
+            throw new IllegalArgumentException(
+                "senderBatchMaxBytes must not be negative, but was " + senderBatchMaxBytes());
+        }
+    }
+
+    private void validateSenderPriorityClasses()
+    {
+        for (final int byteBudget : senderPriorityClassByteBudgets())
+        {
+            if (byteBudget <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "senderPriorityClassByteBudgets must all be positive, but were " +
+                    Arrays.toString(senderPriorityClassByteBudgets()));
+            }
+        }
+
+        final int priorityClassCount = senderPriorityClassByteBudgets().length;
+        if (priorityClassCount > 0 && senderReplayPriorityClass != DEFAULT_SENDER_REPLAY_PRIORITY_CLASS &&
+            (senderReplayPriorityClass < 0 || senderReplayPriorityClass >= priorityClassCount))
+        {
+            throw new IllegalArgumentException(String.format(
+                "senderReplayPriorityClass must be between 0 and %d, but was %d",
+                priorityClassCount - 1,
+                senderReplayPriorityClass));
+        }
+    }
+
+    private static int[] getIntegers(final String propertyName)
+    {
+        final String value = getProperty(propertyName);
+        if (value == null || value.trim().isEmpty())
+        {
+            return new int[0];
+        }
+
+        final String[] values = value.split(",");
+        final int[] integers = new int[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            integers[i] = Integer.parseInt(values[i].trim());
+        }
+        return integers;
+    }
+
+    private void validateSenderSpilling()
+    {
+        if (senderMaxBytesInSpillFile() < 0)
+        {
+            throw new IllegalArgumentException(
+                "senderMaxBytesInSpillFile must not be negative, but was " + senderMaxBytesInSpillFile());
+        }
+    }
+
+    private void validateSequenceNumberIndexMaxSize()
+    {
+        if (sequenceNumberIndexMaxSize() < sequenceNumberIndexSize())
+        {
+            throw new IllegalArgumentException(String.format(
+                "sequenceNumberIndexMaxSize(%d) must be >= the sequence number cache file size(%d)",
+                sequenceNumberIndexMaxSize(),
+                sequenceNumberIndexSize()));
+        }
+    }
+
+    private void validateSessionIdBufferMaxSize()
+    {
+        if (sessionIdBufferMaxSize() < sessionIdBufferSize())
+        {
+            throw new IllegalArgumentException(String.format(
+                "sessionIdBufferMaxSize(%d) must be >= the session id file size(%d)",
+                sessionIdBufferMaxSize(),
+                sessionIdBufferSize()));
+        }
+    }
+
+    private void validateRecentMessageCache()
+    {
+        final int recentMessageCacheCapacity = recentMessageCacheCapacity();
+        if (recentMessageCacheCapacity != 0 && !isPowerOfTwo(recentMessageCacheCapacity))
+        {
+            throw new IllegalArgumentException(
+                "recentMessageCacheCapacity must be 0 or a power of 2, but was " + recentMessageCacheCapacity);
+        }
+    }
+
     private void validateSlowConsumerAndReplyTimeout(
         final long slowConsumerTimeoutInMs, final long replyTimeoutInMs)
     {
@@ -1188,6 +1498,84 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Enables an index of the blocks of recording positions that contain the messages of each session and message
+     * type. Archive scans that filter using {@link FixMessagePredicates#sessionOf(long)} or
+     * {@link FixMessagePredicates#messageTypeOf(String...)} can use it to only replay the parts of a recording that
+     * could match. Disabled by default.
+     *
+     * @param sessionMessageTypeIndexEnabled true to enable, false to disable
+     * @return this
+     */
+    public EngineConfiguration sessionMessageTypeIndexEnabled(final boolean sessionMessageTypeIndexEnabled)
+    {
+        this.sessionMessageTypeIndexEnabled = sessionMessageTypeIndexEnabled;
+        return this;
+    }
+
+    /**
+     * Sets the largest gap in recording position between two messages of the same session and message type that
+     * still places them within the same block of the session and message type index.
+     *
+     * Larger gaps reduce index disk space consumption, smaller gaps make archive scans replay less data.
+     *
+     * @param sessionMessageTypeIndexBlockGapInBytes the gap in bytes.
+     * @return this
+     */
+    public EngineConfiguration sessionMessageTypeIndexBlockGapInBytes(final long sessionMessageTypeIndexBlockGapInBytes)
+    {
+        this.sessionMessageTypeIndexBlockGapInBytes = sessionMessageTypeIndexBlockGapInBytes;
+        return this;
+    }
+
+    /**
+     * Sets the capacity of each session's cache of recently sent messages. Resend requests for messages that are
+     * still in the cache are served from memory rather than by replaying them from the archive, older messages are
+     * still replayed from the archive. Each session that sends messages allocates a cache of this size off-heap.
+     *
+     * Disabled by default.
+     *
+     * @param recentMessageCacheCapacity the capacity in bytes, a power of two or 0 to disable the cache.
+     * @return this
+     */
+    public EngineConfiguration recentMessageCacheCapacity(final int recentMessageCacheCapacity)
+    {
+        this.recentMessageCacheCapacity = recentMessageCacheCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size that each of the sequence number cache files can grow to. The files start at the size of
+     * the {@link #SEQUENCE_NUMBER_INDEX_SIZE_PROP} property and grow by segments of that size when they run out of
+     * space for new sessions, so they don't need to be oversized up front.
+     *
+     * Setting this to the sequence number cache file size disables growth.
+     *
+     * @param sequenceNumberIndexMaxSize the maximum size in bytes of each sequence number cache file.
+     * @return this
+     */
+    public EngineConfiguration sequenceNumberIndexMaxSize(final int sequenceNumberIndexMaxSize)
+    {
+        this.sequenceNumberIndexMaxSize = sequenceNumberIndexMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size that the session id file can grow to. The file starts at the size of the
+     * {@link #SESSION_ID_BUFFER_SIZE_PROP} property and grows by segments of that size when it runs out of space for
+     * new sessions, so it doesn't need to be oversized up front.
+     *
+     * Setting this to the session id file size disables growth.
+     *
+     * @param sessionIdBufferMaxSize the maximum size in bytes of the session id file.
+     * @return this
+     */
+    public EngineConfiguration sessionIdBufferMaxSize(final int sessionIdBufferMaxSize)
+    {
+        this.sessionIdBufferMaxSize = sessionIdBufferMaxSize;
+        return this;
+    }
+
     /**
      * Sets the message handler for outbound messages to be passed to when reproduction mode is enabled.
      *
@@ -1370,6 +1758,24 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public EngineConfiguration latencyHistogramsFile(final String latencyHistogramsFile)
+    {
+        super.latencyHistogramsFile(latencyHistogramsFile);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public EngineConfiguration latencyHistogramSessions(final int latencyHistogramSessions)
+    {
+        super.latencyHistogramSessions(latencyHistogramSessions);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1749,6 +2155,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return archiverIdleStrategy;
     }
 
+    public IdleStrategy replayerIdleStrategy()
+    {
+        return replayerIdleStrategy;
+    }
+
     public int outboundLibraryFragmentLimit()
     {
         return outboundLibraryFragmentLimit;
@@ -1784,11 +2195,31 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return receivedSequenceNumberBuffer;
     }
 
+    public int sequenceNumberIndexSize()
+    {
+        return sequenceNumberIndexSize;
+    }
+
+    public int sequenceNumberIndexMaxSize()
+    {
+        return sequenceNumberIndexMaxSize;
+    }
+
     public MappedFile sessionIdBuffer()
     {
         return sessionIdBuffer;
     }
 
+    public int sessionIdBufferSize()
+    {
+        return sessionIdBufferSize;
+    }
+
+    public int sessionIdBufferMaxSize()
+    {
+        return sessionIdBufferMaxSize;
+    }
+
     public MappedFile fixPIdBuffer()
     {
         if (fixPBuffer == null)
@@ -1813,11 +2244,56 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return senderMaxBytesInBuffer;
     }
 
+    public int senderMaxBytesInSpillFile()
+    {
+        return senderMaxBytesInSpillFile;
+    }
+
     public int noLogonDisconnectTimeoutInMs()
     {
         return noLogonDisconnectTimeoutInMs;
     }
 
+    public int senderBatchMaxBytes()
+    {
+        return senderBatchMaxBytes;
+    }
+
+    public long senderBatchMaxDelayInNs()
+    {
+        return senderBatchMaxDelayInNs;
+    }
+
+    public boolean headerSummaryEnabled()
+    {
+        return headerSummaryEnabled;
+    }
+
+    public int[] senderPriorityClassByteBudgets()
+    {
+        return senderPriorityClassByteBudgets;
+    }
+
+    /**
+     * Get the priority class that replays are scheduled in.
+     *
+     * @return the priority class that replays are scheduled in, or the last priority class if one hasn't been set.
+     */
+    public int senderReplayPriorityClass()
+    {
+        if (senderReplayPriorityClass == DEFAULT_SENDER_REPLAY_PRIORITY_CLASS)
+        {
+            return senderPriorityClassByteBudgets.length - 1;
+        }
+
+        return senderReplayPriorityClass;
+    }
+
+    public SenderPriorityStrategy senderPriorityStrategy()
+    {
+        return senderPriorityStrategy;
+    }
+
     public SessionPersistenceStrategy sessionPersistenceStrategy()
     {
         return sessionPersistenceStrategy;
@@ -1998,6 +2474,21 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return indexChecksumEnabled;
     }
 
+    public boolean sessionMessageTypeIndexEnabled()
+    {
+        return sessionMessageTypeIndexEnabled;
+    }
+
+    public long sessionMessageTypeIndexBlockGapInBytes()
+    {
+        return sessionMessageTypeIndexBlockGapInBytes;
+    }
+
+    public int recentMessageCacheCapacity()
+    {
+        return recentMessageCacheCapacity;
+    }
+
     public EngineReproductionConfiguration reproductionConfiguration()
     {
         return reproductionConfiguration;
@@ -2062,6 +2553,13 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
                 sessionBufferSize()));
         }
 
+        validateSenderBatching();
+        validateSenderSpilling();
+        validateSenderPriorityClasses();
+        validateRecentMessageCache();
+        validateSequenceNumberIndexMaxSize();
+        validateSessionIdBufferMaxSize();
+
         if (acceptsFixP() && !logAllMessages())
         {
             throw new IllegalArgumentException("FIXP acceptor is not supported without logging messages");
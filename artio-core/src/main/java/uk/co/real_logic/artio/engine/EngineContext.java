@@ -62,11 +62,15 @@ public class EngineContext implements AutoCloseable
     private final AeronArchive aeronArchive;
     private final RecordingCoordinator recordingCoordinator;
     private final ExclusivePublication replayPublication;
+    private final SequenceNumberIndexBuffer sentSequenceNumberIndexBuffer;
+    private final SequenceNumberIndexBuffer receivedSequenceNumberIndexBuffer;
     private final SequenceNumberIndexWriter sentSequenceNumberIndex;
     private final SequenceNumberIndexWriter receivedSequenceNumberIndex;
 
     private final ReplayEvictionHandler inboundEvictionHandler;
     private final ReplayEvictionHandler outboundEvictionHandler;
+    private final RecentMessageCache recentMessageCache;
+    private final IdleStrategy replayerIdleStrategy;
 
     private Streams inboundLibraryStreams;
     private Streams outboundLibraryStreams;
@@ -75,6 +79,7 @@ public class EngineContext implements AutoCloseable
     private Indexer inboundIndexer;
     private Indexer outboundIndexer;
     private Agent indexingAgent;
+    private Agent replayingAgent;
     private ReplayQuery pruneInboundReplayQuery;
     private ReplayQuery outboundReplayQuery;
     private FramerContext framerContext;
@@ -95,12 +100,31 @@ public class EngineContext implements AutoCloseable
         this.aeron = aeron;
         this.clock = configuration.epochNanoClock();
         this.replayPublication = replayPublication;
+        sentSequenceNumberIndexBuffer = new SequenceNumberIndexBuffer(configuration.sentSequenceNumberBuffer());
+        receivedSequenceNumberIndexBuffer = new SequenceNumberIndexBuffer(configuration.receivedSequenceNumberBuffer());
         this.aeronArchive = aeronArchive;
         this.recordingCoordinator = recordingCoordinator;
 
-        inboundEvictionHandler = new ReplayEvictionHandler(errorHandler);
-        outboundEvictionHandler = new ReplayEvictionHandler(errorHandler);
+        final int recentMessageCacheCapacity = configuration.recentMessageCacheCapacity();
+        recentMessageCache = recentMessageCacheCapacity == 0 ?
+            null : new RecentMessageCache(recentMessageCacheCapacity);
         replayerCommandQueue = new ReplayerCommandQueue(configuration.framerIdleStrategy());
+        if (configuration.scheduler().separateReplayer())
+        {
+            // Resets of the replayer's queries are handed over to its thread, the indexers wait on their own thread.
+            replayerIdleStrategy = configuration.replayerIdleStrategy();
+            final IdleStrategy indexerIdleStrategy = configuration.archiverIdleStrategy();
+            inboundEvictionHandler = new ReplayEvictionHandler(
+                errorHandler, replayerCommandQueue, indexerIdleStrategy);
+            outboundEvictionHandler = new ReplayEvictionHandler(
+                errorHandler, replayerCommandQueue, indexerIdleStrategy);
+        }
+        else
+        {
+            replayerIdleStrategy = configuration.archiverIdleStrategy();
+            inboundEvictionHandler = new ReplayEvictionHandler(errorHandler);
+            outboundEvictionHandler = new ReplayEvictionHandler(errorHandler);
+        }
         senderSequenceNumbers = new SenderSequenceNumbers(replayerCommandQueue);
 
         try
@@ -111,7 +135,7 @@ public class EngineContext implements AutoCloseable
             final boolean indexChecksumEnabled = configuration.indexChecksumEnabled();
             sentSequenceNumberIndex = new SequenceNumberIndexWriter(
                 sentSequenceNumberExtractor,
-                configuration.sentSequenceNumberBuffer(),
+                sentSequenceNumberIndexBuffer,
                 configuration.sentSequenceNumberIndex(),
                 errorHandler,
                 configuration.outboundLibraryStream(),
@@ -122,10 +146,12 @@ public class EngineContext implements AutoCloseable
                 connectionIdToFixPSessionId,
                 fixPProtocolType,
                 true, indexChecksumEnabled,
-                configuration.logOutboundMessages());
+                configuration.logOutboundMessages(),
+                configuration.sequenceNumberIndexSize(),
+                configuration.sequenceNumberIndexMaxSize());
             receivedSequenceNumberIndex = new SequenceNumberIndexWriter(
                 recvSequenceNumberExtractor,
-                configuration.receivedSequenceNumberBuffer(),
+                receivedSequenceNumberIndexBuffer,
                 configuration.receivedSequenceNumberIndex(),
                 errorHandler,
                 configuration.inboundLibraryStream(),
@@ -136,7 +162,9 @@ public class EngineContext implements AutoCloseable
                 connectionIdToFixPSessionId,
                 fixPProtocolType,
                 false, indexChecksumEnabled,
-                configuration.logInboundMessages());
+                configuration.logInboundMessages(),
+                configuration.sequenceNumberIndexSize(),
+                configuration.sequenceNumberIndexMaxSize());
 
             newStreams();
             newArchivingAgent();
@@ -184,7 +212,8 @@ public class EngineContext implements AutoCloseable
         final SequenceNumberIndexReader reader,
         final SequenceNumberExtractor sequenceNumberExtractor,
         final boolean indexChecksumEnabled,
-        final ReplayEvictionHandler evictionHandler)
+        final ReplayEvictionHandler evictionHandler,
+        final RecentMessageCache recentMessageCache)
     {
         return new ReplayIndex(
             sequenceNumberExtractor,
@@ -200,12 +229,16 @@ public class EngineContext implements AutoCloseable
             configuration.supportedFixPProtocolType(),
             reader,
             configuration.timeIndexReplayFlushIntervalInNs(),
+            configuration.sessionMessageTypeIndexEnabled(),
+            configuration.sessionMessageTypeIndexBlockGapInBytes(),
             streamId == configuration.outboundLibraryStream(),
             indexChecksumEnabled,
-            evictionHandler);
+            evictionHandler,
+            recentMessageCache);
     }
 
-    private ReplayQuery newReplayQuery(final IdleStrategy idleStrategy, final int streamId)
+    private ReplayQuery newReplayQuery(
+        final IdleStrategy idleStrategy, final int streamId, final RecentMessageCache recentMessageCache)
     {
         final String logFileDir = configuration.logFileDir();
         final int cacheSetSize = configuration.loggerCacheSetSize();
@@ -223,7 +256,8 @@ public class EngineContext implements AutoCloseable
             errorHandler,
             archiveReplayStream,
             configuration.replayIndexFileRecordCapacity(),
-            configuration.replayIndexSegmentRecordCapacity());
+            configuration.replayIndexSegmentRecordCapacity(),
+            recentMessageCache);
     }
 
     private Replayer newReplayer(
@@ -234,7 +268,7 @@ public class EngineContext implements AutoCloseable
             replayQuery,
             replayPublication,
             new BufferClaim(),
-            configuration.archiverIdleStrategy(),
+            replayerIdleStrategy,
             errorHandler,
             configuration.outboundMaxClaimAttempts(),
             inboundLibraryStreams.subscription("replayer"),
@@ -252,7 +286,23 @@ public class EngineContext implements AutoCloseable
             configuration.maxConcurrentSessionReplays(),
             clock,
             configuration.supportedFixPProtocolType(),
-            configuration);
+            configuration,
+            newOutboundIndexBarrier());
+    }
+
+    private ReplayIndexBarrier newOutboundIndexBarrier()
+    {
+        if (!configuration.scheduler().separateReplayer())
+        {
+            return null;
+        }
+
+        // Maps its own copy of the position buffer as the outbound replay index unmaps its copy when it closes.
+        return new ReplayIndexBarrier(
+            ReplayIndexDescriptor.replayPositionBuffer(
+                configuration.logFileDir(), configuration.outboundLibraryStream(),
+                configuration.replayPositionBufferSize()),
+            aeron.countersReader());
     }
 
     private void newIndexers()
@@ -277,7 +327,8 @@ public class EngineContext implements AutoCloseable
                     receivedSequenceNumberIndex.reader(),
                     recvSequenceNumberExtractor,
                     indexChecksumEnabled,
-                    inboundEvictionHandler);
+                    inboundEvictionHandler,
+                    null);
                 inboundIndices.add(inboundReplayIndex);
             }
             inboundIndices.add(receivedSequenceNumberIndex);
@@ -300,7 +351,8 @@ public class EngineContext implements AutoCloseable
                     sentSequenceNumberIndex.reader(),
                     sentSequenceNumberExtractor,
                     indexChecksumEnabled,
-                    outboundEvictionHandler);
+                    outboundEvictionHandler,
+                    recentMessageCache);
                 outboundIndices.add(outboundReplayIndex);
             }
             outboundIndices.add(sentSequenceNumberIndex);
@@ -335,8 +387,9 @@ public class EngineContext implements AutoCloseable
         final Agent replayer;
         if (configuration.logOutboundMessages())
         {
+            // The recent message cache is shared with the outbound indexer, which may run on a different thread.
             outboundReplayQuery = newReplayQuery(
-                configuration.archiverIdleStrategy(), configuration.outboundLibraryStream());
+                replayerIdleStrategy, configuration.outboundLibraryStream(), recentMessageCache);
             outboundEvictionHandler.replayQuery(outboundReplayQuery);
             try
             {
@@ -353,7 +406,7 @@ public class EngineContext implements AutoCloseable
             final GatewayPublication replayGatewayPublication = new GatewayPublication(
                 replayPublication,
                 fixCounters.failedReplayPublications(),
-                configuration.archiverIdleStrategy(),
+                replayerIdleStrategy,
                 clock,
                 configuration.outboundMaxClaimAttempts());
 
@@ -367,12 +420,9 @@ public class EngineContext implements AutoCloseable
                 clock);
         }
 
-        final List<Agent> agents = new ArrayList<>();
-        agents.add(inboundIndexer);
-        agents.add(outboundIndexer);
-        agents.add(replayer);
-
-        indexingAgent = new CompositeAgent(agents);
+        // The indexers share FIXP connection state, so they always run on the same thread.
+        indexingAgent = new CompositeAgent(inboundIndexer, outboundIndexer);
+        replayingAgent = replayer;
     }
 
     public void catchupIndices()
@@ -416,7 +466,7 @@ public class EngineContext implements AutoCloseable
         }
 
         final ReplayQuery replayQuery = newReplayQuery(
-            configuration.framerIdleStrategy(), configuration.inboundLibraryStream());
+            configuration.framerIdleStrategy(), configuration.inboundLibraryStream(), null);
         if (replayerThread)
         {
             inboundEvictionHandler.replayQuery(replayQuery);
@@ -434,6 +484,16 @@ public class EngineContext implements AutoCloseable
             configuration.framerIdleStrategy(), inboundLibraryStreams.dataPublication("inboundPublication"));
     }
 
+    public SequenceNumberIndexBuffer sentSequenceNumberIndexBuffer()
+    {
+        return sentSequenceNumberIndexBuffer;
+    }
+
+    public SequenceNumberIndexBuffer receivedSequenceNumberIndexBuffer()
+    {
+        return receivedSequenceNumberIndexBuffer;
+    }
+
     public CompletionPosition inboundCompletionPosition()
     {
         return inboundCompletionPosition;
@@ -456,6 +516,11 @@ public class EngineContext implements AutoCloseable
         return indexingAgent;
     }
 
+    Agent replayingAgent()
+    {
+        return replayingAgent;
+    }
+
     public SenderSequenceNumbers senderSequenceNumbers()
     {
         return senderSequenceNumbers;
@@ -19,6 +19,7 @@ import io.aeron.Aeron;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.CompositeAgent;
 
 /**
  * Interface for determining how an Engine's Agents are allocated to threads.
@@ -45,6 +46,54 @@ public interface EngineScheduler extends AutoCloseable
         Agent conductorAgent,
         RecordingCoordinator recordingCoordinator);
 
+    /**
+     * Invoked by the FIX Engine to start the threads, with the replayer as a separate agent from the indexers.
+     * Should only return once they are started.
+     *
+     * By default the indexers and replayer are combined into a single archiving agent and
+     * {@link #launch(EngineConfiguration, ErrorHandler, Agent, Agent, Agent, Agent, RecordingCoordinator)} is
+     * invoked. Schedulers should only run them on different threads if {@link #separateReplayer()} returns true.
+     *
+     * @param configuration the engine's configuration object.
+     * @param errorHandler the ErrorHandler used by the engine.
+     * @param framer the framer agent to schedule.
+     * @param indexingAgent the agent that indexes the inbound and outbound streams.
+     * @param replayingAgent the agent that replays messages in response to resend requests.
+     * @param monitoringAgent the monitoring agent to schedule.
+     * @param conductorAgent if aeron has useConductorInvoker enable it
+     * @param recordingCoordinator must be shut down after the Framer but before the conductorAgent.
+     */
+    default void launch(
+        EngineConfiguration configuration,
+        ErrorHandler errorHandler,
+        Agent framer,
+        Agent indexingAgent,
+        Agent replayingAgent,
+        Agent monitoringAgent,
+        Agent conductorAgent,
+        RecordingCoordinator recordingCoordinator)
+    {
+        launch(
+            configuration,
+            errorHandler,
+            framer,
+            new CompositeAgent(indexingAgent, replayingAgent),
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+
+    /**
+     * Whether the replayer runs on a different thread from the indexers. The engine uses this to decide whether state
+     * that's shared between them needs to be handed over between threads.
+     *
+     * @return true if the replayer runs on a different thread from the indexers, false by default.
+     */
+    default boolean separateReplayer()
+    {
+        return false;
+    }
+
     /**
      * Invoked by the FIX Engine to stop the threads. Should only return once they are completed stopped.
      */
@@ -294,7 +294,8 @@ public final class FixEngine extends GatewayProcess
                 scheduler = configuration.scheduler();
                 scheduler.configure(configuration.aeronContext());
                 init(configuration, ENGINE_LIBRARY_ID);
-                timers = new EngineTimers(configuration.epochNanoClock(), fixCounters.negativeTimestamps());
+                timers = new EngineTimers(
+                    configuration.epochNanoClock(), fixCounters.negativeTimestamps(), latencyHistograms);
                 final AeronArchive.Context archiveContext = configuration.aeronArchiveContext();
                 final AeronArchive aeronArchive =
                     configuration.logAnyMessages() ? AeronArchive.connect(archiveContext.aeron(aeron)) : null;
@@ -399,6 +400,7 @@ public final class FixEngine extends GatewayProcess
             errorHandler,
             framerContext.framer(),
             engineContext.indexingAgent(),
+            engineContext.replayingAgent(),
             monitoringCompositeAgent,
             conductorAgent(),
             recordingCoordinator);
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.DirectBuffer;
+import org.agrona.collections.IntHashSet;
+import uk.co.real_logic.artio.fields.UtcTimestampDecoder;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
+import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static uk.co.real_logic.artio.dictionary.SessionConstants.*;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_LONG;
+import static uk.co.real_logic.artio.engine.PossDupFinder.*;
+import static uk.co.real_logic.artio.util.MutableAsciiBuffer.SEPARATOR;
+
+/**
+ * Extracts a {@link HeaderSummary} from a framed message by scanning its standard header, stopping at the first
+ * field that isn't part of the standard header of the session's dictionary. Never throws: if the header can't be
+ * scanned then the summary is left absent and it's up to the session layer to parse and reject the message as it
+ * would without one.
+ */
+public class HeaderSummaryExtractor
+{
+    private static final int POSS_RESEND = 97;
+
+    private final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+    private final HeaderSummary headerSummary = new HeaderSummary();
+
+    /**
+     * Extract the summary of a message's header.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @param headerFieldTags the tags of the session dictionary's header fields, see
+     *                        {@link uk.co.real_logic.artio.dictionary.FixDictionary#headerFieldTags()}. If this is
+     *                        null then the summary is absent as the end of the header can't be found.
+     * @return the summary, which is reused by subsequent calls.
+     */
+    public HeaderSummary extract(
+        final DirectBuffer buffer, final int offset, final int length, final IntHashSet headerFieldTags)
+    {
+        final HeaderSummary headerSummary = this.headerSummary.reset();
+        if (headerFieldTags == null)
+        {
+            return headerSummary;
+        }
+
+        try
+        {
+            scan(buffer, offset, length, headerFieldTags);
+        }
+        catch (final IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            headerSummary.reset();
+        }
+        return headerSummary;
+    }
+
+    private void scan(
+        final DirectBuffer buffer, final int offset, final int length, final IntHashSet headerFieldTags)
+    {
+        final HeaderSummary headerSummary = this.headerSummary;
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        asciiBuffer.wrap(buffer);
+
+        final int end = offset + length;
+        int dataLength = NO_ENTRY;
+        int position = offset;
+        while (position < end)
+        {
+            final int equalsPosition = asciiBuffer.scan(position, end, '=');
+            if (equalsPosition == AsciiBuffer.UNKNOWN_INDEX)
+            {
+                return;
+            }
+
+            final int tag = asciiBuffer.getInt(position, equalsPosition);
+            if (!headerFieldTags.contains(tag))
+            {
+                // Reached the body, so every header field has been seen.
+                headerSummary.bodyOffset(position - offset).present(true);
+                return;
+            }
+
+            final int valueOffset = equalsPosition + 1;
+            final int endOfField = (tag == SECURE_DATA || tag == XML_DATA) && dataLength != NO_ENTRY ?
+                valueOffset + dataLength : asciiBuffer.scan(valueOffset, end, SEPARATOR);
+            if (endOfField == AsciiBuffer.UNKNOWN_INDEX || endOfField >= end)
+            {
+                return;
+            }
+
+            final int valueLength = endOfField - valueOffset;
+            dataLength = NO_ENTRY;
+            switch (tag)
+            {
+                case BODY_LENGTH:
+                    headerSummary.headerOffset(endOfField + 1 - offset);
+                    break;
+
+                case MSG_SEQ_NO:
+                    headerSummary.msgSeqNum(asciiBuffer.getInt(valueOffset, endOfField));
+                    break;
+
+                case POSS_DUP_FLAG:
+                    headerSummary.possDup(isYes(valueOffset, valueLength));
+                    break;
+
+                case POSS_RESEND:
+                    headerSummary.possResend(isYes(valueOffset, valueLength));
+                    break;
+
+                case SENDING_TIME:
+                    headerSummary.sendingTimeInNs(decodeSendingTime(valueOffset, valueLength));
+                    break;
+
+                case SECURE_DATA_LEN:
+                case XML_DATA_LEN:
+                    dataLength = asciiBuffer.getInt(valueOffset, endOfField);
+                    break;
+            }
+
+            position = endOfField + 1;
+        }
+    }
+
+    private boolean isYes(final int valueOffset, final int valueLength)
+    {
+        return valueLength == 1 && asciiBuffer.getByte(valueOffset) == 'Y';
+    }
+
+    // Always decoded strictly so that a timestamp that the session would reject is never accepted on its behalf
+    private long decodeSendingTime(final int valueOffset, final int valueLength)
+    {
+        try
+        {
+            return UtcTimestampDecoder.decodeNanos(asciiBuffer, valueOffset, valueLength, true);
+        }
+        catch (final IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            return MISSING_LONG;
+        }
+    }
+}
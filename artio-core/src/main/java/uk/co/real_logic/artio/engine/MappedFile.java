@@ -26,6 +26,7 @@ import uk.co.real_logic.artio.CommonConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -104,6 +105,30 @@ public class MappedFile implements AutoCloseable
         }
     }
 
+    /**
+     * Grow the file and remap it. The file is extended sparsely, so this doesn't write out the new part of the file
+     * or copy the existing part. Any previous {@link #buffer()} is unmapped and must not be used after this call.
+     *
+     * @param newSize the new size in bytes of the file.
+     */
+    public void growTo(final int newSize)
+    {
+        try
+        {
+            if (newSize > fileChannel.size())
+            {
+                fileChannel.write(ByteBuffer.allocate(1), newSize - 1);
+            }
+
+            IoUtil.unmap(buffer.byteBuffer());
+            buffer = new UnsafeBuffer(fileChannel.map(READ_WRITE, 0, newSize));
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
     public void remap()
     {
         close();
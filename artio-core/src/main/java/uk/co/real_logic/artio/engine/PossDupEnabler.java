@@ -21,13 +21,12 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntHashSet;
 import org.agrona.concurrent.EpochNanoClock;
 import uk.co.real_logic.artio.DebugLogger;
-import uk.co.real_logic.artio.dictionary.LongDictionary;
 import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
-import uk.co.real_logic.artio.otf.OtfParser;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
@@ -42,6 +41,7 @@ import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE;
 import static uk.co.real_logic.artio.engine.PossDupFinder.NO_ENTRY;
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
 import static uk.co.real_logic.artio.engine.framer.CatchupReplayer.FRAME_LENGTH;
 import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR_LENGTH;
 import static uk.co.real_logic.artio.util.MutableAsciiBuffer.SEPARATOR;
@@ -56,9 +56,9 @@ public class PossDupEnabler
     private static final int FRAGMENTED_MESSAGE_BUFFER_OFFSET = 0;
 
     private final ExpandableArrayBuffer fragmentedMessageBuffer = new ExpandableArrayBuffer();
-    private final PossDupFinder possDupFinder = new PossDupFinder();
-    private final OtfParser parser = new OtfParser(possDupFinder, new LongDictionary());
+    private final PossDupFinder possDupFinder;
     private final MutableAsciiBuffer mutableAsciiFlyweight = new MutableAsciiBuffer();
+    private final MutableAsciiBuffer srcAsciiFlyweight = new MutableAsciiBuffer();
     private final UtcTimestampEncoder utcTimestampEncoder;
 
     private final BufferClaim bufferClaim;
@@ -86,6 +86,24 @@ public class PossDupEnabler
         final EpochNanoClock clock,
         final int maxPayloadLength)
     {
+        this(utcTimestampEncoder, bufferClaim, claimer, onPreCommit, onIllegalStateFunc, errorHandler, clock,
+            maxPayloadLength, null);
+    }
+
+    // headerFieldTags are the session dictionary's, see FixDictionary.headerFieldTags(). When they're null the whole
+    // of a message is scanned in order to find the fields to update.
+    public PossDupEnabler(
+        final UtcTimestampEncoder utcTimestampEncoder,
+        final BufferClaim bufferClaim,
+        final Claimer claimer,
+        final PreCommit onPreCommit,
+        final Consumer<String> onIllegalStateFunc,
+        final ErrorHandler errorHandler,
+        final EpochNanoClock clock,
+        final int maxPayloadLength,
+        final IntHashSet headerFieldTags)
+    {
+        this.possDupFinder = new PossDupFinder(headerFieldTags);
         this.utcTimestampEncoder = utcTimestampEncoder;
         this.bufferClaim = bufferClaim;
         this.claimer = claimer;
@@ -106,7 +124,30 @@ public class PossDupEnabler
         final int metaDataAdjustment,
         final long messageType)
     {
-        parser.onMessage(srcBuffer, messageOffset, messageLength);
+        return enablePossDupFlag(
+            srcBuffer, messageOffset, messageLength, srcOffset, srcLength, metaDataAdjustment, messageType,
+            NO_HEADER_OFFSETS);
+    }
+
+    // headerOffsets are the ones stored in the replay index for the message, see PossDupFinder.headerOffsets(), the
+    // message is scanned if they're NO_HEADER_OFFSETS or don't match it.
+    public Action enablePossDupFlag(
+        final DirectBuffer srcBuffer,
+        final int messageOffset,
+        final int messageLength,
+        final int srcOffset,
+        final int srcLength,
+        final int metaDataAdjustment,
+        final long messageType,
+        final int headerOffsets)
+    {
+        final PossDupFinder possDupFinder = this.possDupFinder;
+        if (!possDupFinder.onMessage(srcBuffer, messageOffset, messageLength, headerOffsets))
+        {
+            possDupFinder.onMessage(srcBuffer, messageOffset, messageLength);
+        }
+        srcAsciiFlyweight.wrap(srcBuffer);
+
         final boolean missingPossDup = possDupFinder.possDupOffset() == NO_ENTRY;
         final boolean missingOrigSendingTime = possDupFinder.origSendingTimeOffset() == NO_ENTRY;
         if (missingPossDup || missingOrigSendingTime)
@@ -204,7 +245,8 @@ public class PossDupEnabler
             final int messageClaimOffset = srcToClaim(messageOffset, srcOffset, writeOffset);
             final int messageEndOffset = messageClaimOffset + messageLength;
             final int beforeChecksum = srcToClaim(possDupFinder.checkSumOffset(), srcOffset, writeOffset) - 4;
-            updateChecksum(messageClaimOffset, beforeChecksum, messageEndOffset);
+            final int checksumDelta = updatedFieldsChecksumDelta(srcOffset, writeOffset);
+            updateChecksum(messageClaimOffset, beforeChecksum, messageEndOffset, checksumDelta);
 
             return commit(messageType, metaDataAdjustment);
         }
@@ -390,10 +432,15 @@ public class PossDupEnabler
         // Update the sending time
         updateSendingTime(srcOffset);
 
+        // Summed before the body length update, as that can move the fields after it
+        final int addedFieldsClaimOffset = writeOffset + lengthToSendingTimeEnd;
+        final int checksumDelta = updatedFieldsChecksumDelta(srcOffset, writeOffset) +
+            mutableAsciiFlyweight.computeChecksum(addedFieldsClaimOffset, remainingClaimOffset);
+
         updateFrameBodyLength(messageLength, writeBuffer, writeOffset, totalLengthDelta, metaDataAdjustment);
         final int messageClaimOffset = srcToClaim(messageOffset, srcOffset, writeOffset);
         updateBodyLengthAndChecksum(
-            srcOffset, messageClaimOffset, writeOffset, newBodyLength, writeOffset + newLength);
+            srcOffset, messageClaimOffset, writeOffset, newBodyLength, writeOffset + newLength, checksumDelta);
 
         return true;
     }
@@ -428,10 +475,12 @@ public class PossDupEnabler
         final int messageClaimOffset,
         final int claimOffset,
         final int newBodyLength,
-        final int messageEndOffset)
+        final int messageEndOffset,
+        final int fieldsChecksumDelta)
     {
         // BEGIN Update body length
-        final int bodyLengthClaimOffset = srcToClaim(possDupFinder.bodyLengthOffset(), srcOffset, claimOffset);
+        final int bodyLengthSrcOffset = possDupFinder.bodyLengthOffset();
+        final int bodyLengthClaimOffset = srcToClaim(bodyLengthSrcOffset, srcOffset, claimOffset);
         final int lengthOfOldBodyLength = possDupFinder.lengthOfBodyLength();
         final int lengthOfNewBodyLength = MutableAsciiBuffer.lengthInAscii(newBodyLength);
 
@@ -451,20 +500,88 @@ public class PossDupEnabler
             bodyLengthClaimOffset, lengthOfUpdatedBodyLengthField, newBodyLength);
         // END Update body length
 
+        final int newBodyLengthChecksum = mutableAsciiFlyweight.computeChecksum(
+            bodyLengthClaimOffset, bodyLengthClaimOffset + lengthOfUpdatedBodyLengthField);
+        final int oldBodyLengthChecksum = srcAsciiFlyweight.computeChecksum(
+            bodyLengthSrcOffset, bodyLengthSrcOffset + lengthOfOldBodyLength);
+        final int checksumDelta = fieldsChecksumDelta + newBodyLengthChecksum - oldBodyLengthChecksum;
+
         final int beforeChecksum = bodyLengthClaimOffset + lengthOfUpdatedBodyLengthField + newBodyLength;
-        updateChecksum(messageClaimOffset, beforeChecksum, messageEndOffset);
+        updateChecksum(messageClaimOffset, beforeChecksum, messageEndOffset, checksumDelta);
     }
 
-    private void updateChecksum(final int messageClaimOffset, final int beforeChecksum, final int messageEndOffset)
+    // The difference that updating the poss dup flag and sending time values in place makes to the checksum
+    private int updatedFieldsChecksumDelta(final int srcOffset, final int claimOffset)
     {
-        final int lengthOfSeparator = 1;
-        final int checksumEnd = beforeChecksum + lengthOfSeparator;
-        final int checksum = mutableAsciiFlyweight.computeChecksum(messageClaimOffset, checksumEnd);
+        final PossDupFinder possDupFinder = this.possDupFinder;
+        final MutableAsciiBuffer srcAsciiFlyweight = this.srcAsciiFlyweight;
+
+        int checksumDelta = 0;
+        final int possDupSrcOffset = possDupFinder.possDupOffset();
+        if (possDupSrcOffset != NO_ENTRY)
+        {
+            checksumDelta += 'Y' - srcAsciiFlyweight.getByte(possDupSrcOffset);
+        }
+
+        final int sendingTimeOffset = possDupFinder.sendingTimeOffset();
+        final int sendingTimeEnd = sendingTimeOffset + possDupFinder.sendingTimeLength();
+        final int sendingTimeClaimOffset = srcToClaim(sendingTimeOffset, srcOffset, claimOffset);
+        final int sendingTimeClaimEnd = srcToClaim(sendingTimeEnd, srcOffset, claimOffset);
+        checksumDelta += mutableAsciiFlyweight.computeChecksum(sendingTimeClaimOffset, sendingTimeClaimEnd) -
+            srcAsciiFlyweight.computeChecksum(sendingTimeOffset, sendingTimeEnd);
+
+        return checksumDelta;
+    }
+
+    // The checksum is a sum of the message's bytes, so it's adjusted by the difference that the inserted and updated
+    // fields make rather than summing the whole message again. This trusts the original checksum: a message that was
+    // sent with an incorrect checksum, eg: with validation disabled, is resent with an equally incorrect one. It's
+    // only recomputed when the original can't be parsed.
+    private void updateChecksum(
+        final int messageClaimOffset, final int beforeChecksum, final int messageEndOffset, final int checksumDelta)
+    {
+        final int srcChecksum = srcChecksum();
+        final int checksum;
+        if (srcChecksum == NO_ENTRY)
+        {
+            final int lengthOfSeparator = 1;
+            final int checksumEnd = beforeChecksum + lengthOfSeparator;
+            checksum = mutableAsciiFlyweight.computeChecksum(messageClaimOffset, checksumEnd);
+        }
+        else
+        {
+            checksum = (srcChecksum + checksumDelta) & 0xFF;
+        }
+
         final int checksumValueOffset = messageEndOffset - (CHECKSUM_VALUE_LENGTH + SEPARATOR_LENGTH);
         mutableAsciiFlyweight.putNaturalPaddedIntAscii(checksumValueOffset, CHECKSUM_VALUE_LENGTH, checksum);
         mutableAsciiFlyweight.putSeparator(checksumValueOffset + CHECKSUM_VALUE_LENGTH);
     }
 
+    private int srcChecksum()
+    {
+        final int checkSumOffset = possDupFinder.checkSumOffset();
+        if (checkSumOffset == NO_ENTRY)
+        {
+            return NO_ENTRY;
+        }
+
+        final MutableAsciiBuffer srcAsciiFlyweight = this.srcAsciiFlyweight;
+        int checksum = 0;
+        for (int i = 0; i < CHECKSUM_VALUE_LENGTH; i++)
+        {
+            final byte digit = srcAsciiFlyweight.getByte(checkSumOffset + i);
+            if (digit < '0' || digit > '9')
+            {
+                return NO_ENTRY;
+            }
+            checksum = checksum * 10 + (digit - '0');
+        }
+
+        final boolean terminated = srcAsciiFlyweight.getByte(checkSumOffset + CHECKSUM_VALUE_LENGTH) == SEPARATOR;
+        return terminated && checksum <= 0xFF ? checksum : NO_ENTRY;
+    }
+
     private int srcToClaim(final int srcIndexedOffset, final int srcOffset, final int claimOffset)
     {
         return srcIndexedOffset - srcOffset + claimOffset;
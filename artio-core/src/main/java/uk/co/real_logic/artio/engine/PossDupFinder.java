@@ -15,16 +15,74 @@
  */
 package uk.co.real_logic.artio.engine;
 
-import uk.co.real_logic.artio.ValidationError;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.IntHashSet;
 import uk.co.real_logic.artio.dictionary.SessionConstants;
-import uk.co.real_logic.artio.fields.AsciiFieldFlyweight;
-import uk.co.real_logic.artio.otf.MessageControl;
-import uk.co.real_logic.artio.otf.OtfMessageAcceptor;
+import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
-class PossDupFinder implements OtfMessageAcceptor
+import static uk.co.real_logic.artio.util.MutableAsciiBuffer.SEPARATOR;
+
+/**
+ * Finds the offsets of the fields that need to be updated in order to resend a message, without parsing its body.
+ *
+ * All of the fields apart from the checksum are in the standard header, so fields are only scanned up until the
+ * first field that isn't part of the standard header of the session's dictionary once the sending time has been
+ * found. The checksum is at a fixed offset from the end of a message. If the dictionary's header fields aren't known
+ * then the whole message is scanned.
+ *
+ * The replay index stores the offsets of the sending time and poss dup flag fields and of the start of the body of
+ * each message as {@link #headerOffsets(int, int)}, so that replaying a message doesn't need to scan it at all. The
+ * index doesn't know the session's dictionary, so it scans up to the first field outside of
+ * {@link #STANDARD_HEADER_FIELD_TAGS}. Stored offsets are checked against the message before being used, including
+ * that the field at the start of the body isn't a header field of the session's dictionary, and messages indexed
+ * before they were stored are scanned.
+ */
+public class PossDupFinder
 {
     public static final int NO_ENTRY = -1;
+    public static final int NO_HEADER_OFFSETS = ReplayIndexRecordDecoder.headerOffsetsNullValue();
+
+    // Header offsets layout: sending time offset | sending time length | poss dup offset | body distance. Offsets
+    // are relative to the message and the body distance is from the end of the sending time field.
+    private static final int OFFSET_BITS = 11;
+    private static final int MAX_OFFSET = (1 << OFFSET_BITS) - 1;
+    private static final int LENGTH_BITS = 5;
+    private static final int MAX_LENGTH = (1 << LENGTH_BITS) - 1;
+    private static final int SENDING_TIME_LENGTH_SHIFT = OFFSET_BITS;
+    private static final int POSS_DUP_SHIFT = OFFSET_BITS + LENGTH_BITS;
+    private static final int BODY_DISTANCE_SHIFT = POSS_DUP_SHIFT + OFFSET_BITS;
+    private static final int MAX_BODY_DISTANCE = (1 << (Integer.SIZE - BODY_DISTANCE_SHIFT)) - 1;
+    private static final int NO_POSS_DUP_OFFSET = MAX_OFFSET;
+
+    private static final int TRAILER_LENGTH = "10=000\001".length();
+    private static final int CHECKSUM_VALUE_LENGTH = 4;
+
+    static final int SECURE_DATA_LEN = 90;
+    static final int SECURE_DATA = 91;
+    static final int XML_DATA_LEN = 212;
+    static final int XML_DATA = 213;
+
+    /**
+     * Header fields of FIX 4.x and FIXT.1.1, including the fields of the hops group. Used to find the end of the header
+     * of a message whose session dictionary isn't known. Don't modify this set.
+     */
+    public static final IntHashSet STANDARD_HEADER_FIELD_TAGS = new IntHashSet();
+
+    static
+    {
+        final int[] headerFields = {
+            8, 9, 35, 1128, 1129, 1156, 49, 56, 115, 128, SECURE_DATA_LEN, SECURE_DATA, 34, 50, 142, 57, 143, 116,
+            144, 129, 145, 43, 97, 52, 122, XML_DATA_LEN, XML_DATA, 347, 369, 627, 628, 629, 630 };
+        for (final int headerField : headerFields)
+        {
+            STANDARD_HEADER_FIELD_TAGS.add(headerField);
+        }
+    }
+
+    private final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+    private final IntHashSet headerFieldTags;
 
     private int possDupOffset;
     private int sendingTimeOffset;
@@ -35,80 +93,269 @@ class PossDupFinder implements OtfMessageAcceptor
     private int origSendingTimeOffset;
     private int origSendingTimeLength;
     private int checkSumOffset;
+    private int bodyOffset;
 
-    public MessageControl onNext()
+    public PossDupFinder(final IntHashSet headerFieldTags)
     {
-        possDupOffset = NO_ENTRY;
-        sendingTimeOffset = NO_ENTRY;
-        sendingTimeLength = NO_ENTRY;
-        origSendingTimeOffset = NO_ENTRY;
-        origSendingTimeLength = NO_ENTRY;
-        bodyLength = NO_ENTRY;
-        bodyLengthOffset = NO_ENTRY;
-        lengthOfBodyLength = NO_ENTRY;
-        checkSumOffset = NO_ENTRY;
-        return MessageControl.CONTINUE;
+        this.headerFieldTags = headerFieldTags;
     }
 
-    public MessageControl onField(final int tag, final AsciiBuffer buffer, final int offset, final int length)
+    public void onMessage(final DirectBuffer buffer, final int offset, final int length)
     {
-        switch (tag)
+        reset();
+
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        asciiBuffer.wrap(buffer);
+
+        final int end = offset + length;
+        final IntHashSet headerFieldTags = this.headerFieldTags;
+        final boolean hasTrailer = headerFieldTags != null && hasTrailer(offset, end);
+
+        int dataLength = NO_ENTRY;
+        int position = offset;
+        while (position < end)
         {
-            case SessionConstants.POSS_DUP_FLAG:
-                possDupOffset = offset;
+            final int equalsPosition = asciiBuffer.scan(position, end, '=');
+            if (equalsPosition == AsciiBuffer.UNKNOWN_INDEX)
+            {
                 break;
+            }
 
-            case SessionConstants.SENDING_TIME:
-                sendingTimeOffset = offset;
-                sendingTimeLength = length;
-                break;
+            final int tag = asciiBuffer.getInt(position, equalsPosition);
+            if (hasTrailer && sendingTimeOffset != NO_ENTRY && !headerFieldTags.contains(tag))
+            {
+                // The rest of the message is the body and trailer
+                bodyOffset = position;
+                checkSumOffset = end - CHECKSUM_VALUE_LENGTH;
+                return;
+            }
 
-            case SessionConstants.ORIG_SENDING_TIME:
-                origSendingTimeOffset = offset;
-                origSendingTimeLength = length;
+            final int valueOffset = equalsPosition + 1;
+            final int endOfField = (tag == SECURE_DATA || tag == XML_DATA) && dataLength != NO_ENTRY ?
+                valueOffset + dataLength : asciiBuffer.scan(valueOffset, end, SEPARATOR);
+            if (endOfField == AsciiBuffer.UNKNOWN_INDEX || endOfField >= end)
+            {
                 break;
+            }
 
-            case SessionConstants.BODY_LENGTH:
-                bodyLengthOffset = offset;
-                lengthOfBodyLength = length;
-                bodyLength = buffer.getInt(offset, offset + length);
-                break;
+            final int valueLength = endOfField - valueOffset;
+            dataLength = NO_ENTRY;
+            switch (tag)
+            {
+                case SessionConstants.POSS_DUP_FLAG:
+                    possDupOffset = valueOffset;
+                    break;
 
-            case SessionConstants.CHECKSUM:
-                checkSumOffset = offset;
-                break;
+                case SessionConstants.SENDING_TIME:
+                    sendingTimeOffset = valueOffset;
+                    sendingTimeLength = valueLength;
+                    break;
+
+                case SessionConstants.ORIG_SENDING_TIME:
+                    origSendingTimeOffset = valueOffset;
+                    origSendingTimeLength = valueLength;
+                    break;
+
+                case SessionConstants.BODY_LENGTH:
+                    bodyLengthOffset = valueOffset;
+                    lengthOfBodyLength = valueLength;
+                    bodyLength = asciiBuffer.getInt(valueOffset, endOfField);
+                    break;
+
+                case SessionConstants.CHECKSUM:
+                    checkSumOffset = valueOffset;
+                    return;
+
+                case SECURE_DATA_LEN:
+                case XML_DATA_LEN:
+                    dataLength = asciiBuffer.getInt(valueOffset, endOfField);
+                    break;
+            }
 
+            position = endOfField + 1;
         }
-        return MessageControl.CONTINUE;
     }
 
-    public MessageControl onGroupHeader(final int tag, final int numInGroup)
+    /**
+     * Find the offsets using the header offsets that were stored when the message was indexed.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @param headerOffsets the stored header offsets, or {@link #NO_HEADER_OFFSETS}.
+     * @return true if the offsets were found, false if the message needs to be scanned with
+     *         {@link #onMessage(DirectBuffer, int, int)} instead.
+     */
+    public boolean onMessage(final DirectBuffer buffer, final int offset, final int length, final int headerOffsets)
     {
-        return MessageControl.CONTINUE;
+        if (headerOffsets == NO_HEADER_OFFSETS)
+        {
+            return false;
+        }
+
+        reset();
+
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        asciiBuffer.wrap(buffer);
+
+        final int end = offset + length;
+        final int sendingTimeOffset = offset + (headerOffsets & MAX_OFFSET);
+        final int sendingTimeLength = (headerOffsets >>> SENDING_TIME_LENGTH_SHIFT) & MAX_LENGTH;
+        final int possDupRelativeOffset = (headerOffsets >>> POSS_DUP_SHIFT) & MAX_OFFSET;
+        if (!hasTrailer(offset, end) || !isField(offset, end, sendingTimeOffset, sendingTimeLength, '5', '2'))
+        {
+            return false;
+        }
+
+        final int possDupOffset = possDupRelativeOffset == NO_POSS_DUP_OFFSET ?
+            NO_ENTRY : offset + possDupRelativeOffset;
+        if (possDupOffset != NO_ENTRY && !isField(offset, end, possDupOffset, 1, '4', '3'))
+        {
+            return false;
+        }
+
+        // The index only knows the standard header fields, so a custom header field can start what it took as the body
+        final int bodyOffset = sendingTimeOffset + sendingTimeLength + 1 + (headerOffsets >>> BODY_DISTANCE_SHIFT);
+        if (!isBodyField(bodyOffset, end))
+        {
+            return false;
+        }
+
+        // Body length is always the second field of a message.
+        final int endOfBeginString = asciiBuffer.scan(offset, end, SEPARATOR);
+        if (endOfBeginString == AsciiBuffer.UNKNOWN_INDEX || endOfBeginString + 3 >= end ||
+            asciiBuffer.getByte(endOfBeginString + 1) != '9' || asciiBuffer.getByte(endOfBeginString + 2) != '=')
+        {
+            return false;
+        }
+        final int bodyLengthOffset = endOfBeginString + 3;
+        final int endOfBodyLength = asciiBuffer.scan(bodyLengthOffset, end, SEPARATOR);
+        if (endOfBodyLength == AsciiBuffer.UNKNOWN_INDEX || endOfBodyLength == bodyLengthOffset)
+        {
+            return false;
+        }
+
+        final int bodyLength;
+        try
+        {
+            bodyLength = asciiBuffer.getInt(bodyLengthOffset, endOfBodyLength);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return false;
+        }
+
+        this.possDupOffset = possDupOffset;
+        this.sendingTimeOffset = sendingTimeOffset;
+        this.sendingTimeLength = sendingTimeLength;
+        this.bodyLength = bodyLength;
+        this.bodyLengthOffset = bodyLengthOffset;
+        this.lengthOfBodyLength = endOfBodyLength - bodyLengthOffset;
+        this.checkSumOffset = end - CHECKSUM_VALUE_LENGTH;
+        return true;
+    }
+
+    /**
+     * Gets the header offsets of the last message found by {@link #onMessage(DirectBuffer, int, int)} in order to
+     * store them in the replay index.
+     *
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @return the header offsets, or {@link #NO_HEADER_OFFSETS} if they can't be stored for this message, for example
+     *         because it already has an orig sending time field or the scan didn't stop at the start of its body.
+     */
+    public int headerOffsets(final int offset, final int length)
+    {
+        if (sendingTimeOffset == NO_ENTRY || bodyLengthOffset == NO_ENTRY || origSendingTimeOffset != NO_ENTRY ||
+            bodyOffset == NO_ENTRY || checkSumOffset != offset + length - CHECKSUM_VALUE_LENGTH)
+        {
+            return NO_HEADER_OFFSETS;
+        }
+
+        final int sendingTimeRelativeOffset = sendingTimeOffset - offset;
+        final int possDupRelativeOffset = possDupOffset == NO_ENTRY ? NO_POSS_DUP_OFFSET : possDupOffset - offset;
+        final boolean possDupTooFar = possDupOffset != NO_ENTRY && possDupRelativeOffset >= NO_POSS_DUP_OFFSET;
+        final int bodyDistance = bodyOffset - sendingTimeEnd();
+        if (sendingTimeRelativeOffset > MAX_OFFSET || sendingTimeLength > MAX_LENGTH || possDupTooFar ||
+            bodyDistance < 0 || bodyDistance > MAX_BODY_DISTANCE)
+        {
+            return NO_HEADER_OFFSETS;
+        }
+
+        return sendingTimeRelativeOffset |
+            (sendingTimeLength << SENDING_TIME_LENGTH_SHIFT) |
+            (possDupRelativeOffset << POSS_DUP_SHIFT) |
+            (bodyDistance << BODY_DISTANCE_SHIFT);
     }
 
-    public MessageControl onGroupBegin(final int tag, final int numInGroup, final int index)
+    private void reset()
     {
-        return MessageControl.CONTINUE;
+        possDupOffset = NO_ENTRY;
+        sendingTimeOffset = NO_ENTRY;
+        sendingTimeLength = NO_ENTRY;
+        origSendingTimeOffset = NO_ENTRY;
+        origSendingTimeLength = NO_ENTRY;
+        bodyLength = NO_ENTRY;
+        bodyLengthOffset = NO_ENTRY;
+        lengthOfBodyLength = NO_ENTRY;
+        checkSumOffset = NO_ENTRY;
+        bodyOffset = NO_ENTRY;
     }
 
-    public MessageControl onGroupEnd(final int tag, final int numInGroup, final int index)
+    private boolean hasTrailer(final int offset, final int end)
     {
-        return MessageControl.CONTINUE;
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        final int trailerOffset = end - TRAILER_LENGTH;
+        return trailerOffset > offset &&
+            asciiBuffer.getByte(trailerOffset - 1) == SEPARATOR &&
+            asciiBuffer.getByte(trailerOffset) == '1' &&
+            asciiBuffer.getByte(trailerOffset + 1) == '0' &&
+            asciiBuffer.getByte(trailerOffset + 2) == '=';
     }
 
-    public MessageControl onComplete()
+    // Checks that a field starts at bodyOffset and that it isn't a header field of the session's dictionary
+    private boolean isBodyField(final int bodyOffset, final int end)
     {
-        return MessageControl.CONTINUE;
+        final IntHashSet headerFieldTags = this.headerFieldTags;
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        if (headerFieldTags == null || bodyOffset >= end || asciiBuffer.getByte(bodyOffset - 1) != SEPARATOR)
+        {
+            return false;
+        }
+
+        final int equalsPosition = asciiBuffer.scan(bodyOffset, end, '=');
+        if (equalsPosition == AsciiBuffer.UNKNOWN_INDEX || equalsPosition == bodyOffset)
+        {
+            return false;
+        }
+
+        try
+        {
+            return !headerFieldTags.contains(asciiBuffer.getInt(bodyOffset, equalsPosition));
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return false;
+        }
     }
 
-    public boolean onError(
-        final ValidationError error,
-        final long messageType,
-        final int tagNumber,
-        final AsciiFieldFlyweight value)
+    // Checks that the message has a field with a two digit tag whose value is at valueOffset and of valueLength
+    private boolean isField(
+        final int offset,
+        final int end,
+        final int valueOffset,
+        final int valueLength,
+        final char tagFirst,
+        final char tagSecond)
     {
-        return false;
+        final MutableAsciiBuffer asciiBuffer = this.asciiBuffer;
+        final int endOfField = valueOffset + valueLength;
+        return valueLength > 0 && valueOffset - 4 >= offset && endOfField < end &&
+            asciiBuffer.getByte(valueOffset - 4) == SEPARATOR &&
+            asciiBuffer.getByte(valueOffset - 3) == tagFirst &&
+            asciiBuffer.getByte(valueOffset - 2) == tagSecond &&
+            asciiBuffer.getByte(valueOffset - 1) == '=' &&
+            asciiBuffer.getByte(endOfField) == SEPARATOR;
     }
 
     int possDupOffset()
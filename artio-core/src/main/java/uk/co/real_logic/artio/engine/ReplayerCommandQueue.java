@@ -16,7 +16,7 @@
 package uk.co.real_logic.artio.engine;
 
 import org.agrona.concurrent.IdleStrategy;
-import org.agrona.concurrent.OneToOneConcurrentArrayQueue;
+import org.agrona.concurrent.ManyToOneConcurrentArrayQueue;
 
 import java.util.function.Consumer;
 
@@ -27,9 +27,9 @@ public class ReplayerCommandQueue
     // Framer state
     private final IdleStrategy framerIdleStrategy;
 
-    // Written on Framer, Read on Indexer
-    private final OneToOneConcurrentArrayQueue<ReplayerCommand> queue
-        = new OneToOneConcurrentArrayQueue<>(CAPACITY);
+    // Written on Framer and, when the replayer has its own thread, the Indexer. Read on Replayer.
+    private final ManyToOneConcurrentArrayQueue<ReplayerCommand> queue
+        = new ManyToOneConcurrentArrayQueue<>(CAPACITY);
     private final Consumer<ReplayerCommand> onReplayerCommand = this::onReplayerCommand;
 
     public ReplayerCommandQueue(final IdleStrategy framerIdleStrategy)
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.LangUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.CommonConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static uk.co.real_logic.artio.engine.SectorFramer.SECTOR_SIZE;
+
+/**
+ * A redo journal that makes in-place updates of sectors within a file crash consistent.
+ *
+ * Sectors are added to the journal, which is then committed by writing them out with a checksum of the journal
+ * and forcing it to disk. Only after the commit can the sectors be written into the target file. If the process
+ * crashes whilst writing the target file then the sectors are recovered from the journal on restart. A journal that
+ * was only partially written fails its checksum and is ignored, since the target file can't have been updated yet.
+ *
+ * A commit can also record a larger capacity that the target file is being grown to, recovering it grows the file
+ * before copying the sectors into it.
+ *
+ * Not thread safe.
+ */
+public class SectorJournal implements AutoCloseable
+{
+    static final int SECTOR_COUNT_OFFSET = 0;
+    static final int CHECKSUM_OFFSET = SECTOR_COUNT_OFFSET + SIZE_OF_INT;
+    // The checksum covers everything from the target capacity onwards
+    static final int TARGET_CAPACITY_OFFSET = CHECKSUM_OFFSET + SIZE_OF_INT;
+    static final int HEADER_LENGTH = TARGET_CAPACITY_OFFSET + SIZE_OF_INT;
+    static final int SECTOR_OFFSET_OFFSET = 0;
+    static final int SECTOR_DATA_OFFSET = SECTOR_OFFSET_OFFSET + SIZE_OF_INT;
+    static final int ENTRY_LENGTH = SECTOR_DATA_OFFSET + SECTOR_SIZE;
+
+    public static final int UNCHANGED_CAPACITY = 0;
+
+    private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(HEADER_LENGTH + ENTRY_LENGTH);
+    private final CRC32 crc32 = new CRC32();
+    private final File file;
+    private final FileChannel fileChannel;
+
+    private int sectorCount;
+
+    public SectorJournal(final File file)
+    {
+        this.file = file;
+        try
+        {
+            fileChannel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public File file()
+    {
+        return file;
+    }
+
+    /**
+     * Add a sector to the next commit of the journal.
+     *
+     * @param srcBuffer the buffer that has the new contents of the sector, a final partial sector is also copied.
+     * @param sectorOffset the offset of the sector within both the buffer and the target file.
+     */
+    public void add(final DirectBuffer srcBuffer, final int sectorOffset)
+    {
+        final int entryOffset = HEADER_LENGTH + sectorCount * ENTRY_LENGTH;
+        final ExpandableDirectByteBuffer buffer = this.buffer;
+        buffer.putInt(entryOffset + SECTOR_OFFSET_OFFSET, sectorOffset);
+        buffer.putBytes(
+            entryOffset + SECTOR_DATA_OFFSET, srcBuffer, sectorOffset, sectorLength(srcBuffer, sectorOffset));
+        sectorCount++;
+    }
+
+    public int sectorCount()
+    {
+        return sectorCount;
+    }
+
+    /**
+     * Write the added sectors out to the journal file and force them to disk. Once this has returned the sectors
+     * can be written into the target file.
+     */
+    public void commit()
+    {
+        commit(UNCHANGED_CAPACITY);
+    }
+
+    /**
+     * Write the added sectors out to the journal file and force them to disk, along with the capacity that the
+     * target file is being grown to. Once this has returned the target file can be grown and the sectors written
+     * into it.
+     *
+     * @param targetCapacity the capacity of the target file once it has grown, or {@link #UNCHANGED_CAPACITY}.
+     */
+    public void commit(final int targetCapacity)
+    {
+        final ExpandableDirectByteBuffer buffer = this.buffer;
+        final int length = HEADER_LENGTH + sectorCount * ENTRY_LENGTH;
+        buffer.putInt(SECTOR_COUNT_OFFSET, sectorCount);
+        buffer.putInt(TARGET_CAPACITY_OFFSET, targetCapacity);
+        buffer.putInt(CHECKSUM_OFFSET, checksum(buffer, sectorCount));
+
+        write(buffer.byteBuffer(), length);
+        force();
+    }
+
+    /**
+     * Empty the journal once the sectors of the last commit have been written to the target file and forced to disk.
+     *
+     * The cleared header doesn't need to be forced to disk itself: recovering a journal whose sectors have already
+     * been written is harmless.
+     */
+    public void clear()
+    {
+        final ExpandableDirectByteBuffer buffer = this.buffer;
+        buffer.putInt(SECTOR_COUNT_OFFSET, 0);
+        buffer.putInt(CHECKSUM_OFFSET, 0);
+        buffer.putInt(TARGET_CAPACITY_OFFSET, UNCHANGED_CAPACITY);
+        write(buffer.byteBuffer(), HEADER_LENGTH);
+        sectorCount = 0;
+    }
+
+    /**
+     * Copy the sectors of a committed journal into the target buffer.
+     *
+     * @param target the buffer, usually a mapping of the target file, to copy the sectors into.
+     * @return the number of sectors copied, 0 if the journal was empty or hadn't been completely committed.
+     */
+    public int recover(final AtomicBuffer target)
+    {
+        final UnsafeBuffer journal = readCommitted();
+        return journal == null ? 0 : recover(journal, target);
+    }
+
+    /**
+     * Grow the target file to the capacity recorded by a committed journal and copy its sectors into the file.
+     *
+     * @param targetFile the file to copy the sectors into.
+     * @return the number of sectors copied, 0 if the journal was empty or hadn't been completely committed.
+     */
+    public int recover(final MappedFile targetFile)
+    {
+        final UnsafeBuffer journal = readCommitted();
+        if (journal == null)
+        {
+            return 0;
+        }
+
+        final int targetCapacity = journal.getInt(TARGET_CAPACITY_OFFSET);
+        if (targetCapacity > targetFile.buffer().capacity())
+        {
+            targetFile.growTo(targetCapacity);
+        }
+
+        return recover(journal, targetFile.buffer());
+    }
+
+    private UnsafeBuffer readCommitted()
+    {
+        try
+        {
+            final long fileLength = fileChannel.size();
+            if (fileLength < HEADER_LENGTH)
+            {
+                return null;
+            }
+
+            final ByteBuffer fileBuffer = ByteBuffer.allocateDirect((int)fileLength);
+            while (fileBuffer.hasRemaining())
+            {
+                if (fileChannel.read(fileBuffer, fileBuffer.position()) < 0)
+                {
+                    break;
+                }
+            }
+
+            final UnsafeBuffer journal = new UnsafeBuffer(fileBuffer);
+            final int sectorCount = journal.getInt(SECTOR_COUNT_OFFSET);
+            if (sectorCount <= 0 || HEADER_LENGTH + (long)sectorCount * ENTRY_LENGTH > fileLength ||
+                journal.getInt(CHECKSUM_OFFSET) != checksum(journal, sectorCount))
+            {
+                return null;
+            }
+
+            return journal;
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+            return null;
+        }
+    }
+
+    private static int recover(final UnsafeBuffer journal, final AtomicBuffer target)
+    {
+        final int sectorCount = journal.getInt(SECTOR_COUNT_OFFSET);
+        for (int i = 0; i < sectorCount; i++)
+        {
+            final int entryOffset = HEADER_LENGTH + i * ENTRY_LENGTH;
+            final int sectorOffset = journal.getInt(entryOffset + SECTOR_OFFSET_OFFSET);
+            if (sectorOffset < 0 || sectorOffset >= target.capacity())
+            {
+                return 0;
+            }
+        }
+
+        for (int i = 0; i < sectorCount; i++)
+        {
+            final int entryOffset = HEADER_LENGTH + i * ENTRY_LENGTH;
+            final int sectorOffset = journal.getInt(entryOffset + SECTOR_OFFSET_OFFSET);
+            target.putBytes(
+                sectorOffset, journal, entryOffset + SECTOR_DATA_OFFSET, sectorLength(target, sectorOffset));
+        }
+
+        return sectorCount;
+    }
+
+    private static int sectorLength(final DirectBuffer buffer, final int sectorOffset)
+    {
+        return Math.min(SECTOR_SIZE, buffer.capacity() - sectorOffset);
+    }
+
+    private int checksum(final DirectBuffer buffer, final int sectorCount)
+    {
+        final CRC32 crc32 = this.crc32;
+        crc32.reset();
+        final ByteBuffer byteBuffer = buffer.byteBuffer().duplicate();
+        final int start = buffer.wrapAdjustment() + TARGET_CAPACITY_OFFSET;
+        byteBuffer.limit(start + SIZE_OF_INT + sectorCount * ENTRY_LENGTH);
+        byteBuffer.position(start);
+        crc32.update(byteBuffer);
+        return (int)crc32.getValue();
+    }
+
+    private void write(final ByteBuffer byteBuffer, final int length)
+    {
+        try
+        {
+            final ByteBuffer src = byteBuffer.duplicate();
+            src.limit(length);
+            src.position(0);
+            long position = 0;
+            while (src.hasRemaining())
+            {
+                position += fileChannel.write(src, position);
+            }
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    private void force()
+    {
+        if (CommonConfiguration.FORCE_WRITES)
+        {
+            try
+            {
+                fileChannel.force(false);
+            }
+            catch (final IOException ex)
+            {
+                LangUtil.rethrowUnchecked(ex);
+            }
+        }
+    }
+
+    public void close()
+    {
+        CloseHelper.close(fileChannel);
+    }
+}
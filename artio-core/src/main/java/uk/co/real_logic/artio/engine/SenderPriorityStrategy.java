@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import uk.co.real_logic.artio.session.CompositeKey;
+
+/**
+ * Decides which priority class the outbound messages of a session are scheduled in by the Framer. Each priority
+ * class has its own byte budget per duty cycle, and messages that exceed it are held back until a later duty cycle,
+ * so that a burst of messages in one class doesn't delay the messages of sessions in other classes. Priority class
+ * 0 is scheduled first. Only used if {@link EngineConfiguration#senderPriorityClassByteBudgets(int...)} is set.
+ *
+ * Replayed messages aren't scheduled by this strategy. The replays of every session are read from a single stream,
+ * so they're all scheduled in the one priority class set by
+ * {@link EngineConfiguration#senderReplayPriorityClass(int)}.
+ *
+ * Implementations are called on the Framer thread when a session logs on.
+ *
+ * @see EngineConfiguration#senderPriorityStrategy(SenderPriorityStrategy)
+ */
+@FunctionalInterface
+public interface SenderPriorityStrategy
+{
+    /**
+     * Schedules the messages of all sessions in the first priority class. This is the default strategy.
+     */
+    SenderPriorityStrategy FIRST_PRIORITY_CLASS = (sessionKey, priorityClassCount) -> 0;
+
+    /**
+     * Lookup the priority class of a session's messages.
+     *
+     * @param sessionKey the key of the session that has logged on.
+     * @param priorityClassCount the number of priority classes configured.
+     * @return the priority class of the messages, between 0 inclusive and priorityClassCount exclusive.
+     */
+    int priorityClass(CompositeKey sessionKey, int priorityClassCount);
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
+import uk.co.real_logic.artio.session.SessionIdStrategy;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * An open addressed table of session contexts keyed by the hash codes of their composite keys, so that the context
+ * of a logon can be found from the fields of its header using
+ * {@link SessionIdStrategy#onAcceptLogonHashCode(SessionHeaderDecoder)} and
+ * {@link SessionIdStrategy#matchesAcceptLogon(uk.co.real_logic.artio.session.CompositeKey, SessionHeaderDecoder)}
+ * rather than by creating a composite key.
+ *
+ * Each slot holds a hash code and the index of its context, plus one so that zero marks an empty slot. The slots
+ * are kept off-heap and probed linearly, the table doubles in size once it's half full.
+ */
+final class CompositeKeyTable
+{
+    private static final int HASH_CODE_OFFSET = 0;
+    private static final int INDEX_OFFSET = 4;
+    private static final int SLOT_LENGTH = 8;
+    private static final int EMPTY = 0;
+    private static final int INITIAL_SLOT_COUNT = 1024;
+
+    private final ArrayList<SessionContext> contexts = new ArrayList<>();
+    private final SessionIdStrategy idStrategy;
+
+    private UnsafeBuffer slots;
+    private int mask;
+
+    CompositeKeyTable(final SessionIdStrategy idStrategy)
+    {
+        this.idStrategy = idStrategy;
+        allocate(INITIAL_SLOT_COUNT);
+    }
+
+    /**
+     * Find the session context of a logon.
+     *
+     * @param header the header of the logon message.
+     * @param hashCode the hash code of the logon's composite key.
+     * @return the session context or null if there isn't one.
+     */
+    SessionContext get(final SessionHeaderDecoder header, final int hashCode)
+    {
+        final UnsafeBuffer slots = this.slots;
+        final int mask = this.mask;
+        int slot = Hashing.hash(hashCode, mask);
+        while (true)
+        {
+            final int offset = slot * SLOT_LENGTH;
+            final int index = slots.getInt(offset + INDEX_OFFSET);
+            if (index == EMPTY)
+            {
+                return null;
+            }
+
+            if (slots.getInt(offset + HASH_CODE_OFFSET) == hashCode)
+            {
+                final SessionContext context = contexts.get(index - 1);
+                if (idStrategy.matchesAcceptLogon(context.sessionKey(), header))
+                {
+                    return context;
+                }
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    void add(final SessionContext context)
+    {
+        contexts.add(context);
+        final int size = contexts.size();
+        if (size * 2 > mask + 1)
+        {
+            allocate((mask + 1) * 2);
+            for (int i = 0; i < size; i++)
+            {
+                insert(contexts.get(i).sessionKey().hashCode(), i + 1);
+            }
+        }
+        else
+        {
+            insert(context.sessionKey().hashCode(), size);
+        }
+    }
+
+    // Only used if a context is loaded twice for the same key, the key and therefore its slot stay the same.
+    void replace(final SessionContext oldContext, final SessionContext newContext)
+    {
+        final int index = contexts.indexOf(oldContext);
+        if (index == -1)
+        {
+            add(newContext);
+        }
+        else
+        {
+            contexts.set(index, newContext);
+        }
+    }
+
+    void clear()
+    {
+        contexts.clear();
+        slots.setMemory(0, slots.capacity(), (byte)0);
+    }
+
+    private void insert(final int hashCode, final int index)
+    {
+        final UnsafeBuffer slots = this.slots;
+        final int mask = this.mask;
+        int slot = Hashing.hash(hashCode, mask);
+        while (slots.getInt(slot * SLOT_LENGTH + INDEX_OFFSET) != EMPTY)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        final int offset = slot * SLOT_LENGTH;
+        slots.putInt(offset + HASH_CODE_OFFSET, hashCode);
+        slots.putInt(offset + INDEX_OFFSET, index);
+    }
+
+    private void allocate(final int slotCount)
+    {
+        slots = new UnsafeBuffer(ByteBuffer.allocateDirect(slotCount * SLOT_LENGTH));
+        mask = slotCount - 1;
+    }
+}
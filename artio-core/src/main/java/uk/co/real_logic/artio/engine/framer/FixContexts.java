@@ -19,6 +19,7 @@ import org.agrona.ErrorHandler;
 import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.engine.MappedFile;
@@ -53,6 +54,9 @@ import static uk.co.real_logic.artio.storage.messages.SessionIdEncoder.BLOCK_LEN
  * The session ids table is saved into a file. Records are written out using the {@link SessionIdEncoder}
  * and aren't allowed to span sectors. Each sector has a CRC32 checksum and each checksum is updated after writing
  * each session id record.
+ * <p>
+ * When there's no space left for a new record the file is grown by a segment, up to a maximum size. Records are
+ * never moved, so the file positions of existing sessions stay valid.
  */
 public class FixContexts implements SessionContexts
 {
@@ -97,15 +101,19 @@ public class FixContexts implements SessionContexts
     private final Map<CompositeKey, SessionContext> compositeToContext = new HashMap<>();
 
     private final CRC32 crc32 = new CRC32();
-    private final SectorFramer sectorFramer;
-    private final ByteBuffer byteBuffer;
 
-    private final AtomicBuffer buffer;
     private final boolean reproductionEnabled;
     private final SessionIdStrategy idStrategy;
+    private final CompositeKeyTable compositeKeyTable;
     private final ErrorHandler errorHandler;
     private final MappedFile mappedFile;
     private final int initialSequenceIndex;
+    private final int growthSegmentSize;
+    private final int maxCapacity;
+
+    private SectorFramer sectorFramer;
+    private ByteBuffer byteBuffer;
+    private AtomicBuffer buffer;
 
     private int filePosition;
     private long counter = LOWEST_VALID_SESSION_ID;
@@ -116,19 +124,40 @@ public class FixContexts implements SessionContexts
         final int initialSequenceIndex,
         final ErrorHandler errorHandler,
         final boolean reproductionEnabled)
+    {
+        this(mappedFile, idStrategy, initialSequenceIndex, errorHandler, reproductionEnabled,
+            0, mappedFile.buffer().capacity());
+    }
+
+    public FixContexts(
+        final MappedFile mappedFile,
+        final SessionIdStrategy idStrategy,
+        final int initialSequenceIndex,
+        final ErrorHandler errorHandler,
+        final boolean reproductionEnabled,
+        final int growthSegmentSize,
+        final int maxCapacity)
     {
         this.mappedFile = mappedFile;
-        this.buffer = mappedFile.buffer();
         this.reproductionEnabled = reproductionEnabled;
-        this.byteBuffer = this.buffer.byteBuffer();
-        sectorFramer = new SectorFramer(buffer.capacity());
+        this.growthSegmentSize = growthSegmentSize;
+        this.maxCapacity = maxCapacity;
+        wrapBuffer();
         this.idStrategy = idStrategy;
+        this.compositeKeyTable = new CompositeKeyTable(idStrategy);
         this.initialSequenceIndex = initialSequenceIndex;
         this.errorHandler = errorHandler;
         loadBuffer();
         allSessions.addAll(compositeToContext.values());
     }
 
+    private void wrapBuffer()
+    {
+        buffer = mappedFile.buffer();
+        byteBuffer = buffer.byteBuffer();
+        sectorFramer = new SectorFramer(buffer.capacity());
+    }
+
     private void loadBuffer()
     {
         checkByteBuffer();
@@ -212,7 +241,15 @@ public class FixContexts implements SessionContexts
                         sessionId, sequenceIndex, lastLogonTime, lastSequenceResetTime, this,
                         sessionIdDecoder.initialOffset(),
                         initialSequenceIndex, thisDictionary, reproductionEnabled);
-                    compositeToContext.put(compositeKey, sessionContext);
+                    final SessionContext oldContext = compositeToContext.put(compositeKey, sessionContext);
+                    if (oldContext == null)
+                    {
+                        compositeKeyTable.add(sessionContext);
+                    }
+                    else
+                    {
+                        compositeKeyTable.replace(oldContext, sessionContext);
+                    }
                 }
                 catch (final Exception e)
                 {
@@ -283,8 +320,42 @@ public class FixContexts implements SessionContexts
 
     public SessionContext onLogon(final CompositeKey compositeKey, final FixDictionary fixDictionary)
     {
-        final SessionContext sessionContext = newSessionContext(compositeKey, fixDictionary);
+        return authenticate(newSessionContext(compositeKey, fixDictionary));
+    }
 
+    /**
+     * Looks up the session context of an accepted logon from the fields of its header, sessions that are already
+     * known are found without creating a composite key.
+     *
+     * @param header the header of the logon message.
+     * @param fixDictionary the fix dictionary of the session.
+     * @return the session context, or {@link #DUPLICATE_SESSION} if the session is already authenticated.
+     * @throws IllegalArgumentException if the header is missing a field required by the session id strategy.
+     */
+    public SessionContext onAcceptLogon(final SessionHeaderDecoder header, final FixDictionary fixDictionary)
+        throws IllegalArgumentException
+    {
+        return authenticate(newAcceptedSessionContext(header, fixDictionary));
+    }
+
+    SessionContext newAcceptedSessionContext(final SessionHeaderDecoder header, final FixDictionary fixDictionary)
+    {
+        final int hashCode = idStrategy.onAcceptLogonHashCode(header);
+        final SessionContext context = compositeKeyTable.get(header, hashCode);
+        if (context == null)
+        {
+            return newSessionContext(idStrategy.onAcceptLogon(header), fixDictionary);
+        }
+
+        if (context.lastFixDictionary() != fixDictionary)
+        {
+            context.ensureFixDictionary(fixDictionary);
+        }
+        return context;
+    }
+
+    private SessionContext authenticate(final SessionContext sessionContext)
+    {
         if (!currentlyAuthenticatedSessionIds.add(sessionContext.sessionId()))
         {
             return DUPLICATE_SESSION;
@@ -314,6 +385,7 @@ public class FixContexts implements SessionContexts
             SessionInfo.UNKNOWN_SEQUENCE_INDEX,
             fixDictionary);
         allSessions.add(sessionContext);
+        compositeKeyTable.add(sessionContext);
         return sessionContext;
     }
 
@@ -363,7 +435,12 @@ public class FixContexts implements SessionContexts
             {
                 final int length = (BLOCK_LENGTH + SessionIdEncoder.lastFixDictionaryHeaderLength() +
                     fixDictionaryName.length() + compositeKeyLength);
-                filePosition = sectorFramer.claim(filePosition, length);
+                final int claimPosition = filePosition;
+                filePosition = sectorFramer.claim(claimPosition, length);
+                if (filePosition == OUT_OF_SPACE && grow())
+                {
+                    filePosition = sectorFramer.claim(claimPosition, length);
+                }
                 keyPosition = filePosition;
                 if (filePosition == OUT_OF_SPACE)
                 {
@@ -394,6 +471,21 @@ public class FixContexts implements SessionContexts
         context.filePosition(keyPosition);
     }
 
+    // Only extends the file sparsely and remaps it, so growing doesn't copy or write out the existing records.
+    private boolean grow()
+    {
+        final int capacity = buffer.capacity();
+        final int newCapacity = (int)Math.min((long)capacity + growthSegmentSize, maxCapacity);
+        if (newCapacity <= capacity)
+        {
+            return false;
+        }
+
+        mappedFile.growTo(newCapacity);
+        wrapBuffer();
+        return true;
+    }
+
     private String nameOf(final FixDictionary fixDictionary)
     {
         return fixDictionary.getClass().getName();
@@ -460,6 +552,7 @@ public class FixContexts implements SessionContexts
 
         counter = LOWEST_VALID_SESSION_ID;
         compositeToContext.clear();
+        compositeKeyTable.clear();
         allSessions.clear();
 
         if (backupLocation != null)
@@ -22,6 +22,7 @@ import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.MessageTimingHandler;
 import uk.co.real_logic.artio.engine.SenderSequenceNumbers;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.timing.LatencyHistograms;
 
 class FixEndPointFactory
 {
@@ -38,6 +39,7 @@ class FixEndPointFactory
     private final FixGatewaySessions gatewaySessions;
     private final SenderSequenceNumbers senderSequenceNumbers;
     private final MessageTimingHandler messageTimingHandler;
+    private final LatencyHistograms latencyHistograms;
 
     FixEndPointFactory(
         final EngineConfiguration configuration,
@@ -48,7 +50,8 @@ class FixEndPointFactory
         final ErrorHandler errorHandler,
         final FixGatewaySessions gatewaySessions,
         final SenderSequenceNumbers senderSequenceNumbers,
-        final MessageTimingHandler messageTimingHandler)
+        final MessageTimingHandler messageTimingHandler,
+        final LatencyHistograms latencyHistograms)
     {
         this.configuration = configuration;
         this.fixContexts = fixContexts;
@@ -59,6 +62,7 @@ class FixEndPointFactory
         this.gatewaySessions = gatewaySessions;
         this.senderSequenceNumbers = senderSequenceNumbers;
         this.messageTimingHandler = messageTimingHandler;
+        this.latencyHistograms = latencyHistograms;
     }
 
     FixReceiverEndPoint receiverEndPoint(
@@ -87,7 +91,9 @@ class FixEndPointFactory
             receiverFormatters,
             configuration.throttleWindowInMs(),
             configuration.throttleLimitOfMessages(),
-            configuration.isReproductionEnabled());
+            configuration.isReproductionEnabled(),
+            latencyHistograms.allocate(connectionId, sessionId),
+            configuration.headerSummaryEnabled());
     }
 
     FixSenderEndPoint senderEndPoint(
@@ -99,6 +105,9 @@ class FixEndPointFactory
     {
         final String remoteAddress = channel.remoteAddr();
         final AtomicCounter bytesInBuffer = fixCounters.bytesInBuffer(connectionId, remoteAddress);
+        // Reproduction logs and replays each message's write individually, so it can't be batched.
+        final int senderBatchMaxBytes = reproductionLogWriter == null && !configuration.isReproductionEnabled() ?
+            configuration.senderBatchMaxBytes() : 0;
         return new FixSenderEndPoint(
             connectionId,
             libraryId,
@@ -115,6 +124,12 @@ class FixEndPointFactory
             senderSequenceNumbers.onNewSender(connectionId, bytesInBuffer),
             messageTimingHandler,
             receiverEndPoint,
-            senderFormatters);
+            senderFormatters,
+            senderBatchMaxBytes,
+            configuration.senderBatchMaxDelayInNs(),
+            configuration.epochNanoClock(),
+            receiverEndPoint.latencyHistograms(),
+            configuration.senderMaxBytesInSpillFile() > 0 ? configuration.logFileDir() : null,
+            configuration.senderMaxBytesInSpillFile());
     }
 }
@@ -23,6 +23,7 @@ import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.ConnectedSessionInfo;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.messages.*;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 import uk.co.real_logic.artio.session.*;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 
@@ -221,7 +222,8 @@ class FixGatewaySession extends GatewaySession implements ConnectedSessionInfo,
         final int offset,
         final int length,
         final long messageType,
-        final long position)
+        final long position,
+        final HeaderSummary headerSummary)
     {
         if (sessionParser != null)
         {
@@ -229,7 +231,14 @@ class FixGatewaySession extends GatewaySession implements ConnectedSessionInfo,
 
             session.messageInfo().isValid(true);
 
-            sessionParser.onMessage(buffer, offset, length, messageType, position);
+            if (headerSummary != null)
+            {
+                sessionParser.onMessage(buffer, offset, length, messageType, position, headerSummary);
+            }
+            else
+            {
+                sessionParser.onMessage(buffer, offset, length, messageType, position);
+            }
         }
     }
 
@@ -245,8 +245,8 @@ public class FixGatewaySessions extends GatewaySessions
         gatewaySession.startAuthentication(epochClock.time());
 
         return new FixPendingAcceptorLogon(
-            sessionIdStrategy, gatewaySession, logon, connectionId, fixContexts, channel, fixDictionary, framer,
-            remoteAddress, fixReceiverEndPoint);
+            gatewaySession, logon, connectionId, fixContexts, channel, fixDictionary, framer, remoteAddress,
+            fixReceiverEndPoint);
     }
 
     void onUserRequest(
@@ -280,7 +280,6 @@ public class FixGatewaySessions extends GatewaySessions
     {
         private static final int ENCODE_BUFFER_SIZE = 1024;
 
-        private final SessionIdStrategy sessionIdStrategy;
         private final FixGatewaySession session;
         private final AbstractLogonDecoder logon;
         private final FixContexts fixContexts;
@@ -293,7 +292,6 @@ public class FixGatewaySessions extends GatewaySessions
         private long rejectEncodeResult;
 
         FixPendingAcceptorLogon(
-            final SessionIdStrategy sessionIdStrategy,
             final FixGatewaySession gatewaySession,
             final AbstractLogonDecoder logon,
             final long connectionId,
@@ -306,7 +304,6 @@ public class FixGatewaySessions extends GatewaySessions
         {
             super(gatewaySession, connectionId, channel, framer, fixReceiverEndPoint);
 
-            this.sessionIdStrategy = sessionIdStrategy;
             this.session = gatewaySession;
             this.logon = logon;
             this.fixContexts = fixContexts;
@@ -386,10 +383,9 @@ public class FixGatewaySessions extends GatewaySessions
                 MILLISECONDS.toNanos(SessionParser.cancelOnDisconnectTimeoutWindow(logon));
 
             final SessionHeaderDecoder header = logon.header();
-            final CompositeKey compositeKey;
             try
             {
-                compositeKey = sessionIdStrategy.onAcceptLogon(header);
+                sessionContext = fixContexts.onAcceptLogon(header, fixDictionary);
             }
             catch (final IllegalArgumentException e)
             {
@@ -397,14 +393,14 @@ public class FixGatewaySessions extends GatewaySessions
                 return;
             }
 
-            sessionContext = fixContexts.onLogon(compositeKey, fixDictionary);
-
             if (sessionContext == DUPLICATE_SESSION)
             {
                 reject(DisconnectReason.DUPLICATE_SESSION);
                 return;
             }
 
+            final CompositeKey compositeKey = sessionContext.sessionKey();
+
             final boolean isOfflineReconnect = framer.onFixLogonMessageReceived(session, sessionContext.sessionId());
 
             final long logonTimeInNs = clock.nanoTime();
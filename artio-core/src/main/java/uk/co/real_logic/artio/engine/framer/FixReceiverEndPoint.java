@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.engine.framer;
 
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
+import org.agrona.collections.IntHashSet;
 import org.agrona.concurrent.EpochNanoClock;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.BusinessRejectRefIdExtractor;
@@ -27,8 +28,11 @@ import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.dictionary.SessionConstants;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
+import uk.co.real_logic.artio.engine.HeaderSummaryExtractor;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.CharFormatter;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
@@ -45,6 +49,8 @@ import static uk.co.real_logic.artio.LogTag.*;
 import static uk.co.real_logic.artio.dictionary.SessionConstants.*;
 import static uk.co.real_logic.artio.messages.MessageStatus.*;
 import static uk.co.real_logic.artio.session.Session.UNKNOWN;
+import static uk.co.real_logic.artio.timing.LatencyStage.FRAMER_PUBLISH;
+import static uk.co.real_logic.artio.timing.LatencyStage.TCP_READ;
 import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
 import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
 
@@ -54,6 +60,11 @@ import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
  * The receiver end point frames the TCP FIX messages into Aeron fragments.
  * It also handles backpressure coming from the Aeron stream and applies it to
  * its own TCP connections.
+ * <p>
+ * Each complete message is copied once from the receive buffer into the Aeron stream, as it always has been. The
+ * receive buffer is compacted lazily: the trailing partial message is framed where it was read rather than being
+ * moved to the start of the buffer after every read, it's only moved once the buffer is running out of space to
+ * read into.
  */
 class FixReceiverEndPoint extends ReceiverEndPoint
 {
@@ -137,6 +148,9 @@ class FixReceiverEndPoint extends ReceiverEndPoint
 
     private static final int PASSWORD_CLEANED = 0;
 
+    // Partially received data is moved to the start of the buffer once less than this fraction of it is free.
+    private static final int COMPACTION_THRESHOLD_DIVISOR = 4;
+
     static class FixReceiverEndPointFormatters
     {
         private final CharFormatter noProxyProtocol = new CharFormatter("No proxy protocol usage for connId=%s");
@@ -155,12 +169,17 @@ class FixReceiverEndPoint extends ReceiverEndPoint
     private final AcceptorFixDictionaryLookup acceptorFixDictionaryLookup;
     private final FixReceiverEndPointFormatters formatters;
     private final boolean reproductionEnabled;
+    private final int compactionThreshold;
+    private final SessionLatencyHistograms latencyHistograms;
+    private final HeaderSummaryExtractor headerSummaryExtractor;
 
     private FixGatewaySession gatewaySession;
     private long sessionId;
     private int sequenceIndex;
     private boolean isPaused = false;
 
+    // Start of the data in the buffer that hasn't been framed yet, data before this has already been consumed.
+    private int unframedDataOffset;
     private int pendingAcceptorLogonMsgOffset;
     private int pendingAcceptorLogonMsgLength;
     private long lastReadTimestampInNs;
@@ -185,7 +204,9 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         final FixReceiverEndPointFormatters formatters,
         final int throttleWindowInMs,
         final int throttleLimitOfMessages,
-        final boolean reproductionEnabled)
+        final boolean reproductionEnabled,
+        final SessionLatencyHistograms latencyHistograms,
+        final boolean headerSummaryEnabled)
     {
         super(publication, channel, connectionId, bufferSize, errorHandler, framer, libraryId,
             throttleWindowInMs, throttleLimitOfMessages);
@@ -202,6 +223,9 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         this.clock = clock;
         this.acceptorFixDictionaryLookup = acceptorFixDictionaryLookup;
         this.reproductionEnabled = reproductionEnabled;
+        this.latencyHistograms = latencyHistograms;
+        this.headerSummaryExtractor = headerSummaryEnabled ? new HeaderSummaryExtractor() : null;
+        compactionThreshold = bufferSize / COMPACTION_THRESHOLD_DIVISOR;
 
         address = channel.remoteAddr();
     }
@@ -248,6 +272,11 @@ class FixReceiverEndPoint extends ReceiverEndPoint
                 return 0;
             }
 
+            if (bytesRead > 0)
+            {
+                latencyHistograms.recordSince(TCP_READ, latestReadTimestampInNs);
+            }
+
             if (frameMessages(bytesRead == 0 ? lastReadTimestampInNs : latestReadTimestampInNs))
             {
                 lastReadTimestampInNs = latestReadTimestampInNs;
@@ -346,7 +375,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         // the new session in initialAcceptedSessionOwner=SOLE_LIBRARY
         if (isPaused)
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
             return offset;
         }
 
@@ -357,6 +386,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         {
             // Authentication is only complete (ie this state set) when the actual logon message has been saved.
             this.sessionId = sessionId;
+            latencyHistograms.sessionId(sessionId);
             this.sequenceIndex = sequenceIndex;
             pendingAcceptorLogon = null;
 
@@ -368,7 +398,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
 
             // Move any data received after the logon message.
             offset += length;
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
             return offset;
         }
         else
@@ -388,7 +418,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
     private boolean frameMessages(final long readTimestampInNs)
     {
         final MutableAsciiBuffer buffer = this.buffer;
-        int offset = checkProxyLine(buffer);
+        int offset = unframedDataOffset == 0 ? checkProxyLine(buffer) : unframedDataOffset;
 
         while (true)
         {
@@ -482,7 +512,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
             }
         }
 
-        moveRemainingDataToBufferStart(offset);
+        consumeBufferData(offset);
         return true;
     }
 
@@ -692,7 +722,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
             return offset;
         }
 
-        moveRemainingDataToBufferStart(endOfMessage);
+        consumeBufferData(endOfMessage);
         return offset;
     }
 
@@ -784,7 +814,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         final boolean backPressured = Pressure.isBackPressured(position);
         if (backPressured)
         {
-            moveRemainingDataToBufferStart(offset);
+            consumeBufferData(offset);
         }
 
         return backPressured;
@@ -839,6 +869,10 @@ class FixReceiverEndPoint extends ReceiverEndPoint
                 length = passwordCleaner.cleanedLength();
             }
 
+            final HeaderSummaryExtractor headerSummaryExtractor = this.headerSummaryExtractor;
+            final HeaderSummary headerSummary = headerSummaryExtractor == null ?
+                null : headerSummaryExtractor.extract(buffer, offset, length, headerFieldTags());
+
             final long position = publication.saveMessage(
                 buffer,
                 offset,
@@ -850,16 +884,20 @@ class FixReceiverEndPoint extends ReceiverEndPoint
                 connectionId,
                 OK,
                 0,
-                readTimestamp);
+                readTimestamp,
+                null,
+                0,
+                headerSummary);
 
             if (Pressure.isBackPressured(position))
             {
-                moveRemainingDataToBufferStart(messageOffset);
+                consumeBufferData(messageOffset);
                 return false;
             }
             else
             {
-                gatewaySession.onMessage(buffer, offset, length, messageType, position);
+                latencyHistograms.recordSince(FRAMER_PUBLISH, readTimestamp);
+                gatewaySession.onMessage(buffer, offset, length, messageType, position, headerSummary);
                 return true;
             }
         }
@@ -894,7 +932,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         }
         else
         {
-            moveRemainingDataToBufferStart(messageOffset);
+            consumeBufferData(messageOffset);
             return false;
         }
     }
@@ -993,15 +1031,33 @@ class FixReceiverEndPoint extends ReceiverEndPoint
 
     private void clearBuffer()
     {
-        moveRemainingDataToBufferStart(usedBufferData);
+        consumeBufferData(usedBufferData);
     }
 
-    private void moveRemainingDataToBufferStart(final int offset)
+    // Consumes the data before offset. This only compacts the receive buffer: remaining data is moved to the start of
+    // the buffer when it's running out of space to read into, so a partial message isn't re-copied on every read.
+    private void consumeBufferData(final int offset)
     {
-        usedBufferData -= offset;
-        buffer.putBytes(0, buffer, offset, usedBufferData);
+        final int usedBufferData = this.usedBufferData;
+        if (offset >= usedBufferData)
+        {
+            this.usedBufferData = 0;
+            unframedDataOffset = 0;
+        }
+        else if (byteBuffer.capacity() - usedBufferData < compactionThreshold)
+        {
+            final int remainingData = usedBufferData - offset;
+            buffer.putBytes(0, buffer, offset, remainingData);
+            this.usedBufferData = remainingData;
+            unframedDataOffset = 0;
+        }
+        else
+        {
+            unframedDataOffset = offset;
+        }
+
         // position set to ensure that back pressure is applied to TCP when read(byteBuffer) called.
-        ByteBufferUtil.position(byteBuffer, usedBufferData);
+        ByteBufferUtil.position(byteBuffer, this.usedBufferData);
     }
 
     private boolean saveInvalidChecksumMessage(
@@ -1029,6 +1085,7 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         {
             channel.close();
             messagesRead.close();
+            latencyHistograms.close();
         }
         catch (final Exception ex)
         {
@@ -1047,6 +1104,17 @@ class FixReceiverEndPoint extends ReceiverEndPoint
         gatewaySessions.onDisconnect(sessionId, connectionId, reason);
     }
 
+    SessionLatencyHistograms latencyHistograms()
+    {
+        return latencyHistograms;
+    }
+
+    private IntHashSet headerFieldTags()
+    {
+        final FixDictionary fixDictionary = gatewaySession.fixDictionary();
+        return fixDictionary == null ? null : fixDictionary.headerFieldTags();
+    }
+
     void gatewaySession(final FixGatewaySession gatewaySession)
     {
         this.gatewaySession = gatewaySession;
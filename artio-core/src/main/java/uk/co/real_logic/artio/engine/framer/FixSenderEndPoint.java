@@ -21,6 +21,8 @@ import io.aeron.protocol.DataHeaderFlyweight;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.EpochNanoClock;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
@@ -28,12 +30,15 @@ import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.MessageTimingHandler;
+import uk.co.real_logic.artio.engine.SenderPriorityStrategy;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
 import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
 import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.session.CompositeKey;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 import uk.co.real_logic.artio.util.CharFormatter;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -41,6 +46,7 @@ import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static org.agrona.BitUtil.SIZE_OF_INT;
 import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static uk.co.real_logic.artio.engine.framer.ReattemptBuffer.NO_SPACE;
 import static uk.co.real_logic.artio.DebugLogger.IS_REPLAY_LOG_TAG_ENABLED;
 import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE_TCP;
 import static uk.co.real_logic.artio.messages.DisconnectReason.EXCEPTION;
@@ -58,6 +64,10 @@ class FixSenderEndPoint extends SenderEndPoint
     static final int ENQ_REPLAY_COMPLETE_LEN = SIZE_OF_INT + SIZE_OF_LONG;
     static final int ENQ_START_REPLAY_LEN = ENQ_REPLAY_COMPLETE_LEN;
     static final int ENQ_MESSAGE_BLOCK_LEN = SIZE_OF_INT + SIZE_OF_INT + SIZE_OF_INT + SIZE_OF_INT;
+    static final int BATCH_ENTRY_HEADER_LEN = SIZE_OF_INT + SIZE_OF_INT + SIZE_OF_INT;
+    static final int DEFERRED_ENTRY_HEADER_LEN = SIZE_OF_INT + SIZE_OF_INT + SIZE_OF_INT;
+
+    static final int NOT_SCHEDULED = -1;
 
     protected static final int NO_REATTEMPT = 0;
 
@@ -94,6 +104,10 @@ class FixSenderEndPoint extends SenderEndPoint
     private final MessageTimingHandler messageTimingHandler;
     private final FixReceiverEndPoint receiverEndPoint;
     private final Formatters formatters;
+    private final int senderBatchMaxBytes;
+    private final long senderBatchMaxDelayInNs;
+    private final EpochNanoClock clock;
+    private final SessionLatencyHistograms latencyHistograms;
 
     private long sessionId;
     private long sendingTimeoutTimeInMs;
@@ -103,14 +117,31 @@ class FixSenderEndPoint extends SenderEndPoint
     private CompositeKey sessionKey;
     private EngineConfiguration configuration;
 
-    private final ReattemptState normalBuffer = new ReattemptState();
-    private final ReattemptState replayBuffer = new ReattemptState();
+    private final ReattemptBuffer normalBuffer;
+    private final ReattemptBuffer replayBuffer;
+
+    // Outbound messages held back by FixSenderEndPoints because their priority class has used up its byte budget.
+    // Entries hold the sequence number, body length and metadata length, then the metadata and body laid out as in
+    // a FixMessage, so that the body is preceded by its var data header.
+    private final ReattemptBuffer deferredBuffer = new ReattemptBuffer(Integer.MAX_VALUE, null, 0);
+    private int priorityClass;
+    private int scheduledPriorityClass = NOT_SCHEDULED;
 
     private boolean replaying;
     private long replayCorrelationId;
     private boolean requiresRetry;
     private int reattemptBytesWritten = NO_REATTEMPT;
 
+    // Message bodies that are coalesced into a single write, batchEntries holds the sequence number, body length
+    // and metadata of each message in the batch.
+    private ExpandableDirectByteBuffer batchBuffer;
+    private ExpandableDirectByteBuffer batchEntries;
+    private int batchBodyLength;
+    private int batchEntriesLength;
+    private int batchSequenceNumber;
+    private long batchStartTimeInNs;
+    private long batchTimeInMs;
+
     FixSenderEndPoint(
         final long connectionId,
         final int libraryId,
@@ -127,7 +158,13 @@ class FixSenderEndPoint extends SenderEndPoint
         final SenderSequenceNumber senderSequenceNumber,
         final MessageTimingHandler messageTimingHandler,
         final FixReceiverEndPoint receiverEndPoint,
-        final Formatters formatters)
+        final Formatters formatters,
+        final int senderBatchMaxBytes,
+        final long senderBatchMaxDelayInNs,
+        final EpochNanoClock clock,
+        final SessionLatencyHistograms latencyHistograms,
+        final String spillFileDir,
+        final int maxBytesInSpillFile)
     {
         super(connectionId, inboundPublication, reproductionPublication, libraryId, channel, bytesInBuffer,
             maxBytesInBuffer, errorHandler,
@@ -141,9 +178,27 @@ class FixSenderEndPoint extends SenderEndPoint
         this.messageTimingHandler = messageTimingHandler;
         this.receiverEndPoint = receiverEndPoint;
         this.formatters = formatters;
+        this.senderBatchMaxBytes = senderBatchMaxBytes;
+        this.senderBatchMaxDelayInNs = senderBatchMaxDelayInNs;
+        this.clock = clock;
+        this.latencyHistograms = latencyHistograms;
+        normalBuffer = new ReattemptBuffer(
+            maxBytesInBuffer, spillFile(spillFileDir, connectionId, "normal"), maxBytesInSpillFile);
+        replayBuffer = new ReattemptBuffer(
+            maxBytesInBuffer, spillFile(spillFileDir, connectionId, "replay"), maxBytesInSpillFile);
         sendingTimeoutTimeInMs = timeInMs + slowConsumerTimeoutInMs;
     }
 
+    private static File spillFile(final String spillFileDir, final long connectionId, final String stream)
+    {
+        if (spillFileDir == null)
+        {
+            return null;
+        }
+
+        return new File(spillFileDir, "sender-spill-" + connectionId + "-" + stream);
+    }
+
     void onOutboundMessage(
         final int libraryId,
         final DirectBuffer directBuffer,
@@ -159,11 +214,130 @@ class FixSenderEndPoint extends SenderEndPoint
             return;
         }
 
-        onMessage(directBuffer, offset, bodyLength, metaDataLength, sequenceNumber, timeInMs, false);
+        if (deferredBuffer.isEmpty())
+        {
+            onMessage(directBuffer, offset, bodyLength, metaDataLength, sequenceNumber, timeInMs, false);
+        }
+        else
+        {
+            // Keep messages in order behind those that have already been deferred
+            deferMessage(directBuffer, offset, bodyLength, sequenceNumber, metaDataLength);
+        }
+
+        senderSequenceNumber.onNewMessage(sequenceNumber);
+    }
+
+    void deferOutboundMessage(
+        final int libraryId,
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int bodyLength,
+        final int sequenceNumber,
+        final int metaDataLength)
+    {
+        if (isWrongLibraryId(libraryId))
+        {
+            invalidLibraryAttempts.increment();
+            return;
+        }
+
+        deferMessage(directBuffer, offset, bodyLength, sequenceNumber, metaDataLength);
 
         senderSequenceNumber.onNewMessage(sequenceNumber);
     }
 
+    private void deferMessage(
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int bodyLength,
+        final int sequenceNumber,
+        final int metaDataLength)
+    {
+        final int bodyHeaderLength = FixMessageDecoder.bodyHeaderLength();
+        final int metaDataOffset = offset - bodyHeaderLength - metaDataLength;
+        final int entryLength = DEFERRED_ENTRY_HEADER_LEN + metaDataLength + bodyHeaderLength + bodyLength;
+
+        final ReattemptBuffer deferredBuffer = this.deferredBuffer;
+        int entryOffset = deferredBuffer.claim(entryLength);
+        final MutableDirectBuffer buffer = deferredBuffer.buffer();
+
+        buffer.putInt(entryOffset, sequenceNumber);
+        entryOffset += SIZE_OF_INT;
+
+        buffer.putInt(entryOffset, bodyLength);
+        entryOffset += SIZE_OF_INT;
+
+        buffer.putInt(entryOffset, metaDataLength);
+        entryOffset += SIZE_OF_INT;
+
+        buffer.putBytes(entryOffset, directBuffer, metaDataOffset, metaDataLength);
+        entryOffset += metaDataLength + bodyHeaderLength;
+
+        buffer.putBytes(entryOffset, directBuffer, offset, bodyLength);
+    }
+
+    /**
+     * Sends the oldest deferred message.
+     *
+     * @param timeInMs the current time in milliseconds.
+     * @return the length of the message's body, or 0 if there were no deferred messages.
+     */
+    int sendNextDeferred(final long timeInMs)
+    {
+        final ReattemptBuffer deferredBuffer = this.deferredBuffer;
+        if (deferredBuffer.isEmpty())
+        {
+            return 0;
+        }
+
+        final MutableDirectBuffer buffer = deferredBuffer.buffer();
+        final int entryOffset = deferredBuffer.head();
+        final int sequenceNumber = buffer.getInt(entryOffset);
+        final int bodyLength = buffer.getInt(entryOffset + SIZE_OF_INT);
+        final int metaDataLength = buffer.getInt(entryOffset + SIZE_OF_INT + SIZE_OF_INT);
+        final int bodyOffset =
+            entryOffset + DEFERRED_ENTRY_HEADER_LEN + metaDataLength + FixMessageDecoder.bodyHeaderLength();
+
+        // Consumed before sending as sending can disconnect and close this end point, the entry is left in the buffer
+        deferredBuffer.consume(bodyOffset + bodyLength - entryOffset);
+        onMessage(buffer, bodyOffset, bodyLength, metaDataLength, sequenceNumber, timeInMs, false);
+
+        return bodyLength;
+    }
+
+    void sendDeferred(final long timeInMs)
+    {
+        while (!deferredBuffer.isEmpty())
+        {
+            sendNextDeferred(timeInMs);
+        }
+    }
+
+    boolean hasDeferred()
+    {
+        return !deferredBuffer.isEmpty();
+    }
+
+    int deferredBytes()
+    {
+        return deferredBuffer.usage();
+    }
+
+    int priorityClass()
+    {
+        return priorityClass;
+    }
+
+    int scheduledPriorityClass()
+    {
+        return scheduledPriorityClass;
+    }
+
+    void scheduledPriorityClass(final int scheduledPriorityClass)
+    {
+        this.scheduledPriorityClass = scheduledPriorityClass;
+    }
+
     public void onThrottleReject(
         final int libraryId,
         final long refMsgType,
@@ -241,9 +415,15 @@ class FixSenderEndPoint extends SenderEndPoint
         {
             final int metaDataOffset = offset - FixMessageDecoder.bodyHeaderLength() - metaDataLength;
 
+            if (batchBodyLength > 0 && (replay || replaying || requiresRetry))
+            {
+                flushBatch();
+            }
+
             if ((replaying && !replay) || (!replaying && replay) || requiresRetry)
             {
-                enqueueMessage(directBuffer, offset, bodyLength, metaDataOffset, metaDataLength, seqNum, replay);
+                enqueueMessage(
+                    directBuffer, offset, bodyLength, directBuffer, metaDataOffset, metaDataLength, seqNum, replay);
 
                 if (requiresRetry)
                 {
@@ -255,7 +435,14 @@ class FixSenderEndPoint extends SenderEndPoint
             if (checkLastReplayedMessage(seqNum, replay))
             {
                 // back-pressure and retry the message sending.
-                enqueueMessage(directBuffer, offset, bodyLength, metaDataOffset, metaDataLength, seqNum, replay);
+                enqueueMessage(
+                    directBuffer, offset, bodyLength, directBuffer, metaDataOffset, metaDataLength, seqNum, replay);
+                return;
+            }
+
+            if (!replay && (batchBodyLength > 0 || bodyLength < senderBatchMaxBytes))
+            {
+                batchMessage(directBuffer, offset, bodyLength, metaDataOffset, metaDataLength, seqNum, timeInMs);
                 return;
             }
 
@@ -268,7 +455,8 @@ class FixSenderEndPoint extends SenderEndPoint
                 this.reattemptBytesWritten = totalWritten;
                 // set seqNum to 0 in order to avoid duplicate replayComplete sends
                 final int enqSeqNum = replay ? NOT_LAST_REPLAY_MSG : seqNum;
-                enqueueMessage(directBuffer, offset, bodyLength, metaDataOffset, metaDataLength, enqSeqNum, replay);
+                enqueueMessage(
+                    directBuffer, offset, bodyLength, directBuffer, metaDataOffset, metaDataLength, enqSeqNum, replay);
 
                 tryLogBackPressure(seqNum, replay, written);
             }
@@ -298,6 +486,121 @@ class FixSenderEndPoint extends SenderEndPoint
         }
     }
 
+    private void batchMessage(
+        final DirectBuffer directBuffer, final int offset, final int bodyLength,
+        final int metaDataOffset, final int metaDataLength, final int seqNum, final long timeInMs)
+    {
+        int batchBodyLength = this.batchBodyLength;
+        if (batchBodyLength == 0)
+        {
+            if (batchBuffer == null)
+            {
+                batchBuffer = new ExpandableDirectByteBuffer(senderBatchMaxBytes);
+                batchEntries = new ExpandableDirectByteBuffer();
+            }
+            batchStartTimeInNs = clock.nanoTime();
+        }
+
+        final ExpandableDirectByteBuffer batchBuffer = this.batchBuffer;
+        batchBuffer.putBytes(batchBodyLength, directBuffer, offset, bodyLength);
+        batchBodyLength += bodyLength;
+        this.batchBodyLength = batchBodyLength;
+
+        final ExpandableDirectByteBuffer batchEntries = this.batchEntries;
+        int entryOffset = batchEntriesLength;
+        batchEntries.putInt(entryOffset, seqNum);
+        entryOffset += SIZE_OF_INT;
+        batchEntries.putInt(entryOffset, bodyLength);
+        entryOffset += SIZE_OF_INT;
+        batchEntries.putInt(entryOffset, metaDataLength);
+        entryOffset += SIZE_OF_INT;
+        batchEntries.putBytes(entryOffset, directBuffer, metaDataOffset, metaDataLength);
+        batchEntriesLength = entryOffset + metaDataLength;
+
+        batchSequenceNumber = seqNum;
+        batchTimeInMs = timeInMs;
+
+        if (batchBodyLength >= senderBatchMaxBytes || clock.nanoTime() - batchStartTimeInNs >= senderBatchMaxDelayInNs)
+        {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Writes out any messages that have been coalesced into a batch. Messages that can't be written because the TCP
+     * connection is back-pressured are enqueued for a reattempt in the same way as unbatched messages.
+     *
+     * @return true if a batch was written, false if there was no batch to write.
+     */
+    boolean flushBatch()
+    {
+        final int batchBodyLength = this.batchBodyLength;
+        if (batchBodyLength == 0)
+        {
+            return false;
+        }
+
+        final ExpandableDirectByteBuffer batchBuffer = this.batchBuffer;
+        final ExpandableDirectByteBuffer batchEntries = this.batchEntries;
+        final int batchEntriesLength = this.batchEntriesLength;
+        this.batchBodyLength = 0;
+        this.batchEntriesLength = 0;
+
+        try
+        {
+            final int written = writeBuffer(batchBuffer, 0, batchBodyLength, batchSequenceNumber, false);
+
+            int bodyOffset = 0;
+            int entryOffset = 0;
+            while (entryOffset < batchEntriesLength)
+            {
+                final int sequenceNumber = batchEntries.getInt(entryOffset);
+                final int bodyLength = batchEntries.getInt(entryOffset + SIZE_OF_INT);
+                final int metaDataLength = batchEntries.getInt(entryOffset + SIZE_OF_INT + SIZE_OF_INT);
+                final int metaDataOffset = entryOffset + BATCH_ENTRY_HEADER_LEN;
+
+                final int bodyWritten = written - bodyOffset;
+                if (bodyWritten >= bodyLength)
+                {
+                    final MessageTimingHandler messageTimingHandler = this.messageTimingHandler;
+                    if (messageTimingHandler != null)
+                    {
+                        messageTimingHandler.onMessage(
+                            sequenceNumber, connectionId, batchEntries, metaDataOffset, metaDataLength);
+                    }
+                }
+                else
+                {
+                    // Only the first message that hasn't been completely written can have been partially written
+                    if (bodyWritten >= 0)
+                    {
+                        this.reattemptBytesWritten = bodyWritten;
+                    }
+
+                    enqueueMessage(
+                        batchBuffer, bodyOffset, bodyLength,
+                        batchEntries, metaDataOffset, metaDataLength, sequenceNumber, false);
+                }
+
+                bodyOffset += bodyLength;
+                entryOffset = metaDataOffset + metaDataLength;
+            }
+
+            updateSendingTimeoutTimeInMs(batchTimeInMs, written);
+        }
+        catch (final IOException e)
+        {
+            errorHandler.onError(e);
+        }
+
+        return true;
+    }
+
+    boolean hasBatch()
+    {
+        return batchBodyLength > 0;
+    }
+
     private void tryLogBackPressure(final int seqNum, final boolean replay, final int written)
     {
         final ReproductionLogWriter reproductionLogWriter = this.reproductionLogWriter;
@@ -341,13 +644,17 @@ class FixSenderEndPoint extends SenderEndPoint
 
     private void enqueueMessage(
         final DirectBuffer srcBuffer, final int srcOffset, final int bodyLength,
-        final int metaDataOffset, final int metaDataLength, final int sequenceNumber, final boolean replay)
+        final DirectBuffer metaDataBuffer, final int metaDataOffset, final int metaDataLength,
+        final int sequenceNumber, final boolean replay)
     {
         final int totalLength = ENQ_MESSAGE_BLOCK_LEN + bodyLength + metaDataLength;
-        final ReattemptState reattemptState = enqueue(totalLength, replay);
+        int reattemptOffset = enqueue(totalLength, replay);
+        if (reattemptOffset == NO_SPACE)
+        {
+            return;
+        }
 
-        int reattemptOffset = reattemptState.usage - totalLength;
-        final ExpandableDirectByteBuffer buffer = reattemptState.buffer();
+        final MutableDirectBuffer buffer = reattemptBuffer(replay).buffer();
 
         buffer.putInt(reattemptOffset, ENQ_MSG);
         reattemptOffset += SIZE_OF_INT;
@@ -364,7 +671,7 @@ class FixSenderEndPoint extends SenderEndPoint
         buffer.putInt(reattemptOffset, metaDataLength);
         reattemptOffset += SIZE_OF_INT;
 
-        buffer.putBytes(reattemptOffset, srcBuffer, metaDataOffset, metaDataLength);
+        buffer.putBytes(reattemptOffset, metaDataBuffer, metaDataOffset, metaDataLength);
     }
 
     private void enqueueReplayComplete(final long correlationId)
@@ -379,10 +686,13 @@ class FixSenderEndPoint extends SenderEndPoint
 
     private void enqueueCorrelation(final long correlationId, final int messageType)
     {
-        final ReattemptState reattemptState = enqueue(ENQ_REPLAY_COMPLETE_LEN, true);
+        int reattemptOffset = enqueue(ENQ_REPLAY_COMPLETE_LEN, true);
+        if (reattemptOffset == NO_SPACE)
+        {
+            return;
+        }
 
-        int reattemptOffset = reattemptState.usage - ENQ_REPLAY_COMPLETE_LEN;
-        final ExpandableDirectByteBuffer buffer = reattemptState.buffer();
+        final MutableDirectBuffer buffer = replayBuffer.buffer();
 
         buffer.putInt(reattemptOffset, messageType);
         reattemptOffset += SIZE_OF_INT;
@@ -390,7 +700,8 @@ class FixSenderEndPoint extends SenderEndPoint
         buffer.putLong(reattemptOffset, correlationId);
     }
 
-    private ReattemptState enqueue(final int length, final boolean replay)
+    // returns the offset within the reattempt buffer to write the entry to, or NO_SPACE if it can't be held
+    private int enqueue(final int length, final boolean replay)
     {
         // we only need re-attempting when we've got messages buffered for the current state
         final boolean currentStream = replay == replaying;
@@ -400,49 +711,45 @@ class FixSenderEndPoint extends SenderEndPoint
             sendSlowStatus(true);
         }
 
-        final ReattemptState reattemptState = reattemptState(replay);
+        final ReattemptBuffer reattemptBuffer = reattemptBuffer(replay);
+        final int reattemptOffset = reattemptBuffer.claim(length);
 
-        final int bufferUsage = reattemptState.usage + length;
-        reattemptState.usage = bufferUsage;
-        if (currentStream)
+        // When spilling the backlog is bound by the size of the spill file rather than maxBytesInBuffer
+        final int bufferUsage = reattemptBuffer.usage();
+        if (reattemptOffset == NO_SPACE ||
+            (currentStream && bufferUsage > maxBytesInBuffer && !reattemptBuffer.isSpillEnabled()))
         {
-            if (bufferUsage > maxBytesInBuffer)
+            if (IS_SLOW_CONSUMER_LOG_TAG_ENABLED)
             {
-                if (IS_SLOW_CONSUMER_LOG_TAG_ENABLED)
-                {
-                    DebugLogger.log(LogTag.SLOW_CONSUMER, formatters.bufferSlowDisconnect.clear()
-                        .with(connectionId)
-                        .with(sessionId)
-                        .with(bufferUsage)
-                        .with(maxBytesInBuffer)
-                        .with(replay));
-                }
-                disconnectEndpoint(SLOW_CONSUMER);
+                DebugLogger.log(LogTag.SLOW_CONSUMER, formatters.bufferSlowDisconnect.clear()
+                    .with(connectionId)
+                    .with(sessionId)
+                    .with(reattemptOffset == NO_SPACE ? bufferUsage + length : bufferUsage)
+                    .with(maxBytesInBuffer)
+                    .with(replay));
             }
+            disconnectEndpoint(SLOW_CONSUMER);
+        }
 
+        if (currentStream)
+        {
             bytesInBuffer.setOrdered(bufferUsage);
         }
-        return reattemptState;
+        return reattemptOffset;
     }
 
-    private ReattemptState reattemptState(final boolean replay)
+    private ReattemptBuffer reattemptBuffer(final boolean replay)
     {
         return replay ? replayBuffer : normalBuffer;
     }
 
     private boolean processReattemptBuffer(final boolean replay)
     {
-        final ReattemptState reattemptState = reattemptState(replay);
-        final ExpandableDirectByteBuffer buffer = reattemptState.buffer;
-        final int reattemptBufferUsage = reattemptState.usage;
-        if (reattemptBufferUsage == 0)
-        {
-            return true;
-        }
-
-        int offset = 0;
-        while (offset < reattemptBufferUsage)
+        final ReattemptBuffer reattemptBuffer = reattemptBuffer(replay);
+        while (!reattemptBuffer.isEmpty())
         {
+            final MutableDirectBuffer buffer = reattemptBuffer.buffer();
+            final int offset = reattemptBuffer.head();
             try
             {
                 final int enqueueType = buffer.getInt(offset);
@@ -478,39 +785,36 @@ class FixSenderEndPoint extends SenderEndPoint
                     }
                     else
                     {
-                        offset = onProcessMsgComplete(
-                            replay, buffer, offset, sequenceNumber, bodyLength, bodyOffset, totalWritten);
+                        reattemptBuffer.consume(onProcessMsgComplete(
+                            replay, buffer, sequenceNumber, bodyLength, bodyOffset, totalWritten));
                     }
                 }
                 else if (enqueueType == ENQ_REPLAY_COMPLETE)
                 {
-                    final int idOffset = offset + SIZE_OF_INT;
-                    final long correlationId = buffer.getLong(idOffset);
+                    final long correlationId = buffer.getLong(offset + SIZE_OF_INT);
                     this.reattemptBytesWritten = NO_REATTEMPT;
-
-                    // Complete
-                    final int endOfReplayEntry = idOffset + SIZE_OF_LONG;
+                    reattemptBuffer.consume(ENQ_REPLAY_COMPLETE_LEN);
 
                     // peek the next message to see if we need to continue replaying
                     // If not then we end the replay, otherwise we keep replaying
-                    if (buffer.getInt(endOfReplayEntry) != ENQ_START_REPLAY)
+                    if (reattemptBuffer.isEmpty() ||
+                        reattemptBuffer.buffer().getInt(reattemptBuffer.head()) != ENQ_START_REPLAY)
                     {
                         replaying(false, correlationId);
-                        reattemptState.shuffleWritten(endOfReplayEntry);
-                        bytesInBuffer.setOrdered(normalBuffer.usage);
+                        bytesInBuffer.setOrdered(normalBuffer.usage());
                         return true;
                     }
                 }
                 else if (enqueueType == ENQ_START_REPLAY)
                 {
                     // We just ensure that we're still replaying and skip these messages
-                    offset += ENQ_START_REPLAY_LEN;
+                    reattemptBuffer.consume(ENQ_START_REPLAY_LEN);
                 }
                 else
                 {
                     throw new IllegalStateException(
-                        "enqueueType = " + enqueueType + ", usage = " + reattemptState.usage + ", offset = " + offset +
-                        ", replay = " + replay);
+                        "enqueueType = " + enqueueType + ", usage = " + reattemptBuffer.usage() +
+                        ", offset = " + offset + ", replay = " + replay);
                 }
             }
             catch (final Throwable e)
@@ -520,15 +824,15 @@ class FixSenderEndPoint extends SenderEndPoint
             }
         }
 
-        final int usage = reattemptState.shuffleWritten(offset);
+        final int usage = reattemptBuffer.usage();
         bytesInBuffer.setOrdered(usage);
         return usage == 0;
     }
 
+    // returns the length of the completed entry
     private int onProcessMsgComplete(
         final boolean replay,
-        final ExpandableDirectByteBuffer buffer,
-        final int offset,
+        final MutableDirectBuffer buffer,
         final int sequenceNumber,
         final int bodyLength,
         final int bodyOffset,
@@ -548,11 +852,13 @@ class FixSenderEndPoint extends SenderEndPoint
 
         this.reattemptBytesWritten = NO_REATTEMPT;
 
-        return offset + ENQ_MESSAGE_BLOCK_LEN + totalWritten + metaDataLength;
+        return ENQ_MESSAGE_BLOCK_LEN + totalWritten + metaDataLength;
     }
 
     public boolean reattempt()
     {
+        flushBatch();
+
         return reattempt(replaying);
     }
 
@@ -565,8 +871,7 @@ class FixSenderEndPoint extends SenderEndPoint
             {
                 // Do we need to try the other queue?
                 final boolean other = !replaying;
-                final ReattemptState reattemptState = reattemptState(other);
-                final int usage = reattemptState.usage;
+                final int usage = reattemptBuffer(other).usage();
                 if (usage == 0)
                 {
                     requiresRetry(false);
@@ -613,6 +918,9 @@ class FixSenderEndPoint extends SenderEndPoint
     {
         senderSequenceNumber.close();
         invalidLibraryAttempts.close();
+        normalBuffer.close();
+        replayBuffer.close();
+        deferredBuffer.close();
         super.close();
     }
 
@@ -647,6 +955,11 @@ class FixSenderEndPoint extends SenderEndPoint
         return sessionId;
     }
 
+    SessionLatencyHistograms latencyHistograms()
+    {
+        return latencyHistograms;
+    }
+
     boolean poll(final long timeInMs)
     {
         reattempt();
@@ -683,6 +996,8 @@ class FixSenderEndPoint extends SenderEndPoint
                 formatters.replayComplete.clear().with(connectionId).with(correlationId));
         }
 
+        flushBatch();
+
         // can receive this when we're not replaying, but if we've already detected the end
         // of the current replay then replayCorrelationId = correlationId
         if ((!replaying && replayCorrelationId != correlationId) || !reattempt(true))
@@ -708,6 +1023,25 @@ class FixSenderEndPoint extends SenderEndPoint
     {
         this.sessionKey = sessionKey;
         this.configuration = configuration;
+
+        final int priorityClassCount = configuration.senderPriorityClassByteBudgets().length;
+        if (priorityClassCount > 0)
+        {
+            final SenderPriorityStrategy strategy = configuration.senderPriorityStrategy();
+            priorityClass = checkPriorityClass(
+                strategy.priorityClass(sessionKey, priorityClassCount), priorityClassCount);
+        }
+    }
+
+    private int checkPriorityClass(final int priorityClass, final int priorityClassCount)
+    {
+        if (priorityClass < 0 || priorityClass >= priorityClassCount)
+        {
+            throw new IllegalStateException(String.format(
+                "Invalid priority class %d for sessionKey=%s, priorityClassCount=%d",
+                priorityClass, sessionKey, priorityClassCount));
+        }
+        return priorityClass;
     }
 
     // Received on outbound publication when a replay starts
@@ -729,6 +1063,8 @@ class FixSenderEndPoint extends SenderEndPoint
                 .with(connectionId).with(correlationId));
         }
 
+        flushBatch();
+
         // We start the replay with this message, rather than VRR because it doesn't race with replay complete.
         if (replaying || requiresRetry)
         {
@@ -788,37 +1124,6 @@ class FixSenderEndPoint extends SenderEndPoint
         return reattemptBytesWritten;
     }
 
-    static class ReattemptState
-    {
-        ExpandableDirectByteBuffer buffer;
-        int usage;
-
-        ExpandableDirectByteBuffer buffer()
-        {
-            ExpandableDirectByteBuffer buffer = this.buffer;
-            if (buffer == null)
-            {
-                buffer = this.buffer = new ExpandableDirectByteBuffer();
-            }
-
-            buffer.checkLimit(usage);
-
-            return buffer;
-        }
-
-        int shuffleWritten(final int written)
-        {
-            int usage = this.usage;
-            if (written > 0)
-            {
-                usage -= written;
-                buffer.putBytes(0, buffer, written, usage);
-                this.usage = usage;
-            }
-            return usage;
-        }
-    }
-
     protected void sendSlowStatus(final boolean hasBecomeSlow)
     {
         if (IS_SLOW_CONSUMER_LOG_TAG_ENABLED)
@@ -22,12 +22,18 @@ import org.agrona.collections.Long2ObjectHashMap;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
 import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 import uk.co.real_logic.artio.util.CharFormatter;
 
+import java.util.ArrayList;
 import java.util.function.LongToIntFunction;
 
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.DebugLogger.IS_REPLAY_LOG_TAG_ENABLED;
+import static uk.co.real_logic.artio.engine.framer.FixSenderEndPoint.NOT_SCHEDULED;
+import static uk.co.real_logic.artio.timing.LatencyStage.LIBRARY_SEND;
+import static uk.co.real_logic.artio.timing.LatencyStage.TCP_WRITE;
 
 class FixSenderEndPoints implements AutoCloseable
 {
@@ -53,9 +59,36 @@ class FixSenderEndPoints implements AutoCloseable
 
     private long timeInMs;
 
-    FixSenderEndPoints(final ErrorHandler errorHandler)
+    // Outbound scheduling, see EngineConfiguration#senderPriorityClassByteBudgets(int...)
+    private final boolean schedulingEnabled;
+    private final int[] byteBudgets;
+    private final int[] remainingByteBudgets;
+    private final int replayPriorityClass;
+    private final ArrayList<FixSenderEndPoint>[] deferredEndPoints;
+    private final int[] deferredCursors;
+    private final int maxDeferredBytes;
+
+    @SuppressWarnings("unchecked")
+    FixSenderEndPoints(
+        final ErrorHandler errorHandler,
+        final int[] byteBudgets,
+        final int replayPriorityClass,
+        final int maxDeferredBytes)
     {
         this.errorHandler = errorHandler;
+        this.byteBudgets = byteBudgets;
+        this.replayPriorityClass = replayPriorityClass;
+        this.maxDeferredBytes = maxDeferredBytes;
+
+        final int priorityClassCount = byteBudgets.length;
+        schedulingEnabled = priorityClassCount > 0;
+        remainingByteBudgets = byteBudgets.clone();
+        deferredCursors = new int[priorityClassCount];
+        deferredEndPoints = new ArrayList[priorityClassCount];
+        for (int i = 0; i < priorityClassCount; i++)
+        {
+            deferredEndPoints[i] = new ArrayList<>();
+        }
     }
 
     public void add(final FixSenderEndPoint senderEndPoint)
@@ -68,10 +101,135 @@ class FixSenderEndPoints implements AutoCloseable
         final FixSenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.remove(connectionId);
         if (senderEndPoint != null)
         {
+            unschedule(senderEndPoint);
             senderEndPoint.close();
         }
     }
 
+    void flushBatch(final long connectionId)
+    {
+        final FixSenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.get(connectionId);
+        if (senderEndPoint != null)
+        {
+            senderEndPoint.sendDeferred(timeInMs);
+            senderEndPoint.flushBatch();
+        }
+    }
+
+    /**
+     * Starts a new duty cycle of outbound scheduling, resetting the byte budget of each priority class and then
+     * writing messages that were deferred in previous duty cycles, in priority class order.
+     *
+     * @return the number of deferred messages written.
+     */
+    int sendDeferredMessages()
+    {
+        if (!schedulingEnabled)
+        {
+            return 0;
+        }
+
+        final int[] byteBudgets = this.byteBudgets;
+        final int[] remainingByteBudgets = this.remainingByteBudgets;
+        int count = 0;
+        for (int priorityClass = 0; priorityClass < byteBudgets.length; priorityClass++)
+        {
+            remainingByteBudgets[priorityClass] = byteBudgets[priorityClass];
+            count += sendDeferredMessages(priorityClass);
+        }
+
+        return count;
+    }
+
+    // Round robin over the end points of the priority class, a message at a time.
+    private int sendDeferredMessages(final int priorityClass)
+    {
+        final ArrayList<FixSenderEndPoint> endPoints = deferredEndPoints[priorityClass];
+        int remainingByteBudget = remainingByteBudgets[priorityClass];
+        int cursor = deferredCursors[priorityClass];
+        int count = 0;
+        while (remainingByteBudget > 0 && !endPoints.isEmpty())
+        {
+            if (cursor >= endPoints.size())
+            {
+                cursor = 0;
+            }
+
+            final FixSenderEndPoint endPoint = endPoints.get(cursor);
+            remainingByteBudget -= endPoint.sendNextDeferred(timeInMs);
+            count++;
+
+            // Sending can disconnect the end point, which removes it from the list.
+            if (cursor < endPoints.size() && endPoints.get(cursor) == endPoint)
+            {
+                if (endPoint.hasDeferred())
+                {
+                    cursor++;
+                }
+                else
+                {
+                    endPoints.remove(cursor);
+                    endPoint.scheduledPriorityClass(NOT_SCHEDULED);
+                }
+            }
+        }
+
+        remainingByteBudgets[priorityClass] = remainingByteBudget;
+        deferredCursors[priorityClass] = cursor;
+        return count;
+    }
+
+    // returns true iff the message should be deferred to a later duty cycle
+    private boolean checkByteBudget(final FixSenderEndPoint endPoint, final int length)
+    {
+        if (endPoint.hasDeferred())
+        {
+            if (endPoint.deferredBytes() + length <= maxDeferredBytes)
+            {
+                return true;
+            }
+
+            // Don't hold back an unbounded number of messages, the budget is exceeded rather than the buffer
+            endPoint.sendDeferred(timeInMs);
+            return false;
+        }
+
+        final int priorityClass = endPoint.priorityClass();
+        final int remainingByteBudget = remainingByteBudgets[priorityClass];
+        if (remainingByteBudget > 0)
+        {
+            remainingByteBudgets[priorityClass] = remainingByteBudget - length;
+            return false;
+        }
+
+        return true;
+    }
+
+    private void schedule(final FixSenderEndPoint endPoint)
+    {
+        if (endPoint.scheduledPriorityClass() == NOT_SCHEDULED)
+        {
+            final int priorityClass = endPoint.priorityClass();
+            deferredEndPoints[priorityClass].add(endPoint);
+            endPoint.scheduledPriorityClass(priorityClass);
+        }
+    }
+
+    private void unschedule(final FixSenderEndPoint endPoint)
+    {
+        if (!schedulingEnabled)
+        {
+            return;
+        }
+
+        final int scheduledPriorityClass = endPoint.scheduledPriorityClass();
+        if (scheduledPriorityClass != NOT_SCHEDULED)
+        {
+            deferredEndPoints[scheduledPriorityClass].remove(endPoint);
+            endPoint.scheduledPriorityClass(NOT_SCHEDULED);
+        }
+    }
+
     boolean onMessage(
         final int libraryId,
         final long connectionId,
@@ -79,13 +237,24 @@ class FixSenderEndPoints implements AutoCloseable
         final int offset,
         final int length,
         final int sequenceNumber,
-        final int metaDataLength)
+        final int metaDataLength,
+        final long timestamp)
     {
         final FixSenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
+            final SessionLatencyHistograms latencyHistograms = endPoint.latencyHistograms();
+            final long receivedInNs = latencyHistograms.recordSince(LIBRARY_SEND, timestamp);
+            if (schedulingEnabled && checkByteBudget(endPoint, length))
+            {
+                endPoint.deferOutboundMessage(libraryId, buffer, offset, length, sequenceNumber, metaDataLength);
+                schedule(endPoint);
+                return true;
+            }
+
             endPoint.onOutboundMessage(
                 libraryId, buffer, offset, length, sequenceNumber, timeInMs, metaDataLength);
+            latencyHistograms.recordSince(TCP_WRITE, receivedInNs);
             return true;
         }
 
@@ -121,6 +290,19 @@ class FixSenderEndPoints implements AutoCloseable
         final FixSenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
+            if (schedulingEnabled)
+            {
+                // Replays are left in the replay stream until the replay priority class has budget again. Every
+                // session's replays share the stream, so they're all in the one class to avoid an out of budget
+                // class holding up the replays of sessions in other classes.
+                final int remainingByteBudget = remainingByteBudgets[replayPriorityClass];
+                if (remainingByteBudget <= 0)
+                {
+                    return ABORT;
+                }
+                remainingByteBudgets[replayPriorityClass] = remainingByteBudget - length;
+            }
+
             return endPoint.onReplayMessage(buffer, offset, length, timeInMs, sequenceNumber);
         }
         else
@@ -210,6 +392,8 @@ class FixSenderEndPoints implements AutoCloseable
         final FixSenderEndPoint fixSenderEndPoint = connectionIdToSenderEndpoint.get(connection);
         if (fixSenderEndPoint != null)
         {
+            // Messages sent before the replay started are written before it
+            fixSenderEndPoint.sendDeferred(timeInMs);
             fixSenderEndPoint.onStartReplay(correlationId);
         }
     }
@@ -252,7 +252,11 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.agentNamePrefix = agentNamePrefix;
         this.inboundCompletionPosition = inboundCompletionPosition;
         this.outboundLibraryCompletionPosition = outboundLibraryCompletionPosition;
-        this.fixSenderEndPoints = new FixSenderEndPoints(errorHandler);
+        this.fixSenderEndPoints = new FixSenderEndPoints(
+            errorHandler,
+            configuration.senderPriorityClassByteBudgets(),
+            configuration.senderReplayPriorityClass(),
+            configuration.senderMaxBytesInBuffer());
         this.countersReader = countersReader;
         this.outboundIndexRegistrationId = outboundIndexRegistrationId;
         this.senderSequenceNumbers = senderSequenceNumbers;
@@ -308,7 +312,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                     final MessageStatus status,
                     final int sequenceNumber,
                     final Header header,
-                    final int metaDataLength)
+                    final int metaDataLength,
+                    final HeaderSummary headerSummary)
                 {
                     return fixSenderEndPoints.onReplayMessage(connectionId, buffer, offset, length, sequenceNumber);
                 }
@@ -379,6 +384,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         checkOutboundTimestampSender(timeInNs);
 
         return retryManager.attemptSteps() +
+            fixSenderEndPoints.sendDeferredMessages() +
             sendOutboundMessages() +
             sendReplayMessages() +
             pollEndPoints() +
@@ -1667,12 +1673,13 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final MessageStatus status,
         final int sequenceNumber,
         final Header header,
-        final int metaDataLength)
+        final int metaDataLength,
+        final HeaderSummary headerSummary)
     {
         final long now = outboundTimer.recordSince(timestamp);
 
         final boolean online = fixSenderEndPoints.onMessage(
-            libraryId, connectionId, buffer, offset, length, sequenceNumber, metaDataLength);
+            libraryId, connectionId, buffer, offset, length, sequenceNumber, metaDataLength, timestamp);
 
         if (!online)
         {
@@ -1779,6 +1786,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
     {
+        // Write out messages, eg: a logout, that were batched before the disconnect request.
+        fixSenderEndPoints.flushBatch(connectionId);
         receiverEndPoints.removeConnection(connectionId, reason);
         fixSenderEndPoints.removeConnection(connectionId);
         fixPSenderEndPoints.removeConnection(connectionId);
@@ -2741,10 +2750,10 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         acceptorHeaderDecoder.reset();
         acceptorHeaderDecoder.decode(asciiBuffer, srcOffset, srcLength);
 
-        final CompositeKey compositeKey;
+        final SessionContext sessionContext;
         try
         {
-            compositeKey = sessionIdStrategy.onAcceptLogon(acceptorHeaderDecoder);
+            sessionContext = fixContexts.newAcceptedSessionContext(acceptorHeaderDecoder, fixDictionary);
         }
         catch (final IllegalArgumentException e)
         {
@@ -2752,7 +2761,6 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             return;
         }
 
-        final SessionContext sessionContext = fixContexts.newSessionContext(compositeKey, fixDictionary);
         final long sessionId = sessionContext.sessionId();
 
         saveFollowerSessionReply(libraryId, correlationId, sessionId);
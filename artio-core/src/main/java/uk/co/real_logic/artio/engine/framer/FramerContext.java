@@ -81,7 +81,8 @@ public class FramerContext
 
         this.fixContexts = new FixContexts(
             configuration.sessionIdBuffer(), sessionIdStrategy, configuration.initialSequenceIndex(), errorHandler,
-            configuration.isReproductionEnabled());
+            configuration.isReproductionEnabled(), configuration.sessionIdBufferSize(),
+            configuration.sessionIdBufferMaxSize());
         this.fixPContexts = new FixPContexts(
             configuration.fixPIdBuffer(),
             errorHandler,
@@ -95,11 +96,11 @@ public class FramerContext
         final AdminReplyPublication adminReplyPublication = newAdminReplyPublication(aeron, fixCounters, idleStrategy);
 
         sentSequenceNumberIndex = new SequenceNumberIndexReader(
-            configuration.sentSequenceNumberBuffer(), errorHandler, recordingCoordinator.framerOutboundLookup(),
+            engineContext.sentSequenceNumberIndexBuffer(), errorHandler, recordingCoordinator.framerOutboundLookup(),
             configuration.logFileDir());
         receivedSequenceNumberIndex = new SequenceNumberIndexReader(
-            configuration.receivedSequenceNumberBuffer(), errorHandler, recordingCoordinator.framerInboundLookup(),
-            null);
+            engineContext.receivedSequenceNumberIndexBuffer(), errorHandler,
+            recordingCoordinator.framerInboundLookup(), null);
 
         final ReproductionLogWriter reproductionLogWriter = reproductionLogWriter(outboundLibraryStreams);
 
@@ -144,7 +145,8 @@ public class FramerContext
                 errorHandler,
                 (FixGatewaySessions)gatewaySessions,
                 engineContext.senderSequenceNumbers(),
-                configuration.messageTimingHandler());
+                configuration.messageTimingHandler(),
+                timers.latencyHistograms());
         }
 
         final FinalImagePositions finalImagePositions = new FinalImagePositions();
@@ -388,7 +390,7 @@ public class FramerContext
         return null;
     }
 
-    // Called on replayer thread
+    // Called on the indexers' thread
     public void resetOutboundReplayQuery(final long fixSessionId)
     {
         if (startingClose)
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.BitUtil;
+import org.agrona.IoUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Holds the entries that a {@link FixSenderEndPoint} needs to reattempt once its TCP connection stops being
+ * back-pressured. This is a ring of off-heap memory: entries are claimed at the tail and consumed from the head,
+ * so consuming an entry doesn't copy the remaining entries down. Each entry is contiguous, an entry that doesn't
+ * fit before the end of the buffer is wrapped around to its start. The buffer is allocated when first needed and
+ * doubles in size, copying its entries once, when an entry doesn't fit.
+ *
+ * If a spill file is configured then once the entries would need more than the memory limit they are moved into a
+ * memory mapped file of a fixed size, and back out of it once they have all been consumed.
+ */
+final class ReattemptBuffer implements AutoCloseable
+{
+    static final int NO_SPACE = -1;
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int NOT_WRAPPED = -1;
+
+    private final int memoryLimit;
+    private final File spillFile;
+    private final int spillCapacity;
+
+    private UnsafeBuffer memoryBuffer;
+    private MappedByteBuffer spillMapping;
+    private UnsafeBuffer buffer;
+    private int capacity;
+
+    private int head;
+    private int tail;
+    // When the entries have wrapped around this is the end of the entries that start at the head
+    private int wrapLimit = NOT_WRAPPED;
+    private int usage;
+
+    /**
+     * Create the buffer.
+     *
+     * @param memoryLimit the number of bytes of entries above which the entries are spilled to the spill file.
+     * @param spillFile the file to spill the entries to, or null to hold them all in memory.
+     * @param spillCapacity the size in bytes of the spill file.
+     */
+    ReattemptBuffer(final int memoryLimit, final File spillFile, final int spillCapacity)
+    {
+        this.memoryLimit = memoryLimit;
+        this.spillFile = spillFile;
+        this.spillCapacity = spillCapacity;
+    }
+
+    /**
+     * Claim space for an entry at the tail of the buffer.
+     *
+     * @param length the length of the entry in bytes.
+     * @return the offset within {@link #buffer()} to write the entry to or {@link #NO_SPACE} if the spill file is
+     * full.
+     */
+    int claim(final int length)
+    {
+        final int required = usage + length;
+        if (required > memoryLimit && spillFile != null && spillMapping == null)
+        {
+            return spill(required) ? claimAtTail(length) : NO_SPACE;
+        }
+
+        int offset = NO_SPACE;
+        final int tail = this.tail;
+        if (wrapLimit == NOT_WRAPPED)
+        {
+            if (tail + length <= capacity)
+            {
+                offset = tail;
+            }
+            else if (length <= head)
+            {
+                wrapLimit = tail;
+                offset = 0;
+            }
+        }
+        else if (tail + length <= head)
+        {
+            offset = tail;
+        }
+
+        if (offset == NO_SPACE)
+        {
+            // The spill file has a fixed size
+            if (spillMapping != null || required < 0)
+            {
+                return NO_SPACE;
+            }
+
+            grow(required);
+            return claimAtTail(length);
+        }
+
+        return claimAt(offset, length);
+    }
+
+    private int claimAtTail(final int length)
+    {
+        return claimAt(tail, length);
+    }
+
+    private int claimAt(final int offset, final int length)
+    {
+        tail = offset + length;
+        usage += length;
+        return offset;
+    }
+
+    /**
+     * Consume the entry at the head of the buffer. This may move the entries back from the spill file into memory,
+     * so {@link #buffer()} should be re-read after calling this method.
+     *
+     * @param length the length of the entry in bytes.
+     */
+    void consume(final int length)
+    {
+        final int usage = this.usage - length;
+        this.usage = usage;
+        if (usage == 0)
+        {
+            head = 0;
+            tail = 0;
+            wrapLimit = NOT_WRAPPED;
+            if (spillMapping != null)
+            {
+                unspill();
+            }
+            return;
+        }
+
+        int head = this.head + length;
+        if (head == wrapLimit)
+        {
+            head = 0;
+            wrapLimit = NOT_WRAPPED;
+        }
+        this.head = head;
+    }
+
+    /**
+     * Gets the buffer that the entries are held in.
+     *
+     * @return the buffer that the entries are held in.
+     */
+    MutableDirectBuffer buffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Gets the offset of the entry at the head of the buffer, only valid if the buffer isn't empty.
+     *
+     * @return the offset of the entry at the head of the buffer.
+     */
+    int head()
+    {
+        return head;
+    }
+
+    /**
+     * Gets the number of bytes of entries in the buffer.
+     *
+     * @return the number of bytes of entries in the buffer.
+     */
+    int usage()
+    {
+        return usage;
+    }
+
+    boolean isEmpty()
+    {
+        return usage == 0;
+    }
+
+    boolean isSpillEnabled()
+    {
+        return spillFile != null;
+    }
+
+    boolean isSpilled()
+    {
+        return spillMapping != null;
+    }
+
+    public void close()
+    {
+        if (spillMapping != null)
+        {
+            unspill();
+        }
+
+        memoryBuffer = null;
+        buffer = null;
+        capacity = 0;
+        head = 0;
+        tail = 0;
+        wrapLimit = NOT_WRAPPED;
+        usage = 0;
+    }
+
+    private boolean spill(final int required)
+    {
+        if (required > spillCapacity)
+        {
+            return false;
+        }
+
+        spillMapping = IoUtil.mapNewFile(spillFile, spillCapacity, false);
+        copyEntriesTo(new UnsafeBuffer(spillMapping), spillCapacity);
+        return true;
+    }
+
+    private void grow(final int required)
+    {
+        final int newCapacity = Math.max(
+            BitUtil.findNextPositivePowerOfTwo(Math.max(required, INITIAL_CAPACITY)), capacity << 1);
+        memoryBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(newCapacity));
+        copyEntriesTo(memoryBuffer, newCapacity);
+    }
+
+    private void unspill()
+    {
+        IoUtil.unmap(spillMapping);
+        spillMapping = null;
+        IoUtil.deleteIfExists(spillFile);
+
+        final UnsafeBuffer memoryBuffer = this.memoryBuffer;
+        buffer = memoryBuffer;
+        capacity = memoryBuffer == null ? 0 : memoryBuffer.capacity();
+    }
+
+    // Copies the entries to the start of the new buffer, unwrapping them.
+    private void copyEntriesTo(final UnsafeBuffer newBuffer, final int newCapacity)
+    {
+        final UnsafeBuffer buffer = this.buffer;
+        final int head = this.head;
+        final int usage = this.usage;
+        if (usage > 0)
+        {
+            if (wrapLimit == NOT_WRAPPED)
+            {
+                newBuffer.putBytes(0, buffer, head, usage);
+            }
+            else
+            {
+                final int headLength = wrapLimit - head;
+                newBuffer.putBytes(0, buffer, head, headLength);
+                newBuffer.putBytes(headLength, buffer, 0, tail);
+            }
+        }
+
+        this.buffer = newBuffer;
+        this.capacity = newCapacity;
+        this.head = 0;
+        this.tail = usage;
+        this.wrapLimit = NOT_WRAPPED;
+    }
+}
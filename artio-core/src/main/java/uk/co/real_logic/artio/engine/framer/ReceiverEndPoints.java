@@ -32,6 +32,12 @@ import static uk.co.real_logic.artio.messages.DisconnectReason.ENGINE_SHUTDOWN;
 
 class ReceiverEndPoints extends TransportPoller
 {
+    /**
+     * Property name for the number of TCP connections up to which the Framer reads from every connection on each
+     * duty cycle, rather than using a selectNow call to find the connections that have data available. Each
+     * iterated connection costs a read syscall per duty cycle, so raising this only helps when there are few
+     * connections, eg: a busy spinning Framer handling a handful of latency sensitive sessions.
+     */
     public static final String ARTIO_ITERATION_THRESHOLD_PROP_NAME = "fix.core.iteration.threshold";
 
     public static final int ARTIO_ITERATION_THRESHOLD = Integer.getInteger(
@@ -15,10 +15,16 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
+import org.agrona.collections.LongHashSet;
+import uk.co.real_logic.artio.engine.logger.CompositeFixMessagePredicate.FixMessageAnd;
 import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.FilterBy;
 import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.From;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.MessageTypeOf;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.SessionOf;
 import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.To;
 
+import static uk.co.real_logic.artio.engine.logger.FixMessagePredicates.alwaysTrue;
+
 final class ArchiveScanPlanner
 {
     static IndexQuery extractIndexQuery(final FixMessageConsumer fixHandler)
@@ -33,21 +39,118 @@ final class ArchiveScanPlanner
         return extractIndexQuery(queryPredicate);
     }
 
+    /**
+     * Extract the predicates of a query that only depend upon the message that they're testing, eg: its timestamp,
+     * session or message type. These can be tested by the threads of a {@link ParallelArchiveScan} in any order.
+     *
+     * @param fixHandler the consumer of the scan.
+     * @return the conjunction of the stateless predicates, or null if there aren't any.
+     */
+    static FixMessagePredicate extractStatelessPredicate(final FixMessageConsumer fixHandler)
+    {
+        if (!(fixHandler instanceof FilterBy))
+        {
+            return null;
+        }
+
+        return extractStatelessPredicate(((FilterBy)fixHandler).predicate);
+    }
+
+    /**
+     * Remove the predicates returned by {@link #extractStatelessPredicate(FixMessageConsumer)} from a query so that
+     * only the remaining predicates are tested on the scanning thread.
+     *
+     * @param fixHandler the consumer of the scan.
+     * @return the consumer filtered by the remaining predicates.
+     */
+    static FixMessageConsumer removeStatelessPredicate(final FixMessageConsumer fixHandler)
+    {
+        if (!(fixHandler instanceof FilterBy))
+        {
+            return fixHandler;
+        }
+
+        final FilterBy filterBy = (FilterBy)fixHandler;
+        final FixMessagePredicate remainingPredicate = removeStatelessPredicate(filterBy.predicate);
+        if (remainingPredicate == filterBy.predicate)
+        {
+            return fixHandler;
+        }
+
+        // Stays wrapped even if nothing remains so that the zipper treats the consumer in the same way
+        return new FilterBy(filterBy.consumer, remainingPredicate == null ? alwaysTrue() : remainingPredicate);
+    }
+
+    // Only the conjuncts of the query can be tested separately, a predicate under an or is tested with its siblings.
+    private static FixMessagePredicate extractStatelessPredicate(final FixMessagePredicate predicate)
+    {
+        if (predicate instanceof FixMessageAnd)
+        {
+            final FixMessageAnd and = (FixMessageAnd)predicate;
+            return and(extractStatelessPredicate(and.left()), extractStatelessPredicate(and.right()));
+        }
+
+        return isStateless(predicate) ? predicate : null;
+    }
+
+    private static FixMessagePredicate removeStatelessPredicate(final FixMessagePredicate predicate)
+    {
+        if (predicate instanceof FixMessageAnd)
+        {
+            final FixMessageAnd and = (FixMessageAnd)predicate;
+            final FixMessagePredicate left = removeStatelessPredicate(and.left());
+            final FixMessagePredicate right = removeStatelessPredicate(and.right());
+            if (left == and.left() && right == and.right())
+            {
+                return predicate;
+            }
+
+            return and(left, right);
+        }
+
+        return isStateless(predicate) ? null : predicate;
+    }
+
+    private static boolean isStateless(final FixMessagePredicate predicate)
+    {
+        return predicate instanceof From ||
+            predicate instanceof To ||
+            predicate instanceof SessionOf ||
+            predicate instanceof MessageTypeOf;
+    }
+
+    private static FixMessagePredicate and(final FixMessagePredicate left, final FixMessagePredicate right)
+    {
+        if (left == null)
+        {
+            return right;
+        }
+
+        if (right == null)
+        {
+            return left;
+        }
+
+        return left.and(right);
+    }
+
     private static IndexQuery extractIndexQuery(final FixMessagePredicate queryPredicate)
     {
         final IndexQuery indexQuery = new IndexQuery();
-        extractIndexQuery(queryPredicate, indexQuery);
+        extractIndexQuery(queryPredicate, indexQuery, true);
         return indexQuery.needed() ? indexQuery : null;
     }
 
-    private static void extractIndexQuery(final FixMessagePredicate predicate, final IndexQuery indexQuery)
+    private static void extractIndexQuery(
+        final FixMessagePredicate predicate, final IndexQuery indexQuery, final boolean conjunction)
     {
         // NB: range returned by the index plan still needs filtering afterwards to ensure correctness
         if (predicate instanceof CompositeFixMessagePredicate)
         {
             final CompositeFixMessagePredicate and = (CompositeFixMessagePredicate)predicate;
-            extractIndexQuery(and.left(), indexQuery);
-            extractIndexQuery(and.right(), indexQuery);
+            final boolean childConjunction = conjunction && predicate instanceof FixMessageAnd;
+            extractIndexQuery(and.left(), indexQuery, childConjunction);
+            extractIndexQuery(and.right(), indexQuery, childConjunction);
         }
         else if (predicate instanceof From)
         {
@@ -59,5 +162,16 @@ final class ArchiveScanPlanner
             final To to = (To)predicate;
             indexQuery.to(to.endTimestampExclusive());
         }
+        // Session and message type constraints are only narrowed through ands, an or could match other values.
+        else if (conjunction && predicate instanceof SessionOf)
+        {
+            final LongHashSet sessionIds = new LongHashSet();
+            sessionIds.add(((SessionOf)predicate).sessionId());
+            indexQuery.sessionIds(sessionIds);
+        }
+        else if (conjunction && predicate instanceof MessageTypeOf)
+        {
+            indexQuery.messageTypes(((MessageTypeOf)predicate).messageTypes());
+        }
     }
 }
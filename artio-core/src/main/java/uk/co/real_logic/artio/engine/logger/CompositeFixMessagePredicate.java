@@ -44,48 +44,48 @@ abstract class CompositeFixMessagePredicate implements FixMessagePredicate
     {
         return right;
     }
-}
-
-class FixMessageAnd extends CompositeFixMessagePredicate
-{
-    FixMessageAnd(final FixMessagePredicate left, final FixMessagePredicate right)
-    {
-        super(left, right);
-    }
 
-    public boolean test(final FixMessageDecoder message)
+    static final class FixMessageAnd extends CompositeFixMessagePredicate
     {
-        final int limit = message.limit();
-
-        if (!left.test(message))
+        FixMessageAnd(final FixMessagePredicate left, final FixMessagePredicate right)
         {
-            return false;
+            super(left, right);
         }
 
-        message.limit(limit);
+        public boolean test(final FixMessageDecoder message)
+        {
+            final int limit = message.limit();
 
-        return right.test(message);
-    }
-}
+            if (!left.test(message))
+            {
+                return false;
+            }
 
-class FixMessageOr extends CompositeFixMessagePredicate
-{
-    FixMessageOr(final FixMessagePredicate left, final FixMessagePredicate right)
-    {
-        super(left, right);
+            message.limit(limit);
+
+            return right.test(message);
+        }
     }
 
-    public boolean test(final FixMessageDecoder message)
+    static final class FixMessageOr extends CompositeFixMessagePredicate
     {
-        final int limit = message.limit();
-
-        if (left.test(message))
+        FixMessageOr(final FixMessagePredicate left, final FixMessagePredicate right)
         {
-            return true;
+            super(left, right);
         }
 
-        message.limit(limit);
+        public boolean test(final FixMessageDecoder message)
+        {
+            final int limit = message.limit();
+
+            if (left.test(message))
+            {
+                return true;
+            }
 
-        return right.test(message);
+            message.limit(limit);
+
+            return right.test(message);
+        }
     }
 }
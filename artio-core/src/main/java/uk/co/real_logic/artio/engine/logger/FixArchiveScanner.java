@@ -37,6 +37,8 @@ public class FixArchiveScanner implements AutoCloseable
 {
     public static final String DEFAULT_ARCHIVE_CONTROL_CHANNEL = "aeron:udp?endpoint=localhost:8010";
     public static final int DEFAULT_FRAGMENT_LIMIT = 10000;
+    public static final int DEFAULT_SCAN_THREADS = 1;
+    public static final long DEFAULT_SCAN_PARTITION_SIZE = 64 * 1024 * 1024;
 
     static final boolean DEBUG_LOG_ARCHIVE_SCAN = DebugLogger.isEnabled(ARCHIVE_SCAN);
 
@@ -47,9 +49,12 @@ public class FixArchiveScanner implements AutoCloseable
         private IdleStrategy idleStrategy;
         private int compactionSize = DEFAULT_COMPACTION_SIZE;
         public int maximumBufferSize = DEFAULT_MAXIMUM_BUFFER_SIZE;
+        private long largeMaximumBufferSize = NO_LARGE_MAXIMUM_BUFFER_SIZE;
         private String logFileDir;
         private boolean enableIndexScan;
         private AeronArchive.Context archiveContext;
+        private int scanThreads = DEFAULT_SCAN_THREADS;
+        private long scanPartitionSize = DEFAULT_SCAN_PARTITION_SIZE;
 
         public Configuration()
         {
@@ -108,6 +113,7 @@ public class FixArchiveScanner implements AutoCloseable
             validateMaximumBufferSize(maximumBufferSize);
 
             this.maximumBufferSize = maximumBufferSize;
+            this.largeMaximumBufferSize = NO_LARGE_MAXIMUM_BUFFER_SIZE;
             return this;
         }
 
@@ -116,6 +122,30 @@ public class FixArchiveScanner implements AutoCloseable
             return maximumBufferSize;
         }
 
+        /**
+         * See {@link uk.co.real_logic.artio.engine.logger.FixMessageLogger.Configuration#largeMaximumBufferSize(long)}.
+         *
+         * @param largeMaximumBufferSize the maximum reorder buffer size in bytes
+         * @return this
+         */
+        public Configuration largeMaximumBufferSize(final long largeMaximumBufferSize)
+        {
+            validateLargeMaximumBufferSize(largeMaximumBufferSize);
+
+            this.largeMaximumBufferSize = largeMaximumBufferSize;
+            return this;
+        }
+
+        /**
+         * See {@link uk.co.real_logic.artio.engine.logger.FixMessageLogger.Configuration#largeMaximumBufferSize()}.
+         *
+         * @return the maximum reorder buffer size in bytes
+         */
+        public long largeMaximumBufferSize()
+        {
+            return FixMessageLogger.Configuration.largeMaximumBufferSize(maximumBufferSize, largeMaximumBufferSize);
+        }
+
         /**
          * Sets the fragment limit for polling different images when archive scanning.
          *
@@ -136,7 +166,10 @@ public class FixArchiveScanner implements AutoCloseable
         /**
          * Sets the logFileDir used by your {@link EngineConfiguration}. This configuration option isn't required, it
          * allows faster FixArchiveScanner operations for predicates where you're searching by time by using the
-         * {@link FixMessagePredicates#to(long)} or {@link FixMessagePredicates#from(long)} predicates.
+         * {@link FixMessagePredicates#to(long)} or {@link FixMessagePredicates#from(long)} predicates. If
+         * {@link EngineConfiguration#sessionMessageTypeIndexEnabled(boolean)} is enabled then predicates searching by
+         * {@link FixMessagePredicates#sessionOf(long)} or {@link FixMessagePredicates#messageTypeOf(String...)} are
+         * also faster.
          * Setting this configuration option automatically enables index scanning.
          *
          * @param logFileDir the logFileDir configured in your {@link EngineConfiguration}.
@@ -157,7 +190,7 @@ public class FixArchiveScanner implements AutoCloseable
         /**
          * Enables or disables index scanning. If set to true, a {@link #logFileDir(String)} is required.
          *
-         * @param enableIndexScan true to enable time based index scanning, false otherwise.
+         * @param enableIndexScan true to enable index scanning, false otherwise.
          * @return this
          */
         public Configuration enableIndexScan(final boolean enableIndexScan)
@@ -186,6 +219,66 @@ public class FixArchiveScanner implements AutoCloseable
             return this;
         }
 
+        /**
+         * Sets the number of threads used to replay the archive. When more than one thread is configured each
+         * recording is partitioned at the boundaries of its time index and the partitions are replayed in parallel,
+         * before being merged back in order on the thread calling scan. The messages handed to your
+         * {@link FixMessageConsumer} are the same as with a single thread. Time, session id and message type
+         * predicates from {@link FixMessagePredicates} that are joined by and() are tested on the replaying threads,
+         * so your other predicates only see the messages that pass them. Your own consumers and predicates are only
+         * ever invoked on the scanning thread. Scans that follow the archive always use a single thread.
+         *
+         * Parallel scans require a {@link #logFileDir(String)} in order to find the time index. Each thread uses
+         * an Aeron Archive replay, so the number of threads should be less than the archive's maximum number of
+         * concurrent replays.
+         *
+         * @param scanThreads the number of threads used to replay the archive.
+         * @return this
+         */
+        public Configuration scanThreads(final int scanThreads)
+        {
+            if (scanThreads < 1)
+            {
+                throw new IllegalArgumentException("scanThreads must be at least 1, but is: " + scanThreads);
+            }
+
+            this.scanThreads = scanThreads;
+            return this;
+        }
+
+        public int scanThreads()
+        {
+            return scanThreads;
+        }
+
+        /**
+         * Sets the size that a parallel scan aims to partition recordings into. A partition is replayed into memory
+         * in full before it is merged and up to two partitions per scan thread can be held at once. Partitions can
+         * only be split at the boundaries recorded by the time index, so they can be larger than this size if the
+         * index is sparse. A recording location that would need a partition of more than four times this size, eg:
+         * because it has no time index, isn't buffered and is instead streamed by the scanning thread as it would be
+         * by a single threaded scan.
+         *
+         * @param scanPartitionSize the size of a partition in bytes.
+         * @return this
+         */
+        public Configuration scanPartitionSize(final long scanPartitionSize)
+        {
+            if (scanPartitionSize <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "scanPartitionSize must be positive, but is: " + scanPartitionSize);
+            }
+
+            this.scanPartitionSize = scanPartitionSize;
+            return this;
+        }
+
+        public long scanPartitionSize()
+        {
+            return scanPartitionSize;
+        }
+
         private void conclude()
         {
             if (enableIndexScan && logFileDir == null)
@@ -193,7 +286,12 @@ public class FixArchiveScanner implements AutoCloseable
                 throw new IllegalArgumentException("Please configure a logFileDir if you want to enable index scan");
             }
 
-            validateMaxAndCompactionSize(maximumBufferSize, compactionSize);
+            if (scanThreads > 1 && logFileDir == null)
+            {
+                throw new IllegalArgumentException("Please configure a logFileDir if you want to scan in parallel");
+            }
+
+            validateMaxAndCompactionSize(largeMaximumBufferSize(), compactionSize);
         }
     }
 
@@ -226,11 +324,14 @@ public class FixArchiveScanner implements AutoCloseable
         agent = new FixArchiveScanningAgent(
             idleStrategy,
             configuration.compactionSize,
-            configuration.maximumBufferSize,
+            configuration.largeMaximumBufferSize(),
             configuration.fragmentLimit,
             logFileDir,
             aeron,
-            aeronArchive);
+            aeronArchive,
+            configuration.scanThreads,
+            configuration.scanPartitionSize,
+            configuration.logFileDir());
     }
 
     public void scan(
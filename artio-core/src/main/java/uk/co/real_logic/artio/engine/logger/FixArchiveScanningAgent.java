@@ -25,8 +25,10 @@ import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.fixp.FixPMessageConsumer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
 import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
@@ -40,15 +42,21 @@ public class FixArchiveScanningAgent implements AutoCloseable
     private final AeronArchive aeronArchive;
     private final IdleStrategy idleStrategy;
     private final int compactionSize;
-    private final int maximumBufferSize;
+    private final long maximumBufferSize;
     private final int fragmentLimit;
     private final String logFileDir;
+    private final int scanThreads;
+    private final long scanPartitionSize;
+    private final String timeIndexDir;
 
     private final Long2ObjectHashMap<TimeIndexReader> streamIdToInboundTimeIndex = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<SessionMessageTypeIndexReader> streamIdToSessionMessageTypeIndex =
+        new Long2ObjectHashMap<>();
 
     private StreamTimestampZipper timestampZipper;
     private Subscription replaySubscription;
-    private RecordingPoller[] pollers;
+    private StreamTimestampZipper.Poller[] pollers;
+    private ParallelArchiveScan parallelScan;
     private boolean follow;
 
     public FixArchiveScanningAgent(
@@ -59,6 +67,22 @@ public class FixArchiveScanningAgent implements AutoCloseable
         final String logFileDir,
         final Aeron aeron,
         final AeronArchive aeronArchive)
+    {
+        this(idleStrategy, compactionSize, maximumBufferSize, fragmentLimit, logFileDir, aeron, aeronArchive,
+            1, 0, null);
+    }
+
+    public FixArchiveScanningAgent(
+        final IdleStrategy idleStrategy,
+        final int compactionSize,
+        final long maximumBufferSize,
+        final int fragmentLimit,
+        final String logFileDir,
+        final Aeron aeron,
+        final AeronArchive aeronArchive,
+        final int scanThreads,
+        final long scanPartitionSize,
+        final String timeIndexDir)
     {
         this.idleStrategy = idleStrategy;
         this.compactionSize = compactionSize;
@@ -67,6 +91,9 @@ public class FixArchiveScanningAgent implements AutoCloseable
         this.aeron = aeron;
         this.aeronArchive = aeronArchive;
         this.logFileDir = logFileDir;
+        this.scanThreads = scanThreads;
+        this.scanPartitionSize = scanPartitionSize;
+        this.timeIndexDir = timeIndexDir;
     }
 
     public void setup(
@@ -77,26 +104,58 @@ public class FixArchiveScanningAgent implements AutoCloseable
         final boolean follow,
         final int archiveScannerStreamId)
     {
+        // A previous scan could have been abandoned part way through by an exception
+        closeParallelScan();
+
         if (fixHandler != null)
         {
             fixHandler.reset();
         }
 
+        final IndexQuery indexQuery = planIndexQueryIfPossible(fixHandler, follow, queryStreamIds);
         final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange =
-            scanIndexIfPossible(fixHandler, follow, queryStreamIds);
+            scanTimeIndexIfPossible(indexQuery, queryStreamIds);
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges =
+            scanSessionMessageTypeIndexIfPossible(indexQuery, fixPHandler, queryStreamIds);
 
         this.follow = follow;
         replaySubscription = aeron.addSubscription(IPC_CHANNEL, archiveScannerStreamId);
+        FixMessageConsumer scanningFixHandler = fixHandler;
+        // Following a recording means scanning its live tail, which can't be partitioned up front
+        if (scanThreads > 1 && !follow)
+        {
+            // The workers test the stateless predicates, leaving the rest of the query for the scanning thread
+            scanningFixHandler = ArchiveScanPlanner.removeStatelessPredicate(fixHandler);
+            parallelScan = new ParallelArchiveScan(
+                aeronArchive,
+                replaySubscription,
+                fragmentLimit,
+                fixHandler instanceof ReproductionFixProtocolConsumer,
+                ArchiveScanPlanner.extractStatelessPredicate(fixHandler),
+                scanThreads,
+                scanPartitionSize,
+                timeIndexDir);
+        }
         pollers = makeRecordingPollers(
-            aeronChannel, queryStreamIds, follow, recordingIdToPositionRange, replaySubscription);
+            aeronChannel,
+            queryStreamIds,
+            follow,
+            recordingIdToPositionRange,
+            recordingIdToPositionRanges,
+            replaySubscription);
 
         if (DEBUG_LOG_ARCHIVE_SCAN)
         {
             DebugLogger.log(ARCHIVE_SCAN, "Pollers: %s", pollers);
         }
 
+        if (parallelScan != null)
+        {
+            parallelScan.start();
+        }
+
         timestampZipper = new StreamTimestampZipper(
-            fixHandler, fixPHandler, compactionSize, maximumBufferSize, !follow, pollers);
+            scanningFixHandler, fixPHandler, compactionSize, maximumBufferSize, !follow, pollers);
     }
 
     public boolean poll(final int fragmentLimit)
@@ -108,6 +167,7 @@ public class FixArchiveScanningAgent implements AutoCloseable
         {
             if (checkCompletion(pollers))
             {
+                closeParallelScan();
                 Exceptions.closeAll(timestampZipper, replaySubscription);
 
                 return true;
@@ -117,28 +177,44 @@ public class FixArchiveScanningAgent implements AutoCloseable
         return false;
     }
 
-    private RecordingPoller[] makeRecordingPollers(
+    private StreamTimestampZipper.Poller[] makeRecordingPollers(
         final String aeronChannel,
         final IntHashSet queryStreamIds,
         final boolean follow,
         final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange,
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges,
         final Subscription replaySubscription)
     {
         return queryStreamIds
             .stream()
             .flatMap(id ->
                 lookupArchiveLocations(
-                    id, follow, aeronChannel, recordingIdToPositionRange)
+                    id, follow, aeronChannel, recordingIdToPositionRange, recordingIdToPositionRanges)
                     .stream()
                     // filter out empty streams as
                     // 1) they are empty - we don't need to poll them
                     // 2) we use empty length later within polling as a test for polling being finished
-                    .filter(archiveLocation -> archiveLocation.length() != 0L)
-                    .map(archiveLocation -> new RecordingPoller(replaySubscription, id, archiveLocation)))
-            .toArray(RecordingPoller[]::new);
+                    .map(archiveLocations -> archiveLocations
+                        .stream()
+                        .filter(archiveLocation -> archiveLocation.length() != 0L)
+                        .collect(Collectors.toList()))
+                    .filter(archiveLocations -> !archiveLocations.isEmpty())
+                    .map(archiveLocations -> newPoller(replaySubscription, id, archiveLocations)))
+            .toArray(StreamTimestampZipper.Poller[]::new);
     }
 
-    private Long2ObjectHashMap<PositionRange> scanIndexIfPossible(
+    private StreamTimestampZipper.Poller newPoller(
+        final Subscription replaySubscription, final int streamId, final List<ArchiveLocation> archiveLocations)
+    {
+        if (parallelScan == null)
+        {
+            return new RecordingPoller(replaySubscription, streamId, archiveLocations);
+        }
+
+        return parallelScan.newPoller(streamId, archiveLocations);
+    }
+
+    private IndexQuery planIndexQueryIfPossible(
         final FixMessageConsumer fixHandler, final boolean follow, final IntHashSet queryStreamIds)
     {
         if (DEBUG_LOG_ARCHIVE_SCAN)
@@ -170,44 +246,83 @@ public class FixArchiveScanningAgent implements AutoCloseable
                 DebugLogger.log(ARCHIVE_SCAN, "indexQuery = " + indexQuery);
             }
 
-            if (indexQuery == null)
+            return indexQuery;
+        }
+        catch (final IllegalArgumentException e)
+        {
+            // Unable to create query plan
+            return null;
+        }
+    }
+
+    private Long2ObjectHashMap<PositionRange> scanTimeIndexIfPossible(
+        final IndexQuery indexQuery, final IntHashSet queryStreamIds)
+    {
+        if (indexQuery == null || !indexQuery.hasTimeRange())
+        {
+            return null;
+        }
+
+        final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange = new Long2ObjectHashMap<>();
+        for (final int streamId : queryStreamIds)
+        {
+            TimeIndexReader reader = streamIdToInboundTimeIndex.get(streamId);
+            if (reader == null)
             {
-                return null;
+                reader = new TimeIndexReader(logFileDir, streamId);
+                streamIdToInboundTimeIndex.put(streamId, reader);
             }
 
-            final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange = new Long2ObjectHashMap<>();
-            for (final int streamId : queryStreamIds)
+            if (!reader.findPositionRange(indexQuery, recordingIdToPositionRange))
             {
-                TimeIndexReader reader = streamIdToInboundTimeIndex.get(streamId);
-                if (reader == null)
-                {
-                    reader = new TimeIndexReader(logFileDir, streamId);
-                    streamIdToInboundTimeIndex.put(streamId, reader);
-                }
-
-                if (!reader.findPositionRange(indexQuery, recordingIdToPositionRange))
-                {
-                    return null;
-                }
+                return null;
             }
+        }
 
-            if (DEBUG_LOG_ARCHIVE_SCAN)
+        if (DEBUG_LOG_ARCHIVE_SCAN)
+        {
+            DebugLogger.log(ARCHIVE_SCAN, "recordingIdToPositionRange = " + recordingIdToPositionRange);
+        }
+
+        return recordingIdToPositionRange;
+    }
+
+    private Long2ObjectHashMap<List<PositionRange>> scanSessionMessageTypeIndexIfPossible(
+        final IndexQuery indexQuery, final FixPMessageConsumer fixPHandler, final IntHashSet queryStreamIds)
+    {
+        // The index only covers FIX messages, FIXP messages could be anywhere in the recording
+        if (indexQuery == null || !indexQuery.hasSessionOrMessageType() || fixPHandler != null)
+        {
+            return null;
+        }
+
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges = new Long2ObjectHashMap<>();
+        for (final int streamId : queryStreamIds)
+        {
+            SessionMessageTypeIndexReader reader = streamIdToSessionMessageTypeIndex.get(streamId);
+            if (reader == null)
             {
-                DebugLogger.log(ARCHIVE_SCAN, "recordingIdToPositionRange = " + recordingIdToPositionRange);
+                reader = new SessionMessageTypeIndexReader(logFileDir, streamId);
+                streamIdToSessionMessageTypeIndex.put(streamId, reader);
             }
 
-            return recordingIdToPositionRange;
+            if (!reader.findPositionRanges(indexQuery, recordingIdToPositionRanges))
+            {
+                return null;
+            }
         }
-        catch (final IllegalArgumentException e)
+
+        if (DEBUG_LOG_ARCHIVE_SCAN)
         {
-            // Unable to create query plan
-            return null;
+            DebugLogger.log(ARCHIVE_SCAN, "recordingIdToPositionRanges = " + recordingIdToPositionRanges);
         }
+
+        return recordingIdToPositionRanges;
     }
 
-    private boolean checkCompletion(final RecordingPoller[] pollers)
+    private boolean checkCompletion(final StreamTimestampZipper.Poller[] pollers)
     {
-        for (final RecordingPoller poller : pollers)
+        for (final StreamTimestampZipper.Poller poller : pollers)
         {
             if (!poller.isComplete())
             {
@@ -218,16 +333,27 @@ public class FixArchiveScanningAgent implements AutoCloseable
         return true;
     }
 
+    private void closeParallelScan()
+    {
+        if (parallelScan != null)
+        {
+            parallelScan.close();
+            parallelScan = null;
+        }
+    }
+
     public void close()
     {
+        closeParallelScan();
         aeronArchive.close();
     }
 
-    private List<ArchiveLocation> lookupArchiveLocations(
+    private List<List<ArchiveLocation>> lookupArchiveLocations(
         final int queryStreamId,
         final boolean follow,
         final String aeronChannel,
-        final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange)
+        final Long2ObjectHashMap<PositionRange> recordingIdToPositionRange,
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges)
     {
         final List<ArchiveLocation> archiveLocations = new ArrayList<>();
 
@@ -290,7 +416,39 @@ public class FixArchiveScanningAgent implements AutoCloseable
             }
         }
 
-        return archiveLocations;
+        final List<List<ArchiveLocation>> recordingLocations = new ArrayList<>();
+        for (final ArchiveLocation location : archiveLocations)
+        {
+            final List<PositionRange> positionRanges = recordingIdToPositionRanges == null ?
+                null : recordingIdToPositionRanges.get(location.recordingId);
+            if (positionRanges == null)
+            {
+                recordingLocations.add(Collections.singletonList(location));
+            }
+            else
+            {
+                recordingLocations.add(splitByPositionRanges(location, positionRanges));
+            }
+        }
+
+        return recordingLocations;
+    }
+
+    // Only replay the parts of the recording that the session and message type index says could match
+    private static List<ArchiveLocation> splitByPositionRanges(
+        final ArchiveLocation location, final List<PositionRange> positionRanges)
+    {
+        final List<ArchiveLocation> locations = new ArrayList<>();
+        for (final PositionRange positionRange : positionRanges)
+        {
+            final long startPosition = Math.max(location.startPosition, positionRange.startPosition());
+            final long stopPosition = Math.min(location.stopPosition, positionRange.endPosition());
+            if (startPosition < stopPosition)
+            {
+                locations.add(new ArchiveLocation(location.recordingId, startPosition, stopPosition));
+            }
+        }
+        return locations;
     }
 
     static class ArchiveLocation
@@ -333,35 +491,38 @@ public class FixArchiveScanningAgent implements AutoCloseable
         private final Subscription replaySubscription;
         private final int originalStreamId;
 
-        private ArchiveLocation archiveLocation;
+        private final List<ArchiveLocation> archiveLocations;
 
+        private int archiveLocationIndex = 0;
         long stopPosition;
         Image image;
 
         RecordingPoller(
             final Subscription replaySubscription,
             final int originalStreamId,
-            final ArchiveLocation archiveLocation)
+            final List<ArchiveLocation> archiveLocations)
         {
             this.replaySubscription = replaySubscription;
             this.originalStreamId = originalStreamId;
-            this.archiveLocation = archiveLocation;
+            this.archiveLocations = archiveLocations;
         }
 
         public boolean isComplete()
         {
-            return stopPosition != NULL_POSITION && image == null && archiveLocation == null;
+            return stopPosition != NULL_POSITION && image == null &&
+                archiveLocationIndex >= archiveLocations.size();
         }
 
         public int poll(final FragmentAssembler fragmentAssembler, final int fragmentLimit)
         {
             if (image == null)
             {
-                if (archiveLocation == null)
+                if (archiveLocationIndex >= archiveLocations.size())
                 {
                     return 0;
                 }
 
+                final ArchiveLocation archiveLocation = archiveLocations.get(archiveLocationIndex);
                 if (archiveLocation.length() != 0)
                 {
                     final int sessionId = (int)aeronArchive.startReplay(
@@ -373,7 +534,7 @@ public class FixArchiveScanningAgent implements AutoCloseable
 
                     image = lookupImage(sessionId);
                     stopPosition = archiveLocation.stopPosition;
-                    archiveLocation = null;
+                    archiveLocationIndex++;
                 }
 
                 return 1;
@@ -419,7 +580,7 @@ public class FixArchiveScanningAgent implements AutoCloseable
         public String toString()
         {
             return "RecordingPoller{" +
-                "archiveLocations=" + archiveLocation +
+                "archiveLocations=" + archiveLocations +
                 ", replaySubscription=" + replaySubscription +
                 ", originalStreamId=" + originalStreamId +
                 ", stopPosition=" + stopPosition +
@@ -50,7 +50,9 @@ public class FixMessageLogger implements Agent
     {
         public static final int DEFAULT_COMPACTION_SIZE = 256 * 1024 * 1024;
         public static final int MAXIMUM_MAXIMUM_BUFFER_SIZE = ExpandableArrayBuffer.MAX_ARRAY_LENGTH - 1;
+        public static final long MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE = 1L << 40;
         public static final int DEFAULT_MAXIMUM_BUFFER_SIZE = ExpandableArrayBuffer.MAX_ARRAY_LENGTH / 2;
+        static final long NO_LARGE_MAXIMUM_BUFFER_SIZE = 0;
 
         private FixMessageConsumer fixMessageConsumer;
         private Aeron.Context context;
@@ -62,6 +64,7 @@ public class FixMessageLogger implements Agent
         private int outboundReplayStreamId = DEFAULT_OUTBOUND_REPLAY_STREAM;
         private int compactionSize = DEFAULT_COMPACTION_SIZE;
         public int maximumBufferSize = DEFAULT_MAXIMUM_BUFFER_SIZE;
+        private long largeMaximumBufferSize = NO_LARGE_MAXIMUM_BUFFER_SIZE;
         private FixPMessageConsumer fixPMessageConsumer;
 
         /**
@@ -207,9 +210,9 @@ public class FixMessageLogger implements Agent
 
         /**
          * Provide the compaction size to within the reorder buffer. The FixMessageLogger re-orders its messages
-         * internally in order to hand them off the consumer in timestamp order. A larger compaction size allows it's
-         * internal reorder buffer to grow larger before compaction is attempted. A larger compaction size results in
-         * less compaction and thus less CPU usage at the cost of more memory being consumed.
+         * internally in order to hand them off the consumer in timestamp order. The reorder buffer is allocated
+         * off-heap in segments of the compaction size and a segment is reused once all of its messages have been
+         * handed off. A larger compaction size results in fewer allocations at the cost of more memory being consumed.
          *
          * @param compactionSize the compaction size to within the reorder buffer.
          * @return this
@@ -224,24 +227,59 @@ public class FixMessageLogger implements Agent
 
         /**
          * Sets the maximum size that the internal reorder buffer can grow to. If this is exceeded then all the
-         * messages within the reorder buffer are simply dumped out in their current order.
+         * messages within the reorder buffer are simply dumped out in timestamp order.
          *
          * @param maximumBufferSize the maximum reorder buffer size in bytes
          * @return this
+         * @see #largeMaximumBufferSize(long)
          */
         public Configuration maximumBufferSize(final int maximumBufferSize)
         {
             validateMaximumBufferSize(maximumBufferSize);
 
             this.maximumBufferSize = maximumBufferSize;
+            this.largeMaximumBufferSize = NO_LARGE_MAXIMUM_BUFFER_SIZE;
             return this;
         }
 
+        /**
+         * Sets the maximum size that the internal reorder buffer can grow to, like {@link #maximumBufferSize(int)}.
+         * The reorder buffer is held off-heap so this can be larger than the maximum size of a Java array, up to
+         * {@link #MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE}. This takes precedence over the int maximum buffer size until
+         * {@link #maximumBufferSize(int)} is called again.
+         *
+         * @param largeMaximumBufferSize the maximum reorder buffer size in bytes
+         * @return this
+         */
+        public Configuration largeMaximumBufferSize(final long largeMaximumBufferSize)
+        {
+            validateLargeMaximumBufferSize(largeMaximumBufferSize);
+
+            this.largeMaximumBufferSize = largeMaximumBufferSize;
+            return this;
+        }
+
+        /**
+         * Gets the maximum size that the internal reorder buffer can grow to, whichever of
+         * {@link #maximumBufferSize(int)} or {@link #largeMaximumBufferSize(long)} configured it.
+         *
+         * @return the maximum reorder buffer size in bytes
+         */
+        public long largeMaximumBufferSize()
+        {
+            return largeMaximumBufferSize(maximumBufferSize, largeMaximumBufferSize);
+        }
+
+        static long largeMaximumBufferSize(final int maximumBufferSize, final long largeMaximumBufferSize)
+        {
+            return largeMaximumBufferSize == NO_LARGE_MAXIMUM_BUFFER_SIZE ? maximumBufferSize : largeMaximumBufferSize;
+        }
+
         void conclude()
         {
             Verify.notNull(fixMessageConsumer, "fixMessageConsumer");
 
-            validateMaxAndCompactionSize(maximumBufferSize, compactionSize);
+            validateMaxAndCompactionSize(largeMaximumBufferSize(), compactionSize);
 
             if (aeron == null)
             {
@@ -255,6 +293,11 @@ public class FixMessageLogger implements Agent
         }
 
         public static void validateMaxAndCompactionSize(final int maximumBufferSize, final int compactionSize)
+        {
+            validateMaxAndCompactionSize((long)maximumBufferSize, compactionSize);
+        }
+
+        public static void validateMaxAndCompactionSize(final long maximumBufferSize, final int compactionSize)
         {
             if (maximumBufferSize < compactionSize)
             {
@@ -278,6 +321,21 @@ public class FixMessageLogger implements Agent
             }
         }
 
+        public static void validateLargeMaximumBufferSize(final long largeMaximumBufferSize)
+        {
+            if (largeMaximumBufferSize <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "largeMaximumBufferSize must be positive, but is: " + largeMaximumBufferSize);
+            }
+
+            if (largeMaximumBufferSize > MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE)
+            {
+                throw new IllegalArgumentException("largeMaximumBufferSize must be <= " +
+                    MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE + ", but is: " + largeMaximumBufferSize);
+            }
+        }
+
         public static void validateCompactionSize(final int compactionSize)
         {
             if (compactionSize <= 0)
@@ -374,7 +432,7 @@ public class FixMessageLogger implements Agent
             configuration.fixMessageConsumer,
             configuration.fixPMessageConsumer,
             configuration.compactionSize,
-            configuration.maximumBufferSize, false,
+            configuration.largeMaximumBufferSize(), false,
             pollers);
     }
 
@@ -412,12 +470,12 @@ public class FixMessageLogger implements Agent
         return "FixMessageLogger";
     }
 
-    int bufferPosition()
+    long bufferPosition()
     {
         return zipper.bufferPosition();
     }
 
-    int bufferCapacity()
+    long bufferCapacity()
     {
         return zipper.bufferCapacity();
     }
@@ -38,11 +38,11 @@ public interface FixMessagePredicate
 
     default FixMessagePredicate and(final FixMessagePredicate other)
     {
-        return new FixMessageAnd(this, other);
+        return new CompositeFixMessagePredicate.FixMessageAnd(this, other);
     }
 
     default FixMessagePredicate or(final FixMessagePredicate other)
     {
-        return new FixMessageOr(this, other);
+        return new CompositeFixMessagePredicate.FixMessageOr(this, other);
     }
 }
@@ -21,6 +21,7 @@ import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntHashSet;
 import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.EpochNanoClock;
 import org.agrona.concurrent.IdleStrategy;
@@ -49,6 +50,7 @@ import static uk.co.real_logic.artio.engine.framer.SenderEndPoint.NOT_LAST_REPLA
 import static uk.co.real_logic.artio.engine.logger.Replayer.MESSAGE_FRAME_BLOCK_LENGTH;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataHeaderLength;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataSinceVersion;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.FIX_MESSAGE_VERSION;
 
 class FixReplayerSession extends ReplayerSession
 {
@@ -109,7 +111,8 @@ class FixReplayerSession extends ReplayerSession
         final int maxBytesInBuffer,
         final UtcTimestampEncoder utcTimestampEncoder,
         final Replayer replayer,
-        final FixThrottleRejectBuilder throttleRejectBuilder)
+        final FixThrottleRejectBuilder throttleRejectBuilder,
+        final IntHashSet headerFieldTags)
     {
         super(connectionId, correlationId, bufferClaim, idleStrategy, maxClaimAttempts, publication, replayQuery,
             beginSeqNo, endSeqNo,
@@ -134,7 +137,8 @@ class FixReplayerSession extends ReplayerSession
             this::onIllegalState,
             this::onException,
             clock,
-            publication.maxPayloadLength());
+            publication.maxPayloadLength(),
+            headerFieldTags);
 
         state = State.REPLAYING;
     }
@@ -179,7 +183,7 @@ class FixReplayerSession extends ReplayerSession
         {
             case FixMessageDecoder.TEMPLATE_ID:
             {
-                return onFixMessage(srcBuffer, srcOffset, srcLength, actingBlockLength, offset, version);
+                return onFixMessage(srcBuffer, srcOffset, srcLength, actingBlockLength, offset, version, header);
             }
 
             case ThrottleRejectDecoder.TEMPLATE_ID:
@@ -197,7 +201,8 @@ class FixReplayerSession extends ReplayerSession
         final int srcLength,
         final int actingBlockLength,
         final int offset,
-        final int version)
+        final int version,
+        final Header header)
     {
         FIX_MESSAGE.wrap(
             srcBuffer,
@@ -254,8 +259,10 @@ class FixReplayerSession extends ReplayerSession
                 }
 
                 headerSeqNum = msgSeqNum == endSeqNo ? msgSeqNum : NOT_LAST_REPLAY_MSG;
+                final int headerOffsets = replayOperation.headerOffsets(header.position());
                 final Action action = possDupEnabler.enablePossDupFlag(
-                    srcBuffer, messageOffset, messageLength, srcOffset, srcLength, metaDataAdjustment, messageType);
+                    srcBuffer, messageOffset, messageLength, srcOffset, srcLength, metaDataAdjustment, messageType,
+                    headerOffsets);
                 if (action != ABORT)
                 {
                     lastSeqNo = msgSeqNum;
@@ -363,6 +370,7 @@ class FixReplayerSession extends ReplayerSession
                 .messageType(messageType)
                 .putMetaData(NO_BYTES, 0, 0)
                 .putBody(fixBuffer, fixOffset, fixLength);
+            replayer.messageHeaderEncoder.version(FIX_MESSAGE_VERSION);
 
             bufferClaim.commit();
 
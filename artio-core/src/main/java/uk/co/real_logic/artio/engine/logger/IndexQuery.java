@@ -15,6 +15,8 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
+import org.agrona.collections.LongHashSet;
+
 class IndexQuery
 {
     static final long NO_BEGIN = Long.MIN_VALUE;
@@ -23,6 +25,10 @@ class IndexQuery
     private long beginTimestampInclusive = Long.MIN_VALUE;
     private long endTimestampExclusive = Long.MAX_VALUE;
 
+    // null means that there's no constraint
+    private LongHashSet sessionIds;
+    private LongHashSet messageTypes;
+
     void from(final long beginTimestampInclusive)
     {
         final long existingBeginTimestampInclusive = this.beginTimestampInclusive;
@@ -43,17 +49,58 @@ class IndexQuery
         }
     }
 
+    void sessionIds(final LongHashSet sessionIds)
+    {
+        this.sessionIds = intersect(this.sessionIds, sessionIds);
+    }
+
+    void messageTypes(final LongHashSet messageTypes)
+    {
+        this.messageTypes = intersect(this.messageTypes, messageTypes);
+    }
+
+    private static LongHashSet intersect(final LongHashSet existing, final LongHashSet values)
+    {
+        if (existing == null)
+        {
+            final LongHashSet copy = new LongHashSet();
+            copy.addAll(values);
+            return copy;
+        }
+
+        existing.retainAll(values);
+        return existing;
+    }
+
     boolean needed()
+    {
+        return hasTimeRange() || hasSessionOrMessageType();
+    }
+
+    boolean hasTimeRange()
     {
         return beginTimestampInclusive != NO_BEGIN ||
             endTimestampExclusive != NO_END;
     }
 
+    boolean hasSessionOrMessageType()
+    {
+        return sessionIds != null || messageTypes != null;
+    }
+
+    boolean matches(final long sessionId, final long messageType)
+    {
+        return (sessionIds == null || sessionIds.contains(sessionId)) &&
+            (messageTypes == null || messageTypes.contains(messageType));
+    }
+
     public String toString()
     {
         return "IndexPlan{" +
             "beginTimestampInclusive=" + beginTimestampInclusive +
             ", endTimestampExclusive=" + endTimestampExclusive +
+            ", sessionIds=" + sessionIds +
+            ", messageTypes=" + messageTypes +
             '}';
     }
 
@@ -78,6 +78,42 @@ class IndexedPositionReader
         }
     }
 
+    /**
+     * Reads the positions that have been indexed for each recording whilst the index is being written on another
+     * thread. A record is only read once its position has been written, so its session and recording ids are
+     * complete.
+     *
+     * @param consumer a callback that receives each session id and position
+     */
+    void readIndexedPositions(final IndexedPositionConsumer consumer)
+    {
+        final IndexedPositionDecoder decoder = this.decoder;
+        final int actingBlockLength = this.actingBlockLength;
+        final int actingVersion = this.actingVersion;
+        final AtomicBuffer buffer = this.buffer;
+
+        int offset = HEADER_LENGTH;
+        while (true)
+        {
+            offset = sectorFramer.claim(offset, RECORD_LENGTH);
+            if (offset == OUT_OF_SPACE)
+            {
+                return;
+            }
+
+            final long position = buffer.getLongVolatile(offset + POSITION_OFFSET);
+            if (position == 0)
+            {
+                return;
+            }
+
+            decoder.wrap(buffer, offset, actingBlockLength, actingVersion);
+            consumer.accept(decoder.sessionId(), decoder.recordingId(), position);
+
+            offset += RECORD_LENGTH;
+        }
+    }
+
     /**
      * Reads the last position that has been indexed.
      *
@@ -46,12 +46,16 @@ class IndexedPositionWriter implements AutoCloseable
     private final int actingVersion = encoder.sbeSchemaVersion();
     private final IndexedPositionDecoder decoder = new IndexedPositionDecoder();
     private final Long2LongHashMap recordOffsets = new Long2LongHashMap(MISSING_RECORD);
-    private final AtomicBuffer buffer;
     private final ErrorHandler errorHandler;
     private final RecordingIdLookup recordingIdLookup;
-    private final ChecksumFramer checksumFramer;
+    private final String fileName;
+    private final boolean indexChecksumEnabled;
     // Iterated repeatedly in a loop, but only modified occasionally
     private final ArrayList<CheckPosition> recheckSessions = new ArrayList<>();
+    // Records are only ever added, so sectors after this haven't changed since their checksums were written
+    private int usedLength = HEADER_LENGTH;
+    private AtomicBuffer buffer;
+    private ChecksumFramer checksumFramer;
 
     IndexedPositionWriter(
         final AtomicBuffer buffer,
@@ -64,12 +68,29 @@ class IndexedPositionWriter implements AutoCloseable
         this.buffer = buffer;
         this.errorHandler = errorHandler;
         this.recordingIdLookup = recordingIdLookup;
+        this.fileName = fileName;
+        this.indexChecksumEnabled = indexChecksumEnabled;
         checksumFramer = new ChecksumFramer(
             buffer, buffer.capacity(), errorHandler, errorReportingOffset, fileName, indexChecksumEnabled);
         setupHeader();
         initialiseOffsets();
     }
 
+    /**
+     * Switch to a larger buffer that the positions have already been copied into at the same offsets, so the
+     * record offsets stay valid. Every sector's checksum is updated as the sectors after the used length are new.
+     *
+     * @param buffer the buffer that the positions have been copied into.
+     * @param errorReportingOffset the offset of the buffer within its file.
+     */
+    void wrap(final AtomicBuffer buffer, final int errorReportingOffset)
+    {
+        this.buffer = buffer;
+        checksumFramer = new ChecksumFramer(
+            buffer, buffer.capacity(), errorHandler, errorReportingOffset, fileName, indexChecksumEnabled);
+        checksumFramer.updateChecksums();
+    }
+
     private void initialiseOffsets()
     {
         int offset = HEADER_LENGTH;
@@ -85,6 +106,7 @@ class IndexedPositionWriter implements AutoCloseable
             if (decoder.position() != 0)
             {
                 recordOffsets.put(decoder.recordingId(), offset);
+                usedLength = offset + RECORD_LENGTH;
             }
             offset += RECORD_LENGTH;
         }
@@ -146,6 +168,7 @@ class IndexedPositionWriter implements AutoCloseable
                         .recordingId(recordingId);
 
                     recordOffsets.put(recordingId, offset);
+                    usedLength = Math.max(usedLength, offset + RECORD_LENGTH);
                     putPosition(position, buffer, offset);
                     return;
                 }
@@ -166,7 +189,12 @@ class IndexedPositionWriter implements AutoCloseable
 
     void updateChecksums()
     {
-        checksumFramer.updateChecksums();
+        checksumFramer.updateChecksums(usedLength);
+    }
+
+    int usedLength()
+    {
+        return usedLength;
     }
 
     AtomicBuffer buffer()
@@ -0,0 +1,720 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.ArchiveException;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.LangUtil;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.ManyToManyConcurrentArrayQueue;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.engine.logger.FixArchiveScanningAgent.ArchiveLocation;
+import uk.co.real_logic.artio.messages.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.CommonContext.IPC_CHANNEL;
+import static io.aeron.logbuffer.FrameDescriptor.*;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.align;
+import static org.agrona.ExpandableArrayBuffer.MAX_ARRAY_LENGTH;
+import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataSinceVersion;
+
+/**
+ * Scans the archive with a pool of worker threads. Each recording that the scan covers is partitioned by position at
+ * the boundaries of its time index and the workers replay those partitions concurrently, reassembling the messages
+ * and copying the ones that the {@link StreamTimestampZipper} uses into a buffer per partition. The workers also
+ * decode each fix message and test it against the stateless predicates of the query, so that messages which the
+ * scanning thread would filter out aren't copied. The partitions of a recording are handed to the zipper on the
+ * scanning thread in position order, so it sees the same messages in the same order that it would if the recording
+ * had been replayed sequentially and then filtered by those predicates.
+ *
+ * A message belongs to the partition that its first fragment is in, a partition that ends part way through a message
+ * finishes it with a second replay and the next partition skips its remaining fragments.
+ *
+ * A partition is buffered in memory in full, so a location that can't be split into partitions of at most
+ * {@link #maxPartitionLength(long)} bytes, eg: because its recording has no time index, is streamed by the scanning
+ * thread instead, in the same way as a sequential scan.
+ */
+final class ParallelArchiveScan implements AutoCloseable
+{
+    private static final int INCOMPLETE = -1;
+    private static final int MAX_PARTITION_LENGTH_IN_PARTITION_SIZES = 4;
+
+    private final AeronArchive aeronArchive;
+    private final Subscription replaySubscription;
+    private final int fragmentLimit;
+    private final boolean scanConnects;
+    private final FixMessagePredicate workerPredicate;
+    private final int maxPartitionsInFlight;
+    private final int maxRetainedBufferCapacity;
+    private final long partitionSize;
+    private final String logFileDir;
+    private final AgentRunner[] runners;
+    private final ManyToManyConcurrentArrayQueue<ExpandableArrayBuffer> freeBuffers;
+    private final List<List<Partition>> recordingPartitions = new ArrayList<>();
+    private final AtomicInteger nextPartition = new AtomicInteger();
+    private final AtomicInteger partitionsInFlight = new AtomicInteger();
+    private final LongArrayList positions = new LongArrayList();
+    private final LongArrayList timestamps = new LongArrayList();
+
+    private Partition[] dispatchOrder;
+    private volatile Throwable failure;
+
+    ParallelArchiveScan(
+        final AeronArchive aeronArchive,
+        final Subscription replaySubscription,
+        final int fragmentLimit,
+        final boolean scanConnects,
+        final FixMessagePredicate workerPredicate,
+        final int threadCount,
+        final long partitionSize,
+        final String logFileDir)
+    {
+        this.aeronArchive = aeronArchive;
+        this.replaySubscription = replaySubscription;
+        this.fragmentLimit = fragmentLimit;
+        this.scanConnects = scanConnects;
+        this.workerPredicate = workerPredicate;
+        this.partitionSize = partitionSize;
+        this.logFileDir = logFileDir;
+
+        // Bounds the memory used by partitions that have been replayed but not yet handed off to the zipper
+        maxPartitionsInFlight = 2 * threadCount;
+        freeBuffers = new ManyToManyConcurrentArrayQueue<>(maxPartitionsInFlight);
+        // A buffer that has grown to hold an oversized partition, eg: one without a time index, isn't pooled
+        maxRetainedBufferCapacity = (int)Math.min(2 * partitionSize, MAX_ARRAY_LENGTH);
+        runners = new AgentRunner[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            runners[i] = new AgentRunner(
+                CommonConfiguration.backoffIdleStrategy(), this::onError, null, new Worker(i));
+        }
+    }
+
+    StreamTimestampZipper.Poller newPoller(final int streamId, final List<ArchiveLocation> archiveLocations)
+    {
+        final TimeIndexReader timeIndexReader = new TimeIndexReader(logFileDir, streamId);
+        final List<Partition> partitions = new ArrayList<>();
+        for (final ArchiveLocation location : archiveLocations)
+        {
+            positions.clear();
+            timestamps.clear();
+            // Without a time index the whole location is a single partition
+            timeIndexReader.readRecords(location.recordingId, positions, timestamps);
+            partition(location, positions, timestamps, partitionSize, partitions);
+        }
+        recordingPartitions.add(partitions);
+
+        return new PartitionPoller(streamId, partitions);
+    }
+
+    /**
+     * Split an archive location into partitions at the positions recorded by its time index. A new partition is
+     * started at the first index boundary that is at least partitionSize bytes after the start of the previous one.
+     * If any of the partitions would be longer than {@link #maxPartitionLength(long)} then the whole location is a
+     * single streamed partition.
+     *
+     * @param location the location to partition.
+     * @param positions the positions recorded by the time index of the location's recording.
+     * @param timestamps the timestamps recorded by the time index of the location's recording.
+     * @param partitionSize the minimum size of a partition in bytes, unless it's the last one of the location.
+     * @param partitions the list to add the partitions to.
+     */
+    static void partition(
+        final ArchiveLocation location,
+        final LongArrayList positions,
+        final LongArrayList timestamps,
+        final long partitionSize,
+        final List<Partition> partitions)
+    {
+        final long recordingId = location.recordingId;
+        final long stopPosition = location.stopPosition;
+        final int firstPartition = partitions.size();
+
+        long startPosition = location.startPosition;
+        long startTimestamp = 0;
+        for (int i = 0, size = positions.size(); i < size; i++)
+        {
+            final long position = positions.getLong(i);
+            if (position <= location.startPosition)
+            {
+                startTimestamp = timestamps.getLong(i);
+            }
+            else if (position >= stopPosition)
+            {
+                break;
+            }
+            else if (position - startPosition >= partitionSize)
+            {
+                partitions.add(
+                    new Partition(recordingId, startPosition, position, stopPosition, startTimestamp, false));
+                startPosition = position;
+                startTimestamp = timestamps.getLong(i);
+            }
+        }
+
+        partitions.add(new Partition(recordingId, startPosition, stopPosition, stopPosition, startTimestamp, false));
+
+        final long maxPartitionLength = maxPartitionLength(partitionSize);
+        for (int i = firstPartition, size = partitions.size(); i < size; i++)
+        {
+            final Partition partition = partitions.get(i);
+            if (partition.stopPosition - partition.startPosition > maxPartitionLength)
+            {
+                final long locationStartTimestamp = partitions.get(firstPartition).startTimestamp;
+                partitions.subList(firstPartition, size).clear();
+                partitions.add(new Partition(
+                    recordingId, location.startPosition, stopPosition, stopPosition, locationStartTimestamp, true));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the length of the longest partition that's buffered in memory rather than streamed.
+     *
+     * @param partitionSize the partition size of the scan.
+     * @return the length of the longest partition that's buffered in memory in bytes.
+     */
+    static long maxPartitionLength(final long partitionSize)
+    {
+        // Copied messages are no longer than the partition, but a buffer can grow to half as much again to hold them
+        return Math.min(MAX_PARTITION_LENGTH_IN_PARTITION_SIZES * partitionSize, MAX_ARRAY_LENGTH / 2);
+    }
+
+    void start()
+    {
+        // Replay partitions in roughly the order that the zipper needs them, whilst keeping the partitions of each
+        // recording in position order so that the zipper can always make progress on the partitions in flight.
+        final List<Partition> dispatchOrder = new ArrayList<>();
+        for (final List<Partition> partitions : recordingPartitions)
+        {
+            long startTimestamp = 0;
+            for (final Partition partition : partitions)
+            {
+                startTimestamp = Math.max(startTimestamp, partition.startTimestamp);
+                partition.startTimestamp = startTimestamp;
+                if (!partition.streamed)
+                {
+                    dispatchOrder.add(partition);
+                }
+            }
+        }
+        dispatchOrder.sort(Comparator.comparingLong(partition -> partition.startTimestamp));
+        this.dispatchOrder = dispatchOrder.toArray(new Partition[0]);
+
+        for (final AgentRunner runner : runners)
+        {
+            AgentRunner.startOnThread(runner);
+        }
+    }
+
+    public void close()
+    {
+        CloseHelper.closeAll(runners);
+    }
+
+    private void onError(final Throwable throwable)
+    {
+        if (failure == null)
+        {
+            failure = throwable;
+        }
+    }
+
+    private static IllegalStateException replayEndedEarly(
+        final Partition partition, final long position, final long stopPosition)
+    {
+        return new IllegalStateException(
+            "Replay ended at position " + position + " before reaching " + stopPosition + " for " + partition);
+    }
+
+    private Partition claimPartition()
+    {
+        int inFlight;
+        do
+        {
+            inFlight = partitionsInFlight.get();
+            if (inFlight >= maxPartitionsInFlight)
+            {
+                return null;
+            }
+        }
+        while (!partitionsInFlight.compareAndSet(inFlight, inFlight + 1));
+
+        final Partition[] dispatchOrder = this.dispatchOrder;
+        final int index = nextPartition.getAndIncrement();
+        if (index >= dispatchOrder.length)
+        {
+            partitionsInFlight.decrementAndGet();
+            return null;
+        }
+
+        return dispatchOrder[index];
+    }
+
+    private void release(final Partition partition)
+    {
+        final ExpandableArrayBuffer buffer = partition.buffer;
+        if (buffer.capacity() <= maxRetainedBufferCapacity)
+        {
+            freeBuffers.offer(buffer);
+        }
+        partition.buffer = null;
+        partitionsInFlight.decrementAndGet();
+    }
+
+    static final class Partition
+    {
+        final long recordingId;
+        final long startPosition;
+        // Messages that begin at or after this position belong to the next partition
+        final long stopPosition;
+        // The end of the archive location, a message that straddles the stopPosition can be finished up to here
+        final long replayStopPosition;
+        // Replayed by the scanning thread rather than buffered by a worker
+        final boolean streamed;
+        long startTimestamp;
+
+        private ExpandableArrayBuffer buffer;
+        private volatile int limit = INCOMPLETE;
+
+        Partition(
+            final long recordingId,
+            final long startPosition,
+            final long stopPosition,
+            final long replayStopPosition,
+            final long startTimestamp,
+            final boolean streamed)
+        {
+            this.recordingId = recordingId;
+            this.startPosition = startPosition;
+            this.stopPosition = stopPosition;
+            this.replayStopPosition = replayStopPosition;
+            this.startTimestamp = startTimestamp;
+            this.streamed = streamed;
+        }
+
+        void complete(final ExpandableArrayBuffer buffer, final int limit)
+        {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        int limit()
+        {
+            return limit;
+        }
+
+        public String toString()
+        {
+            return "Partition{" +
+                "recordingId=" + recordingId +
+                ", startPosition=" + startPosition +
+                ", stopPosition=" + stopPosition +
+                ", replayStopPosition=" + replayStopPosition +
+                ", startTimestamp=" + startTimestamp +
+                ", streamed=" + streamed +
+                '}';
+        }
+    }
+
+    final class PartitionPoller implements StreamTimestampZipper.Poller
+    {
+        // The zipper's handler doesn't look at the Aeron header
+        private final Header header = new Header(0, 0);
+        private final int streamId;
+        private final List<Partition> partitions;
+
+        private int partitionIndex = 0;
+        private int offset = 0;
+        private long replaySessionId = NULL_VALUE;
+        private Image image;
+
+        PartitionPoller(final int streamId, final List<Partition> partitions)
+        {
+            this.streamId = streamId;
+            this.partitions = partitions;
+        }
+
+        public int poll(final FragmentAssembler fragmentAssembler, final int fragmentLimit)
+        {
+            final Throwable failure = ParallelArchiveScan.this.failure;
+            if (failure != null)
+            {
+                LangUtil.rethrowUnchecked(failure);
+            }
+
+            if (partitionIndex >= partitions.size())
+            {
+                return 0;
+            }
+
+            final Partition partition = partitions.get(partitionIndex);
+            if (partition.streamed)
+            {
+                return pollStreamed(partition, fragmentAssembler, fragmentLimit);
+            }
+
+            final int limit = partition.limit();
+            if (limit == INCOMPLETE)
+            {
+                return 0;
+            }
+
+            // The workers have already reassembled the messages
+            final FragmentHandler handler = fragmentAssembler.delegate();
+            final ExpandableArrayBuffer buffer = partition.buffer;
+            int offset = this.offset;
+            int read = 0;
+            while (read < fragmentLimit && offset < limit)
+            {
+                final int length = buffer.getInt(offset);
+                handler.onFragment(buffer, offset + SIZE_OF_INT, length, header);
+                offset += align(SIZE_OF_INT + length, SIZE_OF_INT);
+                read++;
+            }
+
+            if (offset >= limit)
+            {
+                release(partition);
+                partitionIndex++;
+                this.offset = 0;
+                return Math.max(read, 1);
+            }
+
+            this.offset = offset;
+            return read;
+        }
+
+        private int pollStreamed(
+            final Partition partition, final FragmentAssembler fragmentAssembler, final int fragmentLimit)
+        {
+            final Image image = this.image;
+            if (image == null)
+            {
+                if (replaySessionId == NULL_VALUE)
+                {
+                    replaySessionId = aeronArchive.startReplay(
+                        partition.recordingId,
+                        partition.startPosition,
+                        partition.stopPosition - partition.startPosition,
+                        IPC_CHANNEL,
+                        replaySubscription.streamId());
+                    return 1;
+                }
+
+                this.image = replaySubscription.imageBySessionId((int)replaySessionId);
+                return this.image == null ? 0 : 1;
+            }
+
+            final long position = image.position();
+            if (position >= partition.stopPosition)
+            {
+                this.image = null;
+                replaySessionId = NULL_VALUE;
+                partitionIndex++;
+                return 1;
+            }
+
+            if (image.isClosed() || image.isEndOfStream())
+            {
+                throw replayEndedEarly(partition, position, partition.stopPosition);
+            }
+
+            return image.poll(fragmentAssembler, fragmentLimit);
+        }
+
+        public int streamId()
+        {
+            return streamId;
+        }
+
+        public void close()
+        {
+            // partitions are owned by the scan
+        }
+
+        public boolean isComplete()
+        {
+            return partitionIndex >= partitions.size();
+        }
+
+        public String toString()
+        {
+            return "PartitionPoller{" +
+                "streamId=" + streamId +
+                ", partitions=" + partitions +
+                ", partitionIndex=" + partitionIndex +
+                '}';
+        }
+    }
+
+    final class Worker implements Agent, ControlledFragmentHandler
+    {
+        private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+        private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+        private final ExpandableArrayBuffer assembledMessage = new ExpandableArrayBuffer();
+        private final String roleName;
+
+        private Partition partition;
+        private ExpandableArrayBuffer buffer;
+        private int limit;
+
+        private long replaySessionId;
+        private long replayStopPosition;
+        private Image image;
+        private boolean finishingMessage;
+
+        private boolean assembling;
+        private int assembledLength;
+
+        Worker(final int index)
+        {
+            roleName = "ArchiveScanWorker-" + index;
+        }
+
+        public int doWork()
+        {
+            // The scanning thread rethrows the failure, so there's no point in replaying any more partitions
+            if (failure != null)
+            {
+                return 0;
+            }
+
+            if (partition == null)
+            {
+                return startPartition();
+            }
+
+            if (image == null)
+            {
+                image = replaySubscription.imageBySessionId((int)replaySessionId);
+                return image == null ? 0 : 1;
+            }
+
+            final int workCount = image.controlledPoll(this, fragmentLimit);
+            final long position = image.position();
+            if (finishingMessage)
+            {
+                if (!assembling)
+                {
+                    if (position < replayStopPosition)
+                    {
+                        stopReplay();
+                    }
+                    completePartition();
+                }
+                else if (position >= replayStopPosition)
+                {
+                    // Incomplete message at the end of the location, the sequential scan drops these too
+                    completePartition();
+                }
+            }
+            else if (position >= replayStopPosition)
+            {
+                final Partition partition = this.partition;
+                if (assembling && partition.stopPosition < partition.replayStopPosition)
+                {
+                    finishingMessage = true;
+                    startReplay(partition.stopPosition, partition.replayStopPosition);
+                }
+                else
+                {
+                    completePartition();
+                }
+            }
+
+            checkReplayEndedEarly();
+
+            return workCount;
+        }
+
+        // Otherwise the partition would never complete and the scan would wait for it forever
+        private void checkReplayEndedEarly()
+        {
+            final Image image = this.image;
+            if (image != null && (image.isClosed() || image.isEndOfStream()))
+            {
+                final long position = image.position();
+                if (position < replayStopPosition)
+                {
+                    onError(replayEndedEarly(partition, position, replayStopPosition));
+                }
+            }
+        }
+
+        private int startPartition()
+        {
+            final Partition partition = claimPartition();
+            if (partition == null)
+            {
+                return 0;
+            }
+
+            this.partition = partition;
+            ExpandableArrayBuffer buffer = freeBuffers.poll();
+            if (buffer == null)
+            {
+                buffer = new ExpandableArrayBuffer();
+            }
+            this.buffer = buffer;
+            limit = 0;
+            assembling = false;
+            finishingMessage = false;
+            startReplay(partition.startPosition, partition.stopPosition);
+
+            return 1;
+        }
+
+        private void startReplay(final long startPosition, final long stopPosition)
+        {
+            replaySessionId = aeronArchive.startReplay(
+                partition.recordingId,
+                startPosition,
+                stopPosition - startPosition,
+                IPC_CHANNEL,
+                replaySubscription.streamId());
+            replayStopPosition = stopPosition;
+            image = null;
+        }
+
+        private void stopReplay()
+        {
+            try
+            {
+                aeronArchive.stopReplay(replaySessionId);
+            }
+            catch (final ArchiveException e)
+            {
+                // The replay can finish sending the rest of its range before it's stopped.
+                if (e.errorCode() != ArchiveException.UNKNOWN_REPLAY)
+                {
+                    throw e;
+                }
+            }
+        }
+
+        private void completePartition()
+        {
+            partition.complete(buffer, limit);
+            partition = null;
+            buffer = null;
+            image = null;
+        }
+
+        public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+        {
+            if (finishingMessage && !assembling)
+            {
+                return Action.ABORT;
+            }
+
+            final byte flags = header.flags();
+            if ((flags & UNFRAGMENTED) == UNFRAGMENTED)
+            {
+                onMessage(buffer, offset, length);
+            }
+            else if ((flags & BEGIN_FRAG_FLAG) == BEGIN_FRAG_FLAG)
+            {
+                assembledMessage.putBytes(0, buffer, offset, length);
+                assembledLength = length;
+                assembling = true;
+            }
+            // Fragments at the start of a partition whose message began in the previous one are skipped
+            else if (assembling)
+            {
+                assembledMessage.putBytes(assembledLength, buffer, offset, length);
+                assembledLength += length;
+                if ((flags & END_FRAG_FLAG) == END_FRAG_FLAG)
+                {
+                    assembling = false;
+                    onMessage(assembledMessage, 0, assembledLength);
+                }
+            }
+
+            return Action.CONTINUE;
+        }
+
+        private void onMessage(final DirectBuffer buffer, final int offset, final int length)
+        {
+            final int templateId = messageHeader.wrap(buffer, offset).templateId();
+            if ((templateId == FixMessageDecoder.TEMPLATE_ID && matchesWorkerPredicate(buffer, offset)) ||
+                templateId == FixPMessageDecoder.TEMPLATE_ID ||
+                templateId == ReplayerTimestampDecoder.TEMPLATE_ID ||
+                templateId == ApplicationHeartbeatDecoder.TEMPLATE_ID ||
+                (scanConnects && templateId == ConnectDecoder.TEMPLATE_ID))
+            {
+                final ExpandableArrayBuffer partitionBuffer = this.buffer;
+                final int limit = this.limit;
+                partitionBuffer.putInt(limit, length);
+                partitionBuffer.putBytes(limit + SIZE_OF_INT, buffer, offset, length);
+                this.limit = limit + align(SIZE_OF_INT + length, SIZE_OF_INT);
+            }
+        }
+
+        private boolean matchesWorkerPredicate(final DirectBuffer buffer, final int offset)
+        {
+            final FixMessagePredicate workerPredicate = ParallelArchiveScan.this.workerPredicate;
+            if (workerPredicate == null)
+            {
+                return true;
+            }
+
+            final MessageHeaderDecoder messageHeader = this.messageHeader;
+            final FixMessageDecoder fixMessage = this.fixMessage;
+            final int version = messageHeader.version();
+            fixMessage.wrap(
+                buffer, offset + MessageHeaderDecoder.ENCODED_LENGTH, messageHeader.blockLength(), version);
+            if (version >= metaDataSinceVersion())
+            {
+                fixMessage.skipMetaData();
+            }
+
+            return workerPredicate.test(fixMessage);
+        }
+
+        public void onClose()
+        {
+            // Only when the scan is abandoned part way through
+            if (partition != null)
+            {
+                stopReplay();
+            }
+        }
+
+        public String roleName()
+        {
+            return roleName;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+
+import static io.aeron.protocol.DataHeaderFlyweight.HEADER_LENGTH;
+import static io.aeron.protocol.DataHeaderFlyweight.TERM_ID_FIELD_OFFSET;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.agrona.UnsafeAccess.UNSAFE;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
+
+/**
+ * Keeps a bounded ring of the most recently sent messages for each FIX session so that resend requests for recent
+ * messages can be served from memory rather than by starting a replay from the archive.
+ *
+ * Messages are added by the outbound {@link ReplayIndex} in the same order that it indexes them and the ring for each
+ * session is always a contiguous run of the messages that it has indexed, oldest first, so a query can tell whether
+ * it covers a range or whether older messages have to be replayed from the archive. Messages that don't fit into a
+ * single fragment clear the session's ring instead of being cached.
+ *
+ * Each record keeps a copy of the Aeron data frame header that the message was indexed with, so that a replay from
+ * the cache can hand the same {@link Header} values to its handler as a replay from the archive would.
+ *
+ * Rings are allocated off-heap with a fixed capacity on the first message of a session. Messages are added on the
+ * indexer's thread and queried on the {@link Replayer}'s thread, which may be a different thread. A record's space
+ * is always evicted before it's overwritten so a query validates that the ring's head hasn't moved past what it has
+ * copied and otherwise gives up on the cache.
+ */
+public class RecentMessageCache
+{
+    private static final int LENGTH_OFFSET = 0;
+    private static final int SEQUENCE_INDEX_OFFSET = 4;
+    private static final int SEQUENCE_NUMBER_OFFSET = 8;
+    private static final int LAST_SEQUENCE_NUMBER_OFFSET = 12;
+    private static final int POSITION_BITS_TO_SHIFT_OFFSET = 16;
+    private static final int FRAME_HEADER_OFFSET = 24;
+    private static final int RECORD_HEADER_LENGTH = FRAME_HEADER_OFFSET + HEADER_LENGTH;
+
+    // Records are aligned so that there's always room to write a padding record, which only needs its length and
+    // sequence index fields, at the end of the ring.
+    private static final int RECORD_ALIGNMENT = 16;
+    private static final int PADDING_LENGTH = -1;
+
+    // Cached messages are laid out as their length and position bits to shift followed by the data frame header and
+    // the message, so the header can be wrapped in place.
+    static final int CACHED_LENGTH_OFFSET = 0;
+    static final int CACHED_POSITION_BITS_TO_SHIFT_OFFSET = 4;
+    static final int CACHED_FRAME_HEADER_OFFSET = 8;
+    static final int CACHED_HEADER_LENGTH = CACHED_FRAME_HEADER_OFFSET + HEADER_LENGTH;
+
+    private final int capacityPerSession;
+
+    // Copied on write so that it can be read from the replayer's thread, sessions are only added occasionally.
+    private volatile Long2ObjectHashMap<SessionMessages> fixSessionIdToMessages = new Long2ObjectHashMap<>();
+
+    /**
+     * Create the cache.
+     *
+     * @param capacityPerSession the capacity of each session's ring in bytes, must be a power of two.
+     */
+    public RecentMessageCache(final int capacityPerSession)
+    {
+        if (!BitUtil.isPowerOfTwo(capacityPerSession) || capacityPerSession < RECORD_ALIGNMENT)
+        {
+            throw new IllegalArgumentException(
+                "capacityPerSession must be a power of 2 of at least " + RECORD_ALIGNMENT + ": " +
+                capacityPerSession);
+        }
+
+        this.capacityPerSession = capacityPerSession;
+    }
+
+    void onMessage(
+        final long fixSessionId,
+        final int sequenceIndex,
+        final int sequenceNumber,
+        final int lastSequenceNumber,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        SessionMessages messages = fixSessionIdToMessages.get(fixSessionId);
+        if (messages == null)
+        {
+            messages = new SessionMessages(capacityPerSession);
+            final Long2ObjectHashMap<SessionMessages> fixSessionIdToMessages = new Long2ObjectHashMap<>();
+            fixSessionIdToMessages.putAll(this.fixSessionIdToMessages);
+            fixSessionIdToMessages.put(fixSessionId, messages);
+            this.fixSessionIdToMessages = fixSessionIdToMessages;
+        }
+
+        messages.onMessage(sequenceIndex, sequenceNumber, lastSequenceNumber, buffer, offset, length, header);
+    }
+
+    /**
+     * Forget the messages of a session, used when a message can't be cached or the session's sequence numbers are
+     * reset, so that the ring never has a gap in the middle of it.
+     *
+     * @param fixSessionId the session to clear.
+     */
+    void clear(final long fixSessionId)
+    {
+        final SessionMessages messages = fixSessionIdToMessages.get(fixSessionId);
+        if (messages != null)
+        {
+            messages.clear();
+        }
+    }
+
+    /**
+     * Copy the cached messages of a query into a snapshot that can be replayed independently of later updates to the
+     * cache.
+     *
+     * @param fixSessionId the FIX session id of the messages.
+     * @param sequenceIndex the sequence index of the messages.
+     * @param beginSequenceNumber sequence number to begin at (inclusive).
+     * @param endSequenceNumber sequence number to end at (inclusive) or {@link Replayer#MOST_RECENT_MESSAGE}.
+     * @return the messages or null if the cache doesn't have any messages of this sequence index or they were
+     * evicted whilst being copied, in which case the whole query has to be replayed from the archive.
+     */
+    CachedMessages query(
+        final long fixSessionId,
+        final int sequenceIndex,
+        final int beginSequenceNumber,
+        final int endSequenceNumber)
+    {
+        final SessionMessages messages = fixSessionIdToMessages.get(fixSessionId);
+        if (messages == null)
+        {
+            return null;
+        }
+
+        return messages.query(sequenceIndex, beginSequenceNumber, endSequenceNumber);
+    }
+
+    static final class SessionMessages
+    {
+        private final UnsafeBuffer buffer;
+        private final int capacity;
+        private final int mask;
+
+        // Only written on the indexer's thread.
+        private volatile long head;
+        private volatile long tail;
+
+        SessionMessages(final int capacity)
+        {
+            this.capacity = capacity;
+            mask = capacity - 1;
+            buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(capacity));
+        }
+
+        void onMessage(
+            final int sequenceIndex,
+            final int sequenceNumber,
+            final int lastSequenceNumber,
+            final DirectBuffer srcBuffer,
+            final int srcOffset,
+            final int srcLength,
+            final Header header)
+        {
+            final UnsafeBuffer buffer = this.buffer;
+            final int capacity = this.capacity;
+            final int recordLength = BitUtil.align(RECORD_HEADER_LENGTH + srcLength, RECORD_ALIGNMENT);
+            if (recordLength > capacity)
+            {
+                clear();
+                return;
+            }
+
+            long tail = this.tail;
+            int offset = (int)(tail & mask);
+            final int toEndOfBuffer = capacity - offset;
+            if (recordLength > toEndOfBuffer)
+            {
+                if (toEndOfBuffer + recordLength > capacity)
+                {
+                    // Only fits at the start of an empty ring
+                    tail += toEndOfBuffer;
+                    evict(tail);
+                }
+                else
+                {
+                    evictUntil(tail + toEndOfBuffer + recordLength - capacity);
+                    buffer.putInt(offset + LENGTH_OFFSET, PADDING_LENGTH);
+                    buffer.putInt(offset + SEQUENCE_INDEX_OFFSET, toEndOfBuffer);
+                    tail += toEndOfBuffer;
+                }
+                offset = 0;
+            }
+            else
+            {
+                evictUntil(tail + recordLength - capacity);
+            }
+
+            buffer.putInt(offset + LENGTH_OFFSET, srcLength);
+            buffer.putInt(offset + SEQUENCE_INDEX_OFFSET, sequenceIndex);
+            buffer.putInt(offset + SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+            buffer.putInt(offset + LAST_SEQUENCE_NUMBER_OFFSET, lastSequenceNumber);
+            buffer.putInt(offset + POSITION_BITS_TO_SHIFT_OFFSET, header.positionBitsToShift());
+            buffer.putBytes(offset + FRAME_HEADER_OFFSET, header.buffer(), header.offset(), HEADER_LENGTH);
+            // Store the term id relative to the initial term id, so that any replayed header with an initial term id
+            // of 0 has the same position as the original.
+            buffer.putInt(
+                offset + FRAME_HEADER_OFFSET + TERM_ID_FIELD_OFFSET,
+                header.termId() - header.initialTermId(),
+                LITTLE_ENDIAN);
+            buffer.putBytes(offset + RECORD_HEADER_LENGTH, srcBuffer, srcOffset, srcLength);
+            this.tail = tail + recordLength;
+        }
+
+        private void evictUntil(final long minimumHead)
+        {
+            long head = this.head;
+            if (head < minimumHead)
+            {
+                while (head < minimumHead)
+                {
+                    head += recordLength((int)(head & mask));
+                }
+                evict(head);
+            }
+        }
+
+        private void evict(final long head)
+        {
+            this.head = head;
+            UNSAFE.storeFence(); // StoreStore required so the evicted space isn't overwritten before head moves.
+        }
+
+        private int recordLength(final int offset)
+        {
+            return recordLength(buffer.getInt(offset + LENGTH_OFFSET), buffer.getInt(offset + SEQUENCE_INDEX_OFFSET));
+        }
+
+        // Padding records store their length in place of the sequence index.
+        private static int recordLength(final int length, final int sequenceIndex)
+        {
+            if (length == PADDING_LENGTH)
+            {
+                return sequenceIndex;
+            }
+
+            return BitUtil.align(RECORD_HEADER_LENGTH + length, RECORD_ALIGNMENT);
+        }
+
+        void clear()
+        {
+            head = tail;
+        }
+
+        // Called after reading from the ring at position to check that what was read hadn't already been evicted.
+        private boolean isValid(final long position)
+        {
+            UNSAFE.loadFence(); // LoadLoad required so previous loads don't move past the head check below.
+            return head <= position;
+        }
+
+        CachedMessages query(final int sequenceIndex, final int beginSequenceNumber, final int endSequenceNumber)
+        {
+            final UnsafeBuffer buffer = this.buffer;
+            final boolean upToMostRecentMessage = endSequenceNumber == MOST_RECENT_MESSAGE;
+            final long tail = this.tail;
+
+            // Find where this sequence index starts within the ring
+            boolean sawEarlierSequenceIndex = false;
+            long position = head;
+            int firstSequenceNumber = 0;
+            while (position < tail)
+            {
+                final int offset = (int)(position & mask);
+                final int length = buffer.getInt(offset + LENGTH_OFFSET);
+                final int recordSequenceIndex = buffer.getInt(offset + SEQUENCE_INDEX_OFFSET);
+                firstSequenceNumber = buffer.getInt(offset + SEQUENCE_NUMBER_OFFSET);
+                if (!isValid(position))
+                {
+                    return null;
+                }
+
+                if (length != PADDING_LENGTH)
+                {
+                    if (recordSequenceIndex == sequenceIndex)
+                    {
+                        break;
+                    }
+                    sawEarlierSequenceIndex |= recordSequenceIndex < sequenceIndex;
+                }
+                position += recordLength(length, recordSequenceIndex);
+            }
+
+            if (position >= tail)
+            {
+                return null;
+            }
+
+            // If the sequence index started within the ring then nothing older can be in the archive.
+            final int coveredFromSequenceNumber = sawEarlierSequenceIndex ?
+                beginSequenceNumber : Math.max(beginSequenceNumber, firstSequenceNumber);
+
+            final CachedMessages messages = new CachedMessages(coveredFromSequenceNumber);
+            while (position < tail)
+            {
+                final int offset = (int)(position & mask);
+                final int length = buffer.getInt(offset + LENGTH_OFFSET);
+                final int recordSequenceIndex = buffer.getInt(offset + SEQUENCE_INDEX_OFFSET);
+                final int sequenceNumber = buffer.getInt(offset + SEQUENCE_NUMBER_OFFSET);
+                final int lastSequenceNumber = buffer.getInt(offset + LAST_SEQUENCE_NUMBER_OFFSET);
+                if (!isValid(position))
+                {
+                    return null;
+                }
+
+                if (length != PADDING_LENGTH && recordSequenceIndex == sequenceIndex)
+                {
+                    if (!upToMostRecentMessage && sequenceNumber > endSequenceNumber)
+                    {
+                        break;
+                    }
+
+                    if (lastSequenceNumber >= coveredFromSequenceNumber)
+                    {
+                        messages.add(buffer, offset, length);
+                        if (!isValid(position))
+                        {
+                            return null;
+                        }
+                    }
+                }
+                position += recordLength(length, recordSequenceIndex);
+            }
+
+            return messages;
+        }
+    }
+
+    /**
+     * A snapshot of the cached messages that a query covers, stored as a sequence of fragments that are each prefixed
+     * by their length, the position bits to shift and the data frame header that they were indexed with.
+     */
+    static final class CachedMessages
+    {
+        private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+        private final int beginSequenceNumber;
+
+        private int limit;
+        private int count;
+
+        CachedMessages(final int beginSequenceNumber)
+        {
+            this.beginSequenceNumber = beginSequenceNumber;
+        }
+
+        private void add(final DirectBuffer srcBuffer, final int recordOffset, final int length)
+        {
+            final int offset = limit;
+            buffer.putInt(offset + CACHED_LENGTH_OFFSET, length);
+            buffer.putInt(
+                offset + CACHED_POSITION_BITS_TO_SHIFT_OFFSET,
+                srcBuffer.getInt(recordOffset + POSITION_BITS_TO_SHIFT_OFFSET));
+            buffer.putBytes(
+                offset + CACHED_FRAME_HEADER_OFFSET,
+                srcBuffer,
+                recordOffset + FRAME_HEADER_OFFSET,
+                HEADER_LENGTH + length);
+            limit = offset + CACHED_HEADER_LENGTH + length;
+            count++;
+        }
+
+        /**
+         * The lowest sequence number that the cache covers, messages before this have to be replayed from the
+         * archive.
+         *
+         * @return the lowest sequence number that the cache covers.
+         */
+        int beginSequenceNumber()
+        {
+            return beginSequenceNumber;
+        }
+
+        int count()
+        {
+            return count;
+        }
+
+        int limit()
+        {
+            return limit;
+        }
+
+        DirectBuffer buffer()
+        {
+            return buffer;
+        }
+    }
+}
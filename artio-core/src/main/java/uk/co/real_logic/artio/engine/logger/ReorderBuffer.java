@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.BufferUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Off-heap storage for the messages that the {@link StreamTimestampZipper} is holding back. Messages are appended to
+ * fixed size segments of direct memory and addressed by a long that packs the segment index and the offset within it,
+ * so the total size of the buffer isn't limited by the size of a single array. Messages are released in timestamp
+ * rather than insertion order, so instead of compacting by copying, each segment counts its live messages and is
+ * recycled once they've all been released. Messages that don't fit within a single segment get a segment of their
+ * own that is freed as soon as the message is released.
+ */
+final class ReorderBuffer implements AutoCloseable
+{
+    private static final int INITIAL_SEGMENT_COUNT = 4;
+    private static final int NO_SEGMENT = -1;
+
+    private final int segmentSize;
+
+    private UnsafeBuffer[] segments = new UnsafeBuffer[INITIAL_SEGMENT_COUNT];
+    private int[] liveMessages = new int[INITIAL_SEGMENT_COUNT];
+    private int[] freeSegments = new int[INITIAL_SEGMENT_COUNT];
+    private int segmentCount = 0;
+    private int freeSegmentCount = 0;
+
+    private int currentSegment = NO_SEGMENT;
+    private int currentOffset = 0;
+
+    private long liveBytes = 0;
+    private long capacity = 0;
+
+    ReorderBuffer(final int segmentSize)
+    {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Copy a message into the buffer.
+     *
+     * @param buffer the buffer that the message is in.
+     * @param offset the offset of the message within buffer.
+     * @param length the length of the message.
+     * @return the address of the copied message within this buffer.
+     */
+    long put(final DirectBuffer buffer, final int offset, final int length)
+    {
+        int segmentIndex = currentSegment;
+        int segmentOffset = currentOffset;
+        if (segmentIndex == NO_SEGMENT || segmentOffset + length > segments[segmentIndex].capacity())
+        {
+            if (segmentIndex != NO_SEGMENT && liveMessages[segmentIndex] == 0)
+            {
+                freeSegment(segmentIndex);
+            }
+
+            segmentIndex = nextSegment(length);
+            segmentOffset = 0;
+            currentSegment = segmentIndex;
+        }
+
+        segments[segmentIndex].putBytes(segmentOffset, buffer, offset, length);
+        liveMessages[segmentIndex]++;
+        liveBytes += length;
+        currentOffset = segmentOffset + length;
+
+        return ((long)segmentIndex << 32) | segmentOffset;
+    }
+
+    /**
+     * Get the segment that a message is stored in, the message starts at {@link #offset(long)} within it.
+     *
+     * @param address the address returned from {@link #put(DirectBuffer, int, int)}.
+     * @return the segment that a message is stored in.
+     */
+    UnsafeBuffer segment(final long address)
+    {
+        return segments[(int)(address >>> 32)];
+    }
+
+    static int offset(final long address)
+    {
+        return (int)address;
+    }
+
+    /**
+     * Release a message once it has been handled, its space can be reused once every other message in its segment
+     * has also been released.
+     *
+     * @param address the address returned from {@link #put(DirectBuffer, int, int)}.
+     * @param length the length of the message.
+     */
+    void release(final long address, final int length)
+    {
+        final int segmentIndex = (int)(address >>> 32);
+        liveBytes -= length;
+        if (--liveMessages[segmentIndex] == 0)
+        {
+            if (segmentIndex == currentSegment)
+            {
+                currentOffset = 0;
+            }
+            else
+            {
+                freeSegment(segmentIndex);
+            }
+        }
+    }
+
+    void clear()
+    {
+        for (int i = 0; i < segmentCount; i++)
+        {
+            if (segments[i] != null && liveMessages[i] > 0)
+            {
+                liveMessages[i] = 0;
+                freeSegment(i);
+            }
+        }
+
+        liveBytes = 0;
+        currentOffset = 0;
+    }
+
+    long liveBytes()
+    {
+        return liveBytes;
+    }
+
+    long capacity()
+    {
+        return capacity;
+    }
+
+    public void close()
+    {
+        for (int i = 0; i < segmentCount; i++)
+        {
+            final UnsafeBuffer segment = segments[i];
+            if (segment != null)
+            {
+                BufferUtil.free(segment);
+                segments[i] = null;
+            }
+        }
+
+        segmentCount = 0;
+        freeSegmentCount = 0;
+        currentSegment = NO_SEGMENT;
+        currentOffset = 0;
+        liveBytes = 0;
+        capacity = 0;
+    }
+
+    private int nextSegment(final int length)
+    {
+        if (length <= segmentSize && freeSegmentCount > 0)
+        {
+            return freeSegments[--freeSegmentCount];
+        }
+
+        int segmentIndex = NO_SEGMENT;
+        for (int i = 0; i < segmentCount; i++)
+        {
+            if (segments[i] == null)
+            {
+                segmentIndex = i;
+                break;
+            }
+        }
+
+        if (segmentIndex == NO_SEGMENT)
+        {
+            segmentIndex = segmentCount++;
+            if (segmentIndex == segments.length)
+            {
+                final int newLength = segments.length * 2;
+                segments = Arrays.copyOf(segments, newLength);
+                liveMessages = Arrays.copyOf(liveMessages, newLength);
+                freeSegments = Arrays.copyOf(freeSegments, newLength);
+            }
+        }
+
+        final int size = Math.max(length, segmentSize);
+        segments[segmentIndex] = new UnsafeBuffer(ByteBuffer.allocateDirect(size));
+        capacity += size;
+        return segmentIndex;
+    }
+
+    private void freeSegment(final int segmentIndex)
+    {
+        final UnsafeBuffer segment = segments[segmentIndex];
+        if (segment.capacity() > segmentSize)
+        {
+            capacity -= segment.capacity();
+            BufferUtil.free(segment);
+            segments[segmentIndex] = null;
+        }
+        else
+        {
+            freeSegments[freeSegmentCount++] = segmentIndex;
+        }
+
+        if (segmentIndex == currentSegment)
+        {
+            currentSegment = NO_SEGMENT;
+            currentOffset = 0;
+        }
+    }
+}
@@ -16,25 +16,56 @@
 package uk.co.real_logic.artio.engine.logger;
 
 import org.agrona.ErrorHandler;
+import org.agrona.concurrent.IdleStrategy;
+import uk.co.real_logic.artio.engine.ReplayerCommand;
+import uk.co.real_logic.artio.engine.ReplayerCommandQueue;
 import uk.co.real_logic.artio.engine.framer.FramerContext;
 
 public class ReplayEvictionHandler
 {
     private final ErrorHandler errorHandler;
+    private final ReplayerCommandQueue replayerCommandQueue;
+    private final IdleStrategy idleStrategy;
     private ReplayQuery replayQuery;
     private ReplayQuery framerReplayQuery;
     private FramerContext framerContext;
 
     public ReplayEvictionHandler(final ErrorHandler errorHandler)
+    {
+        this(errorHandler, null, null);
+    }
+
+    /**
+     * Create a handler that can hand resets of the replayer's query over to the replayer's thread.
+     *
+     * @param errorHandler the error handler.
+     * @param replayerCommandQueue the queue to hand resets of the replayer's query over to its thread with, or null
+     *                             if the index runs on the replayer's thread.
+     * @param idleStrategy the idle strategy of the index's thread, used whilst waiting for the replayer.
+     */
+    public ReplayEvictionHandler(
+        final ErrorHandler errorHandler,
+        final ReplayerCommandQueue replayerCommandQueue,
+        final IdleStrategy idleStrategy)
     {
         this.errorHandler = errorHandler;
+        this.replayerCommandQueue = replayerCommandQueue;
+        this.idleStrategy = idleStrategy;
     }
 
     public void onReset(final long fixSessionId)
     {
+        final ReplayQuery replayQuery = this.replayQuery;
         if (replayQuery != null)
         {
-            replayQuery.onReset(fixSessionId);
+            if (replayerCommandQueue == null)
+            {
+                replayQuery.onReset(fixSessionId);
+            }
+            else
+            {
+                resetOnReplayerThread(replayQuery, fixSessionId);
+            }
         }
 
         if (framerReplayQuery != null)
@@ -49,6 +80,29 @@ public class ReplayEvictionHandler
         }
     }
 
+    // Blocks until the replayer has closed the session's query, since the index is about to delete its files.
+    private void resetOnReplayerThread(final ReplayQuery replayQuery, final long fixSessionId)
+    {
+        final ResetCommand command = new ResetCommand(replayQuery, fixSessionId);
+        final IdleStrategy idleStrategy = this.idleStrategy;
+
+        while (!replayerCommandQueue.offer(command))
+        {
+            if (Thread.currentThread().isInterrupted())
+            {
+                return;
+            }
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+
+        while (!command.done && !Thread.currentThread().isInterrupted())
+        {
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+    }
+
     public void replayQuery(final ReplayQuery replayQuery)
     {
         if (this.replayQuery != null)
@@ -68,4 +122,30 @@ public class ReplayEvictionHandler
     {
         this.framerContext = framerContext;
     }
+
+    static final class ResetCommand implements ReplayerCommand
+    {
+        private final ReplayQuery replayQuery;
+        private final long fixSessionId;
+
+        private volatile boolean done;
+
+        ResetCommand(final ReplayQuery replayQuery, final long fixSessionId)
+        {
+            this.replayQuery = replayQuery;
+            this.fixSessionId = fixSessionId;
+        }
+
+        public void execute()
+        {
+            try
+            {
+                replayQuery.onReset(fixSessionId);
+            }
+            finally
+            {
+                done = true;
+            }
+        }
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.LongArrayList;
+
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
+
+/**
+ * The header offsets stored in the replay index for the records of a replay query, by the end position of each
+ * record. Records are added in the order that they're replayed, so lookups start from the last record found.
+ */
+class ReplayHeaderOffsets
+{
+    private final LongArrayList endPositions = new LongArrayList();
+    private final IntArrayList headerOffsets = new IntArrayList();
+
+    private int cursor;
+
+    void add(final long endPosition, final int headerOffsets)
+    {
+        endPositions.addLong(endPosition);
+        this.headerOffsets.addInt(headerOffsets);
+    }
+
+    int lookup(final long endPosition)
+    {
+        final LongArrayList endPositions = this.endPositions;
+        final int size = endPositions.size();
+        // The cursor stays on the last record found, as a back pressured message is replayed again.
+        for (int i = cursor; i < size; i++)
+        {
+            if (endPositions.getLong(i) == endPosition)
+            {
+                cursor = i;
+                return headerOffsets.getInt(i);
+            }
+        }
+
+        return NO_HEADER_OFFSETS;
+    }
+}
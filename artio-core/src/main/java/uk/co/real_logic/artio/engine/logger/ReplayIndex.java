@@ -25,7 +25,9 @@ import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+import uk.co.real_logic.artio.engine.PossDupFinder;
 import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
+import uk.co.real_logic.artio.engine.framer.MessageTypeExtractor;
 import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordEncoder;
 
@@ -36,6 +38,7 @@ import java.util.function.LongFunction;
 import static io.aeron.archive.status.RecordingPos.NULL_RECORDING_ID;
 import static io.aeron.logbuffer.FrameDescriptor.*;
 import static org.agrona.UnsafeAccess.UNSAFE;
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
 import static uk.co.real_logic.artio.engine.SequenceNumberExtractor.NO_SEQUENCE_NUMBER;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.*;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.*;
@@ -66,6 +69,9 @@ public class ReplayIndex implements Index, RedactHandler
     private final RedactSequenceUpdateDecoder redactSequenceUpdateDecoder = new RedactSequenceUpdateDecoder();
     private final ReplayIndexRecordEncoder replayIndexRecord = new ReplayIndexRecordEncoder();
     private final MessageHeaderEncoder indexHeaderEncoder = new MessageHeaderEncoder();
+    // The session's dictionary isn't known here, so messages are scanned up to the end of their standard header and
+    // the replayer checks that the field after it isn't one of the session's header fields.
+    private final PossDupFinder possDupFinder = new PossDupFinder(PossDupFinder.STANDARD_HEADER_FIELD_TAGS);
 
     private final IndexedPositionWriter positionWriter;
     private final IndexedPositionReader positionReader;
@@ -82,12 +88,15 @@ public class ReplayIndex implements Index, RedactHandler
     private final ReplayEvictionHandler evictionHandler;
     private final int segmentSizeBitShift;
     private final int segmentCount;
+    private final int checkpointCount;
     private final BufferFactory bufferFactory;
     private final AtomicBuffer positionBuffer;
     private final ErrorHandler errorHandler;
     private final RecordingIdLookup recordingIdLookup;
     private final TimeIndexWriter timeIndex;
+    private final SessionMessageTypeIndexWriter sessionMessageTypeIndex;
     private final SessionOwnershipTracker sessTracker;
+    private final RecentMessageCache recentMessageCache;
 
     public ReplayIndex(
         final SequenceNumberExtractor sequenceNumberExtractor,
@@ -103,9 +112,12 @@ public class ReplayIndex implements Index, RedactHandler
         final FixPProtocolType fixPProtocolType,
         final SequenceNumberIndexReader reader,
         final long timeIndexReplayFlushIntervalInNs,
+        final boolean sessionMessageTypeIndexEnabled,
+        final long sessionMessageTypeIndexBlockGapInBytes,
         final boolean sent,
         final boolean indexChecksumEnabled,
-        final ReplayEvictionHandler evictionHandler)
+        final ReplayEvictionHandler evictionHandler,
+        final RecentMessageCache recentMessageCache)
     {
         this.sequenceNumberExtractor = sequenceNumberExtractor;
         this.logFileDir = logFileDir;
@@ -115,10 +127,12 @@ public class ReplayIndex implements Index, RedactHandler
         this.evictionHandler = evictionHandler;
         this.segmentSizeBitShift = Long.numberOfTrailingZeros(segmentSize);
         this.segmentCount = ReplayIndexDescriptor.segmentCount(indexFileCapacity, indexSegmentCapacity);
+        this.checkpointCount = ReplayIndexDescriptor.checkpointCount(indexFileCapacity);
         this.bufferFactory = bufferFactory;
         this.positionBuffer = positionBuffer;
         this.errorHandler = errorHandler;
         this.recordingIdLookup = recordingIdLookup;
+        this.recentMessageCache = recentMessageCache;
 
         checkPowerOfTwo("segmentCount", segmentCount);
         checkPowerOfTwo("segmentSize", segmentSize);
@@ -137,6 +151,8 @@ public class ReplayIndex implements Index, RedactHandler
         positionReader = new IndexedPositionReader(positionBuffer);
         timeIndex = new TimeIndexWriter(
             logFileDir, requiredStreamId, timeIndexReplayFlushIntervalInNs, errorHandler);
+        sessionMessageTypeIndex = sessionMessageTypeIndexEnabled ? new SessionMessageTypeIndexWriter(
+            logFileDir, requiredStreamId, sessionMessageTypeIndexBlockGapInBytes, errorHandler) : null;
     }
 
     private void checkPowerOfTwo(final String name, final int value)
@@ -174,7 +190,8 @@ public class ReplayIndex implements Index, RedactHandler
             final SessionIndex sessionIndex = sessionIndex(sessionId);
             sessionIndex.checkForNextSession(forNextSession);
             sessionIndex
-                .onRecord(endPosition, messageSize, sequenceNumber, 0, aeronSessionId, NULL_RECORDING_ID, 0);
+                .onRecord(endPosition, messageSize, sequenceNumber, 0, aeronSessionId, NULL_RECORDING_ID, 0,
+                    NO_HEADER_OFFSETS);
         }
     }
 
@@ -278,16 +295,10 @@ public class ReplayIndex implements Index, RedactHandler
             switch (templateId)
             {
                 case FixMessageEncoder.TEMPLATE_ID:
-                {
-                    messageFrame.wrap(srcBuffer, offset, blockLength, version);
-                    if (!sessTracker.messageFromWrongLibrary(messageFrame.session(), messageFrame.libraryId()))
-                    {
-                        onFixMessage(
-                            srcBuffer, header, recordingId, endPosition,
-                            length, offset, blockLength, version, beginMessage);
-                    }
+                    onFixMessageFrame(
+                        srcBuffer, srcOffset, srcLength, header, recordingId, endPosition,
+                        length, offset, blockLength, version, beginMessage);
                     break;
-                }
 
                 case ThrottleNotificationDecoder.TEMPLATE_ID:
                 {
@@ -299,7 +310,7 @@ public class ReplayIndex implements Index, RedactHandler
                     {
                         sessionIndex(fixSessionId).onRecord(
                             endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId,
-                            NO_TIMESTAMP);
+                            NO_TIMESTAMP, NO_HEADER_OFFSETS);
                     }
                     break;
                 }
@@ -314,7 +325,10 @@ public class ReplayIndex implements Index, RedactHandler
                     {
                         sessionIndex(fixSessionId).onRecord(
                             endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId,
-                            NO_TIMESTAMP);
+                            NO_TIMESTAMP, NO_HEADER_OFFSETS);
+                        cacheRecentMessage(
+                            fixSessionId, sequenceIndex, sequenceNumber, sequenceNumber,
+                            srcBuffer, srcOffset, srcLength, header);
                     }
                     break;
                 }
@@ -349,15 +363,60 @@ public class ReplayIndex implements Index, RedactHandler
         }
         else
         {
+            if (sessionMessageTypeIndex != null)
+            {
+                sessionMessageTypeIndex.onContinuedFragment(endPosition);
+            }
             sessionIndex(continuedFixSessionId).onRecord(
                 endPosition, length,
-                continuedSequenceNumber, continuedSequenceIndex, aeronSessionId, recordingId, continuedTimestamp);
+                continuedSequenceNumber, continuedSequenceIndex, aeronSessionId, recordingId, continuedTimestamp,
+                NO_HEADER_OFFSETS);
         }
 
         positionWriter.update(aeronSessionId, templateId, endPosition, recordingId);
         positionWriter.updateChecksums();
     }
 
+    private void onFixMessageFrame(
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final Header header,
+        final long recordingId,
+        final long endPosition,
+        final int length,
+        final int offset,
+        final int blockLength,
+        final int version,
+        final boolean beginMessage)
+    {
+        messageFrame.wrap(srcBuffer, offset, blockLength, version);
+        if (sessionMessageTypeIndex != null)
+        {
+            onSessionMessageTypeIndex(recordingId, header.sessionId(), endPosition, length);
+        }
+        if (!sessTracker.messageFromWrongLibrary(messageFrame.session(), messageFrame.libraryId()))
+        {
+            onFixMessage(
+                srcBuffer, srcOffset, srcLength, header, recordingId, endPosition,
+                length, offset, blockLength, version, beginMessage);
+        }
+    }
+
+    private void onSessionMessageTypeIndex(
+        final long knownRecordingId, final int aeronSessionId, final long endPosition, final int length)
+    {
+        // Index every message, not just those with a sequence number, since the archive scanner can query them all
+        final long recordingId = knownRecordingId == NULL_RECORDING_ID ?
+            recordingIdLookup.getRecordingId(aeronSessionId) : knownRecordingId;
+        sessionMessageTypeIndex.onMessage(
+            recordingId,
+            messageFrame.session(),
+            MessageTypeExtractor.getMessageType(messageFrame),
+            ReplayQuery.trueBeginPosition(endPosition - length),
+            endPosition);
+    }
+
     private void onRedactSequenceUpdateDecoder()
     {
         // We only update the replay index in response to a redact if it is used to redact all the sequence
@@ -374,6 +433,8 @@ public class ReplayIndex implements Index, RedactHandler
 
     private void onFixMessage(
         final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
         final Header header,
         final long recordingId,
         final long endPosition,
@@ -413,28 +474,95 @@ public class ReplayIndex implements Index, RedactHandler
 
                 final SessionIndex sessionIndex = sessionIndex(fixSessionId);
                 final int aeronSessionId = header.sessionId();
+                // Fragmented messages are reassembled before being replayed, so their offsets aren't stored.
+                final int headerOffsets = (header.flags() & UNFRAGMENTED) == UNFRAGMENTED ?
+                    headerOffsets(srcBuffer, offset, messageFrame.bodyLength()) : NO_HEADER_OFFSETS;
 
                 if (newSequenceNumber > sequenceNumber)
                 {
+                    cacheRecentMessage(
+                        fixSessionId, sequenceIndex, sequenceNumber, newSequenceNumber - 1,
+                        srcBuffer, srcOffset, srcLength, header);
+
+
                     // implies newSequenceNumber != NO_SEQUENCE_NUMBER
                     while (sequenceNumber < newSequenceNumber)
                     {
                         sessionIndex.onRecord(
-                            endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId, timestamp);
+                            endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId, timestamp,
+                            headerOffsets);
                         sequenceNumber++;
                     }
                 }
                 else
                 {
                     sessionIndex.onRecord(
-                        endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId, timestamp);
+                        endPosition, length, sequenceNumber, sequenceIndex, aeronSessionId, recordingId, timestamp,
+                        headerOffsets);
+                    cacheRecentMessage(
+                        fixSessionId, sequenceIndex, sequenceNumber, sequenceNumber,
+                        srcBuffer, srcOffset, srcLength, header);
                 }
             }
         }
     }
 
+    private int headerOffsets(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final PossDupFinder possDupFinder = this.possDupFinder;
+        try
+        {
+            possDupFinder.onMessage(buffer, offset, length);
+            return possDupFinder.headerOffsets(offset, length);
+        }
+        catch (final IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            // Malformed messages are scanned when they're replayed, as they would be without an index.
+            return NO_HEADER_OFFSETS;
+        }
+    }
+
+    private void cacheRecentMessage(
+        final long fixSessionId,
+        final int sequenceIndex,
+        final int sequenceNumber,
+        final int lastSequenceNumber,
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final Header header)
+    {
+        final RecentMessageCache recentMessageCache = this.recentMessageCache;
+        if (recentMessageCache != null)
+        {
+            // Fragmented messages are only replayed from the archive, so the cache has to forget older messages
+            // in order to not leave a gap.
+            if ((header.flags() & UNFRAGMENTED) != UNFRAGMENTED)
+            {
+                recentMessageCache.clear(fixSessionId);
+            }
+            else
+            {
+                recentMessageCache.onMessage(
+                    fixSessionId,
+                    sequenceIndex,
+                    sequenceNumber,
+                    lastSequenceNumber,
+                    srcBuffer,
+                    srcOffset,
+                    srcLength,
+                    header);
+            }
+        }
+    }
+
     private void onResetSequenceNumber(final long fixSessionId)
     {
+        if (recentMessageCache != null)
+        {
+            recentMessageCache.clear(fixSessionId);
+        }
+
         final SessionIndex index = fixSessionIdToIndex.remove(fixSessionId);
 
         if (index != null)
@@ -450,6 +578,11 @@ public class ReplayIndex implements Index, RedactHandler
             {
                 deleteFile(replayIndexFile);
             }
+            final File checkpointFile = replayIndexCheckpointFile(fixSessionId);
+            if (checkpointFile.exists())
+            {
+                deleteFile(checkpointFile);
+            }
         }
     }
 
@@ -461,13 +594,19 @@ public class ReplayIndex implements Index, RedactHandler
 
     public int doWork()
     {
-        return positionWriter.checkRecordings() + timeIndex.doWork();
+        int work = positionWriter.checkRecordings() + timeIndex.doWork();
+        if (sessionMessageTypeIndex != null)
+        {
+            work += sessionMessageTypeIndex.doWork();
+        }
+        return work;
     }
 
     public void close()
     {
         Exceptions.closeAll(
             timeIndex,
+            sessionMessageTypeIndex,
             positionWriter);
         fixSessionIdToIndex.values().forEach(SessionIndex::close);
         fixSessionIdToIndex.clear();
@@ -491,6 +630,8 @@ public class ReplayIndex implements Index, RedactHandler
 
         private final UnsafeBuffer headerBuffer;
         private final File headerFile;
+        private final UnsafeBuffer checkpointBuffer;
+        private final File checkpointFile;
 
         private final UnsafeBuffer[] segmentBuffers;
         private final File[] segmentBufferFiles;
@@ -527,6 +668,20 @@ public class ReplayIndex implements Index, RedactHandler
                 final long resetPosition = beginChange(headerBuffer);
                 endChangeOrdered(headerBuffer, resetPosition);
             }
+
+            checkpointFile = replayIndexCheckpointFile(fixSessionId);
+            checkpointBuffer = checkpointCount > 0 ? mapCheckpointBuffer() : null;
+        }
+
+        private UnsafeBuffer mapCheckpointBuffer()
+        {
+            final int checkpointFileSize = checkpointFileSize(checkpointCount);
+            // The index capacity has been reconfigured, so the old checkpoints are meaningless
+            if (checkpointFile.exists() && checkpointFile.length() != checkpointFileSize)
+            {
+                deleteFile(checkpointFile);
+            }
+            return mapUnsafeBuffer(checkpointFileSize, checkpointFile);
         }
 
         void onRecord(
@@ -536,7 +691,8 @@ public class ReplayIndex implements Index, RedactHandler
             final int sequenceIndex,
             final int aeronSessionId,
             final long knownRecordingId,
-            final long timestamp)
+            final long timestamp,
+            final int headerOffsets)
         {
             final long beginChangePosition = beginChange(headerBuffer);
             final long changePosition = beginChangePosition + RECORD_LENGTH;
@@ -558,10 +714,16 @@ public class ReplayIndex implements Index, RedactHandler
                 .sequenceNumber(sequenceNumber)
                 .sequenceIndex(sequenceIndex)
                 .recordingId(recordingId)
-                .length(length);
+                .length(length)
+                .headerOffsets(headerOffsets);
 
             endChangeOrdered(headerBuffer, changePosition);
 
+            if (checkpointBuffer != null)
+            {
+                putCheckpoint(checkpointBuffer, checkpointCount, beginChangePosition, sequenceIndex, sequenceNumber);
+            }
+
             if (timestamp != NO_TIMESTAMP)
             {
                 timeIndex.onRecord(recordingId, endPosition, timestamp);
@@ -587,6 +749,10 @@ public class ReplayIndex implements Index, RedactHandler
 
             evictionHandler.onReset(fixSessionId);
             deleteFile(headerFile);
+            if (checkpointBuffer != null)
+            {
+                deleteFile(checkpointFile);
+            }
             for (final File segmentFile: segmentBufferFiles)
             {
                 if (segmentFile != null)
@@ -599,6 +765,10 @@ public class ReplayIndex implements Index, RedactHandler
         public void close()
         {
             ReplayIndexDescriptor.unmapBuffers(headerBuffer, segmentBuffers);
+            if (checkpointBuffer != null)
+            {
+                IoUtil.unmap(checkpointBuffer.byteBuffer());
+            }
         }
 
         public void checkForNextSession(final boolean forNextSession)
@@ -620,6 +790,11 @@ public class ReplayIndex implements Index, RedactHandler
         return ReplayIndexDescriptor.replayIndexHeaderFile(logFileDir, fixSessionId, requiredStreamId);
     }
 
+    private File replayIndexCheckpointFile(final long fixSessionId)
+    {
+        return ReplayIndexDescriptor.replayIndexCheckpointFile(logFileDir, fixSessionId, requiredStreamId);
+    }
+
     private File replayIndexSegmentFile(final long fixSessionId, final int segmentIndex)
     {
         return ReplayIndexDescriptor.replayIndexSegmentFile(logFileDir, fixSessionId, requiredStreamId, segmentIndex);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.archive.status.RecordingPos;
+import org.agrona.IoUtil;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.status.CountersReader;
+
+import static org.agrona.concurrent.status.CountersReader.NULL_COUNTER_ID;
+
+/**
+ * Captures the positions that the recordings of a stream have reached and tells when the replay index for that stream
+ * has caught up with them. Used by a replayer that runs on a different thread to its indexer to ensure that the
+ * messages sent before a resend request was received have been indexed before they get replayed.
+ */
+public class ReplayIndexBarrier implements IndexedPositionConsumer, AutoCloseable
+{
+    private final LongArrayList recordingIds = new LongArrayList();
+    private final LongArrayList barrierPositions = new LongArrayList();
+
+    private final AtomicBuffer positionBuffer;
+    private final IndexedPositionReader positionReader;
+    private final CountersReader counters;
+
+    public ReplayIndexBarrier(final AtomicBuffer positionBuffer, final CountersReader counters)
+    {
+        this.positionBuffer = positionBuffer;
+        this.positionReader = new IndexedPositionReader(positionBuffer);
+        this.counters = counters;
+    }
+
+    /**
+     * Capture the current recorded position of every recording that the replay index has indexed.
+     */
+    public void capture()
+    {
+        clear();
+        positionReader.readIndexedPositions(this);
+    }
+
+    public void accept(final int aeronSessionId, final long recordingId, final long indexedPosition)
+    {
+        final CountersReader counters = this.counters;
+        final int counterId = RecordingPos.findCounterIdByRecording(counters, recordingId);
+        if (counterId != NULL_COUNTER_ID)
+        {
+            final long recordedPosition = counters.getCounterValue(counterId);
+            if (recordedPosition > indexedPosition)
+            {
+                recordingIds.addLong(recordingId);
+                barrierPositions.addLong(recordedPosition);
+            }
+        }
+    }
+
+    /**
+     * Check whether the replay index has reached all the positions from the last {@link #capture()}.
+     *
+     * @return true if the replay index has reached all the captured positions, false otherwise.
+     */
+    public boolean isReached()
+    {
+        final LongArrayList recordingIds = this.recordingIds;
+        final LongArrayList barrierPositions = this.barrierPositions;
+        for (int i = recordingIds.size() - 1; i >= 0; i--)
+        {
+            final long indexedPosition = positionReader.indexedPosition(recordingIds.getLong(i));
+            if (indexedPosition >= barrierPositions.getLong(i))
+            {
+                recordingIds.fastUnorderedRemove(i);
+                barrierPositions.fastUnorderedRemove(i);
+            }
+        }
+
+        return recordingIds.isEmpty();
+    }
+
+    public void clear()
+    {
+        recordingIds.clear();
+        barrierPositions.clear();
+    }
+
+    public void close()
+    {
+        IoUtil.unmap(positionBuffer.byteBuffer());
+    }
+}
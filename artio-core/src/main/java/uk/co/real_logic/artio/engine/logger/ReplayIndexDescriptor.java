@@ -26,6 +26,8 @@ import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 import java.io.File;
 import java.util.Objects;
 
+import static org.agrona.UnsafeAccess.UNSAFE;
+
 public final class ReplayIndexDescriptor
 {
     private static final int BEGIN_CHANGE_OFFSET = MessageHeaderEncoder.ENCODED_LENGTH;
@@ -48,6 +50,18 @@ public final class ReplayIndexDescriptor
 
     public static final int MAX_FILE_SEGMENT_CAPACITY = Integer.MAX_VALUE / RECORD_LENGTH;
 
+    // Checkpoints are a sparse ring of the sequence index and number of every Nth record, used to binary search
+    // for the start of a query rather than iterating over the whole index.
+    public static final int CHECKPOINT_INTERVAL_IN_RECORDS = 256;
+    static final long CHECKPOINT_SPAN = (long)CHECKPOINT_INTERVAL_IN_RECORDS * RECORD_LENGTH;
+    static final long NO_CHECKPOINT = -1;
+
+    private static final int CHECKPOINT_POSITION_OFFSET = 0;
+    private static final int CHECKPOINT_SEQUENCE_INDEX_OFFSET = CHECKPOINT_POSITION_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int CHECKPOINT_SEQUENCE_NUMBER_OFFSET =
+        CHECKPOINT_SEQUENCE_INDEX_OFFSET + BitUtil.SIZE_OF_INT;
+    static final int CHECKPOINT_LENGTH = CHECKPOINT_SEQUENCE_NUMBER_OFFSET + BitUtil.SIZE_OF_INT;
+
     static File replayIndexHeaderFile(final String logFileDir, final long fixSessionId, final int streamId)
     {
         return new File(logFileDir + File.separator + "replay-index-" + fixSessionId + "-" + streamId + "-header");
@@ -60,6 +74,12 @@ public final class ReplayIndexDescriptor
             logFileDir + File.separator + "replay-index-" + fixSessionId + "-" + streamId + "-" + segmentIndex);
     }
 
+    static File replayIndexCheckpointFile(final String logFileDir, final long fixSessionId, final int streamId)
+    {
+        return new File(
+            logFileDir + File.separator + "replay-index-" + fixSessionId + "-" + streamId + "-checkpoints");
+    }
+
     static LongHashSet listReplayIndexSessionIds(final File logFileDir, final int streamId)
     {
         final String prefix = "replay-index-";
@@ -141,6 +161,60 @@ public final class ReplayIndexDescriptor
         buffer.putByte(FOR_NEXT_SESSION_VERSION_OFFSET, byteValue);
     }
 
+    static int checkpointCount(final int indexFileCapacity)
+    {
+        return indexFileCapacity / CHECKPOINT_INTERVAL_IN_RECORDS;
+    }
+
+    static int checkpointFileSize(final int checkpointCount)
+    {
+        return checkpointCount * CHECKPOINT_LENGTH;
+    }
+
+    static long checkpointNumber(final long recordPosition)
+    {
+        return recordPosition / CHECKPOINT_SPAN;
+    }
+
+    static int checkpointOffset(final long checkpointNumber, final int checkpointCount)
+    {
+        // checkpointNumber % checkpointCount, checkpointCount is a power of two as the index capacity is
+        return (int)(checkpointNumber & (checkpointCount - 1)) * CHECKPOINT_LENGTH;
+    }
+
+    static void putCheckpoint(
+        final AtomicBuffer buffer,
+        final int checkpointCount,
+        final long recordPosition,
+        final int sequenceIndex,
+        final int sequenceNumber)
+    {
+        if ((recordPosition & (CHECKPOINT_SPAN - 1)) == 0)
+        {
+            final int offset = checkpointOffset(checkpointNumber(recordPosition), checkpointCount);
+            buffer.putLongOrdered(offset + CHECKPOINT_POSITION_OFFSET, NO_CHECKPOINT);
+            UNSAFE.storeFence();
+            buffer.putInt(offset + CHECKPOINT_SEQUENCE_INDEX_OFFSET, sequenceIndex);
+            buffer.putInt(offset + CHECKPOINT_SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+            buffer.putLongOrdered(offset + CHECKPOINT_POSITION_OFFSET, recordPosition);
+        }
+    }
+
+    static long checkpointPositionVolatile(final AtomicBuffer buffer, final int offset)
+    {
+        return buffer.getLongVolatile(offset + CHECKPOINT_POSITION_OFFSET);
+    }
+
+    static int checkpointSequenceIndex(final AtomicBuffer buffer, final int offset)
+    {
+        return buffer.getInt(offset + CHECKPOINT_SEQUENCE_INDEX_OFFSET);
+    }
+
+    static int checkpointSequenceNumber(final AtomicBuffer buffer, final int offset)
+    {
+        return buffer.getInt(offset + CHECKPOINT_SEQUENCE_NUMBER_OFFSET);
+    }
+
     static int offsetInSegment(final long changePosition, final long capacity)
     {
         // changePosition % capacity = changePosition & (capacity - 1)
@@ -22,26 +22,44 @@ import io.aeron.Subscription;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.archive.client.ArchiveException;
 import io.aeron.archive.status.RecordingPos;
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.status.CountersReader;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
+import uk.co.real_logic.artio.engine.logger.RecentMessageCache.CachedMessages;
 import uk.co.real_logic.artio.util.CharFormatter;
 
 import java.util.List;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.BREAK;
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_FRAME_HEADER_OFFSET;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_HEADER_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_LENGTH_OFFSET;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_POSITION_BITS_TO_SHIFT_OFFSET;
 
 /**
  * A continuable replay operation that can retried.
  *
+ * Replays its ranges from the archive and then any messages that were served from the {@link RecentMessageCache}.
+ *
  * Each object is single threaded, but different objects used on different threads.
  */
 public class ReplayOperation
 {
     private static final FragmentHandler EMPTY_FRAGMENT_HANDLER = (buffer, offset, length, header) -> {};
 
+    // Cached messages store their term id relative to the initial term id, so their headers only vary by the
+    // position bits to shift, which indexes this array.
+    private static final ThreadLocal<Header[]> CACHED_MESSAGE_HEADERS =
+        ThreadLocal.withInitial(() -> new Header[Integer.SIZE]);
+
     private static final ThreadLocal<CharFormatter> RECORDING_RANGE_FORMATTER =
         ThreadLocal.withInitial(() -> new CharFormatter("ReplayOperation : Attempting Recording Range:" +
         " RecordingRange{" +
@@ -77,6 +95,7 @@ public class ReplayOperation
     private final ControlledFragmentAssembler assembler;
 
     private final List<RecordingRange> ranges;
+    private final ReplayHeaderOffsets headerOffsets;
     private final AeronArchive aeronArchive;
     private final ErrorHandler errorHandler;
     private final int archiveReplayStream;
@@ -93,6 +112,9 @@ public class ReplayOperation
     private int aeronSessionId;
     private Image image;
 
+    private CachedMessages cachedMessages;
+    private int cachedMessagesOffset;
+
     private enum State
     {
         REPLAYING,
@@ -106,17 +128,21 @@ public class ReplayOperation
 
     ReplayOperation(
         final List<RecordingRange> ranges,
+        final ReplayHeaderOffsets headerOffsets,
         final AeronArchive aeronArchive,
         final ErrorHandler errorHandler,
         final Subscription subscription,
         final int archiveReplayStream,
         final LogTag logTag,
-        final MessageTracker messageTracker)
+        final MessageTracker messageTracker,
+        final CachedMessages cachedMessages)
     {
         this.messageTracker = messageTracker;
+        this.cachedMessages = cachedMessages;
         assembler = new ControlledFragmentAssembler(this.messageTracker);
 
         this.ranges = ranges;
+        this.headerOffsets = headerOffsets;
         this.aeronArchive = aeronArchive;
         this.errorHandler = errorHandler;
         this.archiveReplayStream = archiveReplayStream;
@@ -129,6 +155,19 @@ public class ReplayOperation
         logTagEnabled = DebugLogger.isEnabled(logTag);
     }
 
+    /**
+     * Get the header offsets that the replay index stored for the message being replayed.
+     *
+     * @param endPosition the position of the end of the message.
+     * @return the header offsets or {@link uk.co.real_logic.artio.engine.PossDupFinder#NO_HEADER_OFFSETS} if
+     *         they're not known.
+     */
+    public int headerOffsets(final long endPosition)
+    {
+        final ReplayHeaderOffsets headerOffsets = this.headerOffsets;
+        return headerOffsets == null ? NO_HEADER_OFFSETS : headerOffsets.lookup(endPosition);
+    }
+
     /**
      * Attempt a replay step
      *
@@ -255,7 +294,7 @@ public class ReplayOperation
             DebugLogger.log(logTag, "Acquiring Recording Range");
             if (ranges.isEmpty())
             {
-                return true;
+                return replayCachedMessages();
             }
 
             recordingRange = ranges.get(0);
@@ -398,7 +437,7 @@ public class ReplayOperation
         replayedMessages += recordingRangeCount;
         recordingRange = null;
 
-        return ranges.isEmpty();
+        return ranges.isEmpty() && replayCachedMessages();
     }
 
     private boolean onEndOfImage(final int recordingRangeCount, final boolean closed, final boolean endOfStream)
@@ -415,7 +454,59 @@ public class ReplayOperation
         recordingRange = null;
         image = null;
 
-        return ranges.isEmpty();
+        return ranges.isEmpty() && replayCachedMessages();
+    }
+
+    // The cached messages are newer than any archive range, so they're replayed last.
+    private boolean replayCachedMessages()
+    {
+        final CachedMessages cachedMessages = this.cachedMessages;
+        if (cachedMessages == null)
+        {
+            return true;
+        }
+
+        final MessageTracker messageTracker = this.messageTracker;
+        final DirectBuffer buffer = cachedMessages.buffer();
+        final int limit = cachedMessages.limit();
+        int offset = cachedMessagesOffset;
+        if (offset == 0)
+        {
+            messageTracker.reset(cachedMessages.count());
+        }
+
+        final Header[] headers = CACHED_MESSAGE_HEADERS.get();
+        while (offset < limit)
+        {
+            final int length = buffer.getInt(offset + CACHED_LENGTH_OFFSET);
+            final int positionBitsToShift = buffer.getInt(offset + CACHED_POSITION_BITS_TO_SHIFT_OFFSET);
+            Header header = headers[positionBitsToShift];
+            if (header == null)
+            {
+                header = new Header(0, positionBitsToShift);
+                headers[positionBitsToShift] = header;
+            }
+            header.buffer(buffer);
+            header.offset(offset + CACHED_FRAME_HEADER_OFFSET);
+
+            final Action action = messageTracker.onFragment(buffer, offset + CACHED_HEADER_LENGTH, length, header);
+            if (action == ABORT)
+            {
+                cachedMessagesOffset = offset;
+                return false;
+            }
+
+            offset += CACHED_HEADER_LENGTH + length;
+            if (action == BREAK)
+            {
+                cachedMessagesOffset = offset;
+                return false;
+            }
+        }
+
+        replayedMessages += cachedMessages.count();
+        this.cachedMessages = null;
+        return true;
     }
 
     int replayedMessages()
@@ -28,6 +28,7 @@ import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
+import uk.co.real_logic.artio.engine.logger.RecentMessageCache.CachedMessages;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
 import uk.co.real_logic.artio.util.CharFormatter;
@@ -74,7 +75,9 @@ public class ReplayQuery implements AutoCloseable
     private final int segmentSize;
     private final int segmentSizeBitShift;
     private final int segmentCount;
+    private final int checkpointCount;
     private final long indexFileSize;
+    private final RecentMessageCache recentMessageCache;
 
     private Subscription replaySubscription;
 
@@ -89,7 +92,8 @@ public class ReplayQuery implements AutoCloseable
         final ErrorHandler errorHandler,
         final int archiveReplayStream,
         final int indexFileCapacity,
-        final int indexSegmentCapacity)
+        final int indexSegmentCapacity,
+        final RecentMessageCache recentMessageCache)
     {
         this.logFileDir = logFileDir;
         this.indexBufferFactory = indexBufferFactory;
@@ -98,17 +102,22 @@ public class ReplayQuery implements AutoCloseable
         this.aeronArchive = aeronArchive;
         this.errorHandler = errorHandler;
         this.archiveReplayStream = archiveReplayStream;
+        this.recentMessageCache = recentMessageCache;
 
         this.indexFileSize = ReplayIndexDescriptor.capacityToBytes(indexFileCapacity);
         this.segmentSize = ReplayIndexDescriptor.capacityToBytesInt(indexSegmentCapacity);
         this.segmentSizeBitShift = Long.numberOfTrailingZeros(segmentSize);
         this.segmentCount = ReplayIndexDescriptor.segmentCount(indexFileCapacity, indexSegmentCapacity);
+        this.checkpointCount = ReplayIndexDescriptor.checkpointCount(indexFileCapacity);
 
         logFileDirFile = new File(logFileDir);
         fixSessionToIndex = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, SessionQuery::close);
     }
 
     /**
+     * Query the messages to replay, recent messages of a single sequence index are served from the
+     * {@link RecentMessageCache} if one is configured and only the older messages that it doesn't cover are replayed
+     * from the archive.
      *
      * @param sessionId the FIX session id of the stream to replay.
      * @param beginSequenceNumber sequence number to begin replay at (inclusive).
@@ -128,14 +137,57 @@ public class ReplayQuery implements AutoCloseable
         final LogTag logTag,
         final MessageTracker tracker)
     {
+        final CachedMessages cachedMessages = queryRecentMessages(
+            sessionId, beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex);
+        if (cachedMessages != null && cachedMessages.beginSequenceNumber() <= beginSequenceNumber)
+        {
+            return newReplayOperation(new ArrayList<>(), null, logTag, tracker, cachedMessages);
+        }
+
         final SessionQuery sessionQuery = lookupSessionQuery(sessionId);
         if (sessionQuery == null)
         {
             return null;
         }
 
-        return sessionQuery
-            .query(beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex, logTag, tracker);
+        if (cachedMessages != null)
+        {
+            return sessionQuery.query(
+                beginSequenceNumber, beginSequenceIndex, cachedMessages.beginSequenceNumber() - 1, endSequenceIndex,
+                logTag, tracker, cachedMessages);
+        }
+
+        return sessionQuery.query(
+            beginSequenceNumber, beginSequenceIndex, endSequenceNumber, endSequenceIndex, logTag, tracker, null);
+    }
+
+    private CachedMessages queryRecentMessages(
+        final long sessionId,
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex)
+    {
+        final RecentMessageCache recentMessageCache = this.recentMessageCache;
+        if (recentMessageCache == null || beginSequenceIndex != endSequenceIndex)
+        {
+            return null;
+        }
+
+        final CachedMessages cachedMessages = recentMessageCache.query(
+            sessionId, beginSequenceIndex, beginSequenceNumber, endSequenceNumber);
+        if (cachedMessages == null)
+        {
+            return null;
+        }
+
+        // The cache only has messages after the end of the query, so it's all in the archive.
+        if (endSequenceNumber != MOST_RECENT_MESSAGE && cachedMessages.beginSequenceNumber() > endSequenceNumber)
+        {
+            return null;
+        }
+
+        return cachedMessages;
     }
 
     public void queryStartPositions(final Long2LongHashMap newStartPositions)
@@ -158,6 +210,31 @@ public class ReplayQuery implements AutoCloseable
         }
     }
 
+    private ReplayOperation newReplayOperation(
+        final List<RecordingRange> ranges,
+        final ReplayHeaderOffsets headerOffsets,
+        final LogTag logTag,
+        final MessageTracker messageTracker,
+        final CachedMessages cachedMessages)
+    {
+        if (replaySubscription == null)
+        {
+            replaySubscription = aeronArchive.context().aeron().addSubscription(
+                IPC_CHANNEL, archiveReplayStream);
+        }
+
+        return new ReplayOperation(
+            ranges,
+            headerOffsets,
+            aeronArchive,
+            errorHandler,
+            replaySubscription,
+            archiveReplayStream,
+            logTag,
+            messageTracker,
+            cachedMessages);
+    }
+
     private SessionQuery lookupSessionQuery(final long sessionId)
     {
         return fixSessionToIndex.computeIfAbsent(sessionId, newSessionQuery);
@@ -197,6 +274,7 @@ public class ReplayQuery implements AutoCloseable
         private final File headerFile;
         private final UnsafeBuffer headerBuffer;
         private final UnsafeBuffer[] segmentBuffers;
+        private final UnsafeBuffer checkpointBuffer;
 
         private final int actingBlockLength;
         private final int actingVersion;
@@ -211,6 +289,12 @@ public class ReplayQuery implements AutoCloseable
             messageFrameHeader.wrap(headerBuffer, 0);
             actingBlockLength = messageFrameHeader.blockLength();
             actingVersion = messageFrameHeader.version();
+
+            // Indices written before checkpoints were added won't have a checkpoint file
+            final File checkpointFile = replayIndexCheckpointFile(logFileDir, fixSessionId, requiredStreamId);
+            checkpointBuffer = checkpointCount > 0 &&
+                checkpointFile.exists() && checkpointFile.length() == checkpointFileSize(checkpointCount) ?
+                new UnsafeBuffer(indexBufferFactory.map(checkpointFile)) : null;
         }
 
         ReplayOperation query(
@@ -219,7 +303,8 @@ public class ReplayQuery implements AutoCloseable
             final int endSequenceNumber,
             final int endSequenceIndex,
             final LogTag logTag,
-            final MessageTracker messageTracker)
+            final MessageTracker messageTracker,
+            final CachedMessages cachedMessages)
         {
             final boolean log = IS_REPLAY_ATTEMPT_ENABLED && logTag == LogTag.REPLAY;
             if (log)
@@ -244,10 +329,14 @@ public class ReplayQuery implements AutoCloseable
             // NB: this is a List as we are looking up recordings in the correct order to replay them.
             final List<RecordingRange> ranges = new ArrayList<>();
             RecordingRange currentRange = null;
+            // Indices written before header offsets were stored don't have any to look up.
+            final ReplayHeaderOffsets headerOffsets =
+                actingVersion >= ReplayIndexRecordDecoder.headerOffsetsSinceVersion() ?
+                new ReplayHeaderOffsets() : null;
 
             long iteratorPosition = getIteratorPosition();
             long stopIteratingPosition = iteratorPosition + indexFileSize;
-
+            iteratorPosition = checkpointIteratorPosition(iteratorPosition, beginSequenceNumber, beginSequenceIndex);
             int lastSequenceNumber = -1;
             while (iteratorPosition < stopIteratingPosition)
             {
@@ -271,6 +360,7 @@ public class ReplayQuery implements AutoCloseable
                 final int sequenceNumber = indexRecord.sequenceNumber();
                 final long recordingId = indexRecord.recordingId();
                 final int readLength = indexRecord.length();
+                final int recordHeaderOffsets = indexRecord.headerOffsets();
 
                 UNSAFE.loadFence(); // LoadLoad required so previous loads don't move past version check below.
 
@@ -299,6 +389,10 @@ public class ReplayQuery implements AutoCloseable
                         currentRange = addRange(
                             ranges, currentRange, lastSequenceNumber, beginPosition, sequenceNumber,
                             recordingId, readLength);
+                        if (headerOffsets != null)
+                        {
+                            headerOffsets.add(beginPosition + readLength, recordHeaderOffsets);
+                        }
                         lastSequenceNumber = sequenceNumber;
                         iteratorPosition += RECORD_LENGTH;
                     }
@@ -318,7 +412,7 @@ public class ReplayQuery implements AutoCloseable
                 ranges.add(currentRange);
             }
 
-            return newReplayOperation(ranges, logTag, messageTracker);
+            return newReplayOperation(ranges, headerOffsets, logTag, messageTracker, cachedMessages);
         }
 
         private UnsafeBuffer segmentBuffer(
@@ -338,6 +432,66 @@ public class ReplayQuery implements AutoCloseable
             return segmentBuffer;
         }
 
+        // Binary search the checkpoints for the last one before the start of the query, so that only the records
+        // between it and the start of the query need to be scanned. If a checkpoint is missing or being
+        // concurrently overwritten then we just fall back to scanning from the iterator position.
+        private long checkpointIteratorPosition(
+            final long iteratorPosition, final int beginSequenceNumber, final int beginSequenceIndex)
+        {
+            final UnsafeBuffer checkpointBuffer = this.checkpointBuffer;
+            if (checkpointBuffer == null)
+            {
+                return iteratorPosition;
+            }
+
+            final long endChangePosition = endChangeVolatile(headerBuffer);
+            if (endChangePosition < RECORD_LENGTH)
+            {
+                return iteratorPosition;
+            }
+
+            // iterator positions are a lap ahead of record positions once the index has wrapped
+            final long lapOffset = iteratorPosition < indexFileSize ? 0 : indexFileSize;
+            final long oldestRecordPosition = iteratorPosition - lapOffset;
+
+            long low = checkpointNumber(oldestRecordPosition + CHECKPOINT_SPAN - 1);
+            long high = checkpointNumber(endChangePosition - RECORD_LENGTH);
+            long found = NO_CHECKPOINT;
+            while (low <= high)
+            {
+                final long mid = (low + high) >>> 1;
+                final long checkpointPosition = mid * CHECKPOINT_SPAN;
+                final int offset = checkpointOffset(mid, checkpointCount);
+
+                if (checkpointPositionVolatile(checkpointBuffer, offset) != checkpointPosition)
+                {
+                    return iteratorPosition;
+                }
+                final int sequenceIndex = checkpointSequenceIndex(checkpointBuffer, offset);
+                final int sequenceNumber = checkpointSequenceNumber(checkpointBuffer, offset);
+                UNSAFE.loadFence(); // LoadLoad required so previous loads don't move past version check below.
+                if (checkpointPositionVolatile(checkpointBuffer, offset) != checkpointPosition)
+                {
+                    return iteratorPosition;
+                }
+
+                // Strictly before so that earlier fragments or duplicates of the first sequence number aren't skipped
+                final boolean beforeStart = sequenceIndex < beginSequenceIndex ||
+                    (sequenceIndex == beginSequenceIndex && sequenceNumber < beginSequenceNumber);
+                if (beforeStart)
+                {
+                    found = mid;
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid - 1;
+                }
+            }
+
+            return found == NO_CHECKPOINT ? iteratorPosition : found * CHECKPOINT_SPAN + lapOffset;
+        }
+
         private long skipToStart(final int beginSequenceNumber, final long iteratorPosition, final int sequenceNumber)
         {
             if (sequenceNumber < beginSequenceNumber)
@@ -360,25 +514,6 @@ public class ReplayQuery implements AutoCloseable
             return iteratorPosition + jumpInBytes;
         }
 
-        private ReplayOperation newReplayOperation(
-            final List<RecordingRange> ranges, final LogTag logTag, final MessageTracker messageTracker)
-        {
-            if (replaySubscription == null)
-            {
-                replaySubscription = aeronArchive.context().aeron().addSubscription(
-                    IPC_CHANNEL, archiveReplayStream);
-            }
-
-            return new ReplayOperation(
-                ranges,
-                aeronArchive,
-                errorHandler,
-                replaySubscription,
-                archiveReplayStream,
-                logTag,
-                messageTracker);
-        }
-
         private RecordingRange addRange(
             final List<RecordingRange> ranges,
             final RecordingRange currentRange,
@@ -490,6 +625,10 @@ public class ReplayQuery implements AutoCloseable
         public void close()
         {
             IoUtil.unmap(headerBuffer.byteBuffer());
+            if (checkpointBuffer != null)
+            {
+                IoUtil.unmap(checkpointBuffer.byteBuffer());
+            }
             for (final UnsafeBuffer segmentBuffer : segmentBuffers)
             {
                 if (segmentBuffer != null)
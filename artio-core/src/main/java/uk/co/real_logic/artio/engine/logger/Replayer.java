@@ -19,6 +19,7 @@ import io.aeron.ExclusivePublication;
 import io.aeron.Subscription;
 import io.aeron.logbuffer.BufferClaim;
 import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.collections.CollectionUtil;
@@ -113,6 +114,9 @@ public class Replayer extends AbstractReplayer
     private final ReplayHandler replayHandler;
     private final FixPRetransmitHandler fixPRetransmitHandler;
     private final UtcTimestampEncoder utcTimestampEncoder;
+    private final ReplayIndexBarrier outboundIndexBarrier;
+
+    private boolean awaitingOutboundIndexBarrier;
 
     public Replayer(
         final ReplayQuery outboundReplayQuery,
@@ -136,7 +140,8 @@ public class Replayer extends AbstractReplayer
         final int maxConcurrentSessionReplays,
         final EpochNanoClock clock,
         final FixPProtocolType fixPProtocolType,
-        final EngineConfiguration configuration)
+        final EngineConfiguration configuration,
+        final ReplayIndexBarrier outboundIndexBarrier)
     {
         super(publication, fixSessionCodecsFactory, bufferClaim, senderSequenceNumbers);
         this.outboundReplayQuery = outboundReplayQuery;
@@ -155,6 +160,7 @@ public class Replayer extends AbstractReplayer
         this.maxConcurrentSessionReplays = maxConcurrentSessionReplays;
         this.clock = clock;
         this.configuration = configuration;
+        this.outboundIndexBarrier = outboundIndexBarrier;
 
         gapFillMessageTypes = packAllMessageTypes(gapfillOnReplayMessageTypes);
         utcTimestampEncoder = new UtcTimestampEncoder(epochFractionFormat);
@@ -182,6 +188,11 @@ public class Replayer extends AbstractReplayer
         {
             case ValidResendRequestDecoder.TEMPLATE_ID:
             {
+                if (!hasIndexedSentMessages())
+                {
+                    return ABORT;
+                }
+
                 validResendRequest.wrap(
                     buffer,
                     offset,
@@ -201,8 +212,13 @@ public class Replayer extends AbstractReplayer
                     DebugLogger.logSbeDecoder(REPLAY, "Replayer:", validResendRequestAppendTo);
                 }
 
-                return onResendRequest(
+                final Action action = onResendRequest(
                     sessionId, connectionId, correlationId, beginSeqNo, endSeqNo, sequenceIndex, asciiBuffer);
+                if (action != ABORT)
+                {
+                    awaitingOutboundIndexBarrier = false;
+                }
+                return action;
             }
 
             case ILinkConnectDecoder.TEMPLATE_ID:
@@ -249,6 +265,26 @@ public class Replayer extends AbstractReplayer
         }
     }
 
+    // When the outbound indexer runs on another thread the messages that a resend request asks for may not have been
+    // indexed yet, so the request waits for the index to reach the positions recorded when it was first received.
+    // Messages sent after that don't hold the request up.
+    private boolean hasIndexedSentMessages()
+    {
+        final ReplayIndexBarrier outboundIndexBarrier = this.outboundIndexBarrier;
+        if (outboundIndexBarrier == null)
+        {
+            return true;
+        }
+
+        if (!awaitingOutboundIndexBarrier)
+        {
+            outboundIndexBarrier.capture();
+            awaitingOutboundIndexBarrier = true;
+        }
+
+        return outboundIndexBarrier.isReached();
+    }
+
     private void onDisconnect(final long connectionId)
     {
         fixPConnectionIds.remove(connectionId);
@@ -453,7 +489,8 @@ public class Replayer extends AbstractReplayer
             maxBytesInBuffer,
             utcTimestampEncoder,
             this,
-            throttleRejectBuilder);
+            throttleRejectBuilder,
+            sessionCodecs.dictionary().headerFieldTags());
 
         fixReplayerSession.query();
 
@@ -520,6 +557,7 @@ public class Replayer extends AbstractReplayer
         currentReplayCount.set(0);
         currentReplayCount.close();
         outboundReplayQuery.close();
+        CloseHelper.close(outboundIndexBarrier);
         super.onClose();
     }
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.concurrent.AtomicBuffer;
+
+/**
+ * The in-memory copy of a sequence number index, shared between its {@link SequenceNumberIndexWriter} and the
+ * {@link SequenceNumberIndexReader}s on other threads.
+ * <p>
+ * When the index grows the writer copies it into a larger buffer and publishes that buffer here, readers pick it up
+ * on their next lookup. A reader that is part way through a lookup on the previous buffer just sees slightly stale
+ * values, since the writer stops updating it before publishing its replacement.
+ */
+public final class SequenceNumberIndexBuffer
+{
+    private volatile AtomicBuffer buffer;
+
+    public SequenceNumberIndexBuffer(final AtomicBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    public AtomicBuffer buffer()
+    {
+        return buffer;
+    }
+
+    void buffer(final AtomicBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+}
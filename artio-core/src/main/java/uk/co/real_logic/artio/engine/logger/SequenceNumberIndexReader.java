@@ -40,33 +40,60 @@ import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEnc
 import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder.SCHEMA_VERSION;
 
 /**
- * Designed to used on a single thread
+ * Designed to used on a single thread. If the index grows then the reader switches to the index's new buffer on its
+ * next lookup.
  */
 public class SequenceNumberIndexReader implements AutoCloseable
 {
     private final MessageHeaderDecoder fileHeaderDecoder = new MessageHeaderDecoder();
     private final LastKnownSequenceNumberDecoder lastKnownDecoder = new LastKnownSequenceNumberDecoder();
-    private final AtomicBuffer inMemoryBuffer;
-    private final SectorFramer sectorFramer;
-    private final IndexedPositionReader positions;
+    private final SequenceNumberIndexBuffer indexBuffer;
     private final ErrorHandler errorHandler;
     private final RecordingIdLookup recordingIdLookup;
     private final RandomAccessFile metaDataFile;
 
+    private AtomicBuffer inMemoryBuffer;
+    private SectorFramer sectorFramer;
+    private IndexedPositionReader positions;
+
     public SequenceNumberIndexReader(
         final AtomicBuffer inMemoryBuffer,
         final ErrorHandler errorHandler,
         final RecordingIdLookup recordingIdLookup,
         final String metaDataDir)
     {
-        this.inMemoryBuffer = inMemoryBuffer;
+        this(new SequenceNumberIndexBuffer(inMemoryBuffer), errorHandler, recordingIdLookup, metaDataDir);
+    }
+
+    public SequenceNumberIndexReader(
+        final SequenceNumberIndexBuffer indexBuffer,
+        final ErrorHandler errorHandler,
+        final RecordingIdLookup recordingIdLookup,
+        final String metaDataDir)
+    {
+        this.indexBuffer = indexBuffer;
         this.errorHandler = errorHandler;
         this.recordingIdLookup = recordingIdLookup;
+        wrapBuffer(indexBuffer.buffer());
+        validateBuffer();
+        metaDataFile = openMetaDataFile(metaDataDir);
+    }
+
+    private void wrapBuffer(final AtomicBuffer inMemoryBuffer)
+    {
+        this.inMemoryBuffer = inMemoryBuffer;
         final int positionTableOffset = positionTableOffset(inMemoryBuffer.capacity());
         sectorFramer = new SectorFramer(positionTableOffset);
-        validateBuffer();
         positions = new IndexedPositionReader(positionsBuffer(inMemoryBuffer, positionTableOffset));
-        metaDataFile = openMetaDataFile(metaDataDir);
+    }
+
+    private void checkBuffer()
+    {
+        final AtomicBuffer inMemoryBuffer = indexBuffer.buffer();
+        if (inMemoryBuffer != this.inMemoryBuffer)
+        {
+            wrapBuffer(inMemoryBuffer);
+        }
     }
 
     private RandomAccessFile openMetaDataFile(final String metaDataDir)
@@ -89,6 +116,9 @@ public class SequenceNumberIndexReader implements AutoCloseable
 
     public int lastKnownSequenceNumber(final long sessionId)
     {
+        checkBuffer();
+        final AtomicBuffer inMemoryBuffer = this.inMemoryBuffer;
+        final SectorFramer sectorFramer = this.sectorFramer;
         int position = SequenceNumberIndexDescriptor.HEADER_SIZE;
         while (true)
         {
@@ -122,6 +152,8 @@ public class SequenceNumberIndexReader implements AutoCloseable
         {
             return UNKNOWN_POSITION;
         }
+
+        checkBuffer();
         return positions.indexedPosition(recordingId);
     }
 
@@ -26,9 +26,11 @@ import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ChecksumFramer;
 import uk.co.real_logic.artio.engine.MappedFile;
+import uk.co.real_logic.artio.engine.SectorJournal;
 import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
 import uk.co.real_logic.artio.engine.framer.FramerContext;
 import uk.co.real_logic.artio.engine.framer.WriteMetaDataResponse;
@@ -43,13 +45,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 
 import static io.aeron.archive.status.RecordingPos.NULL_RECORDING_ID;
 import static io.aeron.protocol.DataHeaderFlyweight.BEGIN_FLAG;
-import static uk.co.real_logic.artio.CommonConfiguration.RUNNING_ON_WINDOWS;
 import static uk.co.real_logic.artio.engine.SectorFramer.*;
+import static uk.co.real_logic.artio.engine.SectorJournal.UNCHANGED_CAPACITY;
 import static uk.co.real_logic.artio.engine.SequenceNumberExtractor.NO_SEQUENCE_NUMBER;
 import static uk.co.real_logic.artio.engine.SessionInfo.UNK_SESSION;
 import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexDescriptor.*;
@@ -57,8 +60,17 @@ import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataSinceVer
 import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEncoder.SCHEMA_VERSION;
 
 /**
- * Writes updates into an in-memory buffer. This buffer is then flushed down to disk. A passing place
- * file is used to ensure that there's a recoverable option if it fails.
+ * Writes updates into an in-memory buffer. The sectors of this buffer that have been updated are then flushed down
+ * to disk in place. A {@link SectorJournal} is used to ensure that there's a recoverable option if it fails.
+ *
+ * Older versions flipped between the index file and a writable copy of it, a passing place file left by a failure
+ * part way through a flip is still recovered.
+ *
+ * When there's no space for a new session's record the index grows by a segment, up to a maximum capacity. The
+ * in-memory buffer is copied into a larger one that is published to readers through the
+ * {@link SequenceNumberIndexBuffer}, and the positions table is moved up to its offset for the new capacity. Only the
+ * sectors that the positions table has moved out of or into are flushed, through the journal, which records the new
+ * capacity so that an interrupted growth of the file is completed on restart.
  */
 public class SequenceNumberIndexWriter implements Index, RedactHandler
 {
@@ -97,19 +109,26 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
 
     private final SequenceNumberExtractor sequenceNumberExtractor;
     private FramerContext framerContext;
-    private final ChecksumFramer checksumFramer;
-    private final AtomicBuffer inMemoryBuffer;
+    private final SequenceNumberIndexBuffer indexBuffer;
     private final ErrorHandler errorHandler;
     private final Path indexPath;
-    private final Path writablePath;
     private final Path passingPlacePath;
-    private final int fileCapacity;
+    private final SectorJournal journal;
     private final int streamId;
-    private final int indexedPositionsOffset;
+    private final boolean indexChecksumEnabled;
+    private final int growthSegmentSize;
+    private final int maxCapacity;
     private final IndexedPositionWriter positionWriter;
     private final FixPSequenceIndexer fixPSequenceIndexer;
 
-    private MappedFile writableFile;
+    // Replaced when the index grows
+    private AtomicBuffer inMemoryBuffer;
+    private ChecksumFramer checksumFramer;
+    // A bit per sector of the in-memory buffer that has been updated since the last flush
+    private long[] dirtySectors;
+    private int fileCapacity;
+    private int indexedPositionsOffset;
+
     private MappedFile indexFile;
     private long nextRollPosition = UNINITIALISED;
 
@@ -134,32 +153,68 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         final boolean sent,
         final boolean indexChecksumEnabled,
         final boolean logMessages)
+    {
+        this(
+            sequenceNumberExtractor,
+            new SequenceNumberIndexBuffer(inMemoryBuffer),
+            indexFile,
+            errorHandler,
+            streamId,
+            recordingIdLookup,
+            indexFileStateFlushTimeoutInMs,
+            clock,
+            metaDataDir,
+            connectionIdToFixPSessionId,
+            fixPProtocolType,
+            sent,
+            indexChecksumEnabled,
+            logMessages,
+            0,
+            inMemoryBuffer.capacity());
+    }
+
+    public SequenceNumberIndexWriter(
+        final SequenceNumberExtractor sequenceNumberExtractor,
+        final SequenceNumberIndexBuffer indexBuffer,
+        final MappedFile indexFile,
+        final ErrorHandler errorHandler,
+        final int streamId,
+        final RecordingIdLookup recordingIdLookup,
+        final long indexFileStateFlushTimeoutInMs,
+        final EpochClock clock,
+        final String metaDataDir,
+        final Long2LongHashMap connectionIdToFixPSessionId,
+        final FixPProtocolType fixPProtocolType,
+        final boolean sent,
+        final boolean indexChecksumEnabled,
+        final boolean logMessages,
+        final int growthSegmentSize,
+        final int maxCapacity)
     {
         this.sequenceNumberExtractor = sequenceNumberExtractor;
-        this.inMemoryBuffer = inMemoryBuffer;
+        this.indexBuffer = indexBuffer;
         this.indexFile = indexFile;
         this.errorHandler = errorHandler;
         this.streamId = streamId;
-        this.fileCapacity = indexFile.buffer().capacity();
         this.indexFileStateFlushTimeoutInMs = indexFileStateFlushTimeoutInMs;
         this.clock = clock;
+        this.indexChecksumEnabled = indexChecksumEnabled;
+        this.growthSegmentSize = growthSegmentSize;
+        this.maxCapacity = maxCapacity;
 
         this.sessionOwnershipTracker = new SessionOwnershipTracker(sent, this);
         final String indexFilePath = indexFile.file().getAbsolutePath();
         indexPath = indexFile.file().toPath();
-        final File writeableFile = writableFile(indexFilePath);
-        writablePath = writeableFile.toPath();
         passingPlacePath = passingFile(indexFilePath).toPath();
-        writableFile = MappedFile.map(writeableFile, fileCapacity);
+        journal = new SectorJournal(journalFile(indexFilePath));
 
         // TODO: Fsync parent directory
-        indexedPositionsOffset = positionTableOffset(fileCapacity);
-        checksumFramer = new ChecksumFramer(
-            inMemoryBuffer, indexedPositionsOffset, errorHandler, 0, "SequenceNumberIndex",
-            indexChecksumEnabled);
         try
         {
             initialiseBuffer();
+            deleteLegacyWritableFile(indexFilePath);
+            // Sectors aren't tracked until the buffer has been initialised, so the first flush writes all of them.
+            markAllSectorsDirty();
             if (logMessages)
             {
                 positionWriter = new IndexedPositionWriter(
@@ -187,12 +242,12 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         }
         catch (final Exception e)
         {
-            CloseHelper.close(writableFile);
+            CloseHelper.close(journal);
             indexFile.close();
             throw e;
         }
 
-        reader = new SequenceNumberIndexReader(inMemoryBuffer, errorHandler, recordingIdLookup, metaDataDir);
+        reader = new SequenceNumberIndexReader(indexBuffer, errorHandler, recordingIdLookup, metaDataDir);
         fixPSequenceIndexer = new FixPSequenceIndexer(
             connectionIdToFixPSessionId, errorHandler, fixPProtocolType, reader,
             (seqNum, uuid, messageSize, endPosition, aeronSessionId, possRetrans, timestamp, forNextSession) ->
@@ -698,6 +753,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
     void resetSequenceNumbers()
     {
         inMemoryBuffer.setMemory(0, indexedPositionsOffset, (byte)0);
+        markAllSectorsDirty();
         initialiseBlankBuffer();
         recordOffsets.clear();
         resetMetaDataFile();
@@ -737,22 +793,73 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
 
     private void updateFile()
     {
-        checksumFramer.updateChecksums();
+        final AtomicBuffer inMemoryBuffer = this.inMemoryBuffer;
+        final SectorJournal journal = this.journal;
+        final long[] dirtySectors = this.dirtySectors;
+        final int positionsSector = indexedPositionsOffset / SECTOR_SIZE;
+
+        // Positions are updated by every message, so all of their used sectors are flushed.
         if (positionWriter != null)
         {
             positionWriter.updateChecksums();
+            markSectorsDirty(indexedPositionsOffset, indexedPositionsOffset + positionWriter.usedLength());
         }
-        saveFile();
-        flipFiles();
+
+        for (int i = 0; i < dirtySectors.length; i++)
+        {
+            long bits = dirtySectors[i];
+            while (bits != 0)
+            {
+                final int sector = i * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                final int sectorStart = sector * SECTOR_SIZE;
+                if (sector < positionsSector)
+                {
+                    checksumFramer.updateChecksum(sectorStart);
+                }
+                journal.add(inMemoryBuffer, sectorStart);
+            }
+        }
+
+        if (journal.sectorCount() > 0)
+        {
+            final int fileCapacity = this.fileCapacity;
+            final boolean grown = fileCapacity > indexFile.buffer().capacity();
+            journal.commit(grown ? fileCapacity : UNCHANGED_CAPACITY);
+            if (grown)
+            {
+                indexFile.growTo(fileCapacity);
+            }
+            saveFile();
+            journal.clear();
+        }
+        syncMetaDataFile();
+
+        Arrays.fill(dirtySectors, 0);
         hasSavedRecordSinceFileUpdate = false;
         lastUpdatedFileTimeInMs = clock.time();
     }
 
+    // Only called once the journal has been committed, so a failure part way through can be recovered from it.
     private void saveFile()
     {
-        writableFile.buffer().putBytes(0, inMemoryBuffer, 0, fileCapacity);
-        writableFile.force();
-        syncMetaDataFile();
+        final AtomicBuffer inMemoryBuffer = this.inMemoryBuffer;
+        final AtomicBuffer fileBuffer = indexFile.buffer();
+        final long[] dirtySectors = this.dirtySectors;
+        for (int i = 0; i < dirtySectors.length; i++)
+        {
+            long bits = dirtySectors[i];
+            while (bits != 0)
+            {
+                final int sectorStart = (i * Long.SIZE + Long.numberOfTrailingZeros(bits)) * SECTOR_SIZE;
+                bits &= bits - 1;
+
+                fileBuffer.putBytes(
+                    sectorStart, inMemoryBuffer, sectorStart, Math.min(SECTOR_SIZE, fileCapacity - sectorStart));
+            }
+        }
+        indexFile.force();
     }
 
     private void syncMetaDataFile()
@@ -770,29 +877,41 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         }
     }
 
-    private void flipFiles()
+    private void markSectorDirty(final int offset)
+    {
+        final int sector = offset / SECTOR_SIZE;
+        dirtySectors[sector / Long.SIZE] |= 1L << sector;
+    }
+
+    private void markSectorsDirty(final int start, final int end)
     {
-        if (RUNNING_ON_WINDOWS)
+        for (int offset = start; offset < end; offset += SECTOR_SIZE)
         {
-            writableFile.close();
-            indexFile.close();
+            markSectorDirty(offset);
         }
+        markSectorDirty(end - 1);
+    }
 
-        final boolean flipsFiles = rename(indexPath, passingPlacePath) &&
-            rename(writablePath, indexPath) &&
-            rename(passingPlacePath, writablePath);
+    private void markAllSectorsDirty()
+    {
+        markSectorsDirty(0, fileCapacity);
+    }
 
-        if (RUNNING_ON_WINDOWS)
+    private static int dirtySectorsLength(final int fileCapacity)
+    {
+        final int sectorCount = (fileCapacity + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        return (sectorCount + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private void deleteLegacyWritableFile(final String indexFilePath)
+    {
+        try
         {
-            // remapping flips the files here due to the rename
-            writableFile.map();
-            indexFile.map();
+            Files.deleteIfExists(writableFile(indexFilePath).toPath());
         }
-        else if (flipsFiles)
+        catch (final IOException e)
         {
-            final MappedFile file = this.writableFile;
-            writableFile = indexFile;
-            indexFile = file;
+            errorHandler.onError(e);
         }
     }
 
@@ -817,7 +936,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
 
     public boolean isOpen()
     {
-        return writableFile.isOpen();
+        return indexFile.isOpen();
     }
 
     public void close()
@@ -831,7 +950,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         }
         finally
         {
-            Exceptions.closeAll(indexFile, writableFile, reader, () ->
+            Exceptions.closeAll(indexFile, journal, reader, () ->
             {
                 if (metaDataFile != null)
                 {
@@ -870,13 +989,19 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
             position = SequenceNumberIndexDescriptor.HEADER_SIZE;
             while (true)
             {
-                position = checksumFramer.claim(position, RECORD_SIZE);
-                if (position == OUT_OF_SPACE)
+                final int claimedPosition = checksumFramer.claim(position, RECORD_SIZE);
+                if (claimedPosition == OUT_OF_SPACE)
                 {
+                    if (grow())
+                    {
+                        continue;
+                    }
+
                     errorHandler.onError(new IllegalStateException(
                         "Sequence Number Index out of space, can't claim slot for " + sessionId));
-                    return position;
+                    return OUT_OF_SPACE;
                 }
+                position = claimedPosition;
 
                 lastKnownDecoder.wrap(inMemoryBuffer, position, RECORD_SIZE, SCHEMA_VERSION);
                 if (lastKnownDecoder.sessionId() == 0)
@@ -979,6 +1104,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         final int position, final long messagePosition)
     {
         recordOffsets.put(sessionId, position);
+        markSectorDirty(position);
         lastKnownEncoder
             .wrap(inMemoryBuffer, position)
             .sessionId(sessionId)
@@ -989,11 +1115,11 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
 
     private void initialiseBuffer()
     {
-        validateBufferSizes();
-        final AtomicBuffer fileBuffer = indexFile.buffer();
-        if (fileHasBeenInitialized(fileBuffer))
+        if (fileHasBeenInitialized(indexFile.buffer()))
         {
-            readFile(fileBuffer);
+            recoverJournal();
+            wrapBuffer();
+            readFile(indexFile.buffer());
         }
         else if (Files.exists(passingPlacePath))
         {
@@ -1005,6 +1131,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
             }
             else
             {
+                wrapBuffer();
                 errorHandler.onError(new IllegalStateException(String.format(
                     "Unable to recover index file from %s to %s due to rename failure",
                     passingPlacePath,
@@ -1013,10 +1140,90 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         }
         else
         {
+            // Any journal was for a previous index file
+            journal.clear();
+            wrapBuffer();
             initialiseBlankBuffer();
         }
     }
 
+    // Complete a flush that failed part way through writing sectors into, or growing, the index file.
+    private void recoverJournal()
+    {
+        if (journal.recover(indexFile) > 0)
+        {
+            indexFile.force();
+        }
+        journal.clear();
+    }
+
+    // Lays the in-memory buffer out for the capacity of the index file.
+    private void wrapBuffer()
+    {
+        fileCapacity = indexFile.buffer().capacity();
+        AtomicBuffer inMemoryBuffer = indexBuffer.buffer();
+        if (growthSegmentSize > 0 && fileCapacity > inMemoryBuffer.capacity())
+        {
+            // The index grew when the engine was previously running
+            inMemoryBuffer = new UnsafeBuffer(new byte[fileCapacity]);
+            indexBuffer.buffer(inMemoryBuffer);
+        }
+        this.inMemoryBuffer = inMemoryBuffer;
+        validateBufferSizes();
+
+        indexedPositionsOffset = positionTableOffset(fileCapacity);
+        dirtySectors = new long[dirtySectorsLength(fileCapacity)];
+        checksumFramer = newChecksumFramer();
+    }
+
+    private ChecksumFramer newChecksumFramer()
+    {
+        return new ChecksumFramer(
+            inMemoryBuffer, indexedPositionsOffset, errorHandler, 0, "SequenceNumberIndex", indexChecksumEnabled);
+    }
+
+    private boolean grow()
+    {
+        final int capacity = fileCapacity;
+        // Sector aligned so that the positions table never shrinks as the index grows
+        final int newCapacity = (int)Math.min((long)capacity + growthSegmentSize, maxCapacity) & -SECTOR_SIZE;
+        if (growthSegmentSize <= 0 || newCapacity <= capacity)
+        {
+            return false;
+        }
+
+        final int positionsOffset = indexedPositionsOffset;
+        final int newPositionsOffset = positionTableOffset(newCapacity);
+        final int positionsLength = capacity - positionsOffset;
+        final int newPositionsLength = newCapacity - newPositionsOffset;
+        if (positionWriter != null && positionWriter.usedLength() > newPositionsLength)
+        {
+            return false;
+        }
+
+        final AtomicBuffer inMemoryBuffer = this.inMemoryBuffer;
+        final AtomicBuffer newBuffer = new UnsafeBuffer(new byte[newCapacity]);
+        newBuffer.putBytes(0, inMemoryBuffer, 0, positionsOffset);
+        newBuffer.putBytes(
+            newPositionsOffset, inMemoryBuffer, positionsOffset, Math.min(positionsLength, newPositionsLength));
+
+        this.inMemoryBuffer = newBuffer;
+        fileCapacity = newCapacity;
+        indexedPositionsOffset = newPositionsOffset;
+        checksumFramer = newChecksumFramer();
+        dirtySectors = Arrays.copyOf(dirtySectors, dirtySectorsLength(newCapacity));
+        // The old positions table's sectors are now empty records and everything after them is new.
+        markSectorsDirty(positionsOffset, newCapacity);
+        if (positionWriter != null)
+        {
+            positionWriter.wrap(positionsBuffer(newBuffer, newPositionsOffset), newPositionsOffset);
+        }
+
+        indexBuffer.buffer(newBuffer);
+        hasSavedRecordSinceFileUpdate = true;
+        return true;
+    }
+
     private void initialiseBlankBuffer()
     {
         LoggerUtil.initialiseBuffer(
@@ -1071,6 +1278,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         final int recordOffset,
         final long value)
     {
+        markSectorDirty(recordOffset);
         inMemoryBuffer.putLongOrdered(recordOffset + MESSAGE_POSITION_OFFSET, value);
     }
 
@@ -1078,6 +1286,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         final int recordOffset,
         final int value)
     {
+        markSectorDirty(recordOffset);
         inMemoryBuffer.putIntOrdered(recordOffset + SEQUENCE_NUMBER_OFFSET, value);
     }
 
@@ -1095,6 +1304,7 @@ public class SequenceNumberIndexWriter implements Index, RedactHandler
         final int recordOffset,
         final int value)
     {
+        markSectorDirty(recordOffset);
         inMemoryBuffer.putIntOrdered(recordOffset + META_DATA_OFFSET, value);
     }
 
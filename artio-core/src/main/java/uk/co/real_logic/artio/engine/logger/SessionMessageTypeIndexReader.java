@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.storage.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.storage.messages.SessionMessageTypeIndexRecordDecoder;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static uk.co.real_logic.artio.engine.logger.SessionMessageTypeIndexWriter.FILE_NAME;
+import static uk.co.real_logic.artio.engine.logger.SessionMessageTypeIndexWriter.UNINDEXED_SESSION_ID;
+
+class SessionMessageTypeIndexReader
+{
+    // Starting a replay has a cost, so it's cheaper to read small gaps between blocks than to replay them separately.
+    static final long MERGE_GAP_IN_BYTES = 256 * 1024;
+
+    private static final Comparator<PositionRange> BY_START_POSITION =
+        Comparator.comparingLong(PositionRange::startPosition);
+
+    private final String logFileDir;
+    private final int streamId;
+
+    SessionMessageTypeIndexReader(final String logFileDir, final int streamId)
+    {
+        this.logFileDir = logFileDir;
+        this.streamId = streamId;
+    }
+
+    /**
+     * Find the ranges of each indexed recording that could contain messages matching the query. Recordings without
+     * an index file aren't added to the map.
+     *
+     * @param indexQuery the query to lookup.
+     * @param recordingIdToPositionRanges the map to add ranges to, ranges are sorted and non-overlapping.
+     * @return false if the index directory doesn't exist, true otherwise.
+     */
+    boolean findPositionRanges(
+        final IndexQuery indexQuery, final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges)
+    {
+        final File logDir = new File(logFileDir);
+        final String fileNamePrefix = FILE_NAME + streamId + "-";
+        if (!logDir.exists() || !logDir.isDirectory())
+        {
+            return false;
+        }
+
+        for (final String file : logDir.list())
+        {
+            if (file.startsWith(fileNamePrefix))
+            {
+                final long recordingId = Long.parseLong(file.substring(fileNamePrefix.length()));
+
+                recordingIdToPositionRanges.put(recordingId, findPositionRanges(indexQuery, new File(logDir, file)));
+            }
+        }
+
+        return true;
+    }
+
+    private List<PositionRange> findPositionRanges(final IndexQuery indexQuery, final File file)
+    {
+        final List<PositionRange> ranges = new ArrayList<>();
+        final MappedByteBuffer mappedByteBuffer = LoggerUtil.mapExistingFile(file);
+        try
+        {
+            final UnsafeBuffer buffer = new UnsafeBuffer(mappedByteBuffer);
+            final int capacity = buffer.capacity();
+            if (capacity < MessageHeaderDecoder.ENCODED_LENGTH)
+            {
+                ranges.add(new PositionRange(0, Long.MAX_VALUE));
+                return ranges;
+            }
+
+            final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+            final SessionMessageTypeIndexRecordDecoder indexRecord = new SessionMessageTypeIndexRecordDecoder();
+            headerDecoder.wrap(buffer, 0);
+
+            final int blockLength = headerDecoder.blockLength();
+            final int version = headerDecoder.version();
+
+            long indexedPosition = 0;
+            int offset = MessageHeaderDecoder.ENCODED_LENGTH;
+            while ((offset + blockLength) <= capacity)
+            {
+                indexRecord.wrap(buffer, offset, blockLength, version);
+
+                final long sessionId = indexRecord.sessionId();
+                final long endPosition = indexRecord.endPosition();
+                if (sessionId == UNINDEXED_SESSION_ID ||
+                    indexQuery.matches(sessionId, indexRecord.messageType()))
+                {
+                    ranges.add(new PositionRange(indexRecord.startPosition(), endPosition));
+                }
+                indexedPosition = Math.max(indexedPosition, endPosition);
+
+                offset += blockLength;
+            }
+
+            // Anything after the last written block hasn't been indexed yet.
+            ranges.add(new PositionRange(indexedPosition, Long.MAX_VALUE));
+        }
+        finally
+        {
+            IoUtil.unmap(mappedByteBuffer);
+        }
+
+        return merge(ranges);
+    }
+
+    static List<PositionRange> merge(final List<PositionRange> ranges)
+    {
+        ranges.sort(BY_START_POSITION);
+
+        final List<PositionRange> merged = new ArrayList<>();
+        long startPosition = 0;
+        long endPosition = -1;
+        for (final PositionRange range : ranges)
+        {
+            if (endPosition != -1 && range.startPosition() - endPosition <= MERGE_GAP_IN_BYTES)
+            {
+                endPosition = Math.max(endPosition, range.endPosition());
+            }
+            else
+            {
+                if (endPosition != -1)
+                {
+                    merged.add(new PositionRange(startPosition, endPosition));
+                }
+                startPosition = range.startPosition();
+                endPosition = range.endPosition();
+            }
+        }
+
+        if (endPosition != -1)
+        {
+            merged.add(new PositionRange(startPosition, endPosition));
+        }
+
+        return merged;
+    }
+
+    static long indexedPosition(final File file)
+    {
+        final MappedByteBuffer mappedByteBuffer = LoggerUtil.mapExistingFile(file);
+        try
+        {
+            final UnsafeBuffer buffer = new UnsafeBuffer(mappedByteBuffer);
+            final int capacity = buffer.capacity();
+            if (capacity < MessageHeaderDecoder.ENCODED_LENGTH)
+            {
+                return 0;
+            }
+
+            final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+            final SessionMessageTypeIndexRecordDecoder indexRecord = new SessionMessageTypeIndexRecordDecoder();
+            headerDecoder.wrap(buffer, 0);
+
+            final int blockLength = headerDecoder.blockLength();
+            final int version = headerDecoder.version();
+
+            long indexedPosition = 0;
+            int offset = MessageHeaderDecoder.ENCODED_LENGTH;
+            while ((offset + blockLength) <= capacity)
+            {
+                indexRecord.wrap(buffer, offset, blockLength, version);
+                indexedPosition = Math.max(indexedPosition, indexRecord.endPosition());
+                offset += blockLength;
+            }
+            return indexedPosition;
+        }
+        finally
+        {
+            IoUtil.unmap(mappedByteBuffer);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.ErrorHandler;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+import uk.co.real_logic.artio.storage.messages.MessageHeaderEncoder;
+import uk.co.real_logic.artio.storage.messages.SessionMessageTypeIndexRecordEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Writes an index from (fixSessionId, messageType) to the blocks of recording positions that contain messages with
+ * that key. Used by the {@link FixArchiveScanner} in order to only replay the parts of a recording that a session or
+ * message type filter can match.
+ *
+ * Consecutive messages for a key are coalesced into a single block as long as they're within
+ * <code>blockGapInBytes</code> of each other. All open blocks are written out whenever the recording has advanced by
+ * {@link #SWEEP_INTERVAL_IN_BLOCK_GAPS} block gaps so the highest end position in the file marks how far the
+ * recording has been indexed. Positions beyond that are unindexed and have to be scanned by any query.
+ */
+class SessionMessageTypeIndexWriter implements AutoCloseable
+{
+    static final String FILE_NAME = "session-message-type-index-";
+
+    /**
+     * Marks a block of the recording that wasn't indexed, eg: because the engine stopped before writing out its
+     * open blocks.
+     */
+    static final long UNINDEXED_SESSION_ID = Long.MIN_VALUE;
+
+    static final int SWEEP_INTERVAL_IN_BLOCK_GAPS = 64;
+
+    static File fileLocation(final String logFileDir, final int streamId, final long recordingId)
+    {
+        return new File(logFileDir + File.separator + FILE_NAME + streamId + "-" + recordingId);
+    }
+
+    private static final int RECORD_LENGTH = SessionMessageTypeIndexRecordEncoder.BLOCK_LENGTH;
+
+    private final SessionMessageTypeIndexRecordEncoder recordEncoder = new SessionMessageTypeIndexRecordEncoder();
+
+    private final Long2ObjectHashMap<RecordingWriter> recordingIdToWriter = new Long2ObjectHashMap<>();
+    private final String logFileDir;
+    private final int streamId;
+    private final long blockGapInBytes;
+    private final long sweepIntervalInBytes;
+    private final ErrorHandler errorHandler;
+
+    private RecordingWriter lastWriter;
+
+    SessionMessageTypeIndexWriter(
+        final String logFileDir,
+        final int streamId,
+        final long blockGapInBytes,
+        final ErrorHandler errorHandler)
+    {
+        this.logFileDir = logFileDir;
+        this.streamId = streamId;
+        this.blockGapInBytes = blockGapInBytes;
+        this.sweepIntervalInBytes = blockGapInBytes * SWEEP_INTERVAL_IN_BLOCK_GAPS;
+        this.errorHandler = errorHandler;
+    }
+
+    void onMessage(
+        final long recordingId,
+        final long fixSessionId,
+        final long messageType,
+        final long startPosition,
+        final long endPosition)
+    {
+        lastWriter = recordingWriter(recordingId);
+        lastWriter.onMessage(fixSessionId, messageType, startPosition, endPosition);
+    }
+
+    /**
+     * Extends the block of the last message with a fragment that continues it.
+     *
+     * @param endPosition the end position of the continuing fragment.
+     */
+    void onContinuedFragment(final long endPosition)
+    {
+        final RecordingWriter lastWriter = this.lastWriter;
+        if (lastWriter != null)
+        {
+            lastWriter.onContinuedFragment(endPosition);
+        }
+    }
+
+    private RecordingWriter recordingWriter(final long recordingId)
+    {
+        final RecordingWriter lastWriter = this.lastWriter;
+        if (lastWriter != null && lastWriter.recordingId == recordingId)
+        {
+            return lastWriter;
+        }
+
+        RecordingWriter writer = recordingIdToWriter.get(recordingId);
+        if (writer == null)
+        {
+            writer = new RecordingWriter(recordingId);
+            recordingIdToWriter.put(recordingId, writer);
+        }
+        return writer;
+    }
+
+    public int doWork()
+    {
+        int work = 0;
+        for (final RecordingWriter recordingWriter : recordingIdToWriter.values())
+        {
+            work += recordingWriter.doWork();
+        }
+        return work;
+    }
+
+    public void close()
+    {
+        recordingIdToWriter.values().forEach(RecordingWriter::close);
+        recordingIdToWriter.clear();
+        lastWriter = null;
+    }
+
+    static final class Block
+    {
+        long startPosition;
+        long endPosition;
+        boolean open;
+    }
+
+    class RecordingWriter
+    {
+        private final Long2ObjectHashMap<Long2ObjectHashMap<Block>> sessionIdToBlocks = new Long2ObjectHashMap<>();
+        private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+        private final long recordingId;
+        private final RandomAccessFile file;
+
+        private int pendingLength = 0;
+        private long previouslyIndexedPosition;
+        private long lastEndPosition = 0;
+        private long nextSweepPosition = 0;
+        private Block lastBlock;
+
+        RecordingWriter(final long recordingId)
+        {
+            this.recordingId = recordingId;
+
+            final File file = fileLocation(logFileDir, streamId, recordingId);
+            if (file.exists() && file.length() >= MessageHeaderEncoder.ENCODED_LENGTH)
+            {
+                previouslyIndexedPosition = SessionMessageTypeIndexReader.indexedPosition(file);
+                this.file = loadFile(file);
+            }
+            else
+            {
+                previouslyIndexedPosition = 0;
+                this.file = createFile(file);
+            }
+        }
+
+        private RandomAccessFile loadFile(final File file)
+        {
+            try
+            {
+                final RandomAccessFile raf = new RandomAccessFile(file, "rwd");
+                // drop any partially written record so that appended records stay aligned
+                final long length = raf.length();
+                final long alignedLength = length - ((length - MessageHeaderEncoder.ENCODED_LENGTH) % RECORD_LENGTH);
+                raf.setLength(alignedLength);
+                raf.seek(alignedLength);
+                return raf;
+            }
+            catch (final IOException e)
+            {
+                errorHandler.onError(e);
+                return null;
+            }
+        }
+
+        private RandomAccessFile createFile(final File file)
+        {
+            try
+            {
+                final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+                recordEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+
+                final RandomAccessFile raf = new RandomAccessFile(file, "rwd");
+                raf.write(buffer.byteArray(), 0, MessageHeaderEncoder.ENCODED_LENGTH);
+                return raf;
+            }
+            catch (final IOException e)
+            {
+                errorHandler.onError(e);
+                return null;
+            }
+        }
+
+        void onMessage(
+            final long fixSessionId,
+            final long messageType,
+            final long startPosition,
+            final long endPosition)
+        {
+            checkUnindexedGap(startPosition);
+
+            Long2ObjectHashMap<Block> messageTypeToBlock = sessionIdToBlocks.get(fixSessionId);
+            if (messageTypeToBlock == null)
+            {
+                messageTypeToBlock = new Long2ObjectHashMap<>();
+                sessionIdToBlocks.put(fixSessionId, messageTypeToBlock);
+            }
+
+            Block block = messageTypeToBlock.get(messageType);
+            if (block == null)
+            {
+                block = new Block();
+                messageTypeToBlock.put(messageType, block);
+            }
+
+            if (block.open)
+            {
+                if (startPosition - block.endPosition > blockGapInBytes)
+                {
+                    appendRecord(fixSessionId, messageType, block.startPosition, block.endPosition);
+                    block.startPosition = startPosition;
+                }
+            }
+            else
+            {
+                block.open = true;
+                block.startPosition = startPosition;
+            }
+            block.endPosition = endPosition;
+
+            lastBlock = block;
+            lastEndPosition = endPosition;
+        }
+
+        void onContinuedFragment(final long endPosition)
+        {
+            final Block lastBlock = this.lastBlock;
+            if (lastBlock != null && lastBlock.open)
+            {
+                lastBlock.endPosition = endPosition;
+                lastEndPosition = endPosition;
+            }
+        }
+
+        // Messages between the last position that was written out before a restart and the first message that
+        // we see after the restart may never be indexed, so they're recorded as a block that every query scans.
+        private void checkUnindexedGap(final long startPosition)
+        {
+            final long previouslyIndexedPosition = this.previouslyIndexedPosition;
+            if (previouslyIndexedPosition != 0)
+            {
+                if (startPosition > previouslyIndexedPosition)
+                {
+                    appendRecord(UNINDEXED_SESSION_ID, 0, previouslyIndexedPosition, startPosition);
+                }
+                this.previouslyIndexedPosition = 0;
+                nextSweepPosition = startPosition + sweepIntervalInBytes;
+            }
+            else if (nextSweepPosition == 0)
+            {
+                nextSweepPosition = startPosition + sweepIntervalInBytes;
+            }
+        }
+
+        int doWork()
+        {
+            final long lastEndPosition = this.lastEndPosition;
+            if (lastEndPosition != 0 && lastEndPosition >= nextSweepPosition)
+            {
+                sweep();
+                nextSweepPosition = lastEndPosition + sweepIntervalInBytes;
+                return 1;
+            }
+            return 0;
+        }
+
+        // The last message's block stays open after it has been written out, since continuation fragments of that
+        // message may still arrive. If it's extended it gets written out again, overlapping the record written here,
+        // and the reader merges overlapping ranges.
+        private void sweep()
+        {
+            final Block lastBlock = this.lastBlock;
+            for (final Long2ObjectHashMap<Long2ObjectHashMap<Block>>.EntryIterator sessionIt =
+                sessionIdToBlocks.entrySet().iterator(); sessionIt.hasNext();)
+            {
+                sessionIt.next();
+                final long fixSessionId = sessionIt.getLongKey();
+                for (final Long2ObjectHashMap<Block>.EntryIterator blockIt =
+                    sessionIt.getValue().entrySet().iterator(); blockIt.hasNext();)
+                {
+                    blockIt.next();
+                    final Block block = blockIt.getValue();
+                    if (block.open)
+                    {
+                        appendRecord(fixSessionId, blockIt.getLongKey(), block.startPosition, block.endPosition);
+                        block.open = block == lastBlock;
+                    }
+                }
+            }
+
+            flush();
+        }
+
+        private void appendRecord(
+            final long fixSessionId, final long messageType, final long startPosition, final long endPosition)
+        {
+            final int offset = pendingLength;
+            buffer.checkLimit(offset + RECORD_LENGTH);
+            recordEncoder
+                .wrap(buffer, offset)
+                .sessionId(fixSessionId)
+                .messageType(messageType)
+                .startPosition(startPosition)
+                .endPosition(endPosition);
+            pendingLength = offset + RECORD_LENGTH;
+        }
+
+        private void flush()
+        {
+            final int pendingLength = this.pendingLength;
+            if (pendingLength > 0)
+            {
+                try
+                {
+                    final RandomAccessFile file = this.file;
+                    if (file != null)
+                    {
+                        file.write(buffer.byteArray(), 0, pendingLength);
+                    }
+                }
+                catch (final IOException e)
+                {
+                    errorHandler.onError(e);
+                }
+                this.pendingLength = 0;
+            }
+        }
+
+        void close()
+        {
+            sweep();
+            if (file != null)
+            {
+                try
+                {
+                    file.getFD().sync();
+                }
+                catch (final IOException e)
+                {
+                    errorHandler.onError(e);
+                }
+                Exceptions.closeAll(file);
+            }
+        }
+    }
+}
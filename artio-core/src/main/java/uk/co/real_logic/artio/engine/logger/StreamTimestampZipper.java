@@ -19,42 +19,40 @@ import io.aeron.FragmentAssembler;
 import io.aeron.logbuffer.FragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
-import org.agrona.ExpandableArrayBuffer;
 import uk.co.real_logic.artio.ArtioLogHeader;
 import uk.co.real_logic.artio.fixp.FixPMessageConsumer;
 import uk.co.real_logic.artio.messages.*;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Arrays;
 
 import static java.lang.Math.min;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.*;
 
+/**
+ * Merges the messages of several streams into timestamp order. Messages that can't be handed off yet because another
+ * stream could still have an earlier message are copied into an off-heap {@link ReorderBuffer} and tracked by a
+ * primitive min-heap per stream, the buffered messages are then handed off by a k-way merge over the heads of those
+ * heaps.
+ */
 public class StreamTimestampZipper implements AutoCloseable
 {
-    private static final TimestampComparator TIMESTAMP_COMPARATOR = new TimestampComparator();
-    private static final UnstableReverseTimestampComparator REVERSE_TIMESTAMP_COMPARATOR =
-        new UnstableReverseTimestampComparator();
-    private static final OffsetComparator OFFSET_COMPARATOR = new OffsetComparator();
-
-    private final int maximumBufferSize;
+    private final long maximumBufferSize;
     private final int compactionSize;
     private final StreamPoller[] pollers;
     private final FragmentAssembler fragmentAssembler;
     private final LogEntryHandler logEntryHandler;
-    private final ExpandableArrayBuffer reorderBuffer;
+    private final ReorderBuffer reorderBuffer;
     private final boolean lazilyCompact;
 
-    private final ArrayList<BufferedPosition> positions = new ArrayList<>();
-
-    private int reorderBufferOffset;
+    // Breaks ties between buffered messages with the same timestamp so that they're handed off in the order they
+    // were received.
+    private long bufferedSequence;
 
     public StreamTimestampZipper(
         final FixMessageConsumer fixMessageConsumer,
         final FixPMessageConsumer fixPMessageConsumer,
         final int compactionSize,
-        final int maximumBufferSize,
+        final long maximumBufferSize,
         final boolean lazilyCompact,
         final Poller... pollers)
     {
@@ -67,7 +65,7 @@ public class StreamTimestampZipper implements AutoCloseable
             this.pollers[i] = new StreamPoller(pollers[i]);
         }
 
-        reorderBuffer = new ExpandableArrayBuffer(compactionSize);
+        reorderBuffer = new ReorderBuffer(compactionSize);
         logEntryHandler = new LogEntryHandler(fixMessageConsumer, fixPMessageConsumer);
         fragmentAssembler = new FragmentAssembler(logEntryHandler);
     }
@@ -86,14 +84,12 @@ public class StreamTimestampZipper implements AutoCloseable
             }
         }
 
-        // Lazily compact: only process reorder buffer and compact when you hit the compaction size
+        // Lazily process: only process the reorder buffer when you hit the compaction size
         // Can generate a significant speed in batch archive scanning at the expense of greater latency
         // on handing off messages to the handler
-        if (read > 0 && (read <= fragmentLimit) && (!lazilyCompact || reorderBufferOffset > compactionSize))
+        if (read > 0 && (read <= fragmentLimit) && (!lazilyCompact || reorderBuffer.liveBytes() > compactionSize))
         {
             read += processReorderBuffer(pollers, fragmentLimit - read);
-
-            compact();
         }
 
         return read;
@@ -101,130 +97,97 @@ public class StreamTimestampZipper implements AutoCloseable
 
     private int processReorderBuffer(final StreamPoller[] pollers, final int fragmentLimit)
     {
-        final ArrayList<BufferedPosition> positions = this.positions;
-
         int read = 0;
-        positions.sort(REVERSE_TIMESTAMP_COMPARATOR);
-
-        final int lastIndex = positions.size() - 1;
-        int i = lastIndex;
-        for (; i >= 0; i--)
+        while (true)
         {
-            final BufferedPosition position = positions.get(i);
-            final long timestamp = position.timestamp;
-            final StreamPoller owner = position.owner;
-            final long timestampLowWaterMark = findMinLowWaterMark(pollers, owner);
-
-            if (timestamp <= timestampLowWaterMark)
+            final StreamPoller owner = nextBufferedOwner(pollers);
+            if (owner == null)
             {
-                owner.handledTimestamp(timestamp);
-                owner.elementsInBuffer--;
-                logEntryHandler.owner = owner;
-                logEntryHandler.onBufferedMessage(position.offset, position.length);
-                read++;
-
-                updateOwnerTimestamp(positions, i, owner);
-
-                if (read >= fragmentLimit)
-                {
-                    break;
-                }
+                break;
             }
-            else
+
+            final BufferedMessageHeap buffered = owner.buffered;
+            final long timestamp = buffered.timestamp();
+            final long timestampLowWaterMark = findMinLowWaterMark(pollers, owner);
+            if (timestamp > timestampLowWaterMark)
             {
                 break;
             }
-        }
 
-        i++;
+            owner.handledTimestamp(timestamp);
+            handOffBuffered(owner);
+            read++;
 
-        for (int j = lastIndex; j >= i; j--)
-        {
-            positions.remove(j);
+            if (read >= fragmentLimit)
+            {
+                break;
+            }
         }
 
         return read;
     }
 
-    private void updateOwnerTimestamp(
-        final ArrayList<BufferedPosition> positions, final int i, final StreamPoller owner)
+    // k-way merge step: the stream whose earliest buffered message comes first.
+    private static StreamPoller nextBufferedOwner(final StreamPoller[] pollers)
     {
-        // Find the next entry with the same owner and set the owner's timestamp to the next
-        // timestamp
-        for (int j = i - 1; j >= 0; j--)
+        StreamPoller nextOwner = null;
+        BufferedMessageHeap next = null;
+        for (int i = 0; i < pollers.length; i++)
         {
-            final BufferedPosition remainingPosition = positions.get(j);
-            if (remainingPosition.owner == owner)
+            final StreamPoller poller = pollers[i];
+            final BufferedMessageHeap buffered = poller.buffered;
+            if (!buffered.isEmpty() && (next == null || buffered.isBefore(next)))
             {
-                // don't go through method here because this might increase the min buffered timestamp.
-                owner.minBufferedTimestamp = remainingPosition.timestamp;
-                return;
+                nextOwner = poller;
+                next = buffered;
             }
         }
-
-        owner.nothingBuffered();
+        return nextOwner;
     }
 
-    private boolean compact()
+    private void handOffBuffered(final StreamPoller owner)
     {
-        if (reorderBufferOffset > compactionSize)
-        {
-            positions.sort(OFFSET_COMPARATOR);
-            int reorderBufferOffset = 0;
-            for (final BufferedPosition position : positions)
-            {
-                final int offset = position.offset;
-                // No compaction possible
-                if (offset == reorderBufferOffset)
-                {
-                    return false;
-                }
-
-                final int length = position.length;
-                position.offset = reorderBufferOffset;
-                reorderBuffer.putBytes(reorderBufferOffset, reorderBuffer, offset, length);
+        final BufferedMessageHeap buffered = owner.buffered;
+        final long address = buffered.address();
+        final int length = buffered.length();
+        buffered.pop();
 
-                final int newReorderBufferOffset = reorderBufferOffset + length;
-                validateReorderBufferOffset(length, reorderBufferOffset, newReorderBufferOffset);
-                reorderBufferOffset = newReorderBufferOffset;
-            }
-            this.reorderBufferOffset = reorderBufferOffset;
+        // don't go through method here because this might increase the min buffered timestamp.
+        if (buffered.isEmpty())
+        {
+            owner.nothingBuffered();
+        }
+        else
+        {
+            owner.minBufferedTimestamp = buffered.timestamp();
         }
 
-        return true;
+        final LogEntryHandler logEntryHandler = this.logEntryHandler;
+        logEntryHandler.owner = owner;
+        logEntryHandler.onBufferedMessage(address, length);
+        reorderBuffer.release(address, length);
     }
 
-    public int bufferPosition()
+    public long bufferPosition()
     {
-        return reorderBufferOffset;
+        return reorderBuffer.liveBytes();
     }
 
-    public int bufferCapacity()
+    public long bufferCapacity()
     {
         return reorderBuffer.capacity();
     }
 
     private void dumpBuffer()
     {
-        final LogEntryHandler logEntryHandler = this.logEntryHandler;
-        final List<BufferedPosition> positions = this.positions;
-        final int size = positions.size();
-
-        positions.sort(TIMESTAMP_COMPARATOR);
-
-        for (int i = 0; i < size; i++)
+        final StreamPoller[] pollers = this.pollers;
+        StreamPoller owner;
+        while ((owner = nextBufferedOwner(pollers)) != null)
         {
-            final BufferedPosition position = positions.get(i);
-            logEntryHandler.owner = position.owner;
-            logEntryHandler.onBufferedMessage(position.offset, position.length);
+            handOffBuffered(owner);
         }
 
-        positions.clear();
-        for (final StreamPoller poller : pollers)
-        {
-            poller.elementsInBuffer = 0;
-        }
-        reorderBufferOffset = 0;
+        reorderBuffer.clear();
     }
 
     public void close()
@@ -235,64 +198,130 @@ public class StreamTimestampZipper implements AutoCloseable
         {
             poller.close();
         }
+
+        reorderBuffer.close();
     }
 
-    static class BufferedPosition
+    /**
+     * Binary min-heap of the messages that a stream has buffered, ordered by timestamp and then by the order they
+     * were buffered in. Kept in parallel primitive arrays in order to avoid allocating per buffered message.
+     */
+    static final class BufferedMessageHeap
     {
-        final StreamPoller owner;
-        final long timestamp;
-        int offset;
-        final int length;
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private long[] sequences = new long[INITIAL_CAPACITY];
+        private long[] addresses = new long[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+        private int size;
 
-        BufferedPosition(final StreamPoller owner, final long timestamp, final int offset, final int length)
+        void push(final long timestamp, final long sequence, final long address, final int length)
         {
-            this.owner = owner;
-            this.timestamp = timestamp;
-            this.offset = offset;
-            this.length = length;
+            if (size == timestamps.length)
+            {
+                final int newCapacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, newCapacity);
+                sequences = Arrays.copyOf(sequences, newCapacity);
+                addresses = Arrays.copyOf(addresses, newCapacity);
+                lengths = Arrays.copyOf(lengths, newCapacity);
+            }
+
+            int index = size++;
+            while (index > 0)
+            {
+                final int parent = (index - 1) >>> 1;
+                if (!isBefore(timestamp, sequence, timestamps[parent], sequences[parent]))
+                {
+                    break;
+                }
+
+                move(parent, index);
+                index = parent;
+            }
+
+            set(index, timestamp, sequence, address, length);
         }
 
-        public String toString()
+        void pop()
         {
-            return "BufferedPosition{" +
-                "owner=" + owner.poller.streamId() +
-                ", timestamp=" + timestamp +
-                ", offset=" + offset +
-                ", length=" + length +
-                '}';
+            final int last = --size;
+            if (last == 0)
+            {
+                return;
+            }
+
+            final long timestamp = timestamps[last];
+            final long sequence = sequences[last];
+            final long address = addresses[last];
+            final int length = lengths[last];
+
+            int index = 0;
+            final int half = last >>> 1;
+            while (index < half)
+            {
+                int child = (index << 1) + 1;
+                final int right = child + 1;
+                if (right < last && isBefore(timestamps[right], sequences[right], timestamps[child], sequences[child]))
+                {
+                    child = right;
+                }
+
+                if (!isBefore(timestamps[child], sequences[child], timestamp, sequence))
+                {
+                    break;
+                }
+
+                move(child, index);
+                index = child;
+            }
+
+            set(index, timestamp, sequence, address, length);
         }
-    }
 
-    static class TimestampComparator implements Comparator<BufferedPosition>
-    {
-        public int compare(final BufferedPosition o1, final BufferedPosition o2)
+        boolean isEmpty()
         {
-            return Long.compare(o1.timestamp, o2.timestamp);
+            return size == 0;
         }
-    }
 
-    static class UnstableReverseTimestampComparator implements Comparator<BufferedPosition>
-    {
-        public int compare(final BufferedPosition o1, final BufferedPosition o2)
+        long timestamp()
         {
-            final int timestampCompare = Long.compare(o2.timestamp, o1.timestamp);
+            return timestamps[0];
+        }
 
-            // When we have two messages with an equal timestamp we don't want to have a stable sort, we want it to
-            // reverse the origin positions, so we then compare based upon the offset of the positions.
-            if (timestampCompare == 0)
-            {
-                return Long.compare(o2.offset, o1.offset);
-            }
+        long address()
+        {
+            return addresses[0];
+        }
 
-            return timestampCompare;
+        int length()
+        {
+            return lengths[0];
         }
-    }
 
-    static class OffsetComparator implements Comparator<BufferedPosition>
-    {
-        public int compare(final BufferedPosition o1, final BufferedPosition o2)
+        boolean isBefore(final BufferedMessageHeap other)
+        {
+            return isBefore(timestamps[0], sequences[0], other.timestamps[0], other.sequences[0]);
+        }
+
+        private static boolean isBefore(
+            final long timestamp, final long sequence, final long otherTimestamp, final long otherSequence)
+        {
+            return timestamp < otherTimestamp || (timestamp == otherTimestamp && sequence < otherSequence);
+        }
+
+        private void move(final int from, final int to)
+        {
+            set(to, timestamps[from], sequences[from], addresses[from], lengths[from]);
+        }
+
+        private void set(
+            final int index, final long timestamp, final long sequence, final long address, final int length)
         {
-            return Long.compare(o1.offset, o2.offset);
+            timestamps[index] = timestamp;
+            sequences[index] = sequence;
+            addresses[index] = address;
+            lengths[index] = length;
         }
     }
 
@@ -305,7 +334,7 @@ public class StreamTimestampZipper implements AutoCloseable
         private long minBufferedTimestamp = NOTHING_BUFFERED;
         private long maxHandledTimestamp;
         private boolean isDrained = false;
-        private int elementsInBuffer = 0;
+        private final BufferedMessageHeap buffered = new BufferedMessageHeap();
 
         StreamPoller(final Poller poller)
         {
@@ -375,7 +404,7 @@ public class StreamTimestampZipper implements AutoCloseable
                 return false;
             }
 
-            if (elementsInBuffer > 0)
+            if (!buffered.isEmpty())
             {
                 return false;
             }
@@ -552,20 +581,15 @@ public class StreamTimestampZipper implements AutoCloseable
         private void putBufferedMessage(
             final DirectBuffer buffer, final int start, final int length, final long timestamp)
         {
-            if (reorderBufferOffset + length > maximumBufferSize)
+            final ReorderBuffer reorderBuffer = StreamTimestampZipper.this.reorderBuffer;
+            if (reorderBuffer.liveBytes() + length > maximumBufferSize)
             {
                 dumpBuffer();
             }
 
-            final int reorderBufferOffset = StreamTimestampZipper.this.reorderBufferOffset;
+            final long address = reorderBuffer.put(buffer, start, length);
+            owner.buffered.push(timestamp, bufferedSequence++, address, length);
             owner.bufferedTimestamp(timestamp);
-            owner.elementsInBuffer++;
-            reorderBuffer.putBytes(reorderBufferOffset, buffer, start, length);
-            positions.add(new BufferedPosition(owner, timestamp, reorderBufferOffset, length));
-
-            final int newReorderBufferOffset = reorderBufferOffset + length;
-            StreamTimestampZipper.this.reorderBufferOffset = newReorderBufferOffset;
-            validateReorderBufferOffset(length, reorderBufferOffset, newReorderBufferOffset);
         }
 
         void reset(final long minOtherTimestamp, final StreamPoller owner)
@@ -574,11 +598,12 @@ public class StreamTimestampZipper implements AutoCloseable
             this.owner = owner;
         }
 
-        public void onBufferedMessage(final int start, final int length)
+        public void onBufferedMessage(final long address, final int length)
         {
+            final int start = ReorderBuffer.offset(address);
             int offset = start;
 
-            final ExpandableArrayBuffer buffer = StreamTimestampZipper.this.reorderBuffer;
+            final DirectBuffer buffer = reorderBuffer.segment(address);
             final MessageHeaderDecoder messageHeader = this.messageHeader;
             messageHeader.wrap(buffer, offset);
             final int templateId = messageHeader.templateId();
@@ -638,16 +663,6 @@ public class StreamTimestampZipper implements AutoCloseable
         }
     }
 
-    private static void validateReorderBufferOffset(
-        final int length, final int reorderBufferOffset, final int newReorderBufferOffset)
-    {
-        if (newReorderBufferOffset < 0)
-        {
-            throw new IllegalStateException("Detected negative newReorderBufferOffset: " +
-                newReorderBufferOffset + ", reorderBufferOffset=" + reorderBufferOffset + ", length=" + length);
-        }
-    }
-
     public interface Poller
     {
         int poll(FragmentAssembler fragmentAssembler, int fragmentLimit);
@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.engine.logger;
 
 import org.agrona.IoUtil;
 import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.storage.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.storage.messages.TimeIndexRecordDecoder;
@@ -63,6 +64,53 @@ class TimeIndexReader
         return true;
     }
 
+    /**
+     * Read every record of the time index for a recording, used to find the boundaries that a parallel scan can
+     * partition the recording at.
+     *
+     * @param recordingId the recording whose index to read.
+     * @param positions the end positions of the indexed messages, in the order that they were indexed.
+     * @param timestamps the timestamps of the indexed messages.
+     * @return true if the recording has a time index, false otherwise.
+     */
+    boolean readRecords(final long recordingId, final LongArrayList positions, final LongArrayList timestamps)
+    {
+        final File file = TimeIndexWriter.fileLocation(logFileDir, streamid, recordingId);
+        if (!file.exists())
+        {
+            return false;
+        }
+
+        final MappedByteBuffer mappedByteBuffer = LoggerUtil.mapExistingFile(file);
+        try
+        {
+            final UnsafeBuffer buffer = new UnsafeBuffer(mappedByteBuffer);
+            final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+            final TimeIndexRecordDecoder timeIndexRecord = new TimeIndexRecordDecoder();
+            headerDecoder.wrap(buffer, 0);
+
+            final int blockLength = headerDecoder.blockLength();
+            final int version = headerDecoder.version();
+
+            int offset = MessageHeaderDecoder.ENCODED_LENGTH;
+            final int capacity = buffer.capacity();
+            while ((offset + TimeIndexRecordDecoder.BLOCK_LENGTH) <= capacity)
+            {
+                timeIndexRecord.wrap(buffer, offset, blockLength, version);
+                positions.addLong(timeIndexRecord.position());
+                timestamps.addLong(timeIndexRecord.timestamp());
+
+                offset += TimeIndexRecordDecoder.BLOCK_LENGTH;
+            }
+
+            return true;
+        }
+        finally
+        {
+            IoUtil.unmap(mappedByteBuffer);
+        }
+    }
+
     private PositionRange findPositionRange(final IndexQuery indexQuery, final File file)
     {
         final long beginTimestampInclusive = indexQuery.beginTimestampInclusive();
@@ -241,6 +241,24 @@ public final class LibraryConfiguration extends CommonConfiguration
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public LibraryConfiguration latencyHistogramsFile(final String latencyHistogramsFile)
+    {
+        super.latencyHistogramsFile(latencyHistogramsFile);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public LibraryConfiguration latencyHistogramSessions(final int latencyHistogramSessions)
+    {
+        super.latencyHistogramSessions(latencyHistogramSessions);
+        return this;
+    }
+
     /**
      * Sets the list of aeron channels used to connect to the Engine
      *
@@ -42,6 +42,7 @@ import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.messages.ControlNotificationDecoder.SessionsDecoder;
 import uk.co.real_logic.artio.protocol.*;
 import uk.co.real_logic.artio.session.*;
+import uk.co.real_logic.artio.timing.LatencyHistograms;
 import uk.co.real_logic.artio.timing.LibraryTimers;
 import uk.co.real_logic.artio.timing.Timer;
 import uk.co.real_logic.artio.util.CharFormatter;
@@ -119,6 +120,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
 
     private InternalSession[] sessions = EMPTY_SESSIONS;
     private InternalSession[] pendingInitiatorSessions = EMPTY_SESSIONS;
+    private final SessionTimers sessionTimers;
     private final List<Session> unmodifiableSessions = new UnmodifiableWrapper<>(() -> sessions);
     private final List<Session> unmodifiablePendingInitiatorSessions =
         new UnmodifiableWrapper<>(() -> pendingInitiatorSessions);
@@ -139,6 +141,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     private final SessionIdStrategy sessionIdStrategy;
     private final Timer sessionTimer;
     private final Timer receiveTimer;
+    private final LatencyHistograms latencyHistograms;
     private final SessionExistsHandler sessionExistsHandler;
     private final boolean enginesAreClustered;
     private final ErrorHandler errorHandler;
@@ -246,12 +249,14 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
 
         this.sessionTimer = timers.sessionTimer();
         this.receiveTimer = timers.receiveTimer();
+        this.latencyHistograms = timers.latencyHistograms();
 
         this.configuration = configuration;
         this.sessionIdStrategy = configuration.sessionIdStrategy();
         this.sessionExistsHandler = configuration.sessionExistsHandler();
         this.epochClock = epochClock;
         epochNanoClock = configuration.epochNanoClock();
+        sessionTimers = new SessionTimers(epochNanoClock.nanoTime());
         this.enginesAreClustered = configuration.libraryAeronChannels().size() > 1;
         this.errorHandler = errorHandler;
         this.epochFractionClock = EpochFractionClocks.create(
@@ -819,14 +824,10 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
 
     private int pollSessions(final long timeInNs)
     {
-        final InternalSession[] sessions = this.sessions;
-        int total = 0;
-
-        for (int i = 0, size = sessions.length; i < size; i++)
-        {
-            final InternalSession session = sessions[i];
-            total += session.poll(timeInNs);
-        }
+        // Only sessions whose deadlines have expired are polled
+        final SessionTimers sessionTimers = this.sessionTimers;
+        sessionTimers.sessions(sessions);
+        int total = sessionTimers.poll(timeInNs);
 
         final long timeInMs = System.currentTimeMillis();
         final InternalFixPConnection[] binaryFixPConnections = this.fixPConnections;
@@ -1237,7 +1238,8 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         final MessageStatus status,
         final int sequenceNumber,
         final Header header,
-        final int metaDataLength)
+        final int metaDataLength,
+        final HeaderSummary headerSummary)
     {
         if (libraryId == this.libraryId)
         {
@@ -1257,7 +1259,8 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                     messageType,
                     timestampInNs,
                     status,
-                    header.position());
+                    header.position(),
+                    headerSummary);
             }
         }
 
@@ -1295,6 +1298,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                 }
 
                 connectionIdToSession.remove(connectionId);
+                subscriber.closeLatencyHistograms();
 
                 if (isEngineOwned)
                 {
@@ -1812,6 +1816,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
                 final SessionSubscriber subscriber = connectionIdToSession.remove(session.connectionId());
                 if (subscriber != null)
                 {
+                    subscriber.closeLatencyHistograms();
                     if (acquiredSession)
                     {
                         subscriber.onTimeout(libraryId);
@@ -2202,12 +2207,17 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
             sessionTimer,
             this,
             configuration.replyTimeoutInMs(),
-            errorHandler);
+            errorHandler,
+            latencyHistograms.allocate(connectionId, session.id()));
         session.isSlowConsumer(sessionAcquiredInfo.isSlow());
         subscriber.reply(reply);
         subscriber.handler(configuration.sessionAcquireHandler().onSessionAcquired(session, sessionAcquiredInfo));
 
-        connectionIdToSession.put(connectionId, subscriber);
+        final SessionSubscriber oldSubscriber = connectionIdToSession.put(connectionId, subscriber);
+        if (oldSubscriber != null)
+        {
+            oldSubscriber.closeLatencyHistograms();
+        }
     }
 
     private InternalSession newInitiatorSession(
@@ -16,11 +16,13 @@
 package uk.co.real_logic.artio.library;
 
 import uk.co.real_logic.artio.messages.MessageStatus;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 
 public class OnMessageInfo
 {
     private MessageStatus status;
     private boolean isValid;
+    private HeaderSummary headerSummary = new HeaderSummary();
 
     public OnMessageInfo status(final MessageStatus status)
     {
@@ -34,6 +36,12 @@ public class OnMessageInfo
         return this;
     }
 
+    public OnMessageInfo headerSummary(final HeaderSummary headerSummary)
+    {
+        this.headerSummary = headerSummary;
+        return this;
+    }
+
     public MessageStatus status()
     {
         return status;
@@ -43,4 +51,17 @@ public class OnMessageInfo
     {
         return isValid;
     }
+
+    /**
+     * Gets the summary of the message's standard header that was extracted by the engine when framing it. This lets
+     * a handler find the MsgSeqNum, PossDupFlag, SendingTime and the start of the body of the message without
+     * decoding its header. The summary is only present when the engine is configured to extract it, see
+     * {@link uk.co.real_logic.artio.engine.EngineConfiguration#headerSummaryEnabled(boolean)}.
+     *
+     * @return the summary of the message's standard header.
+     */
+    public HeaderSummary headerSummary()
+    {
+        return headerSummary;
+    }
 }
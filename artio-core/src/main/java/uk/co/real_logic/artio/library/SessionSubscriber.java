@@ -23,10 +23,12 @@ import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.messages.MessageStatus;
 import uk.co.real_logic.artio.messages.ReplayMessagesStatus;
 import uk.co.real_logic.artio.messages.ThrottleConfigurationStatus;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 import uk.co.real_logic.artio.session.FixSessionOwner;
 import uk.co.real_logic.artio.session.InternalSession;
 import uk.co.real_logic.artio.session.Session;
 import uk.co.real_logic.artio.session.SessionParser;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 import uk.co.real_logic.artio.timing.Timer;
 
 import java.util.function.BooleanSupplier;
@@ -35,6 +37,9 @@ import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.engine.logger.SequenceNumberIndexWriter.NO_REQUIRED_POSITION;
 import static uk.co.real_logic.artio.messages.GatewayError.UNABLE_TO_LOGON;
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
+import static uk.co.real_logic.artio.timing.LatencyStage.APPLICATION_HANDLER;
+import static uk.co.real_logic.artio.timing.LatencyStage.LIBRARY_RECEIVE;
 
 class SessionSubscriber implements AutoCloseable, FixSessionOwner
 {
@@ -46,6 +51,7 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
     private final LibraryPoller libraryPoller;
     private final long replyTimeoutInMs;
     private final ErrorHandler errorHandler;
+    private final SessionLatencyHistograms latencyHistograms;
 
     private SessionHandler handler;
     private InitiateSessionReply initiateSessionReply;
@@ -60,7 +66,8 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
         final Timer sessionTimer,
         final LibraryPoller libraryPoller,
         final long replyTimeoutInMs,
-        final ErrorHandler errorHandler)
+        final ErrorHandler errorHandler,
+        final SessionLatencyHistograms latencyHistograms)
     {
         this.info = info;
         this.parser = parser;
@@ -70,6 +77,7 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
         this.libraryPoller = libraryPoller;
         this.replyTimeoutInMs = replyTimeoutInMs;
         this.errorHandler = errorHandler;
+        this.latencyHistograms = latencyHistograms;
         this.session.sessionProcessHandler(this);
     }
 
@@ -82,12 +90,18 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
         final long messageType,
         final long timestamp,
         final MessageStatus status,
-        final long position)
+        final long position,
+        final HeaderSummary headerSummary)
     {
         final long now = receiveTimer.recordSince(timestamp);
+        // Catchup replays carry the timestamp of the original message so would skew the latencies
+        final SessionLatencyHistograms latencyHistograms = status == OK ?
+            this.latencyHistograms : SessionLatencyHistograms.DISABLED;
+        final long receivedInNs = latencyHistograms.recordSince(LIBRARY_RECEIVE, timestamp);
 
         final OnMessageInfo info = this.info;
         info.status(status);
+        info.headerSummary(headerSummary);
         // this gets set to false by the Session when a problem is detected.
         info.isValid(true);
 
@@ -123,7 +137,7 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
                     else
                     {
                         final Action action = parser.onMessage(
-                            buffer, offset, length, messageType, position);
+                            buffer, offset, length, messageType, position, headerSummary);
                         if (action == ABORT)
                         {
                             return ABORT;
@@ -175,6 +189,7 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
         finally
         {
             sessionTimer.recordSince(now);
+            latencyHistograms.recordSince(APPLICATION_HANDLER, receivedInNs);
         }
     }
 
@@ -281,6 +296,11 @@ class SessionSubscriber implements AutoCloseable, FixSessionOwner
         session.requestDisconnect();
     }
 
+    void closeLatencyHistograms()
+    {
+        latencyHistograms.close();
+    }
+
     InternalSession session()
     {
         return session;
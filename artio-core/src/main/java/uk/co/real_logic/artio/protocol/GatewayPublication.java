@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.protocol;
 
 import io.aeron.ExclusivePublication;
 import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.MutableDirectBuffer;
@@ -26,6 +27,7 @@ import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.DebugLogger;
+import uk.co.real_logic.artio.builder.Encoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.RecordingCoordinator;
 import uk.co.real_logic.artio.engine.SessionInfo;
@@ -33,10 +35,15 @@ import uk.co.real_logic.artio.messages.*;
 import uk.co.real_logic.artio.messages.ControlNotificationEncoder.DisconnectedSessionsEncoder;
 import uk.co.real_logic.artio.messages.ControlNotificationEncoder.SessionsEncoder;
 import uk.co.real_logic.artio.util.CharFormatter;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.util.List;
 
 import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
+import static io.aeron.logbuffer.FrameDescriptor.PADDING_FRAME_TYPE;
+import static io.aeron.logbuffer.FrameDescriptor.TERM_OFFSET;
+import static io.aeron.logbuffer.FrameDescriptor.frameLengthOrdered;
+import static io.aeron.logbuffer.FrameDescriptor.frameType;
 import static io.aeron.protocol.DataHeaderFlyweight.BEGIN_FLAG;
 import static io.aeron.protocol.DataHeaderFlyweight.END_FLAG;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
@@ -60,6 +67,17 @@ public class GatewayPublication extends ClaimablePublication
 
     public static final int FRAMED_MESSAGE_SIZE = MessageHeaderEncoder.ENCODED_LENGTH + FRAME_SIZE;
 
+    /**
+     * Version that FixMessage frames carrying a {@link HeaderSummary} are written with. All other FixMessage frames
+     * are written with {@link #FIX_MESSAGE_VERSION} so that they keep the same layout as before the header summary
+     * was added.
+     */
+    public static final int HEADER_SUMMARY_VERSION = FixMessageDecoder.headerSummarySinceVersion();
+    public static final int FIX_MESSAGE_VERSION = HEADER_SUMMARY_VERSION - 1;
+
+    private static final int HEADER_SUMMARY_SIZE =
+        FixMessageEncoder.headerSummaryHeaderLength() + HeaderSummary.ENCODED_LENGTH;
+
     private static final byte[] NO_BYTES = {};
     private static final DirectBuffer NO_METADATA = new UnsafeBuffer(NO_BYTES);
 
@@ -135,6 +153,7 @@ public class GatewayPublication extends ClaimablePublication
     private final MidConnectionDisconnectEncoder midConnectionDisconnect = new MidConnectionDisconnectEncoder();
     private final DisconnectEncoder disconnect = new DisconnectEncoder();
     private final FixMessageEncoder fixMessage = new FixMessageEncoder();
+    private final UnsafeBuffer headerSummaryBuffer = new UnsafeBuffer(new byte[HeaderSummary.ENCODED_LENGTH]);
     private final ErrorEncoder error = new ErrorEncoder();
     private final ApplicationHeartbeatEncoder applicationHeartbeat = new ApplicationHeartbeatEncoder();
     private final LibraryConnectEncoder libraryConnect = new LibraryConnectEncoder();
@@ -178,9 +197,15 @@ public class GatewayPublication extends ClaimablePublication
     private final InitiateILinkConnectionEncoder initiateILinkConnection = new InitiateILinkConnectionEncoder();
     private final ILinkConnectEncoder iLinkConnect = new ILinkConnectEncoder();
 
+    private final MutableAsciiBuffer claimedMessageBuffer = new MutableAsciiBuffer();
+
     private final EpochNanoClock clock;
     private final int maxPayloadLength;
 
+    // How far ahead of the offset it's asked to encode at an encoder starts its message. This depends upon the
+    // number of digits in the body length so the value from the last message is a good guess for the next one.
+    private int encodedMessageShift;
+
     public GatewayPublication(
         final ExclusivePublication dataPublication,
         final AtomicCounter fails,
@@ -275,7 +300,8 @@ public class GatewayPublication extends ClaimablePublication
             sequenceNumber,
             timestamp,
             null,
-            0);
+            0,
+            null);
     }
 
     public long saveMessage(
@@ -292,6 +318,41 @@ public class GatewayPublication extends ClaimablePublication
         final long timestamp,
         final DirectBuffer srcMetaDataBuffer,
         final int metaDataUpdateOffset)
+    {
+        return saveMessage(
+            srcBuffer,
+            srcOffset,
+            srcLength,
+            libraryId,
+            messageType,
+            sessionId,
+            sequenceIndex,
+            connectionId,
+            status,
+            sequenceNumber,
+            timestamp,
+            srcMetaDataBuffer,
+            metaDataUpdateOffset,
+            null);
+    }
+
+    // A header summary is only carried when the message fits into a single frame along with it, since readers of
+    // fragmented messages don't look past the body.
+    public long saveMessage(
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int srcLength,
+        final int libraryId,
+        final long messageType,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final MessageStatus status,
+        final int sequenceNumber,
+        final long timestamp,
+        final DirectBuffer srcMetaDataBuffer,
+        final int metaDataUpdateOffset,
+        final HeaderSummary headerSummary)
     {
         final int maxPayloadLength = this.maxPayloadLength;
         final DirectBuffer metaDataBuffer = srcMetaDataBuffer == null ? NO_METADATA : srcMetaDataBuffer;
@@ -300,30 +361,19 @@ public class GatewayPublication extends ClaimablePublication
         final BufferClaim bufferClaim = this.bufferClaim;
         final int framedLength = FRAMED_MESSAGE_SIZE + srcLength + metaDataLength;
         final boolean fragmented = framedLength > maxPayloadLength;
-        final int claimLength = fragmented ? maxPayloadLength : framedLength;
+        final boolean withHeaderSummary = headerSummary != null && headerSummary.isPresent() &&
+            framedLength + HEADER_SUMMARY_SIZE <= maxPayloadLength;
+        final int claimLength = fragmented ? maxPayloadLength :
+            withHeaderSummary ? framedLength + HEADER_SUMMARY_SIZE : framedLength;
         int srcFragmentLength = fragmented ? maxPayloadLength - (FRAMED_MESSAGE_SIZE + metaDataLength) : srcLength;
         int srcFragmentOffset = srcOffset;
 
         if (fragmented)
         {
-            // Add a padding message at the end of the term buffer if needed.
-            final int length = framedLength;
-            final int numMaxPayloads = length / maxPayloadLength;
-            final int remainingPayload = length % maxPayloadLength;
-            final int lastFrameLength = remainingPayload > 0 ?
-                align(remainingPayload + HEADER_LENGTH, FRAME_ALIGNMENT) : 0;
-            final int requiredLength = (numMaxPayloads * (maxPayloadLength + HEADER_LENGTH)) + lastFrameLength;
-            final int termLength = dataPublication.termBufferLength();
-            final int termOffset = dataPublication.termOffset();
-            final int resultingOffset = termOffset + requiredLength;
-
-            if (resultingOffset > termLength)
+            final long paddingPosition = padTermForFragmentedMessage(framedLength);
+            if (paddingPosition < 0)
             {
-                final long paddingPosition = dataPublication.appendPadding(termLength - termOffset);
-                if (paddingPosition < 0)
-                {
-                    return paddingPosition;
-                }
+                return paddingPosition;
             }
         }
 
@@ -340,7 +390,7 @@ public class GatewayPublication extends ClaimablePublication
             .blockLength(fixMessage.sbeBlockLength())
             .templateId(fixMessage.sbeTemplateId())
             .schemaId(fixMessage.sbeSchemaId())
-            .version(fixMessage.sbeSchemaVersion());
+            .version(withHeaderSummary ? HEADER_SUMMARY_VERSION : FIX_MESSAGE_VERSION);
 
         offset += header.encodedLength();
 
@@ -357,6 +407,12 @@ public class GatewayPublication extends ClaimablePublication
             .putMetaData(metaDataBuffer, 0, metaDataLength)
             .putBody(srcBuffer, srcFragmentOffset, srcFragmentLength);
 
+        if (withHeaderSummary)
+        {
+            final UnsafeBuffer headerSummaryBuffer = this.headerSummaryBuffer;
+            fixMessage.putHeaderSummary(headerSummaryBuffer, 0, headerSummary.encode(headerSummaryBuffer, 0));
+        }
+
         if (!fragmented)
         {
             bufferClaim.commit();
@@ -390,6 +446,27 @@ public class GatewayPublication extends ClaimablePublication
         return position;
     }
 
+    // Add a padding message at the end of the term buffer if needed.
+    private long padTermForFragmentedMessage(final int framedLength)
+    {
+        final int maxPayloadLength = this.maxPayloadLength;
+        final int numMaxPayloads = framedLength / maxPayloadLength;
+        final int remainingPayload = framedLength % maxPayloadLength;
+        final int lastFrameLength = remainingPayload > 0 ?
+            align(remainingPayload + HEADER_LENGTH, FRAME_ALIGNMENT) : 0;
+        final int requiredLength = (numMaxPayloads * (maxPayloadLength + HEADER_LENGTH)) + lastFrameLength;
+        final int termLength = dataPublication.termBufferLength();
+        final int termOffset = dataPublication.termOffset();
+        final int resultingOffset = termOffset + requiredLength;
+
+        if (resultingOffset > termLength)
+        {
+            return dataPublication.appendPadding(termLength - termOffset);
+        }
+
+        return 0;
+    }
+
     private void putBodyLength(
         final int srcLength, final int offset, final int metaDataLength, final MutableDirectBuffer destBuffer)
     {
@@ -397,6 +474,140 @@ public class GatewayPublication extends ClaimablePublication
         destBuffer.putInt(position, srcLength, LITTLE_ENDIAN);
     }
 
+    /**
+     * Claims space for a FIX message to be encoded in place by
+     * {@link #commitMessage(BufferClaim, long, Encoder, int, long, int, long, MessageStatus, int)}. The claim must
+     * be committed or aborted promptly since nothing after it on the stream can be read until then.
+     *
+     * @param maxLength the maximum length of the encoded FIX message.
+     * @param messageClaim the claim to wrap.
+     * @return the position of the claim in the stream or a negative number indicating an error status.
+     * @throws IllegalArgumentException if the message wouldn't fit into a single unfragmented claim.
+     */
+    public long claimMessage(final int maxLength, final BufferClaim messageClaim)
+    {
+        final int frameHeaderLength = DataHeaderFlyweight.HEADER_LENGTH;
+        final int claimLength = align(frameHeaderLength + FRAMED_MESSAGE_SIZE + maxLength, FRAME_ALIGNMENT) -
+            frameHeaderLength;
+        if (claimLength > maxPayloadLength)
+        {
+            throw new IllegalArgumentException(
+                "maxLength of " + maxLength + " is too long to claim, the maximum payload length is " +
+                maxPayloadLength);
+        }
+
+        return claim(claimLength, messageClaim);
+    }
+
+    /**
+     * Encodes a FIX message into a claim from {@link #claimMessage(int, BufferClaim)} and commits it. Any unused
+     * space at the end of the claim becomes a padding frame so the message doesn't have to be copied.
+     *
+     * @param messageClaim the claim that the message is encoded into.
+     * @param claimPosition the position returned when claiming.
+     * @param encoder the encoder of the message.
+     * @param libraryId the id of the library sending the message.
+     * @param sessionId the id of the session sending the message.
+     * @param sequenceIndex the sequence index of the message.
+     * @param connectionId the id of the connection to send the message on.
+     * @param status the status of the message.
+     * @param sequenceNumber the sequence number of the message.
+     * @return the position in the stream that corresponds to the end of this message.
+     * @throws IndexOutOfBoundsException if the encoded message doesn't fit into the claim, the claim is aborted.
+     */
+    public long commitMessage(
+        final BufferClaim messageClaim,
+        final long claimPosition,
+        final Encoder encoder,
+        final int libraryId,
+        final long sessionId,
+        final int sequenceIndex,
+        final long connectionId,
+        final MessageStatus status,
+        final int sequenceNumber)
+    {
+        // The claim's buffer starts at its data frame header, so offsets are all relative to the frame.
+        final UnsafeBuffer frameBuffer = (UnsafeBuffer)messageClaim.buffer();
+        final int frameOffset = messageClaim.offset();
+        final int messageOffset = frameOffset + FRAMED_MESSAGE_SIZE;
+        final int claimedFrameLength = frameBuffer.capacity();
+
+        final MutableAsciiBuffer claimedMessageBuffer = this.claimedMessageBuffer;
+        claimedMessageBuffer.wrap(frameBuffer);
+        final int encodeOffset = Math.max(frameOffset, messageOffset - encodedMessageShift);
+        final int encodedOffset;
+        final int length;
+        try
+        {
+            final long result = encoder.encode(claimedMessageBuffer, encodeOffset);
+            encodedOffset = Encoder.offset(result);
+            length = Encoder.length(result);
+        }
+        catch (final RuntimeException e)
+        {
+            messageClaim.abort();
+            throw e;
+        }
+
+        encodedMessageShift = encodedOffset - encodeOffset;
+        if (encodedOffset != messageOffset)
+        {
+            if (messageOffset + length > claimedFrameLength)
+            {
+                messageClaim.abort();
+                throw new IndexOutOfBoundsException(
+                    "Encoded message of length " + length + " doesn't fit into claim of " + claimedFrameLength);
+            }
+
+            frameBuffer.putBytes(messageOffset, frameBuffer, encodedOffset, length);
+        }
+
+        final long messageType = encoder.messageType();
+        header.wrap(frameBuffer, frameOffset)
+            .blockLength(fixMessage.sbeBlockLength())
+            .templateId(fixMessage.sbeTemplateId())
+            .schemaId(fixMessage.sbeSchemaId())
+            .version(FIX_MESSAGE_VERSION);
+
+        fixMessage.wrap(frameBuffer, frameOffset + header.encodedLength())
+            .libraryId(libraryId)
+            .messageType(messageType)
+            .session(sessionId)
+            .sequenceIndex(sequenceIndex)
+            .connection(connectionId)
+            .timestamp(clock.nanoTime())
+            .status(status)
+            .sequenceNumber(sequenceNumber)
+            .metaDataUpdateOffset(0)
+            .putMetaData(NO_METADATA, 0, 0);
+
+        frameBuffer.putInt(messageOffset - FixMessageEncoder.bodyHeaderLength(), length, LITTLE_ENDIAN);
+
+        final int frameLength = messageOffset + length;
+        final int alignedFrameLength = align(frameLength, FRAME_ALIGNMENT);
+        final int paddingLength = claimedFrameLength - alignedFrameLength;
+        if (paddingLength > 0)
+        {
+            // The padding frame has to be complete before the message frame is, since readers move straight on to it
+            frameBuffer.putBytes(alignedFrameLength, frameBuffer, 0, frameOffset);
+            frameType(frameBuffer, alignedFrameLength, PADDING_FRAME_TYPE);
+            frameBuffer.putInt(
+                alignedFrameLength + TERM_OFFSET,
+                frameBuffer.getInt(TERM_OFFSET, LITTLE_ENDIAN) + alignedFrameLength,
+                LITTLE_ENDIAN);
+            frameLengthOrdered(frameBuffer, alignedFrameLength, paddingLength);
+        }
+        frameLengthOrdered(frameBuffer, 0, frameLength);
+
+        DebugLogger.logFixMessage(FIX_MESSAGE_FLOW, messageType, "Enqueued ", frameBuffer, messageOffset, length);
+        return claimPosition - paddingLength;
+    }
+
+    public void abortMessage(final BufferClaim messageClaim)
+    {
+        messageClaim.abort();
+    }
+
     public long saveManageSession(
         final int libraryId,
         final long connection,
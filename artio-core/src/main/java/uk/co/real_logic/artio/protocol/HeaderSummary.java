@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_LONG;
+
+/**
+ * Summary of the standard header of an inbound FIX message, extracted by the engine when framing the message and
+ * carried in the <code>headerSummary</code> field of its FixMessage frame, so that the standard header doesn't need
+ * to be parsed again in order to process the message.
+ *
+ * Only valid for the duration of the callback that it's passed to. Fields that couldn't be extracted are set to
+ * their missing values, eg: {@link #sendingTimeInNs()} is <code>MISSING_LONG</code> when the SendingTime field
+ * isn't a valid UTC timestamp.
+ */
+public final class HeaderSummary
+{
+    static final int MSG_SEQ_NUM_OFFSET = 0;
+    static final int SENDING_TIME_OFFSET = MSG_SEQ_NUM_OFFSET + 4;
+    static final int HEADER_OFFSET_OFFSET = SENDING_TIME_OFFSET + 8;
+    static final int BODY_OFFSET_OFFSET = HEADER_OFFSET_OFFSET + 4;
+    static final int FLAGS_OFFSET = BODY_OFFSET_OFFSET + 4;
+
+    public static final int ENCODED_LENGTH = FLAGS_OFFSET + 1;
+
+    private static final byte POSS_DUP_FLAG = 1;
+    private static final byte POSS_RESEND_FLAG = 2;
+
+    private boolean present;
+    private int msgSeqNum;
+    private long sendingTimeInNs;
+    private int headerOffset;
+    private int bodyOffset;
+    private boolean possDup;
+    private boolean possResend;
+
+    public HeaderSummary()
+    {
+        reset();
+    }
+
+    public HeaderSummary reset()
+    {
+        present = false;
+        msgSeqNum = MISSING_INT;
+        sendingTimeInNs = MISSING_LONG;
+        headerOffset = MISSING_INT;
+        bodyOffset = MISSING_INT;
+        possDup = false;
+        possResend = false;
+        return this;
+    }
+
+    public HeaderSummary present(final boolean present)
+    {
+        this.present = present;
+        return this;
+    }
+
+    public HeaderSummary msgSeqNum(final int msgSeqNum)
+    {
+        this.msgSeqNum = msgSeqNum;
+        return this;
+    }
+
+    public HeaderSummary sendingTimeInNs(final long sendingTimeInNs)
+    {
+        this.sendingTimeInNs = sendingTimeInNs;
+        return this;
+    }
+
+    public HeaderSummary headerOffset(final int headerOffset)
+    {
+        this.headerOffset = headerOffset;
+        return this;
+    }
+
+    public HeaderSummary bodyOffset(final int bodyOffset)
+    {
+        this.bodyOffset = bodyOffset;
+        return this;
+    }
+
+    public HeaderSummary possDup(final boolean possDup)
+    {
+        this.possDup = possDup;
+        return this;
+    }
+
+    public HeaderSummary possResend(final boolean possResend)
+    {
+        this.possResend = possResend;
+        return this;
+    }
+
+    /**
+     * Gets whether the message was framed with a header summary. None of the other fields are set if it wasn't.
+     *
+     * @return true if the message was framed with a header summary, false otherwise.
+     */
+    public boolean isPresent()
+    {
+        return present;
+    }
+
+    /**
+     * Gets the MsgSeqNum of the message.
+     *
+     * @return the MsgSeqNum of the message or <code>MISSING_INT</code> if it doesn't have one.
+     */
+    public int msgSeqNum()
+    {
+        return msgSeqNum;
+    }
+
+    /**
+     * Gets the SendingTime of the message.
+     *
+     * @return the SendingTime of the message in nanoseconds since the epoch or <code>MISSING_LONG</code> if it
+     * doesn't have a valid one.
+     */
+    public long sendingTimeInNs()
+    {
+        return sendingTimeInNs;
+    }
+
+    /**
+     * Gets the offset of the first field after BodyLength, relative to the start of the message.
+     *
+     * @return the offset of the first field after BodyLength.
+     */
+    public int headerOffset()
+    {
+        return headerOffset;
+    }
+
+    /**
+     * Gets the offset of the first field that isn't part of the standard header, relative to the start of the
+     * message. This is the offset of the CheckSum field for messages without a body.
+     *
+     * @return the offset of the first field that isn't part of the standard header.
+     */
+    public int bodyOffset()
+    {
+        return bodyOffset;
+    }
+
+    public boolean possDup()
+    {
+        return possDup;
+    }
+
+    public boolean possResend()
+    {
+        return possResend;
+    }
+
+    public int encode(final MutableDirectBuffer buffer, final int offset)
+    {
+        buffer.putInt(offset + MSG_SEQ_NUM_OFFSET, msgSeqNum, LITTLE_ENDIAN);
+        buffer.putLong(offset + SENDING_TIME_OFFSET, sendingTimeInNs, LITTLE_ENDIAN);
+        buffer.putInt(offset + HEADER_OFFSET_OFFSET, headerOffset, LITTLE_ENDIAN);
+        buffer.putInt(offset + BODY_OFFSET_OFFSET, bodyOffset, LITTLE_ENDIAN);
+        buffer.putByte(offset + FLAGS_OFFSET,
+            (byte)((possDup ? POSS_DUP_FLAG : 0) | (possResend ? POSS_RESEND_FLAG : 0)));
+        return ENCODED_LENGTH;
+    }
+
+    public HeaderSummary decode(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (length < ENCODED_LENGTH)
+        {
+            return reset();
+        }
+
+        final byte flags = buffer.getByte(offset + FLAGS_OFFSET);
+        present = true;
+        msgSeqNum = buffer.getInt(offset + MSG_SEQ_NUM_OFFSET, LITTLE_ENDIAN);
+        sendingTimeInNs = buffer.getLong(offset + SENDING_TIME_OFFSET, LITTLE_ENDIAN);
+        headerOffset = buffer.getInt(offset + HEADER_OFFSET_OFFSET, LITTLE_ENDIAN);
+        bodyOffset = buffer.getInt(offset + BODY_OFFSET_OFFSET, LITTLE_ENDIAN);
+        possDup = (flags & POSS_DUP_FLAG) != 0;
+        possResend = (flags & POSS_RESEND_FLAG) != 0;
+        return this;
+    }
+
+    public String toString()
+    {
+        return "HeaderSummary{" +
+            "present=" + present +
+            ", msgSeqNum=" + msgSeqNum +
+            ", sendingTimeInNs=" + sendingTimeInNs +
+            ", headerOffset=" + headerOffset +
+            ", bodyOffset=" + bodyOffset +
+            ", possDup=" + possDup +
+            ", possResend=" + possResend +
+            '}';
+    }
+}
@@ -36,7 +36,8 @@ public interface ProtocolHandler
         MessageStatus status,
         int sequenceNumber,
         Header header,
-        int metaDataLength);
+        int metaDataLength,
+        HeaderSummary headerSummary);
 
     Action onDisconnect(int libraryId, long connectionId, DisconnectReason reason);
 
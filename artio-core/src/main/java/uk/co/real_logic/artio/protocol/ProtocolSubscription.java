@@ -26,6 +26,7 @@ import uk.co.real_logic.artio.util.CharFormatter;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.LogTag.FIX_CONNECTION;
 import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
+import static uk.co.real_logic.artio.protocol.GatewayPublication.HEADER_SUMMARY_VERSION;
 
 public final class ProtocolSubscription implements ControlledFragmentHandler
 {
@@ -37,6 +38,7 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
     private final DisconnectDecoder disconnect = new DisconnectDecoder();
     private final FixMessageDecoder messageFrame = new FixMessageDecoder();
     private final FixPMessageDecoder iLinkMessage = new FixPMessageDecoder();
+    private final HeaderSummary headerSummary = new HeaderSummary();
 
     private final ProtocolHandler protocolHandler;
     private final Action defaultAction;
@@ -84,7 +86,7 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
         {
             case FixMessageDecoder.TEMPLATE_ID:
             {
-                return onFixMessage(buffer, offset, blockLength, version, header);
+                return onFixMessage(buffer, offset, blockLength, version, start + length, header);
             }
 
             case DisconnectDecoder.TEMPLATE_ID:
@@ -134,13 +136,16 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
         final int offset,
         final int blockLength,
         final int version,
+        final int end,
         final Header header)
     {
+        final FixMessageDecoder messageFrame = this.messageFrame;
         messageFrame.wrap(buffer, offset, blockLength, version);
         final int metaDataLength = messageFrame.skipMetaData();
 
         final int messageLength = messageFrame.bodyLength();
         final long messageType = MessageTypeExtractor.getMessageType(messageFrame);
+        final HeaderSummary headerSummary = decodeHeaderSummary(buffer, version, end);
         return protocolHandler.onMessage(
             buffer,
             offset + FRAME_SIZE + metaDataLength,
@@ -154,6 +159,29 @@ public final class ProtocolSubscription implements ControlledFragmentHandler
             messageFrame.status(),
             messageFrame.sequenceNumber(),
             header,
-            metaDataLength);
+            metaDataLength,
+            headerSummary);
+    }
+
+    private HeaderSummary decodeHeaderSummary(final DirectBuffer buffer, final int version, final int end)
+    {
+        final HeaderSummary headerSummary = this.headerSummary;
+        if (version < HEADER_SUMMARY_VERSION)
+        {
+            return headerSummary.reset();
+        }
+
+        final FixMessageDecoder messageFrame = this.messageFrame;
+        messageFrame.skipBody();
+        final int summaryOffset = messageFrame.limit() + FixMessageDecoder.headerSummaryHeaderLength();
+        // Guard against frames that were stamped with the current version without writing a summary
+        if (summaryOffset > end)
+        {
+            return headerSummary.reset();
+        }
+
+        final int summaryLength = messageFrame.headerSummaryLength();
+        return summaryOffset + summaryLength <= end ?
+            headerSummary.decode(buffer, summaryOffset, summaryLength) : headerSummary.reset();
     }
 }
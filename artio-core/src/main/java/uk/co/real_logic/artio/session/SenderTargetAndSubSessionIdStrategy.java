@@ -65,6 +65,38 @@ class SenderTargetAndSubSessionIdStrategy implements SessionIdStrategy
             header.senderCompID(), remoteCompIDLength);
     }
 
+    public int onAcceptLogonHashCode(final SessionHeaderDecoder header)
+    {
+        requireNonNull(header, "header");
+
+        final int localCompIDLength = header.targetCompIDLength();
+        final int localSubIDLength = header.senderSubIDLength();
+        final int remoteCompIDLength = header.senderCompIDLength();
+
+        if (localCompIDLength == 0 || localSubIDLength == 0 || remoteCompIDLength == 0)
+        {
+            throw new IllegalArgumentException("Missing comp id");
+        }
+
+        int result = CodecUtil.hashCode(header.targetCompID(), 0, localCompIDLength);
+        result = 31 * result + CodecUtil.hashCode(header.senderSubID(), 0, localSubIDLength);
+        result = 31 * result + CodecUtil.hashCode(header.senderCompID(), 0, remoteCompIDLength);
+        return result;
+    }
+
+    public boolean matchesAcceptLogon(final CompositeKey compositeKey, final SessionHeaderDecoder header)
+    {
+        if (compositeKey instanceof CompositeKeyImpl)
+        {
+            final CompositeKeyImpl key = (CompositeKeyImpl)compositeKey;
+            return CodecUtil.equals(header.targetCompID(), key.localCompID, header.targetCompIDLength()) &&
+                CodecUtil.equals(header.senderSubID(), key.localSubID, header.senderSubIDLength()) &&
+                CodecUtil.equals(header.senderCompID(), key.remoteCompID, header.senderCompIDLength());
+        }
+
+        return false;
+    }
+
     public CompositeKey onInitiateLogon(
         final String localCompId,
         final String localSubId,
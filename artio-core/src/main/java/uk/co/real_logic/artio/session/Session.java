@@ -16,6 +16,7 @@
 package uk.co.real_logic.artio.session;
 
 import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
 import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import org.agrona.DirectBuffer;
 import org.agrona.Verify;
@@ -24,6 +25,7 @@ import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.*;
 import uk.co.real_logic.artio.builder.AbstractRejectEncoder;
 import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.builder.MessageTemplate;
 import uk.co.real_logic.artio.builder.SessionHeaderEncoder;
 import uk.co.real_logic.artio.decoder.AbstractResendRequestDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
@@ -104,6 +106,8 @@ public class Session
     static final String TEST_REQ_ID = "TEST";
     private static final char[] TEST_REQ_ID_CHARS = TEST_REQ_ID.toCharArray();
     private static final int NO_LOGOUT_REJECT_REASON = -1;
+    private static final long NO_CLAIM = 0;
+    static final long NO_POLL_TIME = Long.MAX_VALUE;
 
     private final UtcTimestampEncoder timestampEncoder;
 
@@ -125,6 +129,8 @@ public class Session
     private boolean backpressuredResendRequestResponse = false;
     private boolean backpressuredOutboundValidResendRequest = false;
     private final ResendRequestResponse resendRequestResponse = new ResendRequestResponse();
+    private final BufferClaim messageClaim = new BufferClaim();
+    private long claimPosition = NO_CLAIM;
     private final ResendRequestController resendRequestController;
     private final int forcedHeartbeatIntervalInS;
     private int configuredHeartbeatIntervalInS;
@@ -201,6 +207,12 @@ public class Session
 
     private DisconnectReason pendingDisconnectReason;
 
+    // Owned by the SessionTimers that schedule this session's polls, if there are any.
+    SessionTimers timers;
+    long timerId;
+    byte timerState;
+    int timersGeneration;
+
     Session(
         final int heartbeatIntervalInS,
         final long connectionId,
@@ -770,6 +782,120 @@ public class Session
         return position;
     }
 
+    /**
+     * Tries to send a pre-encoded message template on this session. The sequence number, sending time and, if
+     * enabled, last message sequence number processed fields of the template are updated before it is sent. See
+     * {{@link #trySend(Encoder)}} for scenarios where this could fail.
+     *
+     * @param template the template of the message to be sent. This should have been encoded from an encoder whose
+     *                 header was setup using {@link #prepare(SessionHeaderEncoder)}.
+     * @return the position in the stream that corresponds to the end of this message or a negative
+     * number indicating an error status.
+     * @throws IllegalArgumentException if the template is missing a sequence number or sending time field.
+     * @throws NotConnectedException if the underlying Publication to the FixEngine has been closed or its max position
+     *                               exceeded.
+     */
+    public long trySend(final MessageTemplate template)
+    {
+        final int sentSeqNum = newSentSeqNum();
+        template.putInt(template.field(MSG_SEQ_NO), sentSeqNum);
+        template.putBytes(
+            template.field(SENDING_TIME),
+            timestampEncoder.buffer(),
+            timestampEncoder.encode(epochFractionClock.epochFractionTime()));
+
+        if (enableLastMsgSeqNumProcessed)
+        {
+            final int lastMsgSeqNumProcessedField = template.findField(LAST_MSG_SEQ_NUM_PROCESSED);
+            if (lastMsgSeqNumProcessedField != MessageTemplate.NO_FIELD)
+            {
+                template.putInt(lastMsgSeqNumProcessedField, lastMsgSeqNumProcessed);
+            }
+        }
+
+        return trySend(
+            template.buffer(), template.offset(), template.length(), sentSeqNum, template.messageType(), null, 0);
+    }
+
+    /**
+     * Tries to claim space for a message on this session, so that it can be encoded straight into the stream to the
+     * engine by {@link #commit(Encoder)} rather than being copied there. A successful claim must be followed by a
+     * call to either {@link #commit(Encoder)} or {@link #abort()} without sending any other messages on this
+     * session. Other sessions of the library can't send messages to the engine until then. See
+     * {{@link #trySend(Encoder)}} for scenarios where this could fail.
+     *
+     * @param maxLength the maximum length of the encoded message.
+     * @return the position of the claim in the stream or a negative number indicating an error status.
+     * @throws IllegalArgumentException if <code>maxLength</code> is longer than the maximum payload length of the
+     *                                  stream, use {@link #trySend(Encoder)} for such messages.
+     * @throws IllegalStateException if this session already has an uncommitted claim.
+     * @throws NotConnectedException if the underlying Publication to the FixEngine has been closed or its max position
+     *                               exceeded.
+     */
+    public long tryClaim(final int maxLength)
+    {
+        if (claimPosition != NO_CLAIM)
+        {
+            throw new IllegalStateException("Session " + id + " already has an uncommitted claim");
+        }
+
+        final long position = outboundPublication.claimMessage(maxLength, messageClaim);
+        if (position > 0)
+        {
+            claimPosition = position;
+        }
+
+        return position;
+    }
+
+    /**
+     * Encodes a message into the space claimed by {@link #tryClaim(int)} and commits it. The header of the encoder
+     * is prepared with the session state, as with {@link #prepare(SessionHeaderEncoder)}.
+     *
+     * @param encoder the encoder of the message to be sent.
+     * @return the position in the stream that corresponds to the end of this message.
+     * @throws IndexOutOfBoundsException if the encoded message is longer than the claimed space, the claim is
+     *                                   aborted if this happens.
+     * @throws IllegalStateException if this session hasn't claimed any space.
+     */
+    public long commit(final Encoder encoder)
+    {
+        final long claimPosition = this.claimPosition;
+        validateClaimed(claimPosition);
+        this.claimPosition = NO_CLAIM;
+
+        final int sentSeqNum = prepare(encoder.header());
+        // As with trySend, messages that are claimed whilst the session isn't active are archived but not sent.
+        final long connectionId = this.state == ACTIVE ? this.connectionId : NO_CONNECTION_ID;
+        final long position = outboundPublication.commitMessage(
+            messageClaim, claimPosition, encoder, libraryId, id(), sequenceIndex(), connectionId, OK, sentSeqNum);
+
+        lastSentMsgSeqNum(sentSeqNum, position);
+
+        return position;
+    }
+
+    /**
+     * Aborts a claim from {@link #tryClaim(int)} without sending anything.
+     *
+     * @throws IllegalStateException if this session hasn't claimed any space.
+     */
+    public void abort()
+    {
+        validateClaimed(claimPosition);
+        claimPosition = NO_CLAIM;
+
+        outboundPublication.abortMessage(messageClaim);
+    }
+
+    private void validateClaimed(final long claimPosition)
+    {
+        if (claimPosition == NO_CLAIM)
+        {
+            throw new IllegalStateException("Session " + id + " has no claimed message");
+        }
+    }
+
     /**
      * Deprecated, uses should be removed. This method will be removed in a future version.
      *
@@ -2261,17 +2387,31 @@ public class Session
         incNextReceivedInboundMessageTime(timeInNs);
         sendingHeartbeatIntervalInNs = (long)(heartbeatIntervalInNs * HEARTBEAT_PAUSE_FACTOR);
         nextRequiredHeartbeatTimeInNs = timeInNs + sendingHeartbeatIntervalInNs;
+        wakeTimers();
     }
 
     protected Session state(final SessionState state)
     {
         this.state = state;
+        wakeTimers();
         return this;
     }
 
     void id(final long id)
     {
         this.id = id;
+        wakeTimers();
+    }
+
+    // Deadlines that are brought forward, or states that need to be polled straight away, can't wait for the
+    // session's existing timer.
+    private void wakeTimers()
+    {
+        final SessionTimers timers = this.timers;
+        if (timers != null)
+        {
+            timers.wake(this);
+        }
     }
 
     protected long timeInNs()
@@ -2465,6 +2605,44 @@ public class Session
         }
     }
 
+    /**
+     * Get the earliest time at which {@link #poll(long)} could have something to do, assuming that the session's state
+     * doesn't change before then.
+     *
+     * @return the earliest time at which the session needs to be polled, {@link #NO_POLL_TIME} if it only needs to be
+     * polled once its state changes.
+     */
+    long nextPollTimeInNs()
+    {
+        final SessionState sessionState = state();
+        if (connectionType == ConnectionType.INITIATOR && sessionState == CONNECTED && id() != UNKNOWN)
+        {
+            return 0;
+        }
+
+        final short state = sessionState.value();
+        switch (state)
+        {
+            case DISCONNECTING_VALUE:
+            case LOGGING_OUT_VALUE:
+            case LOGGING_OUT_AND_DISCONNECTING_VALUE:
+                return 0;
+
+            case AWAITING_LOGOUT_VALUE:
+                return awaitingLogoutTimeoutInNs + 1;
+
+            case DISCONNECTED_VALUE:
+            case DISABLED_VALUE:
+            case AWAITING_ASYNC_PROXY_LOGOUT_VALUE:
+                return NO_POLL_TIME;
+
+            default:
+                return state == ACTIVE_VALUE ?
+                    Math.min(nextRequiredHeartbeatTimeInNs, nextRequiredInboundMessageTimeInNs) :
+                    nextRequiredInboundMessageTimeInNs;
+        }
+    }
+
     private int initiatorPoll()
     {
         int actions = 0;
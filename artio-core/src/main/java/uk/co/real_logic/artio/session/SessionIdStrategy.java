@@ -67,6 +67,35 @@ public interface SessionIdStrategy
      */
     CompositeKey onAcceptLogon(SessionHeaderDecoder header) throws IllegalArgumentException;
 
+    /**
+     * Computes the hash code of the composite key that {@link #onAcceptLogon(SessionHeaderDecoder)} would create
+     * for this header. Strategies can override this in order to avoid creating a key when looking up a session
+     * that is already known.
+     *
+     * @param header the header of the logon message.
+     * @return the hash code of the composite session key.
+     * @throws IllegalArgumentException if the header is missing a required field then an IllegalArgumentException
+     * can be thrown.
+     */
+    default int onAcceptLogonHashCode(final SessionHeaderDecoder header) throws IllegalArgumentException
+    {
+        return onAcceptLogon(header).hashCode();
+    }
+
+    /**
+     * Checks whether the composite key that {@link #onAcceptLogon(SessionHeaderDecoder)} would create for this
+     * header is equal to an existing key. Strategies can override this in order to avoid creating a key when
+     * looking up a session that is already known.
+     *
+     * @param compositeKey the existing key.
+     * @param header the header of the logon message.
+     * @return true if the keys are equal, false otherwise.
+     */
+    default boolean matchesAcceptLogon(final CompositeKey compositeKey, final SessionHeaderDecoder header)
+    {
+        return compositeKey.equals(onAcceptLogon(header));
+    }
+
     /**
      * Creates the composite session key when you initiate a logon.
      *
@@ -29,6 +29,7 @@ import uk.co.real_logic.artio.fields.UtcTimestampDecoder;
 import uk.co.real_logic.artio.library.OnMessageInfo;
 import uk.co.real_logic.artio.messages.CancelOnDisconnectOption;
 import uk.co.real_logic.artio.messages.SessionState;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 import uk.co.real_logic.artio.validation.MessageValidationStrategy;
@@ -40,6 +41,7 @@ import static uk.co.real_logic.artio.builder.Validation.isValidMsgType;
 import static uk.co.real_logic.artio.dictionary.SessionConstants.*;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_LONG;
+import static uk.co.real_logic.artio.fields.CalendricalUtil.NANOS_IN_MILLIS;
 import static uk.co.real_logic.artio.messages.CancelOnDisconnectOption.DO_NOT_CANCEL_ON_DISCONNECT_OR_LOGOUT;
 import static uk.co.real_logic.artio.messages.SessionState.AWAITING_LOGOUT;
 import static uk.co.real_logic.artio.messages.SessionState.DISCONNECTED;
@@ -47,8 +49,12 @@ import static uk.co.real_logic.artio.session.Session.UNKNOWN;
 
 public class SessionParser
 {
+    private static final int MAX_PACKED_MSG_TYPE_LENGTH = 8;
+
     private final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
     private final UtcTimestampDecoder timestampDecoder;
+    private final HeaderSummary noHeaderSummary = new HeaderSummary();
+    private final char[] summaryMsgType = new char[MAX_PACKED_MSG_TYPE_LENGTH];
 
     private AbstractLogonDecoder logon;
     private AbstractLogoutDecoder logout;
@@ -126,6 +132,29 @@ public class SessionParser
         final int length,
         final long messageType,
         final long position)
+    {
+        return onMessage(buffer, offset, length, messageType, position, noHeaderSummary);
+    }
+
+    /**
+     * Handles a message using the summary of its standard header that was extracted by the engine when it was framed,
+     * if one is present, rather than decoding the header again.
+     *
+     * @param buffer the buffer containing the message.
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @param messageType the packed message type of the message.
+     * @param position the position of the message in the inbound stream.
+     * @param headerSummary the summary of the message's standard header.
+     * @return the action to take for the fragment containing the message.
+     */
+    public Action onMessage(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final long messageType,
+        final long position,
+        final HeaderSummary headerSummary)
     {
         asciiBuffer.wrap(buffer);
 
@@ -163,7 +192,7 @@ public class SessionParser
             }
             else
             {
-                action = onAnyOtherMessage(offset, length, position);
+                action = onAnyOtherMessage(offset, length, messageType, position, headerSummary);
             }
 
             // Consider admin messages processed when they've been received by the session logic
@@ -298,6 +327,17 @@ public class SessionParser
         }
     }
 
+    private long sendingTimeInMs(final SessionHeaderDecoder header, final HeaderSummary headerSummary)
+    {
+        final long sendingTimeInNs = headerSummary.sendingTimeInNs();
+        if (CODEC_VALIDATION_ENABLED && sendingTimeInNs != MISSING_LONG)
+        {
+            return sendingTimeInNs / NANOS_IN_MILLIS;
+        }
+
+        return sendingTimeInMs(header);
+    }
+
     private long sendingTimeInMs(final SessionHeaderDecoder header)
     {
         final byte[] sendingTime = header.sendingTime();
@@ -318,8 +358,25 @@ public class SessionParser
         }
     }
 
-    private Action onAnyOtherMessage(final int offset, final int length, final long position)
+    private Action onAnyOtherMessage(
+        final int offset, final int length, final long messageType, final long position,
+        final HeaderSummary headerSummary)
     {
+        // Without codec validation nothing but the summarised fields is needed from the header.
+        if (!CODEC_VALIDATION_ENABLED && headerSummary.isPresent() && headerSummary.msgSeqNum() != MISSING_INT)
+        {
+            final boolean possDup = headerSummary.possDup();
+            return session.onMessage(
+                headerSummary.msgSeqNum(),
+                summaryMsgType,
+                unpackSummaryMsgType(messageType),
+                MISSING_LONG,
+                MISSING_LONG,
+                possDup || headerSummary.possResend(),
+                possDup,
+                position);
+        }
+
         final SessionHeaderDecoder header = this.header;
         header.reset();
         header.decode(asciiBuffer, offset, length);
@@ -340,16 +397,35 @@ public class SessionParser
         }
         else
         {
-            return onMessage(header, position);
+            return onMessage(header, position, headerSummary);
         }
 
         return CONTINUE;
     }
 
+    private int unpackSummaryMsgType(final long messageType)
+    {
+        final char[] summaryMsgType = this.summaryMsgType;
+        int length = 0;
+        long remaining = messageType;
+        while (remaining != 0 && length < MAX_PACKED_MSG_TYPE_LENGTH)
+        {
+            summaryMsgType[length++] = (char)(remaining & 0xFF);
+            remaining >>>= 8;
+        }
+        return length;
+    }
+
     private Action onMessage(final SessionHeaderDecoder header, final long position)
+    {
+        return onMessage(header, position, noHeaderSummary);
+    }
+
+    private Action onMessage(
+        final SessionHeaderDecoder header, final long position, final HeaderSummary headerSummary)
     {
         final long origSendingTime = origSendingTimeInMs(header);
-        final long sendingTime = sendingTimeInMs(header);
+        final long sendingTime = sendingTimeInMs(header, headerSummary);
         final boolean possDup = isPossDup(header);
         return session.onMessage(
             header.msgSeqNum(),
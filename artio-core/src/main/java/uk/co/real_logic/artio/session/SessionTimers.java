@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.agrona.DeadlineTimerWheel;
+import org.agrona.collections.Long2ObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Schedules the polling of sessions by the time that they next have something to do, eg: send a heartbeat or time
+ * out their counter-party, so that a duty cycle only has to poll the sessions whose deadlines have expired rather
+ * than every session.
+ *
+ * Deadlines are only pushed back when messages are sent or received, so a session is left on its old timer and
+ * rescheduled once that fires. A session wakes itself up when its state changes so that it's polled straight away.
+ *
+ * Sessions are taken from an array that is copied whenever a session is added or removed, so the array is compared
+ * by identity on every poll and only reconciled against the scheduled sessions when it has changed.
+ */
+public class SessionTimers implements DeadlineTimerWheel.TimerHandler
+{
+    static final byte UNSCHEDULED = 0;
+    static final byte SCHEDULED = 1;
+    static final byte DUE = 2;
+
+    // Roughly a millisecond per tick and a second per rotation of the wheel, later deadlines wait in their slot.
+    private static final int TICK_RESOLUTION_IN_NS = 1 << 20;
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private static final InternalSession[] NO_SESSIONS = new InternalSession[0];
+
+    private final Long2ObjectHashMap<Session> timerIdToSession = new Long2ObjectHashMap<>();
+    private final DeadlineTimerWheel timerWheel;
+
+    private ArrayList<Session> dueSessions = new ArrayList<>();
+    private ArrayList<Session> pollingSessions = new ArrayList<>();
+    private InternalSession[] sessions = NO_SESSIONS;
+    private int generation;
+
+    public SessionTimers(final long timeInNs)
+    {
+        timerWheel = new DeadlineTimerWheel(NANOSECONDS, timeInNs, TICK_RESOLUTION_IN_NS, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Reconcile the scheduled sessions with the sessions that should be polled.
+     *
+     * @param sessions the sessions that should be polled, copied rather than modified when sessions are added or
+     *                 removed.
+     */
+    public void sessions(final InternalSession[] sessions)
+    {
+        final InternalSession[] oldSessions = this.sessions;
+        if (sessions == oldSessions)
+        {
+            return;
+        }
+
+        final int generation = ++this.generation;
+        for (final InternalSession session : sessions)
+        {
+            session.timersGeneration = generation;
+            if (session.timers != this)
+            {
+                session.timers = this;
+                session.timerState = UNSCHEDULED;
+                wake(session);
+            }
+        }
+
+        for (final InternalSession session : oldSessions)
+        {
+            if (session.timersGeneration != generation && session.timers == this)
+            {
+                remove(session);
+            }
+        }
+
+        this.sessions = sessions;
+    }
+
+    /**
+     * Poll the sessions whose deadlines have expired.
+     *
+     * @param timeInNs the current time.
+     * @return the amount of work done by the sessions.
+     */
+    public int poll(final long timeInNs)
+    {
+        // The wheel only advances by one tick per poll, so catch it up if the duty cycle hasn't run for a while,
+        // including the tick that the current time falls into.
+        final DeadlineTimerWheel timerWheel = this.timerWheel;
+        long tickEndTimeInNs;
+        do
+        {
+            tickEndTimeInNs = timerWheel.currentTickTime();
+            timerWheel.poll(timeInNs, this, Integer.MAX_VALUE);
+        }
+        while (tickEndTimeInNs <= timeInNs);
+
+        final ArrayList<Session> pollingSessions = this.dueSessions;
+        this.dueSessions = this.pollingSessions;
+        this.pollingSessions = pollingSessions;
+
+        int total = 0;
+        for (int i = 0, size = pollingSessions.size(); i < size; i++)
+        {
+            final Session session = pollingSessions.get(i);
+            if (session.timers == this)
+            {
+                session.timerState = UNSCHEDULED;
+                total += session.poll(timeInNs);
+                schedule(session, timeInNs);
+            }
+        }
+        pollingSessions.clear();
+
+        return total;
+    }
+
+    public boolean onTimerExpiry(final TimeUnit timeUnit, final long now, final long timerId)
+    {
+        final Session session = timerIdToSession.remove(timerId);
+        if (session != null)
+        {
+            session.timerState = DUE;
+            dueSessions.add(session);
+        }
+        return true;
+    }
+
+    void wake(final Session session)
+    {
+        final byte timerState = session.timerState;
+        if (timerState == DUE)
+        {
+            return;
+        }
+
+        if (timerState == SCHEDULED)
+        {
+            cancel(session);
+        }
+        session.timerState = DUE;
+        dueSessions.add(session);
+    }
+
+    private void schedule(final Session session, final long timeInNs)
+    {
+        // Woken up whilst being polled
+        if (session.timerState != UNSCHEDULED)
+        {
+            return;
+        }
+
+        final long nextPollTimeInNs = session.nextPollTimeInNs();
+        if (nextPollTimeInNs == Session.NO_POLL_TIME)
+        {
+            return;
+        }
+
+        if (nextPollTimeInNs <= timeInNs)
+        {
+            session.timerState = DUE;
+            dueSessions.add(session);
+        }
+        else
+        {
+            final long timerId = timerWheel.scheduleTimer(nextPollTimeInNs);
+            timerIdToSession.put(timerId, session);
+            session.timerId = timerId;
+            session.timerState = SCHEDULED;
+        }
+    }
+
+    private void remove(final Session session)
+    {
+        final byte timerState = session.timerState;
+        if (timerState == SCHEDULED)
+        {
+            cancel(session);
+        }
+        else if (timerState == DUE)
+        {
+            dueSessions.remove(session);
+        }
+        session.timerState = UNSCHEDULED;
+        session.timers = null;
+    }
+
+    private void cancel(final Session session)
+    {
+        final long timerId = session.timerId;
+        timerWheel.cancelTimer(timerId);
+        timerIdToSession.remove(timerId);
+    }
+}
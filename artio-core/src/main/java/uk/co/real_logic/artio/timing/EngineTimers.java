@@ -26,9 +26,19 @@ public class EngineTimers
     private final Timer outboundTimer;
     private final Timer sendTimer;
     private final List<Timer> timers;
+    private final LatencyHistograms latencyHistograms;
 
     public EngineTimers(final EpochNanoClock clock, final AtomicCounter negativeTimestamps)
     {
+        this(clock, negativeTimestamps, LatencyHistograms.DISABLED);
+    }
+
+    public EngineTimers(
+        final EpochNanoClock clock,
+        final AtomicCounter negativeTimestamps,
+        final LatencyHistograms latencyHistograms)
+    {
+        this.latencyHistograms = latencyHistograms;
         outboundTimer = new Timer(clock, "Outbound", 1, negativeTimestamps);
         sendTimer = new Timer(clock, "Send", 2, negativeTimestamps);
         timers = Arrays.asList(outboundTimer, sendTimer);
@@ -48,4 +58,9 @@ public class EngineTimers
     {
         return timers;
     }
+
+    public LatencyHistograms latencyHistograms()
+    {
+        return latencyHistograms;
+    }
 }
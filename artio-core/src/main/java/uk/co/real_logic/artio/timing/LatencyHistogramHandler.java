@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.HdrHistogram.Histogram;
+
+@FunctionalInterface
+public interface LatencyHistogramHandler
+{
+    /**
+     * A session's histogram for a stage has been read from the latency histograms file.
+     *
+     * @param connectionId the id of the session's connection.
+     * @param sessionId    the id of the session, or {@link uk.co.real_logic.artio.session.Session#UNKNOWN} if the
+     *                     session hasn't logged on yet.
+     * @param stage        the stage being measured.
+     * @param histogram    the latencies recorded for the stage since the connection was established, in nanoseconds.
+     */
+    void onHistogram(long connectionId, long sessionId, LatencyStage stage, Histogram histogram);
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.agrona.BitUtil;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.engine.logger.LoggerUtil;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
+/**
+ * A memory mapped file of per session latency histograms, one for each {@link LatencyStage}. Values are recorded
+ * without allocating, by incrementing a log-linear bucket in place, so that an external process can read them with a
+ * {@link LatencyHistogramsReader} at any point without any involvement of the engine or library that records them.
+ *
+ * The file consists of a header followed by a fixed number of session records. A record is allocated when a
+ * connection is established and freed again when it is closed. Each histogram is cumulative over the lifetime of
+ * its connection and is written by only a single thread.
+ */
+public final class LatencyHistograms implements AutoCloseable
+{
+    public static final LatencyHistograms DISABLED = new LatencyHistograms();
+
+    static final int VERSION = 1;
+
+    // File Header
+    static final int VERSION_OFFSET = 0;
+    static final int RECORD_COUNT_OFFSET = 4;
+    static final int RECORD_LENGTH_OFFSET = 8;
+    static final int BUCKET_COUNT_OFFSET = 12;
+    static final int HEADER_LENGTH = CACHE_LINE_LENGTH;
+
+    // Session Record
+    static final int STATE_OFFSET = 0;
+    static final int CONNECTION_ID_OFFSET = 8;
+    static final int SESSION_ID_OFFSET = 16;
+    static final int STAGES_OFFSET = CACHE_LINE_LENGTH;
+
+    static final int FREE = 0;
+    static final int ACTIVE = 1;
+
+    // Histogram of a stage within a record
+    static final int COUNT_OFFSET = 0;
+    static final int MAX_OFFSET = 8;
+    static final int TOTAL_OFFSET = 16;
+    static final int BUCKETS_OFFSET = 24;
+
+    // Values below SUB_BUCKET_COUNT get their own bucket, above that every power of two is split into
+    // SUB_BUCKET_COUNT buckets, so each bucket is within 12.5% of the value recorded.
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 37;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    static final int STAGE_LENGTH = BUCKETS_OFFSET + BUCKET_COUNT * SIZE_OF_LONG;
+    static final int RECORD_LENGTH = BitUtil.align(
+        STAGES_OFFSET + LatencyStage.STAGES.length * STAGE_LENGTH, CACHE_LINE_LENGTH);
+
+    private final MappedByteBuffer mappedByteBuffer;
+    private final AtomicBuffer buffer;
+    private final EpochNanoClock clock;
+    private final int recordCount;
+
+    private int nextRecord;
+
+    private LatencyHistograms()
+    {
+        mappedByteBuffer = null;
+        buffer = null;
+        clock = null;
+        recordCount = 0;
+    }
+
+    /**
+     * Create a new latency histograms file, replacing any existing file.
+     *
+     * @param file the location of the file.
+     * @param recordCount the maximum number of sessions that can have histograms at the same time.
+     * @param clock the clock used to measure latencies, timestamps passed to
+     *              {@link SessionLatencyHistograms#recordSince(LatencyStage, long)} must be from this clock.
+     */
+    public LatencyHistograms(final File file, final int recordCount, final EpochNanoClock clock)
+    {
+        this.recordCount = recordCount;
+        this.clock = clock;
+
+        IoUtil.deleteIfExists(file);
+        mappedByteBuffer = LoggerUtil.mapNewFile(file, fileLength(recordCount));
+        buffer = new UnsafeBuffer(mappedByteBuffer);
+
+        buffer.putInt(RECORD_COUNT_OFFSET, recordCount);
+        buffer.putInt(RECORD_LENGTH_OFFSET, RECORD_LENGTH);
+        buffer.putInt(BUCKET_COUNT_OFFSET, BUCKET_COUNT);
+        buffer.putIntOrdered(VERSION_OFFSET, VERSION);
+    }
+
+    static int fileLength(final int recordCount)
+    {
+        return HEADER_LENGTH + recordCount * RECORD_LENGTH;
+    }
+
+    /**
+     * Allocate the histograms for a new connection.
+     *
+     * @param connectionId the id of the connection.
+     * @param sessionId the id of the session, or {@link uk.co.real_logic.artio.session.Session#UNKNOWN} if it isn't
+     *                  known yet.
+     * @return the histograms of the connection, these don't record anything if this file is disabled or full.
+     */
+    public SessionLatencyHistograms allocate(final long connectionId, final long sessionId)
+    {
+        final AtomicBuffer buffer = this.buffer;
+        final int recordCount = this.recordCount;
+        for (int i = 0; i < recordCount; i++)
+        {
+            final int record = (nextRecord + i) % recordCount;
+            final int recordOffset = HEADER_LENGTH + record * RECORD_LENGTH;
+            if (buffer.getIntVolatile(recordOffset + STATE_OFFSET) == FREE)
+            {
+                nextRecord = record + 1;
+
+                buffer.setMemory(recordOffset + STAGES_OFFSET, RECORD_LENGTH - STAGES_OFFSET, (byte)0);
+                buffer.putLong(recordOffset + CONNECTION_ID_OFFSET, connectionId);
+                buffer.putLong(recordOffset + SESSION_ID_OFFSET, sessionId);
+                buffer.putIntOrdered(recordOffset + STATE_OFFSET, ACTIVE);
+
+                return new SessionLatencyHistograms(this, buffer, recordOffset, clock);
+            }
+        }
+
+        return SessionLatencyHistograms.DISABLED;
+    }
+
+    void free(final int recordOffset)
+    {
+        buffer.putIntOrdered(recordOffset + STATE_OFFSET, FREE);
+    }
+
+    public boolean isEnabled()
+    {
+        return buffer != null;
+    }
+
+    public void close()
+    {
+        if (mappedByteBuffer != null)
+        {
+            IoUtil.unmap(mappedByteBuffer);
+        }
+    }
+
+    static int bucketIndex(final long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int)value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+        {
+            return BUCKET_COUNT - 1;
+        }
+
+        final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestEquivalentValue(final int bucketIndex)
+    {
+        if (bucketIndex < SUB_BUCKET_COUNT)
+        {
+            return bucketIndex;
+        }
+
+        final int exponent = bucketIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final int subBucket = bucketIndex % SUB_BUCKET_COUNT;
+        return (long)(SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestEquivalentValue(final int bucketIndex)
+    {
+        return lowestEquivalentValue(bucketIndex + 1) - 1;
+    }
+}
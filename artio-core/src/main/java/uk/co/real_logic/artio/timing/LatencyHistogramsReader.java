@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static uk.co.real_logic.artio.timing.LatencyHistograms.*;
+
+/**
+ * Reads the per session latency histograms that an engine or library records into a file, see
+ * {@link LatencyHistograms}. This can be run from a different process to the one that is recording them.
+ */
+public class LatencyHistogramsReader implements AutoCloseable
+{
+    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+
+    public static void main(final String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: LatencyHistogramsReader <latencyHistogramsFile>");
+            System.err.println("Where <latencyHistogramsFile> is the path to the latency histograms file");
+            System.exit(-1);
+        }
+
+        final double scalingFactor = MICROSECONDS.toNanos(1);
+        final long timestampInMs = System.currentTimeMillis();
+        try (LatencyHistogramsReader reader = new LatencyHistogramsReader(new File(args[0])))
+        {
+            reader.read((connectionId, sessionId, stage, histogram) -> HistogramLogReader.prettyPrint(
+                timestampInMs,
+                histogram,
+                stage + " connId=" + connectionId + ",sessId=" + sessionId,
+                scalingFactor));
+        }
+    }
+
+    private final Histogram histogram = new Histogram(NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+    private final MappedByteBuffer mappedByteBuffer;
+    private final AtomicBuffer buffer;
+    private final int recordCount;
+    private final int recordLength;
+    private final int bucketCount;
+
+    public LatencyHistogramsReader(final File file)
+    {
+        mappedByteBuffer = IoUtil.mapExistingFile(file, "latency histograms file");
+        buffer = new UnsafeBuffer(mappedByteBuffer);
+
+        final int version = buffer.getIntVolatile(VERSION_OFFSET);
+        if (version != VERSION)
+        {
+            IoUtil.unmap(mappedByteBuffer);
+            throw new IllegalStateException(
+                "Unsupported latency histograms file version: " + version + ", expected: " + VERSION);
+        }
+
+        recordCount = buffer.getInt(RECORD_COUNT_OFFSET);
+        recordLength = buffer.getInt(RECORD_LENGTH_OFFSET);
+        bucketCount = buffer.getInt(BUCKET_COUNT_OFFSET);
+    }
+
+    /**
+     * Read the histograms of every stage, of every connection, that has recorded a value.
+     *
+     * @param handler the callback that receives the histograms. The histogram passed to it is reused between calls.
+     * @return the number of histograms read.
+     */
+    public int read(final LatencyHistogramHandler handler)
+    {
+        final AtomicBuffer buffer = this.buffer;
+        final Histogram histogram = this.histogram;
+        final LatencyStage[] stages = LatencyStage.STAGES;
+
+        int histogramsRead = 0;
+        for (int record = 0; record < recordCount; record++)
+        {
+            final int recordOffset = HEADER_LENGTH + record * recordLength;
+            if (buffer.getIntVolatile(recordOffset + STATE_OFFSET) != ACTIVE)
+            {
+                continue;
+            }
+
+            final long connectionId = buffer.getLong(recordOffset + CONNECTION_ID_OFFSET);
+            final long sessionId = buffer.getLongVolatile(recordOffset + SESSION_ID_OFFSET);
+            for (final LatencyStage stage : stages)
+            {
+                final int stageOffset = recordOffset + STAGES_OFFSET + stage.ordinal() * STAGE_LENGTH;
+                if (buffer.getLongVolatile(stageOffset + COUNT_OFFSET) == 0)
+                {
+                    continue;
+                }
+
+                histogram.reset();
+                final int bucketsOffset = stageOffset + BUCKETS_OFFSET;
+                for (int bucket = 0; bucket < bucketCount; bucket++)
+                {
+                    final long count = buffer.getLongVolatile(bucketsOffset + bucket * SIZE_OF_LONG);
+                    if (count > 0)
+                    {
+                        histogram.recordValueWithCount(highestEquivalentValue(bucket), count);
+                    }
+                }
+
+                handler.onHistogram(connectionId, sessionId, stage, histogram);
+                histogramsRead++;
+            }
+        }
+
+        return histogramsRead;
+    }
+
+    public void close()
+    {
+        IoUtil.unmap(mappedByteBuffer);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+/**
+ * The stages of a message's path through Artio that {@link LatencyHistograms} records per session. The engine records
+ * the TCP and framer stages and a library records the receive and handler stages, each into its own file.
+ *
+ * The ordinal of each stage is its index within a session's record in the file, so new stages must be added at the
+ * end.
+ */
+public enum LatencyStage
+{
+    /**
+     * Engine: reading data from the TCP socket.
+     */
+    TCP_READ,
+
+    /**
+     * Engine: from a message being read from the TCP socket until it has been framed and published to the libraries.
+     */
+    FRAMER_PUBLISH,
+
+    /**
+     * Library: from a message being read from the TCP socket by the engine until it is received by the library.
+     */
+    LIBRARY_RECEIVE,
+
+    /**
+     * Library: the time that the session and the application's handler take to process a received message.
+     */
+    APPLICATION_HANDLER,
+
+    /**
+     * Engine: from a library sending a message until the engine receives it.
+     */
+    LIBRARY_SEND,
+
+    /**
+     * Engine: from the engine receiving a message from a library until it has been written to the TCP socket or
+     * buffered in order to be written later.
+     */
+    TCP_WRITE;
+
+    static final LatencyStage[] STAGES = values();
+}
@@ -26,9 +26,19 @@ public class LibraryTimers
     private final Timer sessionTimer;
     private final Timer receiveTimer;
     private final List<Timer> timers;
+    private final LatencyHistograms latencyHistograms;
 
     public LibraryTimers(final EpochNanoClock clock, final AtomicCounter negativeTimestamps)
     {
+        this(clock, negativeTimestamps, LatencyHistograms.DISABLED);
+    }
+
+    public LibraryTimers(
+        final EpochNanoClock clock,
+        final AtomicCounter negativeTimestamps,
+        final LatencyHistograms latencyHistograms)
+    {
+        this.latencyHistograms = latencyHistograms;
         sessionTimer = new Timer(clock, "Session", -1, negativeTimestamps);
         receiveTimer = new Timer(clock, "Receive", -2, negativeTimestamps);
         timers = Arrays.asList(sessionTimer, receiveTimer);
@@ -48,4 +58,9 @@ public class LibraryTimers
     {
         return timers;
     }
+
+    public LatencyHistograms latencyHistograms()
+    {
+        return latencyHistograms;
+    }
 }
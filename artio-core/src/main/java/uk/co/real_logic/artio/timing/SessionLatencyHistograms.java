@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.EpochNanoClock;
+
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static uk.co.real_logic.artio.timing.LatencyHistograms.*;
+
+/**
+ * The latency histograms of a single connection within a {@link LatencyHistograms} file. Only to be used from the
+ * thread that owns the connection.
+ */
+public final class SessionLatencyHistograms implements AutoCloseable
+{
+    public static final SessionLatencyHistograms DISABLED = new SessionLatencyHistograms(null, null, 0, null);
+
+    private final LatencyHistograms owner;
+    private final int recordOffset;
+    private final EpochNanoClock clock;
+
+    private AtomicBuffer buffer;
+
+    SessionLatencyHistograms(
+        final LatencyHistograms owner, final AtomicBuffer buffer, final int recordOffset, final EpochNanoClock clock)
+    {
+        this.owner = owner;
+        this.buffer = buffer;
+        this.recordOffset = recordOffset;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled()
+    {
+        return buffer != null;
+    }
+
+    /**
+     * Record the time between a timestamp and now.
+     *
+     * @param stage the stage being measured.
+     * @param timestampInNs the time that the stage started at, taken from the clock of the {@link LatencyHistograms}.
+     * @return the current time in nanoseconds, or 0 if these histograms aren't enabled.
+     */
+    public long recordSince(final LatencyStage stage, final long timestampInNs)
+    {
+        if (buffer == null)
+        {
+            return 0;
+        }
+
+        final long timeInNs = clock.nanoTime();
+        recordValue(stage, timeInNs - timestampInNs);
+        return timeInNs;
+    }
+
+    /**
+     * Get the current time from the clock that these histograms are recorded with.
+     *
+     * @return the current time in nanoseconds, or 0 if these histograms aren't enabled.
+     */
+    public long nanoTime()
+    {
+        return buffer == null ? 0 : clock.nanoTime();
+    }
+
+    public void recordValue(final LatencyStage stage, final long durationInNs)
+    {
+        final AtomicBuffer buffer = this.buffer;
+        if (buffer == null || durationInNs < 0)
+        {
+            return;
+        }
+
+        final int stageOffset = recordOffset + STAGES_OFFSET + stage.ordinal() * STAGE_LENGTH;
+
+        final int bucketOffset = stageOffset + BUCKETS_OFFSET + bucketIndex(durationInNs) * SIZE_OF_LONG;
+        buffer.putLongOrdered(bucketOffset, buffer.getLong(bucketOffset) + 1);
+
+        final int totalOffset = stageOffset + TOTAL_OFFSET;
+        buffer.putLongOrdered(totalOffset, buffer.getLong(totalOffset) + durationInNs);
+
+        final int maxOffset = stageOffset + MAX_OFFSET;
+        if (durationInNs > buffer.getLong(maxOffset))
+        {
+            buffer.putLongOrdered(maxOffset, durationInNs);
+        }
+
+        final int countOffset = stageOffset + COUNT_OFFSET;
+        buffer.putLongOrdered(countOffset, buffer.getLong(countOffset) + 1);
+    }
+
+    /**
+     * Update the session id once a connection has logged on.
+     *
+     * @param sessionId the id of the session.
+     */
+    public void sessionId(final long sessionId)
+    {
+        final AtomicBuffer buffer = this.buffer;
+        if (buffer != null)
+        {
+            buffer.putLongOrdered(recordOffset + SESSION_ID_OFFSET, sessionId);
+        }
+    }
+
+    /**
+     * Free the record of these histograms within the file, nothing is recorded after this.
+     */
+    public void close()
+    {
+        if (buffer != null)
+        {
+            buffer = null;
+            owner.free(recordOffset);
+        }
+    }
+}
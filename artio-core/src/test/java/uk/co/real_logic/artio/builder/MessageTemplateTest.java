@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.builder;
+
+import org.junit.Test;
+import uk.co.real_logic.artio.fields.DecimalFloat;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.dictionary.SessionConstants.MSG_SEQ_NO;
+import static uk.co.real_logic.artio.dictionary.SessionConstants.SENDING_TIME;
+
+public class MessageTemplateTest
+{
+    private static final int TEST_REQ_ID = 112;
+    private static final int CAPACITY = 1024;
+
+    private final TestRequestEncoder encoder = new TestRequestEncoder();
+    private final MutableAsciiBuffer expectedBuffer = new MutableAsciiBuffer(new byte[CAPACITY]);
+    private final MessageTemplate template = new MessageTemplate(CAPACITY);
+
+    @Test
+    public void shouldUpdateFieldsOfTheSameLength()
+    {
+        template.encode(encode(1, "20230101-00:00:00", "ABC"));
+
+        template.putInt(template.field(MSG_SEQ_NO), 2);
+        template.putAscii(template.field(TEST_REQ_ID), "XYZ");
+
+        assertMessage(encode(2, "20230101-00:00:00", "XYZ"));
+    }
+
+    @Test
+    public void shouldMoveFollowingFieldsWhenLengthChanges()
+    {
+        template.encode(encode(1, "20230101-00:00:00", "A"));
+        final int msgSeqNum = template.field(MSG_SEQ_NO);
+        final int sendingTime = template.field(SENDING_TIME);
+        final int testReqId = template.field(TEST_REQ_ID);
+
+        template.putInt(msgSeqNum, 100);
+        template.putAscii(testReqId, "ABCDEFGHIJ");
+        template.putAscii(sendingTime, "20230101-00:00:01.123");
+        assertMessage(encode(100, "20230101-00:00:01.123", "ABCDEFGHIJ"));
+
+        template.putInt(msgSeqNum, 9);
+        template.putAscii(testReqId, "Z");
+        assertMessage(encode(9, "20230101-00:00:01.123", "Z"));
+    }
+
+    @Test
+    public void shouldUpdateBodyLengthWhenItsLengthChanges()
+    {
+        template.encode(encode(1, "20230101-00:00:00", "A"));
+        final String longId = repeat('B', 200);
+
+        template.putAscii(template.field(TEST_REQ_ID), longId);
+        assertMessage(encode(1, "20230101-00:00:00", longId));
+
+        template.putAscii(template.field(TEST_REQ_ID), "C");
+        assertMessage(encode(1, "20230101-00:00:00", "C"));
+    }
+
+    @Test
+    public void shouldUpdateNumericFields()
+    {
+        template.encode(encode(1, "20230101-00:00:00", "1.5"));
+
+        template.putFloat(template.field(TEST_REQ_ID), new DecimalFloat(12345, 2));
+        assertMessage(encode(1, "20230101-00:00:00", "123.45"));
+
+        template.putLong(template.field(TEST_REQ_ID), 9876543210L);
+        assertMessage(encode(1, "20230101-00:00:00", "9876543210"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingFields()
+    {
+        template.encode(encode(1, "20230101-00:00:00", "A"));
+
+        template.field(TEST_REQ_ID + 1);
+    }
+
+    private TestRequestEncoder encode(final int msgSeqNum, final String sendingTime, final String testReqId)
+    {
+        encoder.reset();
+        encoder.header()
+            .senderCompID("sender")
+            .targetCompID("target")
+            .msgSeqNum(msgSeqNum)
+            .sendingTime(sendingTime.getBytes());
+        encoder.testReqID(testReqId);
+        return encoder;
+    }
+
+    private void assertMessage(final TestRequestEncoder expectedEncoder)
+    {
+        final long result = expectedEncoder.encode(expectedBuffer, 0);
+        final String expected = expectedBuffer.getAscii(Encoder.offset(result), Encoder.length(result));
+        final String actual = template.buffer().getAscii(template.offset(), template.length());
+        assertEquals(expected, actual);
+        assertEquals(expectedEncoder.messageType(), template.messageType());
+    }
+
+    private static String repeat(final char value, final int times)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++)
+        {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+
+public class DefaultEngineSchedulerTest
+{
+    private final Agent framer = mock(Agent.class);
+    private final Agent indexingAgent = mock(Agent.class);
+    private final Agent replayingAgent = mock(Agent.class);
+    private final EngineConfiguration configuration = mock(EngineConfiguration.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+    private final RecordingCoordinator recordingCoordinator = mock(RecordingCoordinator.class);
+
+    private final AtomicReference<Thread> indexingThread = new AtomicReference<>();
+    private final AtomicReference<Thread> replayingThread = new AtomicReference<>();
+
+    @Test
+    public void shouldRunReplayerOnSeparateThreadWhenConfigured() throws Exception
+    {
+        givenConfiguration();
+
+        try (EngineScheduler scheduler = new DefaultEngineScheduler(true))
+        {
+            assertTrue(scheduler.separateReplayer());
+            launch(scheduler);
+
+            assertEventuallyTrue(
+                "Failed to invoke indexing and replaying agents",
+                () -> indexingThread.get() != null && replayingThread.get() != null);
+            assertNotEquals(indexingThread.get(), replayingThread.get());
+        }
+
+        verify(indexingAgent).onClose();
+        verify(replayingAgent).onClose();
+    }
+
+    @Test
+    public void shouldRunReplayerOnArchivingThreadByDefault() throws Exception
+    {
+        givenConfiguration();
+
+        try (EngineScheduler scheduler = new DefaultEngineScheduler())
+        {
+            launch(scheduler);
+
+            assertEventuallyTrue(
+                "Failed to invoke indexing and replaying agents",
+                () -> indexingThread.get() != null && replayingThread.get() != null);
+            assertTrue(indexingThread.get() == replayingThread.get());
+        }
+    }
+
+    private void givenConfiguration() throws Exception
+    {
+        when(configuration.framerIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(configuration.archiverIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(configuration.replayerIdleStrategy()).thenReturn(new BusySpinIdleStrategy());
+        when(configuration.threadFactory()).thenReturn(Thread::new);
+        when(framer.roleName()).thenReturn("framer");
+        when(indexingAgent.roleName()).thenReturn("indexer");
+        when(replayingAgent.roleName()).thenReturn("replayer");
+        when(indexingAgent.doWork()).then(inv ->
+        {
+            indexingThread.compareAndSet(null, Thread.currentThread());
+            return 0;
+        });
+        when(replayingAgent.doWork()).then(inv ->
+        {
+            replayingThread.compareAndSet(null, Thread.currentThread());
+            return 0;
+        });
+    }
+
+    private void launch(final EngineScheduler scheduler)
+    {
+        scheduler.launch(
+            configuration,
+            errorHandler,
+            framer,
+            indexingAgent,
+            replayingAgent,
+            null,
+            null,
+            recordingCoordinator);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.collections.IntHashSet;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import uk.co.real_logic.artio.fixt.FixDictionaryImpl;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.*;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
+import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_LONG;
+
+public class HeaderSummaryExtractorTest
+{
+    private static final String MESSAGE =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\001" +
+        "52=20161206-11:04:51.461\00111=A\00143=Y\00110=088\001";
+
+    private static final String POSS_DUP_MESSAGE =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=3\00143=Y\00197=Y\001" +
+        "52=20161206-11:04:52\001122=20161206-11:04:51.461\00111=A\00110=088\001";
+
+    private static final String SECURE_DATA_WITH_SEPARATOR =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\00190=5\00191=\00143=Y\001" +
+        "52=20161206-11:04:51.461\00111=A\00110=088\001";
+
+    private static final String HEARTBEAT =
+        "8=FIX.4.4\0019=0065\00135=0\00149=initiator\00156=acceptor\00134=4\00152=20161206-11:04:51.461\00110=088\001";
+
+    private static final String CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=3\001999=A\00143=Y\00197=Y\001" +
+        "52=20161206-11:04:52\001122=20161206-11:04:51.461\00111=A\00110=088\001";
+
+    private static final IntHashSet HEADER_FIELD_TAGS = new FixDictionaryImpl().headerFieldTags();
+
+    private final HeaderSummaryExtractor extractor = new HeaderSummaryExtractor();
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+
+    @Test
+    public void shouldSummariseStandardHeader()
+    {
+        final HeaderSummary headerSummary = extract(MESSAGE);
+
+        assertTrue(headerSummary.isPresent());
+        assertEquals(2, headerSummary.msgSeqNum());
+        assertEquals(sendingTimeInNs(51_461), headerSummary.sendingTimeInNs());
+        assertEquals(MESSAGE.indexOf("35="), headerSummary.headerOffset());
+        assertEquals(MESSAGE.indexOf("11="), headerSummary.bodyOffset());
+        // PossDupFlag is only part of the header when it's before the body.
+        assertFalse(headerSummary.possDup());
+        assertFalse(headerSummary.possResend());
+    }
+
+    @Test
+    public void shouldSummarisePossDupFlags()
+    {
+        final HeaderSummary headerSummary = extract(POSS_DUP_MESSAGE);
+
+        assertTrue(headerSummary.isPresent());
+        assertEquals(3, headerSummary.msgSeqNum());
+        assertEquals(sendingTimeInNs(52_000), headerSummary.sendingTimeInNs());
+        assertTrue(headerSummary.possDup());
+        assertTrue(headerSummary.possResend());
+        assertEquals(POSS_DUP_MESSAGE.indexOf("11="), headerSummary.bodyOffset());
+    }
+
+    @Test
+    public void shouldSkipSeparatorsWithinDataFields()
+    {
+        final HeaderSummary headerSummary = extract(SECURE_DATA_WITH_SEPARATOR);
+
+        assertTrue(headerSummary.isPresent());
+        // The PossDupFlag is within the value of SecureData
+        assertFalse(headerSummary.possDup());
+        assertEquals(SECURE_DATA_WITH_SEPARATOR.indexOf("11="), headerSummary.bodyOffset());
+    }
+
+    @Test
+    public void shouldSummariseMessageWithoutBody()
+    {
+        final HeaderSummary headerSummary = extract(HEARTBEAT);
+
+        assertTrue(headerSummary.isPresent());
+        assertEquals(4, headerSummary.msgSeqNum());
+        assertEquals(HEARTBEAT.indexOf("10="), headerSummary.bodyOffset());
+    }
+
+    @Test
+    public void shouldLeaveInvalidSendingTimeMissing()
+    {
+        final HeaderSummary headerSummary = extract(MESSAGE.replace("20161206-11:04:51.461", "20161206-11:04"));
+
+        assertTrue(headerSummary.isPresent());
+        assertEquals(2, headerSummary.msgSeqNum());
+        assertEquals(MISSING_LONG, headerSummary.sendingTimeInNs());
+    }
+
+    @Test
+    public void shouldNotSummariseMalformedHeader()
+    {
+        assertFalse(extract(MESSAGE.replace("34=2", "34=two")).isPresent());
+        assertFalse(extract("8=FIX.4.4\0019=0080\00135=D\00149=initiator").isPresent());
+    }
+
+    @Test
+    public void shouldSummariseHeaderWithCustomHeaderField()
+    {
+        final IntHashSet otherHeaderFieldTags = new uk.co.real_logic.artio.other.FixDictionaryImpl().headerFieldTags();
+        final HeaderSummary headerSummary = extract(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP, otherHeaderFieldTags);
+
+        assertTrue(headerSummary.isPresent());
+        assertEquals(3, headerSummary.msgSeqNum());
+        assertTrue(headerSummary.possDup());
+        assertTrue(headerSummary.possResend());
+        assertEquals(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP.indexOf("11="), headerSummary.bodyOffset());
+    }
+
+    @Test
+    public void shouldNotSummariseCustomHeaderFieldAsBody()
+    {
+        // The custom field isn't part of this dictionary's header, so the message is parsed as it would be without a
+        // summary, which also treats the custom field as the start of the body.
+        final HeaderSummary headerSummary = extract(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP);
+
+        assertEquals(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP.indexOf("999="), headerSummary.bodyOffset());
+    }
+
+    @Test
+    public void shouldNotSummariseWithoutHeaderFieldTags()
+    {
+        assertFalse(extract(POSS_DUP_MESSAGE, null).isPresent());
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeSummary()
+    {
+        final HeaderSummary headerSummary = extract(POSS_DUP_MESSAGE);
+        final UnsafeBuffer summaryBuffer = new UnsafeBuffer(new byte[HeaderSummary.ENCODED_LENGTH]);
+        assertEquals(HeaderSummary.ENCODED_LENGTH, headerSummary.encode(summaryBuffer, 0));
+
+        final HeaderSummary decoded = new HeaderSummary().decode(summaryBuffer, 0, HeaderSummary.ENCODED_LENGTH);
+        assertEquals(headerSummary.toString(), decoded.toString());
+
+        final HeaderSummary truncated = new HeaderSummary().decode(summaryBuffer, 0, 0);
+        assertFalse(truncated.isPresent());
+        assertEquals(MISSING_INT, truncated.msgSeqNum());
+    }
+
+    private HeaderSummary extract(final String message)
+    {
+        return extract(message, HEADER_FIELD_TAGS);
+    }
+
+    private HeaderSummary extract(final String message, final IntHashSet headerFieldTags)
+    {
+        final byte[] bytes = message.getBytes(US_ASCII);
+        buffer.putBytes(0, bytes);
+        return extractor.extract(buffer, 0, bytes.length, headerFieldTags);
+    }
+
+    private static long sendingTimeInNs(final long millisOfMinute)
+    {
+        // 2016-12-06T11:04:00Z
+        return TimeUnit.MILLISECONDS.toNanos(1481022240_000L + millisOfMinute);
+    }
+}
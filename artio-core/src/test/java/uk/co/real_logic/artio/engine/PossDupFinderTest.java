@@ -2,11 +2,10 @@ package uk.co.real_logic.artio.engine;
 
 import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Test;
-import uk.co.real_logic.artio.dictionary.LongDictionary;
-import uk.co.real_logic.artio.otf.OtfParser;
+import uk.co.real_logic.artio.fixt.FixDictionaryImpl;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static uk.co.real_logic.artio.engine.logger.ReplayerTest.MESSAGE_REQUIRING_LONGER_BODY_LENGTH;
 
 public class PossDupFinderTest
@@ -19,8 +18,23 @@ public class PossDupFinderTest
         ("8=FIX.4.4\0019=0065\00135=5\00149=initiator\00156=acceptor\00134=2\001" +
             "52=20161206-11:04:51.461\00143=Y\00110=088\001").getBytes(US_ASCII);
 
-    private final PossDupFinder possDupFinder = new PossDupFinder();
-    private final OtfParser parser = new OtfParser(possDupFinder, new LongDictionary());
+    private static final String BODY_WITH_POSS_DUP_TAG =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\001" +
+        "52=20161206-11:04:51.461\001122=20161206-11:04:51.461\00111=A\00143=Y\00110=088\001";
+
+    private static final String SECURE_DATA_WITH_SEPARATOR =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\00190=5\00191=\00143=Y\001" +
+        "52=20161206-11:04:51.461\00111=A\00110=088\001";
+
+    private static final String CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\001" +
+        "52=20161206-11:04:51.461\001999=A\00143=Y\001122=20161206-11:04:51.461\00111=A\00110=088\001";
+
+    private static final String CUSTOM_HEADER_FIELD_AFTER_SENDING_TIME =
+        "8=FIX.4.4\0019=0080\00135=D\00149=initiator\00156=acceptor\00134=2\001" +
+        "52=20161206-11:04:51.461\001999=A\00143=Y\00111=A\00110=088\001";
+
+    private PossDupFinder possDupFinder = new PossDupFinder(new FixDictionaryImpl().headerFieldTags());
     private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[FIRST_MESSAGE.length + SECOND_MESSAGE.length]);
 
     @Test
@@ -29,9 +43,36 @@ public class PossDupFinderTest
         buffer.putBytes(0, FIRST_MESSAGE);
         buffer.putBytes(FIRST_MESSAGE.length, SECOND_MESSAGE);
 
-        parser.onMessage(buffer, 0, FIRST_MESSAGE.length);
+        possDupFinder.onMessage(buffer, 0, FIRST_MESSAGE.length);
+
+        assertEquals(PossDupFinder.NO_ENTRY, possDupFinder.possDupOffset());
+    }
+
+    @Test
+    public void shouldOnlyFindFieldsInHeader()
+    {
+        final int length = putMessage(BODY_WITH_POSS_DUP_TAG);
+
+        possDupFinder.onMessage(buffer, 0, length);
+
+        assertEquals(PossDupFinder.NO_ENTRY, possDupFinder.possDupOffset());
+        assertEquals(BODY_WITH_POSS_DUP_TAG.indexOf("52=") + 3, possDupFinder.sendingTimeOffset());
+        assertEquals(21, possDupFinder.sendingTimeLength());
+        assertEquals(BODY_WITH_POSS_DUP_TAG.indexOf("122=") + 4, possDupFinder.origSendingTimeOffset());
+        assertEquals(BODY_WITH_POSS_DUP_TAG.indexOf("10=") + 3, possDupFinder.checkSumOffset());
+        assertEquals(80, possDupFinder.bodyLength());
+    }
+
+    @Test
+    public void shouldSkipSeparatorsWithinDataFields()
+    {
+        final int length = putMessage(SECURE_DATA_WITH_SEPARATOR);
+
+        possDupFinder.onMessage(buffer, 0, length);
 
         assertEquals(PossDupFinder.NO_ENTRY, possDupFinder.possDupOffset());
+        assertEquals(SECURE_DATA_WITH_SEPARATOR.indexOf("52=") + 3, possDupFinder.sendingTimeOffset());
+        assertEquals(SECURE_DATA_WITH_SEPARATOR.indexOf("10=") + 3, possDupFinder.checkSumOffset());
     }
 
     @Test
@@ -39,9 +80,139 @@ public class PossDupFinderTest
     {
         buffer.putBytes(0, MESSAGE_REQUIRING_LONGER_BODY_LENGTH);
 
-        parser.onMessage(buffer, 0, MESSAGE_REQUIRING_LONGER_BODY_LENGTH.length);
+        possDupFinder.onMessage(buffer, 0, MESSAGE_REQUIRING_LONGER_BODY_LENGTH.length);
 
         assertEquals(12, possDupFinder.bodyLengthOffset());
         assertEquals(2, possDupFinder.lengthOfBodyLength());
     }
+
+    @Test
+    public void shouldFindFieldsAfterCustomHeaderField()
+    {
+        possDupFinder = new PossDupFinder(new uk.co.real_logic.artio.other.FixDictionaryImpl().headerFieldTags());
+        final int length = putMessage(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP);
+
+        possDupFinder.onMessage(buffer, 0, length);
+
+        assertFindsFieldsAfterCustomHeaderField();
+    }
+
+    @Test
+    public void shouldScanWholeMessageWithoutHeaderFieldTags()
+    {
+        possDupFinder = new PossDupFinder(null);
+        final int length = putMessage(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP);
+
+        possDupFinder.onMessage(buffer, 0, length);
+
+        assertFindsFieldsAfterCustomHeaderField();
+    }
+
+    @Test
+    public void shouldFindFieldsFromStoredHeaderOffsets()
+    {
+        final int length = putMessage(new String(SECOND_MESSAGE, US_ASCII));
+        possDupFinder.onMessage(buffer, 0, length);
+
+        final int storedHeaderOffsets = indexHeaderOffsets(buffer, length);
+        assertNotEquals(PossDupFinder.NO_HEADER_OFFSETS, storedHeaderOffsets);
+
+        final PossDupFinder replayFinder = new PossDupFinder(new FixDictionaryImpl().headerFieldTags());
+        assertTrue(replayFinder.onMessage(buffer, 0, length, storedHeaderOffsets));
+
+        assertEquals(possDupFinder.possDupOffset(), replayFinder.possDupOffset());
+        assertEquals(possDupFinder.sendingTimeOffset(), replayFinder.sendingTimeOffset());
+        assertEquals(possDupFinder.sendingTimeLength(), replayFinder.sendingTimeLength());
+        assertEquals(PossDupFinder.NO_ENTRY, replayFinder.origSendingTimeOffset());
+        assertEquals(possDupFinder.bodyLength(), replayFinder.bodyLength());
+        assertEquals(possDupFinder.bodyLengthOffset(), replayFinder.bodyLengthOffset());
+        assertEquals(possDupFinder.lengthOfBodyLength(), replayFinder.lengthOfBodyLength());
+        assertEquals(possDupFinder.checkSumOffset(), replayFinder.checkSumOffset());
+    }
+
+    @Test
+    public void shouldStoreHeaderOffsetsOfMessageWithLargeBody()
+    {
+        final StringBuilder body = new StringBuilder("11=A\00158=");
+        for (int i = 0; i < 4096; i++)
+        {
+            body.append('x');
+        }
+        // Not part of the header, so mustn't be found by a scan that stops at the end of the header
+        body.append("\00143=N\001");
+        final String header = "35=D\00149=initiator\00156=acceptor\00134=2\00152=20161206-11:04:51.461\001";
+        final int bodyLength = header.length() + body.length();
+        final String message = "8=FIX.4.4\0019=" + bodyLength + "\001" + header + body + "10=088\001";
+        final byte[] bytes = message.getBytes(US_ASCII);
+        final UnsafeBuffer buffer = new UnsafeBuffer(bytes);
+
+        final PossDupFinder indexFinder = new PossDupFinder(PossDupFinder.STANDARD_HEADER_FIELD_TAGS);
+        indexFinder.onMessage(buffer, 0, bytes.length);
+        assertEquals(PossDupFinder.NO_ENTRY, indexFinder.possDupOffset());
+        final int storedHeaderOffsets = indexFinder.headerOffsets(0, bytes.length);
+        assertNotEquals(PossDupFinder.NO_HEADER_OFFSETS, storedHeaderOffsets);
+
+        assertTrue(possDupFinder.onMessage(buffer, 0, bytes.length, storedHeaderOffsets));
+        assertEquals(PossDupFinder.NO_ENTRY, possDupFinder.possDupOffset());
+        assertEquals(message.indexOf("52=") + 3, possDupFinder.sendingTimeOffset());
+        assertEquals(21, possDupFinder.sendingTimeLength());
+        assertEquals(bodyLength, possDupFinder.bodyLength());
+        assertEquals(message.lastIndexOf("10=") + 3, possDupFinder.checkSumOffset());
+    }
+
+    @Test
+    public void shouldScanMessageWhenStoredBodyStartsWithSessionHeaderField()
+    {
+        final int length = putMessage(CUSTOM_HEADER_FIELD_AFTER_SENDING_TIME);
+        final int storedHeaderOffsets = indexHeaderOffsets(buffer, length);
+        assertNotEquals(PossDupFinder.NO_HEADER_OFFSETS, storedHeaderOffsets);
+
+        possDupFinder = new PossDupFinder(new uk.co.real_logic.artio.other.FixDictionaryImpl().headerFieldTags());
+
+        assertFalse(possDupFinder.onMessage(buffer, 0, length, storedHeaderOffsets));
+    }
+
+    @Test
+    public void shouldNotStoreHeaderOffsetsOfMessageWithOrigSendingTime()
+    {
+        final int length = putMessage(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP);
+
+        possDupFinder.onMessage(buffer, 0, length);
+
+        assertEquals(PossDupFinder.NO_HEADER_OFFSETS, possDupFinder.headerOffsets(0, length));
+    }
+
+    @Test
+    public void shouldScanMessageWhenStoredHeaderOffsetsDontMatchIt()
+    {
+        final int secondMessageLength = putMessage(new String(SECOND_MESSAGE, US_ASCII));
+        possDupFinder.onMessage(buffer, 0, secondMessageLength);
+        final int headerOffsets = possDupFinder.headerOffsets(0, secondMessageLength);
+
+        final int length = putMessage(SECURE_DATA_WITH_SEPARATOR);
+
+        assertFalse(possDupFinder.onMessage(buffer, 0, length, headerOffsets));
+        assertFalse(possDupFinder.onMessage(buffer, 0, length, PossDupFinder.NO_HEADER_OFFSETS));
+    }
+
+    private void assertFindsFieldsAfterCustomHeaderField()
+    {
+        assertEquals(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP.indexOf("43=") + 3, possDupFinder.possDupOffset());
+        assertEquals(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP.indexOf("122=") + 4, possDupFinder.origSendingTimeOffset());
+        assertEquals(CUSTOM_HEADER_FIELD_BEFORE_POSS_DUP.indexOf("10=") + 3, possDupFinder.checkSumOffset());
+    }
+
+    private int indexHeaderOffsets(final UnsafeBuffer buffer, final int length)
+    {
+        final PossDupFinder indexFinder = new PossDupFinder(PossDupFinder.STANDARD_HEADER_FIELD_TAGS);
+        indexFinder.onMessage(buffer, 0, length);
+        return indexFinder.headerOffsets(0, length);
+    }
+
+    private int putMessage(final String message)
+    {
+        final byte[] bytes = message.getBytes(US_ASCII);
+        buffer.putBytes(0, bytes);
+        return bytes.length;
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.engine.SectorFramer.SECTOR_SIZE;
+import static uk.co.real_logic.artio.engine.SectorJournal.HEADER_LENGTH;
+
+public class SectorJournalTest
+{
+    private static final File JOURNAL_FILE = new File(IoUtil.tmpDirName() + "/SectorJournalTest-journal");
+    private static final File TARGET_FILE = new File(IoUtil.tmpDirName() + "/SectorJournalTest-target");
+    private static final int CAPACITY = 4 * SECTOR_SIZE;
+
+    private final UnsafeBuffer source = new UnsafeBuffer(new byte[CAPACITY]);
+    private final UnsafeBuffer target = new UnsafeBuffer(new byte[CAPACITY]);
+
+    private SectorJournal journal;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.deleteIfExists(JOURNAL_FILE);
+        IoUtil.deleteIfExists(TARGET_FILE);
+        journal = new SectorJournal(JOURNAL_FILE);
+
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            source.putByte(i, (byte)i);
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        journal.close();
+        IoUtil.deleteIfExists(JOURNAL_FILE);
+        IoUtil.deleteIfExists(TARGET_FILE);
+    }
+
+    @Test
+    public void shouldRecoverCommittedSectors()
+    {
+        journal.add(source, SECTOR_SIZE);
+        journal.add(source, 3 * SECTOR_SIZE);
+        journal.commit();
+
+        assertEquals(2, recover());
+        assertSectorRecovered(SECTOR_SIZE);
+        assertSectorRecovered(3 * SECTOR_SIZE);
+        assertSectorNotRecovered(0);
+        assertSectorNotRecovered(2 * SECTOR_SIZE);
+    }
+
+    @Test
+    public void shouldNotRecoverClearedJournal()
+    {
+        journal.add(source, SECTOR_SIZE);
+        journal.commit();
+        journal.clear();
+
+        assertEquals(0, recover());
+        assertSectorNotRecovered(SECTOR_SIZE);
+    }
+
+    @Test
+    public void shouldNotRecoverPartiallyWrittenJournal() throws Exception
+    {
+        journal.add(source, SECTOR_SIZE);
+        journal.add(source, 2 * SECTOR_SIZE);
+        journal.commit();
+        journal.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(JOURNAL_FILE, "rw"))
+        {
+            file.seek(HEADER_LENGTH + SectorJournal.ENTRY_LENGTH + SectorJournal.SECTOR_DATA_OFFSET);
+            file.write(new byte[SECTOR_SIZE / 2]);
+        }
+
+        assertEquals(0, recover());
+        assertSectorNotRecovered(SECTOR_SIZE);
+        assertSectorNotRecovered(2 * SECTOR_SIZE);
+    }
+
+    @Test
+    public void shouldGrowTargetFileToCommittedCapacity()
+    {
+        journal.add(source, 3 * SECTOR_SIZE);
+        journal.commit(CAPACITY);
+
+        try (SectorJournal journal = new SectorJournal(JOURNAL_FILE);
+            MappedFile targetFile = MappedFile.map(TARGET_FILE, 2 * SECTOR_SIZE))
+        {
+            assertEquals(1, journal.recover(targetFile));
+
+            final AtomicBuffer recovered = targetFile.buffer();
+            assertEquals(CAPACITY, recovered.capacity());
+            for (int i = 3 * SECTOR_SIZE; i < CAPACITY; i++)
+            {
+                assertEquals(source.getByte(i), recovered.getByte(i));
+            }
+        }
+    }
+
+    private int recover()
+    {
+        try (SectorJournal journal = new SectorJournal(JOURNAL_FILE))
+        {
+            return journal.recover(target);
+        }
+    }
+
+    private void assertSectorRecovered(final int sectorOffset)
+    {
+        for (int i = sectorOffset; i < sectorOffset + SECTOR_SIZE; i++)
+        {
+            assertEquals(source.getByte(i), target.getByte(i));
+        }
+    }
+
+    private void assertSectorNotRecovered(final int sectorOffset)
+    {
+        for (int i = sectorOffset; i < sectorOffset + SECTOR_SIZE; i++)
+        {
+            assertEquals(0, target.getByte(i));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.Test;
+import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
+import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.engine.SessionInfo;
+import uk.co.real_logic.artio.session.CompositeKey;
+import uk.co.real_logic.artio.session.Session;
+import uk.co.real_logic.artio.session.SessionIdStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompositeKeyTableTest
+{
+    // Enough sessions to resize the table a couple of times
+    private static final int SESSION_COUNT = 3000;
+
+    private final SessionIdStrategy idStrategy = SessionIdStrategy.senderAndTarget();
+    private final FixDictionary fixDictionary = FixDictionary.of(FixDictionary.findDefault());
+    private final CompositeKeyTable table = new CompositeKeyTable(idStrategy);
+
+    @Test
+    public void shouldFindContextsFromAcceptedHeaders()
+    {
+        final List<SessionContext> contexts = new ArrayList<>();
+        for (int i = 0; i < SESSION_COUNT; i++)
+        {
+            final SessionContext context = newContext(i);
+            table.add(context);
+            contexts.add(context);
+        }
+
+        for (int i = 0; i < SESSION_COUNT; i++)
+        {
+            assertSame(contexts.get(i), get(acceptedHeader(i)));
+        }
+
+        assertNull(get(acceptedHeader(SESSION_COUNT)));
+    }
+
+    @Test
+    public void shouldReplaceContexts()
+    {
+        final SessionContext context = newContext(1);
+        table.add(context);
+
+        final SessionContext newContext = newContext(1);
+        table.replace(context, newContext);
+
+        assertSame(newContext, get(acceptedHeader(1)));
+    }
+
+    @Test
+    public void shouldClearContexts()
+    {
+        table.add(newContext(1));
+        table.clear();
+
+        assertNull(get(acceptedHeader(1)));
+
+        final SessionContext context = newContext(1);
+        table.add(context);
+        assertSame(context, get(acceptedHeader(1)));
+    }
+
+    private SessionContext get(final SessionHeaderDecoder header)
+    {
+        return table.get(header, idStrategy.onAcceptLogonHashCode(header));
+    }
+
+    private SessionContext newContext(final int session)
+    {
+        final CompositeKey key = idStrategy.onInitiateLogon(localCompId(session), null, null, "remote", null, null);
+        return new SessionContext(
+            key,
+            session,
+            SessionInfo.UNKNOWN_SEQUENCE_INDEX,
+            Session.UNKNOWN_TIME,
+            Session.UNKNOWN_TIME,
+            mock(FixContexts.class),
+            0,
+            EngineConfiguration.DEFAULT_INITIAL_SEQUENCE_INDEX,
+            fixDictionary,
+            false);
+    }
+
+    private SessionHeaderDecoder acceptedHeader(final int session)
+    {
+        final String localCompId = localCompId(session);
+        final SessionHeaderDecoder header = mock(SessionHeaderDecoder.class);
+        when(header.senderCompID()).thenReturn("remote".toCharArray());
+        when(header.senderCompIDLength()).thenReturn("remote".length());
+        when(header.targetCompID()).thenReturn(localCompId.toCharArray());
+        when(header.targetCompIDLength()).thenReturn(localCompId.length());
+        return header;
+    }
+
+    private static String localCompId(final int session)
+    {
+        return "local" + session;
+    }
+}
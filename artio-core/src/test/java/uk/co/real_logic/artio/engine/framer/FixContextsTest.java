@@ -22,6 +22,7 @@ import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Test;
 import uk.co.real_logic.artio.FileSystemCorruptionException;
 import uk.co.real_logic.artio.builder.LogonEncoder;
+import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.MappedFile;
@@ -46,6 +47,7 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_INITIAL_SEQUENCE_INDEX;
@@ -97,6 +99,26 @@ public class FixContextsTest
         assertValuesEqual(sessionContext, fixContexts.onLogon(aSession, fixDictionary));
     }
 
+    @Test
+    public void acceptedLogonsFindTheSameSessionContextsAsCompositeKeys()
+    {
+        final SessionContext aContext = fixContexts.onLogon(aSession, fixDictionary);
+        fixContexts.onDisconnect(aContext.sessionId());
+
+        final FixContexts fixContextsAfterRestart = newSessionContexts(buffer);
+        final SessionContext reloadedAContext = fixContextsAfterRestart.onAcceptLogon(
+            acceptedHeader("b", "a"), fixDictionary);
+        assertValuesEqual(aContext, reloadedAContext);
+        assertEquals(DUPLICATE_SESSION, fixContextsAfterRestart.onLogon(aSession, fixDictionary));
+
+        final SessionContext cContext = fixContextsAfterRestart.onAcceptLogon(
+            acceptedHeader("c", "c"), fixDictionary);
+        assertNotEquals(reloadedAContext, cContext);
+        assertEquals(DUPLICATE_SESSION, fixContextsAfterRestart.onAcceptLogon(
+            acceptedHeader("c", "c"), fixDictionary));
+        assertEquals(DUPLICATE_SESSION, fixContextsAfterRestart.onLogon(cSession, fixDictionary));
+    }
+
     @Test
     public void persistsSessionContextsOverARestart()
     {
@@ -176,6 +198,58 @@ public class FixContextsTest
         newSessionContexts(buffer);
     }
 
+    @Test
+    public void growsFileWhenOutOfSpace() throws IOException
+    {
+        final int numberOfSessions = 200;
+        final File file = File.createTempFile("session_id_buffer", null);
+        assertTrue(file.delete());
+
+        try
+        {
+            final List<CompositeKey> keys = IntStream
+                .range(0, numberOfSessions)
+                .mapToObj((i) -> idStrategy.onInitiateLogon("b" + i, null, null, "a" + i, null, null))
+                .collect(toList());
+
+            final List<SessionContext> contexts;
+            try (MappedFile growableFile = MappedFile.map(file, BUFFER_SIZE))
+            {
+                final FixContexts growableContexts = new FixContexts(
+                    growableFile, idStrategy, DEFAULT_INITIAL_SEQUENCE_INDEX, errorHandler, false,
+                    BUFFER_SIZE, 4 * BUFFER_SIZE);
+
+                contexts = keys
+                    .stream()
+                    .map(compositeKey -> growableContexts.onLogon(compositeKey, fixDictionary))
+                    .collect(toList());
+                contexts.get(0).onSequenceReset(time);
+
+                verifyNoInteractions(errorHandler);
+                assertThat(growableFile.buffer().capacity(), greaterThan(BUFFER_SIZE));
+            }
+
+            try (MappedFile reloadedFile = MappedFile.map(file, BUFFER_SIZE))
+            {
+                final FixContexts contextsAfterRestart = new FixContexts(
+                    reloadedFile, idStrategy, DEFAULT_INITIAL_SEQUENCE_INDEX, errorHandler, false);
+
+                assertThat(contextsAfterRestart.allSessions(), hasSize(numberOfSessions));
+                for (int i = 0; i < numberOfSessions; i++)
+                {
+                    assertValuesEqual(contexts.get(i), contextsAfterRestart.onLogon(keys.get(i), fixDictionary));
+                }
+                final SessionContext reloadedFirstContext =
+                    contextsAfterRestart.lookupById(contexts.get(0).sessionId()).getValue();
+                assertEquals(time, reloadedFirstContext.lastSequenceResetTime());
+            }
+        }
+        finally
+        {
+            IoUtil.deleteIfExists(file);
+        }
+    }
+
     @Test
     public void wrapsOverSectorBoundaries()
     {
@@ -364,6 +438,16 @@ public class FixContextsTest
         assertEquals(sessionContext.sequenceIndex(), secondSessionContext.sequenceIndex());
     }
 
+    private SessionHeaderDecoder acceptedHeader(final String senderCompID, final String targetCompID)
+    {
+        final SessionHeaderDecoder header = mock(SessionHeaderDecoder.class);
+        when(header.senderCompID()).thenReturn(senderCompID.toCharArray());
+        when(header.senderCompIDLength()).thenReturn(senderCompID.length());
+        when(header.targetCompID()).thenReturn(targetCompID.toCharArray());
+        when(header.targetCompIDLength()).thenReturn(targetCompID.length());
+        return header;
+    }
+
     private long logonWithSenderAndTarget(final String senderCompID, final String targetCompID)
     {
         logonEncoder.header()
@@ -18,24 +18,36 @@ package uk.co.real_logic.artio.engine.framer;
 import io.aeron.ExclusivePublication;
 import io.aeron.logbuffer.BufferClaim;
 import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.LangUtil;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.stubbing.Answer;
 import org.mockito.verification.VerificationMode;
 import uk.co.real_logic.artio.engine.MessageTimingHandler;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.agrona.BitUtil.SIZE_OF_INT;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS;
@@ -72,23 +84,45 @@ public class FixSenderEndPointTest
     private final ReproductionLogWriter reproductionLogWriter = mock(ReproductionLogWriter.class);
     private final UnsafeBuffer inboundBuffer = new UnsafeBuffer(new byte[INBOUND_BUFFER_LEN]);
     private final FixReceiverEndPoint receiverEndPoint = mock(FixReceiverEndPoint.class);
-    private final FixSenderEndPoint endPoint = new FixSenderEndPoint(
-        CONNECTION_ID,
-        LIBRARY_ID,
-        inboundPublication,
-        reproductionLogWriter,
-        tcpChannel,
-        bytesInBuffer,
-        invalidLibraryAttempts,
-        errorHandler,
-        framer,
-        MAX_BYTES_IN_BUFFER,
-        DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
-        0,
-        senderSequenceNumber,
-        messageTimingHandler,
-        receiverEndPoint,
-        new FixSenderEndPoint.Formatters());
+    private final List<Integer> writeLengths = new ArrayList<>();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FixSenderEndPoint endPoint = newEndPoint(0);
+
+    private FixSenderEndPoint newEndPoint(final int senderBatchMaxBytes)
+    {
+        return newEndPoint(senderBatchMaxBytes, null, 0);
+    }
+
+    private FixSenderEndPoint newEndPoint(
+        final int senderBatchMaxBytes, final String spillFileDir, final int maxBytesInSpillFile)
+    {
+        return new FixSenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            inboundPublication,
+            reproductionLogWriter,
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            messageTimingHandler,
+            receiverEndPoint,
+            new FixSenderEndPoint.Formatters(),
+            senderBatchMaxBytes,
+            Long.MAX_VALUE,
+            () -> 0L,
+            SessionLatencyHistograms.DISABLED,
+            spillFileDir,
+            maxBytesInSpillFile);
+    }
 
     @Before
     public void setup()
@@ -193,6 +227,119 @@ public class FixSenderEndPointTest
         verifySlowConsumerDisconnect(times(1));
     }
 
+    @Test
+    public void shouldBatchMessagesIntoASingleWrite()
+    {
+        endPoint = newEndPoint(4 * BODY_LENGTH);
+        channelWillWriteEverything();
+
+        onOutboundMessage(0);
+        onOutboundMessage(0);
+        assertTrue(endPoint.hasBatch());
+        assertEquals(0, writeLengths.size());
+
+        poll();
+        assertFalse(endPoint.hasBatch());
+        assertEquals(asList(2 * BODY_LENGTH), writeLengths);
+        assertBytesInBuffer(0);
+        assertDoesNotRequireReattempting();
+        verify(messageTimingHandler, times(2)).onMessage(anyLong(), eq(CONNECTION_ID), any(), anyInt(), anyInt());
+
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldWriteBatchWhenFull()
+    {
+        endPoint = newEndPoint(2 * BODY_LENGTH);
+        channelWillWriteEverything();
+
+        onOutboundMessage(0);
+        onOutboundMessage(0);
+        assertFalse(endPoint.hasBatch());
+        assertEquals(asList(2 * BODY_LENGTH), writeLengths);
+
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldEnqueueUnwrittenMessagesOfPartiallyWrittenBatch()
+    {
+        final int firstWrites = BODY_LENGTH + 41;
+
+        endPoint = newEndPoint(4 * BODY_LENGTH);
+        onOutboundMessage(0);
+        onOutboundMessage(0);
+        onOutboundMessage(0);
+
+        channelWillWrite(firstWrites);
+        assertTrue(endPoint.flushBatch());
+        byteBufferWritten();
+        assertReattemptBytesWritten(41);
+        assertBytesInBuffer(2 * (BODY_LENGTH + ENQ_MESSAGE_BLOCK_LEN));
+        verify(messageTimingHandler, times(1)).onMessage(anyLong(), eq(CONNECTION_ID), any(), anyInt(), anyInt());
+
+        channelWillWriteEverything();
+        poll();
+        assertEquals(asList(BODY_LENGTH - 41, BODY_LENGTH), writeLengths);
+        assertBytesInBuffer(0);
+        assertDoesNotRequireReattempting();
+
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldWriteDeferredMessagesInOrderWithTheirMetaData()
+    {
+        final int metaDataLength = SIZE_OF_INT;
+        buffer.putInt(MSG_OFFSET - FixMessageDecoder.bodyHeaderLength() - metaDataLength, 42);
+        channelWillWriteEverything();
+
+        endPoint.deferOutboundMessage(LIBRARY_ID, buffer, MSG_OFFSET, BODY_LENGTH, 1, metaDataLength);
+        endPoint.onOutboundMessage(LIBRARY_ID, buffer, MSG_OFFSET, BODY_LENGTH, 2, 0, metaDataLength);
+        assertTrue(endPoint.hasDeferred());
+        assertEquals(emptyList(), writeLengths);
+
+        assertEquals(BODY_LENGTH, endPoint.sendNextDeferred(0));
+        assertEquals(BODY_LENGTH, endPoint.sendNextDeferred(0));
+        assertEquals(0, endPoint.sendNextDeferred(0));
+        assertFalse(endPoint.hasDeferred());
+        assertEquals(asList(BODY_LENGTH, BODY_LENGTH), writeLengths);
+
+        final InOrder inOrder = inOrder(messageTimingHandler);
+        for (int sequenceNumber = 1; sequenceNumber <= 2; sequenceNumber++)
+        {
+            final ArgumentCaptor<DirectBuffer> metaDataBuffer = ArgumentCaptor.forClass(DirectBuffer.class);
+            final ArgumentCaptor<Integer> metaDataOffset = ArgumentCaptor.forClass(Integer.class);
+            inOrder.verify(messageTimingHandler).onMessage(
+                eq((long)sequenceNumber), eq(CONNECTION_ID), metaDataBuffer.capture(), metaDataOffset.capture(),
+                eq(metaDataLength));
+            assertEquals(42, metaDataBuffer.getValue().getInt(metaDataOffset.getValue()));
+        }
+        verify(senderSequenceNumber).onNewMessage(1);
+        verify(senderSequenceNumber).onNewMessage(2);
+
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldWriteBatchBeforeReplay()
+    {
+        endPoint = newEndPoint(4 * BODY_LENGTH);
+        channelWillWriteEverything();
+
+        onOutboundMessage(0);
+        startValidReplay();
+        assertFalse(endPoint.hasBatch());
+        assertReplaying();
+
+        onReplayMessage(0);
+        assertEquals(asList(BODY_LENGTH, BODY_LENGTH), writeLengths);
+        assertBytesInBuffer(0);
+
+        verifyNoMoreErrors();
+    }
+
     private void startValidReplay()
     {
         endPoint.onValidResendRequest(REPLAY_CORRELATION_ID);
@@ -217,6 +364,57 @@ public class FixSenderEndPointTest
         verifySlowConsumerDisconnect(times(1));
     }
 
+    @Test
+    public void shouldSpillSlowConsumerBacklogInsteadOfDisconnecting()
+    {
+        final File spillFile = newSpillingEndPoint(16 * 1024);
+
+        channelWillWrite(0);
+        for (int i = 0; i < 5; i++)
+        {
+            onOutboundMessage(0);
+        }
+
+        assertTrue(spillFile.exists());
+        assertBytesInBuffer(5 * (BODY_LENGTH + ENQ_MESSAGE_BLOCK_LEN));
+        verifySlowConsumerDisconnect(never());
+
+        channelWillWriteEverything();
+        poll();
+
+        assertBytesInBuffer(0);
+        assertDoesNotRequireReattempting();
+        assertEquals(asList(BODY_LENGTH, BODY_LENGTH, BODY_LENGTH, BODY_LENGTH, BODY_LENGTH), writeLengths);
+        assertFalse(spillFile.exists());
+        verifyNoMoreErrors();
+    }
+
+    @Test
+    public void shouldDisconnectSlowConsumerWhenSpillFileIsFull()
+    {
+        final File spillFile = newSpillingEndPoint(4 * (BODY_LENGTH + ENQ_MESSAGE_BLOCK_LEN));
+
+        channelWillWrite(0);
+        for (int i = 0; i < 4; i++)
+        {
+            onOutboundMessage(0);
+        }
+        verifySlowConsumerDisconnect(never());
+
+        onOutboundMessage(0);
+        verifySlowConsumerDisconnect(times(1));
+
+        endPoint.close();
+        assertFalse(spillFile.exists());
+    }
+
+    private File newSpillingEndPoint(final int maxBytesInSpillFile)
+    {
+        final File spillFileDir = temporaryFolder.getRoot();
+        endPoint = newEndPoint(0, spillFileDir.getAbsolutePath(), maxBytesInSpillFile);
+        return new File(spillFileDir, "sender-spill-" + CONNECTION_ID + "-normal");
+    }
+
     @Test
     public void shouldNotSendReplayMessageUntilSlowConsumerComplete()
     {
@@ -440,6 +638,23 @@ public class FixSenderEndPointTest
         }
     }
 
+    private void channelWillWriteEverything()
+    {
+        try
+        {
+            when(tcpChannel.write(any(), anyInt(), anyBoolean())).then(inv ->
+            {
+                final int remaining = inv.<ByteBuffer>getArgument(0).remaining();
+                writeLengths.add(remaining);
+                return remaining;
+            });
+        }
+        catch (final IOException e)
+        {
+            LangUtil.rethrowUnchecked(e);
+        }
+    }
+
     private AtomicCounter fakeCounter()
     {
         final AtomicLong value = new AtomicLong();
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.mockito.InOrder;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
+
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
+import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.engine.framer.FixSenderEndPoint.NOT_SCHEDULED;
+
+public class FixSenderEndPointsTest
+{
+    private static final int LIBRARY_ID = 2;
+    private static final int LENGTH = 100;
+    private static final int MAX_DEFERRED_BYTES = 3 * LENGTH;
+    private static final int REPLAY_PRIORITY_CLASS = 1;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final FixSenderEndPoints endPoints = new FixSenderEndPoints(
+        mock(ErrorHandler.class), new int[]{ 2 * LENGTH, LENGTH }, REPLAY_PRIORITY_CLASS, MAX_DEFERRED_BYTES);
+
+    private final FixSenderEndPoint orders = newEndPoint(1, 0);
+    private final FixSenderEndPoint dropCopy = newEndPoint(2, 1);
+
+    @Test
+    public void shouldDeferMessagesBeyondPriorityClassByteBudget()
+    {
+        onMessage(orders);
+        onMessage(orders);
+        onMessage(orders);
+
+        verify(orders, times(2)).onOutboundMessage(
+            eq(LIBRARY_ID), eq(buffer), anyInt(), eq(LENGTH), anyInt(), anyLong(), anyInt());
+        verify(orders).deferOutboundMessage(eq(LIBRARY_ID), eq(buffer), anyInt(), eq(LENGTH), anyInt(), anyInt());
+        verify(orders).scheduledPriorityClass(0);
+    }
+
+    @Test
+    public void shouldNotShareByteBudgetsBetweenPriorityClasses()
+    {
+        onMessage(dropCopy);
+        onMessage(dropCopy);
+        onMessage(orders);
+        onMessage(orders);
+
+        verify(dropCopy).deferOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+        verify(orders, never()).deferOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldSendDeferredMessagesInPriorityClassOrder()
+    {
+        onMessage(dropCopy);
+        onMessage(orders);
+        onMessage(orders);
+        onMessage(dropCopy);
+        onMessage(orders);
+
+        hasDeferredMessages(dropCopy, 1);
+        hasDeferredMessages(orders, 1);
+
+        assertEquals(2, endPoints.sendDeferredMessages());
+
+        final InOrder inOrder = inOrder(orders, dropCopy);
+        inOrder.verify(orders).sendNextDeferred(anyLong());
+        inOrder.verify(orders).scheduledPriorityClass(NOT_SCHEDULED);
+        inOrder.verify(dropCopy).sendNextDeferred(anyLong());
+        inOrder.verify(dropCopy).scheduledPriorityClass(NOT_SCHEDULED);
+
+        assertEquals(0, endPoints.sendDeferredMessages());
+    }
+
+    @Test
+    public void shouldOnlySendDeferredMessagesWithinByteBudget()
+    {
+        onMessage(dropCopy);
+        onMessage(dropCopy);
+        hasDeferredMessages(dropCopy, 3);
+
+        assertEquals(1, endPoints.sendDeferredMessages());
+        assertEquals(1, endPoints.sendDeferredMessages());
+        assertEquals(1, endPoints.sendDeferredMessages());
+        assertEquals(0, endPoints.sendDeferredMessages());
+        verify(dropCopy, times(3)).sendNextDeferred(anyLong());
+    }
+
+    @Test
+    public void shouldKeepMessagesBehindDeferredMessages()
+    {
+        onMessage(orders);
+        when(orders.hasDeferred()).thenReturn(true);
+
+        onMessage(orders);
+
+        verify(orders).deferOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldSendDeferredMessagesWhenTooManyAreHeldBack()
+    {
+        onMessage(dropCopy);
+        when(dropCopy.hasDeferred()).thenReturn(true);
+        when(dropCopy.deferredBytes()).thenReturn(MAX_DEFERRED_BYTES);
+
+        onMessage(dropCopy);
+
+        final InOrder inOrder = inOrder(dropCopy);
+        inOrder.verify(dropCopy).sendDeferred(anyLong());
+        inOrder.verify(dropCopy).onOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldLeaveReplaysInStreamBeyondPriorityClassByteBudget()
+    {
+        when(orders.onReplayMessage(any(), anyInt(), anyInt(), anyLong(), anyInt())).thenReturn(CONTINUE);
+
+        assertEquals(CONTINUE, endPoints.onReplayMessage(orders.connectionId(), buffer, 0, LENGTH, 1));
+        assertEquals(ABORT, endPoints.onReplayMessage(orders.connectionId(), buffer, 0, LENGTH, 2));
+
+        endPoints.sendDeferredMessages();
+        assertEquals(CONTINUE, endPoints.onReplayMessage(orders.connectionId(), buffer, 0, LENGTH, 2));
+    }
+
+    @Test
+    public void shouldScheduleReplaysOfSessionsInDifferentPriorityClassesInReplayPriorityClass()
+    {
+        when(orders.onReplayMessage(any(), anyInt(), anyInt(), anyLong(), anyInt())).thenReturn(CONTINUE);
+        when(dropCopy.onReplayMessage(any(), anyInt(), anyInt(), anyLong(), anyInt())).thenReturn(CONTINUE);
+
+        assertEquals(CONTINUE, endPoints.onReplayMessage(orders.connectionId(), buffer, 0, LENGTH, 1));
+        assertEquals(ABORT, endPoints.onReplayMessage(dropCopy.connectionId(), buffer, 0, LENGTH, 1));
+
+        // The replays haven't used the budget of the orders session's own priority class
+        onMessage(orders);
+        onMessage(orders);
+        verify(orders, never()).deferOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        endPoints.sendDeferredMessages();
+        assertEquals(CONTINUE, endPoints.onReplayMessage(dropCopy.connectionId(), buffer, 0, LENGTH, 1));
+    }
+
+    @Test
+    public void shouldNotHoldUpReplaysWhenOtherPriorityClassIsOutOfBudget()
+    {
+        when(orders.onReplayMessage(any(), anyInt(), anyInt(), anyLong(), anyInt())).thenReturn(CONTINUE);
+        when(dropCopy.onReplayMessage(any(), anyInt(), anyInt(), anyLong(), anyInt())).thenReturn(CONTINUE);
+
+        onMessage(orders);
+        onMessage(orders);
+        onMessage(orders);
+        verify(orders).deferOutboundMessage(anyInt(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        assertEquals(CONTINUE, endPoints.onReplayMessage(orders.connectionId(), buffer, 0, LENGTH, 1));
+        verify(orders).onReplayMessage(any(), anyInt(), eq(LENGTH), anyLong(), eq(1));
+    }
+
+    @Test
+    public void shouldSendDeferredMessagesBeforeReplay()
+    {
+        onMessage(dropCopy);
+        onMessage(dropCopy);
+
+        endPoints.onStartReplay(dropCopy.connectionId(), 1, false);
+
+        final InOrder inOrder = inOrder(dropCopy);
+        inOrder.verify(dropCopy).sendDeferred(anyLong());
+        inOrder.verify(dropCopy).onStartReplay(1);
+    }
+
+    private FixSenderEndPoint newEndPoint(final long connectionId, final int priorityClass)
+    {
+        final FixSenderEndPoint endPoint = mock(FixSenderEndPoint.class);
+        when(endPoint.connectionId()).thenReturn(connectionId);
+        when(endPoint.priorityClass()).thenReturn(priorityClass);
+        when(endPoint.scheduledPriorityClass()).thenReturn(NOT_SCHEDULED);
+        when(endPoint.latencyHistograms()).thenReturn(SessionLatencyHistograms.DISABLED);
+        endPoints.add(endPoint);
+        return endPoint;
+    }
+
+    private void hasDeferredMessages(final FixSenderEndPoint endPoint, final int messages)
+    {
+        final int priorityClass = endPoint.priorityClass();
+        when(endPoint.scheduledPriorityClass()).thenReturn(priorityClass);
+        final int[] remainingMessages = { messages };
+        when(endPoint.sendNextDeferred(anyLong())).then(inv ->
+        {
+            remainingMessages[0]--;
+            return LENGTH;
+        });
+        when(endPoint.hasDeferred()).then(inv -> remainingMessages[0] > 0);
+    }
+
+    private void onMessage(final FixSenderEndPoint endPoint)
+    {
+        endPoints.onMessage(LIBRARY_ID, endPoint.connectionId(), buffer, 0, LENGTH, 1, 0, 0);
+    }
+}
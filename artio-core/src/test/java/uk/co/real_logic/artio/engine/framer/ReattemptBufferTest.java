@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+import static uk.co.real_logic.artio.engine.framer.ReattemptBuffer.NO_SPACE;
+
+public class ReattemptBufferTest
+{
+    private static final int ENTRY_LENGTH = 1000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ReattemptBuffer reattemptBuffer = new ReattemptBuffer(Integer.MAX_VALUE, null, 0);
+    private int nextValue;
+    private int nextConsumedValue;
+
+    @After
+    public void close()
+    {
+        reattemptBuffer.close();
+    }
+
+    @Test
+    public void shouldConsumeEntriesInOrder()
+    {
+        claim(3);
+        consume(2);
+        claim(2);
+        consume(3);
+
+        assertTrue(reattemptBuffer.isEmpty());
+        assertEquals(0, reattemptBuffer.usage());
+    }
+
+    @Test
+    public void shouldWrapEntriesAroundWithoutCopying()
+    {
+        claim(4);
+        final int capacity = reattemptBuffer.buffer().capacity();
+        consume(2);
+
+        assertEquals(0, claim(1));
+        assertEquals(ENTRY_LENGTH, claim(1));
+
+        assertEquals(capacity, reattemptBuffer.buffer().capacity());
+        assertEquals(4 * ENTRY_LENGTH, reattemptBuffer.usage());
+        consume(4);
+    }
+
+    @Test
+    public void shouldUnwrapEntriesWhenGrowing()
+    {
+        claim(4);
+        consume(2);
+        claim(2);
+        claim(4);
+
+        assertEquals(8 * ENTRY_LENGTH, reattemptBuffer.usage());
+        consume(8);
+    }
+
+    @Test
+    public void shouldSpillEntriesBeyondMemoryLimitToFile()
+    {
+        final File spillFile = new File(temporaryFolder.getRoot(), "spill");
+        reattemptBuffer = new ReattemptBuffer(2 * ENTRY_LENGTH, spillFile, 4 * ENTRY_LENGTH);
+
+        claim(2);
+        assertFalse(reattemptBuffer.isSpilled());
+
+        claim(2);
+        assertTrue(reattemptBuffer.isSpilled());
+        assertTrue(spillFile.exists());
+
+        assertEquals(NO_SPACE, reattemptBuffer.claim(ENTRY_LENGTH));
+        assertEquals(4 * ENTRY_LENGTH, reattemptBuffer.usage());
+
+        consume(4);
+        assertFalse(reattemptBuffer.isSpilled());
+        assertFalse(spillFile.exists());
+
+        claim(1);
+        consume(1);
+    }
+
+    // returns the offset of the last entry claimed
+    private int claim(final int entries)
+    {
+        int offset = NO_SPACE;
+        for (int i = 0; i < entries; i++)
+        {
+            offset = reattemptBuffer.claim(ENTRY_LENGTH);
+            assertNotEquals(NO_SPACE, offset);
+            reattemptBuffer.buffer().setMemory(offset, ENTRY_LENGTH, (byte)0);
+            reattemptBuffer.buffer().putInt(offset, nextValue++);
+        }
+        return offset;
+    }
+
+    private void consume(final int entries)
+    {
+        for (int i = 0; i < entries; i++)
+        {
+            assertEquals(nextConsumedValue++, reattemptBuffer.buffer().getInt(reattemptBuffer.head()));
+            reattemptBuffer.consume(ENTRY_LENGTH);
+        }
+    }
+}
@@ -22,19 +22,23 @@ import org.agrona.concurrent.EpochNanoClock;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentMatcher;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.verification.VerificationMode;
 import uk.co.real_logic.artio.decoder.LogonDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.fixt.FixDictionaryImpl;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.messages.MessageStatus;
 import uk.co.real_logic.artio.messages.SessionState;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 import uk.co.real_logic.artio.session.CompositeKey;
 import uk.co.real_logic.artio.session.InternalSession;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
+import uk.co.real_logic.artio.timing.SessionLatencyHistograms;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -43,6 +47,7 @@ import java.util.HashMap;
 import java.util.function.ToIntFunction;
 
 import static io.aeron.Publication.BACK_PRESSURED;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.dictionary.ExampleDictionary.TAG_SPECIFIED_OUT_OF_REQUIRED_ORDER_MESSAGE_BYTES;
@@ -145,9 +150,19 @@ public class ReceiverEndPointTest
     }
 
     private void givenReceiverEndPoint(final long sessionId)
+    {
+        givenReceiverEndPoint(sessionId, false);
+    }
+
+    private void givenReceiverEndPoint(final long sessionId, final boolean headerSummaryEnabled)
+    {
+        givenReceiverEndPoint(sessionId, headerSummaryEnabled, BUFFER_SIZE);
+    }
+
+    private void givenReceiverEndPoint(final long sessionId, final boolean headerSummaryEnabled, final int bufferSize)
     {
         endPoint = new FixReceiverEndPoint(
-            mockChannel, BUFFER_SIZE, publication,
+            mockChannel, bufferSize, publication,
             CONNECTION_ID, sessionId, SEQUENCE_INDEX + 1, mockFixContexts,
             messagesRead, framer, errorHandler, LIBRARY_ID,
             mockGatewaySessions,
@@ -156,7 +171,9 @@ public class ReceiverEndPointTest
             new FixReceiverEndPoint.FixReceiverEndPointFormatters(),
             NO_THROTTLE_WINDOW,
             NO_THROTTLE_WINDOW,
-            false);
+            false,
+            SessionLatencyHistograms.DISABLED,
+            headerSummaryEnabled);
         endPoint.gatewaySession(gatewaySession);
     }
 
@@ -205,6 +222,27 @@ public class ReceiverEndPointTest
         sessionReceivesOneMessage();
     }
 
+    @Test
+    public void shouldFrameValidFixMessageWithHeaderSummaryWhenEnabled()
+    {
+        when(gatewaySession.fixDictionary()).thenReturn(new FixDictionaryImpl());
+        givenReceiverEndPoint(SESSION_ID, true);
+
+        theEndpointReceivesACompleteMessage();
+
+        polls(MSG_LEN);
+
+        final ArgumentMatcher<HeaderSummary> summaryOfMessage = (headerSummary) ->
+            headerSummary.isPresent() && headerSummary.msgSeqNum() == 4 && !headerSummary.possDup() &&
+            headerSummary.bodyOffset() == new String(EG_MESSAGE, US_ASCII).indexOf("\00111=") + 1;
+        verify(publication).saveMessage(
+            anyBuffer(), eq(0), eq(MSG_LEN), eq(LIBRARY_ID),
+            eq(MESSAGE_TYPE), eq(SESSION_ID), anyInt(), eq(CONNECTION_ID),
+            eq(OK), eq(0), eq(TIMESTAMP), isNull(), eq(0), argThat(summaryOfMessage));
+        verify(gatewaySession).onMessage(
+            any(), eq(0), eq(MSG_LEN), eq(MESSAGE_TYPE), anyLong(), argThat(summaryOfMessage));
+    }
+
     @Test
     public void shouldFrameValidFixMessageWhenBackpressuredSelectionKeyCase()
     {
@@ -309,6 +347,22 @@ public class ReceiverEndPointTest
         theEndpointReceivesTheRestOfTheMessage();
         endPoint.poll();
 
+        savesTwoFramedMessages(1);
+
+        sessionReceivesTwoMessages();
+    }
+
+    @Test
+    public void shouldFrameSecondSplitMessageAtBufferStartWhenBufferIsNearlyFull()
+    {
+        givenReceiverEndPoint(SESSION_ID, false, 2 * MSG_LEN);
+
+        theEndpointReceivesACompleteAndAnIncompleteMessage();
+        endPoint.poll();
+
+        theEndpointReceivesTheRestOfTheMessage();
+        endPoint.poll();
+
         savesFramedMessages(2, OK, MSG_LEN);
 
         sessionReceivesTwoMessageAtBufferStart();
@@ -485,6 +539,7 @@ public class ReceiverEndPointTest
 
     private void firstSaveAttemptIsBackPressured()
     {
+        // Invalid messages are saved without a header summary
         when(publication
             .saveMessage(
                 anyBuffer(),
@@ -499,6 +554,23 @@ public class ReceiverEndPointTest
                 anyInt(),
                 anyLong()))
             .thenReturn(BACK_PRESSURED, POSITION);
+        when(publication
+            .saveMessage(
+                anyBuffer(),
+                anyInt(),
+                anyInt(),
+                anyInt(),
+                anyLong(),
+                anyLong(),
+                anyInt(),
+                anyLong(),
+                any(),
+                anyInt(),
+                anyLong(),
+                any(),
+                anyInt(),
+                any()))
+            .thenReturn(BACK_PRESSURED, POSITION);
     }
 
     private DirectBuffer anyBuffer()
@@ -570,7 +642,7 @@ public class ReceiverEndPointTest
         return verify(publication, times(numberOfMessages)).saveMessage(
             anyBuffer(), eq(0), eq(msgLen), eq(LIBRARY_ID),
             eq(messageType), eq(SESSION_ID), anyInt(), eq(CONNECTION_ID),
-            eq(status), eq(0), eq(TIMESTAMP));
+            eq(status), eq(0), eq(TIMESTAMP), isNull(), eq(0), isNull());
     }
 
     private void savesTwoFramedMessages(final int firstMessageSaveAttempts)
@@ -587,7 +659,10 @@ public class ReceiverEndPointTest
             eq(CONNECTION_ID),
             eq(OK),
             eq(0),
-            eq(TIMESTAMP));
+            eq(TIMESTAMP),
+            isNull(),
+            eq(0),
+            isNull());
 
         inOrder.verify(publication, times(1)).saveMessage(
             anyBuffer(),
@@ -600,7 +675,10 @@ public class ReceiverEndPointTest
             eq(CONNECTION_ID),
             eq(OK),
             eq(0),
-            eq(TIMESTAMP));
+            eq(TIMESTAMP),
+            isNull(),
+            eq(0),
+            isNull());
 
         inOrder.verifyNoMoreInteractions();
     }
@@ -728,19 +806,19 @@ public class ReceiverEndPointTest
     private void sessionReceivedCountIs(final int numberOfMessages)
     {
         verify(gatewaySession, times(numberOfMessages))
-            .onMessage(any(), anyInt(), anyInt(), anyLong(), anyLong());
+            .onMessage(any(), anyInt(), anyInt(), anyLong(), anyLong(), any());
     }
 
     private void sessionReceivesMessageAt(final int offset, final int length, final VerificationMode mode)
     {
         verify(gatewaySession, mode)
-            .onMessage(any(), eq(offset), eq(length), eq(MESSAGE_TYPE), anyLong());
+            .onMessage(any(), eq(offset), eq(length), eq(MESSAGE_TYPE), anyLong(), isNull());
     }
 
     private void sessionReceivesNoMessages()
     {
         verify(gatewaySession, never())
-            .onMessage(any(), anyInt(), anyInt(), anyLong(), anyLong());
+            .onMessage(any(), anyInt(), anyInt(), anyLong(), anyLong(), any());
     }
 
     private void pollWithNoData(final int expected)
@@ -142,7 +142,7 @@ public abstract class AbstractFixMessageLoggerTest
         assertThat(timestamps, contains(7L));
         timestamps.clear();
 
-        assertThat("failed to reshuffle", logger.bufferPosition(), lessThanOrEqualTo(compactionSize));
+        assertThat("failed to reshuffle", logger.bufferPosition(), lessThanOrEqualTo((long)compactionSize));
 
         onMessage(inboundPublication, 9);
         onMessage(outboundPublication, 10);
@@ -18,11 +18,13 @@ package uk.co.real_logic.artio.engine.logger;
 import org.junit.Test;
 import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicates.FilterBy;
 
 import java.util.function.Predicate;
 
 import static org.junit.Assert.*;
 import static uk.co.real_logic.artio.engine.logger.FixMessagePredicates.*;
+import static uk.co.real_logic.artio.util.MessageTypeEncoding.packMessageType;
 
 public class ArchiveScanPlannerTest
 {
@@ -45,5 +47,68 @@ public class ArchiveScanPlannerTest
         final IndexQuery indexQuery = ArchiveScanPlanner.extractIndexQuery(queryPredicate);
         assertEquals(epochStartTimeInNs, indexQuery.beginTimestampInclusive());
         assertEquals(epochEndTimeInNs, indexQuery.endTimestampExclusive());
+        assertFalse(indexQuery.hasSessionOrMessageType());
+    }
+
+    @Test
+    public void shouldPushDownSessionAndMessageTypeThroughAnd()
+    {
+        final long sessionId = 3;
+        final FixMessagePredicate predicate = sessionOf(sessionId).and(messageTypeOf("D", "8"));
+
+        final IndexQuery indexQuery = ArchiveScanPlanner.extractIndexQuery(filterBy(consumer(), predicate));
+
+        assertTrue(indexQuery.hasSessionOrMessageType());
+        assertFalse(indexQuery.hasTimeRange());
+        assertTrue(indexQuery.matches(sessionId, packMessageType("D")));
+        assertTrue(indexQuery.matches(sessionId, packMessageType("8")));
+        assertFalse(indexQuery.matches(sessionId, packMessageType("A")));
+        assertFalse(indexQuery.matches(sessionId + 1, packMessageType("D")));
+    }
+
+    @Test
+    public void shouldNotPushDownSessionThroughOr()
+    {
+        final FixMessagePredicate predicate = sessionOf(1).or(sessionOf(2));
+
+        final IndexQuery indexQuery = ArchiveScanPlanner.extractIndexQuery(filterBy(consumer(), predicate));
+
+        assertNull(indexQuery);
+    }
+
+    @Test
+    public void shouldSplitStatelessPredicatesFromTheRestOfTheQuery()
+    {
+        final FixDictionary fixDictionary = FixDictionary.of(FixDictionary.findDefault());
+        final FixMessagePredicate whereHeader = whereHeader(fixDictionary, senderCompIdOf("session"));
+        final FixMessagePredicate from = from(100);
+        final FixMessagePredicate messageType = messageTypeOf("D");
+        final FixMessageConsumer consumer = consumer();
+        final FixMessageConsumer query = filterBy(consumer, from.and(whereHeader).and(messageType));
+
+        final CompositeFixMessagePredicate statelessPredicate =
+            (CompositeFixMessagePredicate)ArchiveScanPlanner.extractStatelessPredicate(query);
+        assertSame(from, statelessPredicate.left());
+        assertSame(messageType, statelessPredicate.right());
+
+        final FilterBy scanningHandler = (FilterBy)ArchiveScanPlanner.removeStatelessPredicate(query);
+        assertSame(consumer, scanningHandler.consumer);
+        assertSame(whereHeader, scanningHandler.predicate);
+    }
+
+    @Test
+    public void shouldNotSplitPredicatesUnderOr()
+    {
+        final FixMessageConsumer query = filterBy(consumer(), sessionOf(1).or(sessionOf(2)));
+
+        assertNull(ArchiveScanPlanner.extractStatelessPredicate(query));
+        assertSame(query, ArchiveScanPlanner.removeStatelessPredicate(query));
+    }
+
+    private FixMessageConsumer consumer()
+    {
+        return (message, buffer, offset, length, header) ->
+        {
+        };
     }
 }
@@ -28,6 +28,9 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.stream.Collectors.joining;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.engine.logger.FixMessageLogger.Configuration.MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE;
+import static uk.co.real_logic.artio.engine.logger.FixMessageLogger.Configuration.MAXIMUM_MAXIMUM_BUFFER_SIZE;
 
 public class FixMessageLoggerTest extends AbstractFixMessageLoggerTest
 {
@@ -108,4 +111,31 @@ public class FixMessageLoggerTest extends AbstractFixMessageLoggerTest
         assertThat(timestamps, contains(1L, 1L));
         assertThat(sequenceNumbers, contains(1, 2));
     }
+
+    @Test
+    public void shouldUseLargeMaximumBufferSizeUntilMaximumBufferSizeIsSetAgain()
+    {
+        final FixMessageLogger.Configuration configuration = new FixMessageLogger.Configuration()
+            .maximumBufferSize(10_000);
+        assertEquals(10_000, configuration.largeMaximumBufferSize());
+
+        configuration.largeMaximumBufferSize(MAXIMUM_MAXIMUM_BUFFER_SIZE + 1L);
+        assertEquals(10_000, configuration.maximumBufferSize);
+        assertEquals(MAXIMUM_MAXIMUM_BUFFER_SIZE + 1L, configuration.largeMaximumBufferSize());
+
+        configuration.maximumBufferSize(20_000);
+        assertEquals(20_000, configuration.largeMaximumBufferSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldValidateMaximumBufferSizeUpperBound()
+    {
+        new FixMessageLogger.Configuration().maximumBufferSize(MAXIMUM_MAXIMUM_BUFFER_SIZE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldValidateLargeMaximumBufferSizeUpperBound()
+    {
+        new FixMessageLogger.Configuration().largeMaximumBufferSize(MAXIMUM_LARGE_MAXIMUM_BUFFER_SIZE + 1);
+    }
 }
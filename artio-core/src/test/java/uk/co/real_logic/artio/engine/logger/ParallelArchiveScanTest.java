@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.collections.LongArrayList;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.logger.FixArchiveScanningAgent.ArchiveLocation;
+import uk.co.real_logic.artio.engine.logger.ParallelArchiveScan.Partition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelArchiveScanTest
+{
+    private static final long RECORDING_ID = 2;
+
+    private final LongArrayList positions = new LongArrayList();
+    private final LongArrayList timestamps = new LongArrayList();
+    private final List<Partition> partitions = new ArrayList<>();
+
+    @Test
+    public void shouldScanWholeLocationWithoutTimeIndex()
+    {
+        partition(0, 4096, 1024);
+
+        assertPartitions(
+            0, 4096, 0);
+        assertFalse(partitions.get(0).streamed);
+    }
+
+    @Test
+    public void shouldStreamLocationWithoutTimeIndexThatIsTooLargeToBuffer()
+    {
+        partition(0, 8192, 1024);
+
+        assertPartitions(
+            0, 8192, 0);
+        assertTrue(partitions.get(0).streamed);
+    }
+
+    @Test
+    public void shouldStreamWholeLocationWhenTimeIndexIsTooSparseToBufferAPartition()
+    {
+        indexRecord(0, 10);
+        indexRecord(1024, 20);
+        indexRecord(7168, 30);
+
+        partition(0, 8192, 1024);
+
+        assertPartitions(
+            0, 8192, 10);
+        assertTrue(partitions.get(0).streamed);
+    }
+
+    @Test
+    public void shouldPartitionAtTimeIndexBoundaries()
+    {
+        indexRecord(512, 10);
+        indexRecord(1024, 20);
+        indexRecord(1536, 30);
+        indexRecord(2048, 40);
+        indexRecord(3072, 50);
+
+        partition(0, 4096, 1024);
+
+        assertPartitions(
+            0, 1024, 0,
+            1024, 2048, 20,
+            2048, 3072, 40,
+            3072, 4096, 50);
+    }
+
+    @Test
+    public void shouldOnlyUseBoundariesWithinLocation()
+    {
+        indexRecord(512, 10);
+        indexRecord(1024, 20);
+        indexRecord(2048, 40);
+        indexRecord(3072, 50);
+        indexRecord(4096, 60);
+        indexRecord(5120, 70);
+
+        partition(1024, 4096, 1024);
+
+        assertPartitions(
+            1024, 2048, 20,
+            2048, 3072, 40,
+            3072, 4096, 50);
+    }
+
+    @Test
+    public void shouldLetMessagesThatStraddleAPartitionBeFinishedUpToTheEndOfTheLocation()
+    {
+        indexRecord(2000, 10);
+
+        partition(0, 4096, 1024);
+
+        assertEquals(4096, partitions.get(0).replayStopPosition);
+        assertEquals(4096, partitions.get(1).replayStopPosition);
+    }
+
+    private void indexRecord(final long position, final long timestamp)
+    {
+        positions.addLong(position);
+        timestamps.addLong(timestamp);
+    }
+
+    private void partition(final long startPosition, final long stopPosition, final long partitionSize)
+    {
+        final ArchiveLocation location = new ArchiveLocation(RECORDING_ID, startPosition, stopPosition);
+        ParallelArchiveScan.partition(location, positions, timestamps, partitionSize, partitions);
+    }
+
+    private void assertPartitions(final long... startStopAndTimestamps)
+    {
+        assertEquals(partitions.toString(), startStopAndTimestamps.length / 3, partitions.size());
+        for (int i = 0; i < partitions.size(); i++)
+        {
+            final Partition partition = partitions.get(i);
+            assertEquals(partitions.toString(), RECORDING_ID, partition.recordingId);
+            assertEquals(partitions.toString(), startStopAndTimestamps[3 * i], partition.startPosition);
+            assertEquals(partitions.toString(), startStopAndTimestamps[3 * i + 1], partition.stopPosition);
+            assertEquals(partitions.toString(), startStopAndTimestamps[3 * i + 2], partition.startTimestamp);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.logger.RecentMessageCache.CachedMessages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_FRAME_HEADER_OFFSET;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_HEADER_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_LENGTH_OFFSET;
+import static uk.co.real_logic.artio.engine.logger.RecentMessageCache.CACHED_POSITION_BITS_TO_SHIFT_OFFSET;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
+
+public class RecentMessageCacheTest
+{
+    private static final long SESSION_ID = 1;
+    private static final long OTHER_SESSION_ID = 2;
+    private static final int SEQUENCE_INDEX = 1;
+    private static final int CAPACITY = 256;
+    private static final int INITIAL_TERM_ID = 7;
+    private static final int TERM_ID = 9;
+    private static final int TERM_OFFSET = 1024;
+    private static final int POSITION_BITS_TO_SHIFT = 16;
+
+    // Each message takes up a quarter of the ring once its 56 byte record header has been added.
+    private static final int LENGTH = 8;
+
+    private final UnsafeBuffer message = new UnsafeBuffer(new byte[CAPACITY]);
+    private final DataHeaderFlyweight dataHeader = new DataHeaderFlyweight(
+        new UnsafeBuffer(new byte[DataHeaderFlyweight.HEADER_LENGTH]));
+    private final Header header = new Header(INITIAL_TERM_ID, POSITION_BITS_TO_SHIFT);
+    private final RecentMessageCache cache = new RecentMessageCache(CAPACITY);
+
+    {
+        dataHeader.termId(TERM_ID).termOffset(TERM_OFFSET);
+        header.buffer(dataHeader);
+        header.offset(0);
+    }
+
+    @Test
+    public void shouldCoverSequenceIndexThatStartedWithinCache()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 3);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 2, MOST_RECENT_MESSAGE);
+
+        assertEquals(2, messages.beginSequenceNumber());
+        assertMessages(messages, 2, 3);
+    }
+
+    @Test
+    public void shouldKeepDataFrameHeaderRelativeToInitialTermId()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 1);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+        final Header cachedHeader = new Header(0, messages.buffer().getInt(CACHED_POSITION_BITS_TO_SHIFT_OFFSET));
+        cachedHeader.buffer(messages.buffer());
+        cachedHeader.offset(CACHED_FRAME_HEADER_OFFSET);
+
+        assertEquals(TERM_ID - INITIAL_TERM_ID, cachedHeader.termId());
+        assertEquals(header.position(), cachedHeader.position());
+    }
+
+    @Test
+    public void shouldOnlyCoverMessagesAfterEvictedOnes()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 6);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, 5);
+
+        assertEquals(3, messages.beginSequenceNumber());
+        assertMessages(messages, 3, 5);
+    }
+
+    @Test
+    public void shouldCoverWholeSequenceIndexWhenEarlierSequenceIndexIsCached()
+    {
+        onMessages(SEQUENCE_INDEX, 5, 6);
+        onMessages(SEQUENCE_INDEX + 1, 2, 3);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX + 1, 1, MOST_RECENT_MESSAGE);
+
+        assertEquals(1, messages.beginSequenceNumber());
+        assertMessages(messages, 2, 3);
+    }
+
+    @Test
+    public void shouldNotCoverSequenceIndexThatIsntCached()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 2);
+
+        assertNull(cache.query(SESSION_ID, SEQUENCE_INDEX - 1, 1, MOST_RECENT_MESSAGE));
+        assertNull(cache.query(OTHER_SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE));
+    }
+
+    @Test
+    public void shouldForgetMessagesWhenCleared()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 3);
+        cache.clear(SESSION_ID);
+        onMessages(SEQUENCE_INDEX, 4, 4);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+
+        assertEquals(4, messages.beginSequenceNumber());
+        assertMessages(messages, 4, 4);
+    }
+
+    @Test
+    public void shouldForgetMessagesWhenMessageIsTooLargeToCache()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 2);
+        onMessage(SEQUENCE_INDEX, 3, 3, CAPACITY);
+        onMessages(SEQUENCE_INDEX, 4, 4);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+
+        assertEquals(4, messages.beginSequenceNumber());
+        assertMessages(messages, 4, 4);
+    }
+
+    @Test
+    public void shouldPadMessagesThatDontFitBeforeEndOfRing()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 3);
+        // Needs 96 bytes, but only 64 are left before the end of the ring
+        onMessage(SEQUENCE_INDEX, 4, 4, LENGTH + 32);
+
+        CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+        assertEquals(3, messages.beginSequenceNumber());
+        assertEquals(2, messages.count());
+        assertMessage(messages, 0, 3, LENGTH);
+        assertMessage(messages, CACHED_HEADER_LENGTH + LENGTH, 4, LENGTH + 32);
+
+        // Evicts the padding along with the message before it
+        onMessages(SEQUENCE_INDEX, 5, 5);
+
+        messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+        assertEquals(4, messages.beginSequenceNumber());
+        assertEquals(2, messages.count());
+        assertMessage(messages, 0, 4, LENGTH + 32);
+        assertMessage(messages, CACHED_HEADER_LENGTH + LENGTH + 32, 5, LENGTH);
+    }
+
+    @Test
+    public void shouldIncludeGapFillThatCoversBeginSequenceNumber()
+    {
+        onMessages(SEQUENCE_INDEX, 1, 1);
+        onMessage(SEQUENCE_INDEX, 2, 4, LENGTH);
+        onMessages(SEQUENCE_INDEX, 5, 5);
+
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 3, MOST_RECENT_MESSAGE);
+
+        assertEquals(2, messages.count());
+        assertMessage(messages, 0, 2, LENGTH);
+        assertMessage(messages, CACHED_HEADER_LENGTH + LENGTH, 5, LENGTH);
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldOnlyReturnConsistentMessagesWhilstBeingWrittenConcurrently() throws InterruptedException
+    {
+        final int lastSequenceNumber = 100_000;
+        final Thread writer = new Thread(() -> onMessages(SEQUENCE_INDEX, 1, lastSequenceNumber));
+        writer.start();
+
+        while (writer.isAlive())
+        {
+            final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+            if (messages != null)
+            {
+                final int beginSequenceNumber = messages.beginSequenceNumber();
+                assertMessages(messages, beginSequenceNumber, beginSequenceNumber + messages.count() - 1);
+            }
+        }
+
+        writer.join();
+        final CachedMessages messages = cache.query(SESSION_ID, SEQUENCE_INDEX, 1, MOST_RECENT_MESSAGE);
+        assertMessages(messages, lastSequenceNumber - 3, lastSequenceNumber);
+    }
+
+    private void onMessages(final int sequenceIndex, final int fromSequenceNumber, final int toSequenceNumber)
+    {
+        for (int sequenceNumber = fromSequenceNumber; sequenceNumber <= toSequenceNumber; sequenceNumber++)
+        {
+            onMessage(sequenceIndex, sequenceNumber, sequenceNumber, LENGTH);
+        }
+    }
+
+    private void onMessage(
+        final int sequenceIndex, final int sequenceNumber, final int lastSequenceNumber, final int length)
+    {
+        message.setMemory(0, length, (byte)sequenceNumber);
+        dataHeader.frameLength(DataHeaderFlyweight.HEADER_LENGTH + length);
+        cache.onMessage(SESSION_ID, sequenceIndex, sequenceNumber, lastSequenceNumber, message, 0, length, header);
+    }
+
+    private void assertMessages(
+        final CachedMessages messages, final int fromSequenceNumber, final int toSequenceNumber)
+    {
+        assertEquals(toSequenceNumber - fromSequenceNumber + 1, messages.count());
+        int offset = 0;
+        for (int sequenceNumber = fromSequenceNumber; sequenceNumber <= toSequenceNumber; sequenceNumber++)
+        {
+            assertMessage(messages, offset, sequenceNumber, LENGTH);
+            offset += CACHED_HEADER_LENGTH + LENGTH;
+        }
+        assertEquals(messages.limit(), offset);
+    }
+
+    private void assertMessage(
+        final CachedMessages messages, final int offset, final int sequenceNumber, final int length)
+    {
+        final DirectBuffer buffer = messages.buffer();
+        assertEquals(length, buffer.getInt(offset + CACHED_LENGTH_OFFSET));
+        for (int i = 0; i < length; i++)
+        {
+            assertEquals((byte)sequenceNumber, buffer.getByte(offset + CACHED_HEADER_LENGTH + i));
+        }
+    }
+}
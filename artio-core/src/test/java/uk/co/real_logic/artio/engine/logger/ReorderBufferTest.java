@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReorderBufferTest
+{
+    private static final int SEGMENT_SIZE = 64;
+    private static final int LENGTH = 24;
+
+    private final UnsafeBuffer message = new UnsafeBuffer(new byte[SEGMENT_SIZE * 2]);
+    private final ReorderBuffer reorderBuffer = new ReorderBuffer(SEGMENT_SIZE);
+
+    @After
+    public void close()
+    {
+        reorderBuffer.close();
+    }
+
+    @Test
+    public void shouldReadBackMessagesAcrossSegments()
+    {
+        final long[] addresses = new long[10];
+        for (int i = 0; i < addresses.length; i++)
+        {
+            addresses[i] = put(i, LENGTH);
+        }
+
+        assertEquals(addresses.length * LENGTH, reorderBuffer.liveBytes());
+        for (int i = 0; i < addresses.length; i++)
+        {
+            assertMessage(addresses[i], i);
+        }
+    }
+
+    @Test
+    public void shouldReuseSegmentsOnceAllTheirMessagesAreReleased()
+    {
+        // release in a different order to insertion in order to mirror timestamp reordering
+        for (int round = 0; round < 100; round++)
+        {
+            final long first = put(round, LENGTH);
+            final long second = put(round + 1, LENGTH);
+            final long third = put(round + 2, LENGTH);
+
+            assertMessage(third, round + 2);
+            reorderBuffer.release(third, LENGTH);
+            assertMessage(first, round);
+            reorderBuffer.release(first, LENGTH);
+            assertMessage(second, round + 1);
+            reorderBuffer.release(second, LENGTH);
+        }
+
+        assertEquals(0, reorderBuffer.liveBytes());
+        assertEquals(2 * SEGMENT_SIZE, reorderBuffer.capacity());
+    }
+
+    @Test
+    public void shouldFreeSegmentsOfMessagesLargerThanTheSegmentSize()
+    {
+        final long small = put(1, LENGTH);
+        final int largeLength = SEGMENT_SIZE + LENGTH;
+        final long large = put(2, largeLength);
+        final long afterLarge = put(3, LENGTH);
+
+        assertMessage(small, 1);
+        assertMessage(large, 2);
+        assertMessage(afterLarge, 3);
+        assertEquals(2 * SEGMENT_SIZE + largeLength, reorderBuffer.capacity());
+
+        reorderBuffer.release(large, largeLength);
+        assertEquals(2 * SEGMENT_SIZE, reorderBuffer.capacity());
+        assertEquals(2 * LENGTH, reorderBuffer.liveBytes());
+    }
+
+    @Test
+    public void shouldClearAllMessages()
+    {
+        put(1, LENGTH);
+        put(2, LENGTH);
+        put(3, LENGTH);
+
+        reorderBuffer.clear();
+
+        assertEquals(0, reorderBuffer.liveBytes());
+        final long address = put(4, LENGTH);
+        assertEquals(0, ReorderBuffer.offset(address));
+        assertMessage(address, 4);
+    }
+
+    private long put(final int value, final int length)
+    {
+        message.setMemory(0, length, (byte)0);
+        message.putInt(0, value);
+        return reorderBuffer.put(message, 0, length);
+    }
+
+    private void assertMessage(final long address, final int value)
+    {
+        assertEquals(value, reorderBuffer.segment(address).getInt(ReorderBuffer.offset(address)));
+    }
+}
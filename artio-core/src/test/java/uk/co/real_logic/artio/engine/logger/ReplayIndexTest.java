@@ -49,10 +49,13 @@ import java.nio.ByteBuffer;
 import java.util.stream.IntStream;
 
 import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.aMapWithSize;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_INBOUND_MAX_CLAIM_ATTEMPTS;
 import static uk.co.real_logic.artio.LogTag.REPLAY;
@@ -60,6 +63,8 @@ import static uk.co.real_logic.artio.TestFixtures.cleanupMediaDriver;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
 import static uk.co.real_logic.artio.TestFixtures.aeronArchiveContext;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.CHECKPOINT_INTERVAL_IN_RECORDS;
 import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
 
 public class ReplayIndexTest extends AbstractLogTest
@@ -99,6 +104,11 @@ public class ReplayIndexTest extends AbstractLogTest
     private RecordingIdLookup recordingIdLookup;
 
     private void newReplayIndex()
+    {
+        newReplayIndex(null);
+    }
+
+    private void newReplayIndex(final RecentMessageCache recentMessageCache)
     {
         replayIndex = new ReplayIndex(
             new SequenceNumberExtractor(),
@@ -114,9 +124,12 @@ public class ReplayIndexTest extends AbstractLogTest
             FixPProtocolType.ILINK_3,
             mock(SequenceNumberIndexReader.class),
             DEFAULT_TIME_INDEX_FLUSH_INTERVAL_IN_NS,
+            DEFAULT_SESSION_MESSAGE_TYPE_INDEX_ENABLED,
+            DEFAULT_SESSION_MESSAGE_TYPE_INDEX_BLOCK_GAP_IN_BYTES,
             true,
             DEFAULT_INDEX_CHECKSUM_ENABLED,
-            new ReplayEvictionHandler(errorHandler));
+            new ReplayEvictionHandler(errorHandler),
+            recentMessageCache);
     }
 
     private Aeron aeron()
@@ -144,6 +157,11 @@ public class ReplayIndexTest extends AbstractLogTest
         IoUtil.delete(logFileDir, false);
 
         newReplayIndex();
+        newReplayQuery(null);
+    }
+
+    private void newReplayQuery(final RecentMessageCache recentMessageCache)
+    {
         query = new ReplayQuery(
             DEFAULT_LOG_FILE_DIR,
             DEFAULT_LOGGER_CACHE_NUM_SETS,
@@ -155,7 +173,8 @@ public class ReplayIndexTest extends AbstractLogTest
             errorHandler,
             DEFAULT_ARCHIVE_REPLAY_STREAM,
             DEFAULT_REPLAY_INDEX_RECORD_CAPACITY,
-            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY);
+            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY,
+            recentMessageCache);
     }
 
     @After
@@ -177,6 +196,26 @@ public class ReplayIndexTest extends AbstractLogTest
         assertEquals(1, msgCount);
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldStoreHeaderOffsetsOfIndexedMessages()
+    {
+        bufferContainsExampleMessage(false, SESSION_ID, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+        final long endPosition = publishBuffer(publication);
+        indexRecord();
+
+        final ReplayOperation operation = query.query(
+            SESSION_ID,
+            SEQUENCE_NUMBER,
+            SEQUENCE_INDEX,
+            SEQUENCE_NUMBER,
+            SEQUENCE_INDEX,
+            REPLAY,
+            new FixMessageTracker(REPLAY, fakeHandler, SESSION_ID));
+
+        assertNotEquals(NO_HEADER_OFFSETS, operation.headerOffsets(endPosition));
+        assertEquals(NO_HEADER_OFFSETS, operation.headerOffsets(endPosition + FRAME_ALIGNMENT));
+    }
+
     @Test(timeout = 20_000L)
     public void shouldReturnLongRecordsMatchingQuery()
     {
@@ -223,6 +262,31 @@ public class ReplayIndexTest extends AbstractLogTest
         assertEquals(1, msgCount);
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldReplayOlderMessagesFromArchiveAndRecentMessagesFromCache()
+    {
+        final long firstPosition = indexExampleMessage();
+
+        final RecentMessageCache recentMessageCache = new RecentMessageCache(64 * 1024);
+        replayIndex.close();
+        newReplayIndex(recentMessageCache);
+        query.close();
+        newReplayQuery(recentMessageCache);
+
+        final long secondPosition = indexExampleMessage(SESSION_ID, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        final long thirdPosition = indexExampleMessage(SESSION_ID, SEQUENCE_NUMBER + 2, SEQUENCE_INDEX);
+
+        final int msgCount = query(SEQUENCE_NUMBER, SEQUENCE_INDEX, MOST_RECENT_MESSAGE, SEQUENCE_INDEX);
+
+        assertEquals(3, msgCount);
+        verifyMessagesRead(3);
+        // Messages replayed from the cache have the same header positions as those replayed from the archive
+        assertEquals(3, fakeHandler.positions.size());
+        assertTrue(fakeHandler.positions.contains(firstPosition + alignedEndPosition()));
+        assertTrue(fakeHandler.positions.contains(secondPosition + alignedEndPosition()));
+        assertTrue(fakeHandler.positions.contains(thirdPosition + alignedEndPosition()));
+    }
+
     @Test(timeout = 20_000L)
     public void shouldReturnAllLogEntriesWhenMostResentMessageRequested()
     {
@@ -294,6 +358,53 @@ public class ReplayIndexTest extends AbstractLogTest
         verifyMessagesRead(expectedMessages);
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldQueryFromCheckpoint()
+    {
+        final int totalMessages = 3 * CHECKPOINT_INTERVAL_IN_RECORDS + 10;
+        final int beginSequenceNumber = 2 * CHECKPOINT_INTERVAL_IN_RECORDS + 5;
+        final int endSequenceNumber = 2 * CHECKPOINT_INTERVAL_IN_RECORDS + 20;
+        final int expectedMessages = endSequenceNumber - beginSequenceNumber + 1;
+
+        IntStream.rangeClosed(1, totalMessages).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+
+        final int msgCount = query(beginSequenceNumber, SEQUENCE_INDEX, endSequenceNumber, SEQUENCE_INDEX);
+
+        assertEquals(expectedMessages, msgCount);
+        verifyMessagesRead(expectedMessages);
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryFromCheckpointOverSequenceIndexBoundaries()
+    {
+        final int messagesPerSequenceIndex = CHECKPOINT_INTERVAL_IN_RECORDS + 10;
+        IntStream.rangeClosed(1, messagesPerSequenceIndex).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+        IntStream.rangeClosed(1, messagesPerSequenceIndex).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX + 1));
+
+        final int msgCount = query(messagesPerSequenceIndex, SEQUENCE_INDEX, 5, SEQUENCE_INDEX + 1);
+
+        assertEquals(6, msgCount);
+        verifyMessagesRead(6);
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldQueryFromCheckpointAfterBufferWrapped()
+    {
+        final int endSequenceNumber = DEFAULT_REPLAY_INDEX_RECORD_CAPACITY + CHECKPOINT_INTERVAL_IN_RECORDS + 10;
+        final int beginSequenceNumber = endSequenceNumber - 5;
+
+        IntStream.rangeClosed(1, endSequenceNumber).forEach(
+            (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+
+        final int msgCount = query(beginSequenceNumber, SEQUENCE_INDEX, endSequenceNumber, SEQUENCE_INDEX);
+
+        assertEquals(6, msgCount);
+        verifyMessagesRead(6);
+    }
+
     @Test(timeout = 20_000L)
     public void shouldUpdatePositionForIndexedRecord()
     {
@@ -26,7 +26,9 @@ import org.agrona.ErrorHandler;
 import org.agrona.collections.IntHashSet;
 import org.agrona.concurrent.EpochNanoClock;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -48,7 +50,9 @@ import uk.co.real_logic.artio.fields.RejectReason;
 import uk.co.real_logic.artio.fields.UtcTimestampDecoder;
 import uk.co.real_logic.artio.messages.FixPProtocolType;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 import uk.co.real_logic.artio.messages.ReplayCompleteDecoder;
+import uk.co.real_logic.artio.messages.ValidResendRequestEncoder;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
@@ -56,8 +60,11 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static io.aeron.archive.status.RecordingPos.RECORDING_POSITION_TYPE_ID;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.*;
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.concurrent.status.CountersReader.COUNTER_LENGTH;
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.*;
@@ -66,6 +73,8 @@ import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_NAME_PREFIX;
 import static uk.co.real_logic.artio.decoder.ExampleMessageDecoder.MESSAGE_TYPE;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
 import static uk.co.real_logic.artio.engine.PossDupEnabler.ORIG_SENDING_TIME_PREFIX_AS_STR;
+import static uk.co.real_logic.artio.engine.PossDupFinder.NO_HEADER_OFFSETS;
+import static uk.co.real_logic.artio.engine.SectorFramer.SECTOR_SIZE;
 import static uk.co.real_logic.artio.engine.logger.Replayer.MESSAGE_FRAME_BLOCK_LENGTH;
 import static uk.co.real_logic.artio.engine.logger.Replayer.START_REPLAY_LENGTH;
 import static uk.co.real_logic.artio.messages.FixMessageDecoder.metaDataHeaderLength;
@@ -83,6 +92,8 @@ public class ReplayerTest extends AbstractLogTest
 
     private static final int MAX_CLAIM_ATTEMPTS = 100;
     private static final long CORRELATION_ID = 2;
+    private static final int AERON_SESSION_ID = 3;
+    private static final long RECORDING_ID = 4;
 
     private final ReplayQuery replayQuery = mock(ReplayQuery.class);
     private final Subscription subscription = mock(Subscription.class);
@@ -98,6 +109,8 @@ public class ReplayerTest extends AbstractLogTest
     private final AtomicCounter bytesInBufferCounter = mock(AtomicCounter.class);
     private final AtomicCounter currentReplayCounter = mock(AtomicCounter.class);
 
+    private final UnsafeBuffer resendRequestBuffer = new UnsafeBuffer(new byte[BIG_BUFFER_LENGTH]);
+
     private Replayer replayer;
     private boolean sendsStartReplay = true;
 
@@ -112,11 +125,17 @@ public class ReplayerTest extends AbstractLogTest
         when(replayQuery.query(anyLong(), anyInt(), anyInt(), anyInt(), anyInt(), any(), messageTracker.capture()))
             .thenReturn(replayOperation);
         when(replayOperation.pollReplay()).thenReturn(true);
+        when(replayOperation.headerOffsets(anyLong())).thenReturn(NO_HEADER_OFFSETS);
         when(senderSequenceNumbers.bytesInBufferCounter(anyLong())).thenReturn(bytesInBufferCounter);
 
         setReplayedMessages(1);
 
-        replayer = new Replayer(
+        replayer = newReplayer(null);
+    }
+
+    private Replayer newReplayer(final ReplayIndexBarrier outboundIndexBarrier)
+    {
+        return new Replayer(
             replayQuery,
             publication,
             claim,
@@ -138,7 +157,8 @@ public class ReplayerTest extends AbstractLogTest
             DEFAULT_MAX_CONCURRENT_SESSION_REPLAYS,
             clock,
             FixPProtocolType.ILINK_3,
-            mock(EngineConfiguration.class));
+            mock(EngineConfiguration.class),
+            outboundIndexBarrier);
     }
 
     private void setReplayedMessages(final int replayedMessages)
@@ -161,6 +181,37 @@ public class ReplayerTest extends AbstractLogTest
         verifyPublicationOnlyPayloadQueried();
     }
 
+    @Test
+    public void shouldReplayOnceOutboundIndexReachesPositionRecordedWhenResendRequestReceived()
+    {
+        final UnsafeBuffer positionBuffer = new UnsafeBuffer(new byte[2 * SECTOR_SIZE]);
+        final IndexedPositionWriter positionWriter = new IndexedPositionWriter(
+            positionBuffer, errorHandler, 0, "IndexedPosition", null, DEFAULT_INDEX_CHECKSUM_ENABLED);
+        final CountersManager counters = new CountersManager(
+            new UnsafeBuffer(new byte[2 * METADATA_LENGTH]), new UnsafeBuffer(new byte[2 * COUNTER_LENGTH]));
+        final int recordingPositionId = counters.allocate(
+            "rec-pos", RECORDING_POSITION_TYPE_ID, keyBuffer -> keyBuffer.putLong(0, RECORDING_ID));
+        replayer = newReplayer(new ReplayIndexBarrier(positionBuffer, counters));
+
+        final int length = bufferHasValidResendRequest();
+
+        counters.setCounterValue(recordingPositionId, 1024);
+        positionWriter.indexedUpTo(AERON_SESSION_ID, RECORDING_ID, 512);
+        onValidResendRequestFragment(length, ABORT);
+
+        // Messages keep being sent whilst the resend request is pending, so the index never catches up to the
+        // recording, but it does reach the position recorded when the request was received.
+        counters.setCounterValue(recordingPositionId, 2048);
+        positionWriter.indexedUpTo(AERON_SESSION_ID, RECORDING_ID, 768);
+        onValidResendRequestFragment(length, ABORT);
+        verifyNoInteractions(replayQuery);
+
+        counters.setCounterValue(recordingPositionId, 4096);
+        positionWriter.indexedUpTo(AERON_SESSION_ID, RECORDING_ID, 1024);
+        onValidResendRequestFragment(length, COMMIT);
+        verifyQueriedService(END_SEQ_NO);
+    }
+
     @Test
     public void shouldPublishMessagesWithSetPossDupFlag()
     {
@@ -174,6 +225,7 @@ public class ReplayerTest extends AbstractLogTest
         onFragment(srcLength);
 
         assertHasResentWithPossDupFlag(srcLength, times(2));
+        assertHasCorrectChecksum();
 
         replayer.doWork();
         replayer.doWork();
@@ -581,6 +633,7 @@ public class ReplayerTest extends AbstractLogTest
                 sequenceEqualsAscii("8=FIX.4.4\0019=86\001", afterOffset));
 
             assertEndsWithValidChecksum(afterOffset);
+            assertHasCorrectChecksum();
 
             return true;
         });
@@ -704,6 +757,16 @@ public class ReplayerTest extends AbstractLogTest
         assertTrue(message, matcher.find());
     }
 
+    private void assertHasCorrectChecksum()
+    {
+        final String result = resultAsciiBuffer.getAscii(0, resultAsciiBuffer.capacity());
+        final int messageStart = result.indexOf("8=FIX");
+        final int checksumStart = result.indexOf("\00110=", messageStart) + 1;
+        final int checksum = resultAsciiBuffer.computeChecksum(messageStart, checksumStart);
+        final String checksumField = result.substring(checksumStart, checksumStart + "10=000\001".length());
+        assertEquals(result, String.format("10=%03d\001", checksum), checksumField);
+    }
+
     private void hasNotOverwrittenSeperatorChar()
     {
         final String lengthSection = resultAsciiBuffer.getAscii(offset + 11, 11);
@@ -765,6 +828,30 @@ public class ReplayerTest extends AbstractLogTest
             containsString("52=" + DATE_TIME_STR + '\001'));
     }
 
+    private int bufferHasValidResendRequest()
+    {
+        final long result = bufferHasResendRequest(END_SEQ_NO);
+        final int bodyLength = Encoder.length(result);
+        final ValidResendRequestEncoder validResendRequest = new ValidResendRequestEncoder();
+        validResendRequest
+            .wrapAndApplyHeader(resendRequestBuffer, 0, new MessageHeaderEncoder())
+            .session(SESSION_ID)
+            .connection(CONNECTION_ID)
+            .beginSequenceNumber(BEGIN_SEQ_NO)
+            .endSequenceNumber(END_SEQ_NO)
+            .sequenceIndex(SEQUENCE_INDEX)
+            .correlationId(CORRELATION_ID)
+            .putBody(buffer, Encoder.offset(result), bodyLength);
+
+        return MessageHeaderEncoder.ENCODED_LENGTH + validResendRequest.encodedLength();
+    }
+
+    private void onValidResendRequestFragment(final int length, final Action expectedAction)
+    {
+        setupClaim(START_REPLAY_LENGTH);
+        assertEquals(expectedAction, replayer.onFragment(resendRequestBuffer, 0, length, fragmentHeader));
+    }
+
     private void onRequestResendMessage(final long result, final int endSeqNo)
     {
         onRequestResendMessageWithSession(result, Action.COMMIT, SESSION_ID, CONNECTION_ID, BEGIN_SEQ_NO, endSeqNo);
@@ -40,6 +40,7 @@ import org.mockito.Mockito;
 import uk.co.real_logic.artio.FileSystemCorruptionException;
 import uk.co.real_logic.artio.dictionary.SessionConstants;
 import uk.co.real_logic.artio.engine.MappedFile;
+import uk.co.real_logic.artio.engine.SectorJournal;
 import uk.co.real_logic.artio.engine.SequenceNumberExtractor;
 import uk.co.real_logic.artio.engine.framer.FakeEpochClock;
 import uk.co.real_logic.artio.messages.FixPProtocolType;
@@ -352,6 +353,29 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         verify(errorHandler, times(3), IllegalStateException.class);
     }
 
+    /**
+     * Simulate scenario that you've crashed halfway through writing journaled sectors into the index file.
+     */
+    @Test
+    public void shouldRecoverSectorsFromJournal()
+    {
+        indexFixMessage();
+
+        writer.close();
+
+        try (MappedFile mappedFile = newIndexFile();
+            SectorJournal journal = new SectorJournal(journalFile(INDEX_FILE_PATH)))
+        {
+            journal.add(mappedFile.buffer(), 0);
+            journal.commit();
+        }
+
+        corruptIndexFile(SEQUENCE_NUMBER_OFFSET, SECTOR_SIZE / 2);
+
+        final SequenceNumberIndexReader newReader = newInstanceAfterRestart();
+        assertLastKnownSequenceNumberIs(SESSION_ID, SEQUENCE_NUMBER, newReader);
+    }
+
     private void corruptIndexFile(final int from, final int length)
     {
         try (MappedFile mappedFile = newIndexFile())
@@ -436,6 +460,43 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         assertLastKnownSequenceNumberIs(SESSION_ID_2, 0);
     }
 
+    @Test
+    public void shouldGrowIndexWhenItRunsOutOfSpace()
+    {
+        writer.close();
+        deleteFiles();
+
+        final int sessionCount = BUFFER_SIZE / RECORD_SIZE;
+        final SequenceNumberIndexBuffer indexBuffer = new SequenceNumberIndexBuffer(newBuffer());
+        writer = newGrowableWriter(indexBuffer);
+        reader = new SequenceNumberIndexReader(indexBuffer, errorHandler, recordingIdLookup, null);
+
+        for (int i = 0; i < sessionCount; i++)
+        {
+            bufferContainsExampleMessage(false, SESSION_ID + i, SEQUENCE_NUMBER + i, SEQUENCE_INDEX);
+            indexRecord();
+        }
+
+        assertThat(indexBuffer.buffer().capacity(), Matchers.greaterThan(BUFFER_SIZE));
+        for (int i = 0; i < sessionCount; i++)
+        {
+            assertLastKnownSequenceNumberIs(SESSION_ID + i, SEQUENCE_NUMBER + i);
+        }
+
+        writer.close();
+
+        final SequenceNumberIndexBuffer restartedIndexBuffer = new SequenceNumberIndexBuffer(newBuffer());
+        writer = newGrowableWriter(restartedIndexBuffer);
+        final SequenceNumberIndexReader restartedReader = new SequenceNumberIndexReader(
+            restartedIndexBuffer, errorHandler, recordingIdLookup, null);
+
+        assertThat(new File(INDEX_FILE_PATH).length(), Matchers.greaterThan((long)BUFFER_SIZE));
+        for (int i = 0; i < sessionCount; i++)
+        {
+            assertLastKnownSequenceNumberIs(SESSION_ID + i, SEQUENCE_NUMBER + i, restartedReader);
+        }
+    }
+
     private void resetSequenceNumber(final long sessionId)
     {
         final long position = gatewayPublication.saveResetSequenceNumber(sessionId);
@@ -459,6 +520,17 @@ public class SequenceNumberIndexTest extends AbstractLogTest
             FixPProtocolType.ILINK_3, true, DEFAULT_INDEX_CHECKSUM_ENABLED, true);
     }
 
+    private SequenceNumberIndexWriter newGrowableWriter(final SequenceNumberIndexBuffer indexBuffer)
+    {
+        final MappedFile indexFile = newIndexFile();
+        return new SequenceNumberIndexWriter(new SequenceNumberExtractor(),
+            indexBuffer, indexFile, errorHandler, STREAM_ID, recordingIdLookup,
+            DEFAULT_INDEX_FILE_STATE_FLUSH_TIMEOUT_IN_MS, clock, null,
+            new Long2LongHashMap(UNK_SESSION),
+            FixPProtocolType.ILINK_3, true, DEFAULT_INDEX_CHECKSUM_ENABLED, true,
+            BUFFER_SIZE / 4, 4 * BUFFER_SIZE);
+    }
+
     private MappedFile newIndexFile()
     {
         return MappedFile.map(INDEX_FILE_PATH, BUFFER_SIZE);
@@ -545,5 +617,6 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         deleteIfExists(new File(INDEX_FILE_PATH));
         deleteIfExists(writableFile(INDEX_FILE_PATH));
         deleteIfExists(passingFile(INDEX_FILE_PATH));
+        deleteIfExists(journalFile(INDEX_FILE_PATH));
     }
 }
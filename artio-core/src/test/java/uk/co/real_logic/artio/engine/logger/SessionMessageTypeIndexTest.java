@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongHashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_LOG_FILE_DIR;
+import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_OUTBOUND_LIBRARY_STREAM;
+import static uk.co.real_logic.artio.util.MessageTypeEncoding.packMessageType;
+
+public class SessionMessageTypeIndexTest
+{
+    private static final int REC_ID = 1;
+    private static final long BLOCK_GAP = 1024;
+    private static final long MB = 1024 * 1024;
+    private static final int LENGTH = 128;
+
+    private static final long SESSION_1 = 1;
+    private static final long SESSION_2 = 2;
+    private static final long SESSION_3 = 3;
+    private static final long NEW_ORDER_SINGLE = packMessageType("D");
+    private static final long EXECUTION_REPORT = packMessageType("8");
+
+    private final ErrorHandler errorHandler = spy(new ErrorHandler()
+    {
+        public void onError(final Throwable throwable)
+        {
+            throwable.printStackTrace();
+        }
+    });
+
+    private final SessionMessageTypeIndexReader reader = new SessionMessageTypeIndexReader(
+        DEFAULT_LOG_FILE_DIR, DEFAULT_OUTBOUND_LIBRARY_STREAM);
+    private final IndexQuery query = new IndexQuery();
+
+    private SessionMessageTypeIndexWriter writer;
+
+    @After
+    public void teardown()
+    {
+        verifyNoInteractions(errorHandler);
+        Exceptions.closeAll(writer);
+    }
+
+    @Before
+    public void setup()
+    {
+        final File logFileDir = new File(DEFAULT_LOG_FILE_DIR);
+        if (logFileDir.exists())
+        {
+            IoUtil.delete(logFileDir, false);
+        }
+        assertTrue(logFileDir.mkdirs());
+
+        newWriter();
+
+        onMessage(SESSION_1, NEW_ORDER_SINGLE, 0);
+        onMessage(SESSION_1, NEW_ORDER_SINGLE, LENGTH);
+        onMessage(SESSION_2, NEW_ORDER_SINGLE, MB);
+        onMessage(SESSION_1, EXECUTION_REPORT, 2 * MB);
+    }
+
+    private void newWriter()
+    {
+        writer = new SessionMessageTypeIndexWriter(
+            DEFAULT_LOG_FILE_DIR,
+            DEFAULT_OUTBOUND_LIBRARY_STREAM,
+            BLOCK_GAP,
+            errorHandler);
+    }
+
+    private void onMessage(final long sessionId, final long messageType, final long startPosition)
+    {
+        writer.onMessage(REC_ID, sessionId, messageType, startPosition, startPosition + LENGTH);
+        writer.doWork();
+    }
+
+    @Test
+    public void shouldCoalesceMessagesOfSessionIntoBlocks()
+    {
+        writer.close();
+        query.sessionIds(sessionIds(SESSION_1));
+
+        assertRanges(0, 2 * LENGTH, 2 * MB, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldFilterBySessionAndMessageType()
+    {
+        writer.close();
+        query.sessionIds(sessionIds(SESSION_1));
+        query.messageTypes(messageTypes(NEW_ORDER_SINGLE));
+
+        assertRanges(0, 2 * LENGTH, 2 * MB + LENGTH, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldScanUnindexedEndOfRecording()
+    {
+        // not yet written out to the index file
+        writer.onMessage(REC_ID, SESSION_2, NEW_ORDER_SINGLE, 3 * MB, 3 * MB + LENGTH);
+        query.sessionIds(sessionIds(SESSION_2));
+
+        assertRanges(MB, MB + LENGTH, 2 * MB + LENGTH, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldScanUnindexedGapAfterReload()
+    {
+        writer.close();
+        newWriter();
+
+        onMessage(SESSION_3, NEW_ORDER_SINGLE, 4 * MB);
+        writer.close();
+
+        query.sessionIds(sessionIds(SESSION_2));
+
+        assertRanges(MB, MB + LENGTH, 2 * MB + LENGTH, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldExtendBlockWithContinuedFragmentsAfterSweep()
+    {
+        // sweeps whilst the message is still being continued
+        onMessage(SESSION_3, NEW_ORDER_SINGLE, 3 * MB);
+        writer.onContinuedFragment(3 * MB + 2 * LENGTH);
+        writer.doWork();
+
+        onMessage(SESSION_2, NEW_ORDER_SINGLE, 4 * MB);
+        writer.close();
+
+        query.sessionIds(sessionIds(SESSION_3));
+
+        assertRanges(3 * MB, 3 * MB + 2 * LENGTH, 4 * MB + LENGTH, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldNotFindRecordingsWithoutAnIndex()
+    {
+        writer.close();
+        query.sessionIds(sessionIds(SESSION_1));
+
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges = new Long2ObjectHashMap<>();
+        assertTrue(reader.findPositionRanges(query, recordingIdToPositionRanges));
+        assertFalse(recordingIdToPositionRanges.containsKey(REC_ID + 1));
+    }
+
+    private void assertRanges(final long... positions)
+    {
+        final Long2ObjectHashMap<List<PositionRange>> recordingIdToPositionRanges = new Long2ObjectHashMap<>();
+        assertTrue(reader.findPositionRanges(query, recordingIdToPositionRanges));
+
+        final List<PositionRange> positionRanges = recordingIdToPositionRanges.get(REC_ID);
+        assertEquals(positionRanges.toString(), positions.length / 2, positionRanges.size());
+        for (int i = 0; i < positionRanges.size(); i++)
+        {
+            final PositionRange positionRange = positionRanges.get(i);
+            assertEquals(positionRanges.toString(), positions[2 * i], positionRange.startPosition());
+            assertEquals(positionRanges.toString(), positions[2 * i + 1], positionRange.endPosition());
+        }
+    }
+
+    private static LongHashSet sessionIds(final long... sessionIds)
+    {
+        final LongHashSet set = new LongHashSet();
+        for (final long sessionId : sessionIds)
+        {
+            set.add(sessionId);
+        }
+        return set;
+    }
+
+    private static LongHashSet messageTypes(final long... messageTypes)
+    {
+        return sessionIds(messageTypes);
+    }
+}
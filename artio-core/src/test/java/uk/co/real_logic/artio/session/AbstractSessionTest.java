@@ -55,6 +55,7 @@ import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_LON
 import static uk.co.real_logic.artio.fields.RejectReason.*;
 import static uk.co.real_logic.artio.messages.CancelOnDisconnectOption.DO_NOT_CANCEL_ON_DISCONNECT_OR_LOGOUT;
 import static uk.co.real_logic.artio.messages.DisconnectReason.*;
+import static uk.co.real_logic.artio.messages.MessageStatus.OK;
 import static uk.co.real_logic.artio.messages.SessionState.*;
 import static uk.co.real_logic.artio.session.DirectSessionProxy.NO_LAST_MSG_SEQ_NUM_PROCESSED;
 import static uk.co.real_logic.artio.session.Session.TEST_REQ_ID;
@@ -1003,6 +1004,81 @@ public abstract class AbstractSessionTest
         assertThat(secondMessage, containsString(":01.000\001"));
     }
 
+    @Test
+    public void shouldSendMessageTemplatesWithNewSequenceNumbersAndSendingTimes()
+    {
+        givenActive();
+
+        testRequest.reset();
+        testRequest.testReqID("testReqID");
+        session().prepare(testRequest.header());
+        final MessageTemplate template = new MessageTemplate(1024).encode(testRequest);
+
+        final int sentSeqNum = session().lastSentMsgSeqNum() + 1;
+        fakeClock.advanceMilliSeconds(111);
+        session().trySend(template);
+        final String message = getSentMessage();
+
+        assertEquals(sentSeqNum, session().lastSentMsgSeqNum());
+        assertThat(message, containsString("\00134=" + sentSeqNum + "\001"));
+        assertThat(message, containsString(":00.111\001"));
+    }
+
+    @Test
+    public void shouldCommitClaimedMessagesWithNewSequenceNumbers()
+    {
+        givenActive();
+        when(mockPublication.claimMessage(anyInt(), any())).thenReturn(POSITION);
+        when(mockPublication.commitMessage(
+            any(), eq(POSITION), any(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt()))
+            .thenReturn(POSITION);
+
+        final int sentSeqNum = session().lastSentMsgSeqNum() + 1;
+        assertEquals(POSITION, session().tryClaim(1024));
+        testRequest.reset();
+        testRequest.testReqID("testReqID");
+        assertEquals(POSITION, session().commit(testRequest));
+
+        assertEquals(sentSeqNum, session().lastSentMsgSeqNum());
+        verify(mockPublication).commitMessage(
+            any(), eq(POSITION), eq(testRequest), anyInt(), anyLong(), anyInt(), eq(CONNECTION_ID), eq(OK),
+            eq(sentSeqNum));
+    }
+
+    @Test
+    public void shouldNotChangeSequenceNumbersWhenClaimsAreAborted()
+    {
+        givenActive();
+        when(mockPublication.claimMessage(anyInt(), any())).thenReturn(POSITION);
+
+        final int lastSentMsgSeqNum = session().lastSentMsgSeqNum();
+        assertEquals(POSITION, session().tryClaim(1024));
+        session().abort();
+
+        assertEquals(lastSentMsgSeqNum, session().lastSentMsgSeqNum());
+        verify(mockPublication).abortMessage(any());
+        verify(mockPublication, never()).commitMessage(
+            any(), anyLong(), any(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotCommitWithoutAClaim()
+    {
+        givenActive();
+
+        session().commit(testRequest);
+    }
+
+    @Test
+    public void shouldNotRecordBackPressuredClaims()
+    {
+        givenActive();
+        when(mockPublication.claimMessage(anyInt(), any())).thenReturn(BACK_PRESSURED, POSITION);
+
+        assertEquals(BACK_PRESSURED, session().tryClaim(1024));
+        assertEquals(POSITION, session().tryClaim(1024));
+    }
+
     // See http://www.fixtradingcommunity.org/pg/discussions/topicpost/164720/fix-4x-sessionlevel-protocol-tests
     // 1d_InvalidLogonBadSendingTime.def
     @Test
@@ -29,6 +29,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static uk.co.real_logic.artio.dictionary.SessionConstants.SENDER_COMP_ID;
@@ -67,6 +69,27 @@ public class SenderAndTargetSessionIdStrategyTest
             }));
     }
 
+    @Test
+    public void acceptingALogonHashesAndMatchesTheInitiatorsKey()
+    {
+        IDS.forEach((sender) ->
+            IDS.forEach((target) ->
+            {
+                final CompositeKey initiatorKey = strategy.onInitiateLogon(target, null, null, sender, null, null);
+                final SessionHeaderDecoder header = mock(SessionHeaderDecoder.class);
+
+                when(header.senderCompID()).thenReturn(sender.toCharArray());
+                when(header.senderCompIDLength()).thenReturn(sender.length());
+                when(header.targetCompID()).thenReturn(target.toCharArray());
+                when(header.targetCompIDLength()).thenReturn(target.length());
+
+                assertEquals(initiatorKey.hashCode(), strategy.onAcceptLogonHashCode(header));
+                assertTrue(strategy.matchesAcceptLogon(initiatorKey, header));
+                assertFalse(strategy.matchesAcceptLogon(
+                    strategy.onInitiateLogon(sender, null, null, target + "X", null, null), header));
+            }));
+    }
+
     @Test
     public void savesAndLoadsACompositeKey()
     {
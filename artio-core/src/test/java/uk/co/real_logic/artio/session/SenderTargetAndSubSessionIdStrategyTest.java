@@ -28,6 +28,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static uk.co.real_logic.artio.dictionary.SessionConstants.*;
@@ -92,6 +93,8 @@ public class SenderTargetAndSubSessionIdStrategyTest
                     final Object second = strategy.onAcceptLogon(headerDecoder);
                     assertEquals(first, second);
                     assertEquals(first.hashCode(), second.hashCode());
+                    assertEquals(first.hashCode(), strategy.onAcceptLogonHashCode(headerDecoder));
+                    assertTrue(strategy.matchesAcceptLogon((CompositeKey)first, headerDecoder));
                 })));
     }
 
@@ -24,10 +24,12 @@ import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.fields.RejectReason;
 import uk.co.real_logic.artio.library.OnMessageInfo;
 import uk.co.real_logic.artio.messages.SessionState;
+import uk.co.real_logic.artio.protocol.HeaderSummary;
 import uk.co.real_logic.artio.validation.AuthenticationStrategy;
 import uk.co.real_logic.artio.validation.MessageValidationStrategy;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.Constants.TARGET_COMP_ID;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
@@ -99,6 +101,25 @@ public class SessionParserTest
         verify(mockSession, never()).onInvalidMessageType(anyInt(), any(), anyInt(), eq(POSITION));
     }
 
+    @Test
+    public void shouldUseSendingTimeFromHeaderSummary()
+    {
+        final UnsafeBuffer buffer = bufferOf(
+            "8=FIX.4.2\0019=146\00135=D\00134=4\00149=abc\001" +
+            "52=20090323-15:40:29\00156=das\001115=XYZ\00111=NF 0542/03232009\00154=1\00138=100\001" +
+            "55=CVS\00140=1\00159=0\00147=A\00160=20090323-15:40:29\00121=1\001207=N\00110=195\001");
+        final long sendingTimeInMs = 1_000_123L;
+        final HeaderSummary headerSummary = new HeaderSummary()
+            .present(true)
+            .msgSeqNum(4)
+            .sendingTimeInNs(MILLISECONDS.toNanos(sendingTimeInMs) + 456);
+
+        parser.onMessage(buffer, 0, buffer.capacity(), 'D', POSITION, headerSummary);
+
+        verify(mockSession).onMessage(
+            eq(4), any(), anyInt(), eq(sendingTimeInMs), anyLong(), eq(false), eq(false), eq(POSITION));
+    }
+
     private UnsafeBuffer bufferOf(final String str)
     {
         return new UnsafeBuffer(str.getBytes(US_ASCII));
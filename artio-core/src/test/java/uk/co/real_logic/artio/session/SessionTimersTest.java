@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class SessionTimersTest
+{
+    private static final long START_TIME_IN_NS = MILLISECONDS.toNanos(1_000);
+    private static final long SOON_IN_NS = START_TIME_IN_NS + MILLISECONDS.toNanos(10);
+    private static final long LATER_IN_NS = START_TIME_IN_NS + MILLISECONDS.toNanos(5_000);
+
+    private final InternalSession soonSession = mock(InternalSession.class);
+    private final InternalSession laterSession = mock(InternalSession.class);
+    private final SessionTimers sessionTimers = new SessionTimers(START_TIME_IN_NS);
+
+    @Before
+    public void setUp()
+    {
+        when(soonSession.nextPollTimeInNs()).thenReturn(SOON_IN_NS);
+        when(laterSession.nextPollTimeInNs()).thenReturn(LATER_IN_NS);
+
+        sessionTimers.sessions(new InternalSession[]{ soonSession, laterSession });
+
+        // Newly added sessions are polled straight away
+        sessionTimers.poll(START_TIME_IN_NS);
+        verify(soonSession).poll(START_TIME_IN_NS);
+        verify(laterSession).poll(START_TIME_IN_NS);
+    }
+
+    @Test
+    public void shouldOnlyPollSessionsWhoseDeadlineHasExpired()
+    {
+        sessionTimers.poll(SOON_IN_NS - 1);
+        verifyPolledOnce();
+
+        sessionTimers.poll(SOON_IN_NS);
+        verify(soonSession).poll(SOON_IN_NS);
+        verify(laterSession, never()).poll(SOON_IN_NS);
+
+        sessionTimers.poll(LATER_IN_NS);
+        verify(laterSession).poll(LATER_IN_NS);
+    }
+
+    @Test
+    public void shouldKeepPollingSessionsWhoseDeadlineHasPassed()
+    {
+        when(soonSession.nextPollTimeInNs()).thenReturn(START_TIME_IN_NS);
+
+        sessionTimers.poll(SOON_IN_NS);
+        sessionTimers.poll(SOON_IN_NS + 1);
+
+        verify(soonSession).poll(SOON_IN_NS);
+        verify(soonSession).poll(SOON_IN_NS + 1);
+    }
+
+    @Test
+    public void shouldPollWokenSessionsStraightAway()
+    {
+        sessionTimers.wake(laterSession);
+
+        sessionTimers.poll(START_TIME_IN_NS + 1);
+
+        verify(laterSession).poll(START_TIME_IN_NS + 1);
+        verify(soonSession, never()).poll(START_TIME_IN_NS + 1);
+    }
+
+    @Test
+    public void shouldNotPollSessionsWithoutDeadlineUntilWoken()
+    {
+        when(laterSession.nextPollTimeInNs()).thenReturn(Session.NO_POLL_TIME);
+        sessionTimers.wake(laterSession);
+        sessionTimers.poll(START_TIME_IN_NS + 1);
+
+        sessionTimers.poll(LATER_IN_NS);
+        verify(laterSession, never()).poll(LATER_IN_NS);
+
+        sessionTimers.wake(laterSession);
+        sessionTimers.poll(LATER_IN_NS + 1);
+        verify(laterSession).poll(LATER_IN_NS + 1);
+    }
+
+    @Test
+    public void shouldStopPollingRemovedSessions()
+    {
+        sessionTimers.sessions(new InternalSession[]{ laterSession });
+
+        sessionTimers.poll(SOON_IN_NS);
+        sessionTimers.poll(LATER_IN_NS);
+
+        verify(soonSession, times(1)).poll(anyLong());
+        verify(laterSession).poll(LATER_IN_NS);
+    }
+
+    private void verifyPolledOnce()
+    {
+        verify(soonSession, times(1)).poll(anyLong());
+        verify(laterSession, times(1)).poll(anyLong());
+    }
+}
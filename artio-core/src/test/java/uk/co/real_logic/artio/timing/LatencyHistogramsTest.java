@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.EpochNanoClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.co.real_logic.artio.timing.LatencyHistograms.*;
+import static uk.co.real_logic.artio.timing.LatencyStage.FRAMER_PUBLISH;
+import static uk.co.real_logic.artio.timing.LatencyStage.TCP_READ;
+
+public class LatencyHistogramsTest
+{
+    private static final long CONNECTION_ID = 1;
+    private static final long SESSION_ID = 2;
+    private static final int RECORD_COUNT = 2;
+
+    private final EpochNanoClock clock = mock(EpochNanoClock.class);
+
+    private File file;
+    private LatencyHistograms histograms;
+    private LatencyHistogramsReader reader;
+
+    private long readConnectionId;
+    private long readSessionId;
+    private LatencyStage readStage;
+    private Histogram readHistogram;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = Files.createTempFile("latency-histograms", "tmp").toFile();
+        histograms = new LatencyHistograms(file, RECORD_COUNT, clock);
+        reader = new LatencyHistogramsReader(file);
+    }
+
+    @After
+    public void tearDown()
+    {
+        try
+        {
+            CloseHelper.closeAll(reader, histograms);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldRecordAndReadAHistogram()
+    {
+        final SessionLatencyHistograms session = histograms.allocate(CONNECTION_ID, SESSION_ID);
+        assertTrue(session.isEnabled());
+
+        when(clock.nanoTime()).thenReturn(150L, 1_200L);
+        assertEquals(150L, session.recordSince(TCP_READ, 100L));
+        assertEquals(1_200L, session.recordSince(TCP_READ, 200L));
+
+        assertEquals(1, read());
+        assertEquals(CONNECTION_ID, readConnectionId);
+        assertEquals(SESSION_ID, readSessionId);
+        assertEquals(TCP_READ, readStage);
+        assertEquals(2, readHistogram.getTotalCount());
+        assertEquals(50L, readHistogram.getMinValue(), 50L * 0.125);
+        assertEquals(1_000L, readHistogram.getMaxValue(), 1_000L * 0.125);
+    }
+
+    @Test
+    public void shouldReadEachStageSeparately()
+    {
+        final SessionLatencyHistograms session = histograms.allocate(CONNECTION_ID, SESSION_ID);
+
+        session.recordValue(TCP_READ, 10);
+        session.recordValue(FRAMER_PUBLISH, 20);
+        session.recordValue(FRAMER_PUBLISH, 30);
+
+        assertEquals(2, read());
+        assertEquals(FRAMER_PUBLISH, readStage);
+        assertEquals(2, readHistogram.getTotalCount());
+    }
+
+    @Test
+    public void shouldUpdateSessionIdOnceLoggedOn()
+    {
+        final SessionLatencyHistograms session = histograms.allocate(CONNECTION_ID, 0);
+        session.recordValue(TCP_READ, 10);
+
+        session.sessionId(SESSION_ID);
+
+        assertEquals(1, read());
+        assertEquals(SESSION_ID, readSessionId);
+    }
+
+    @Test
+    public void shouldIgnoreNegativeDurations()
+    {
+        final SessionLatencyHistograms session = histograms.allocate(CONNECTION_ID, SESSION_ID);
+
+        session.recordValue(TCP_READ, -1);
+
+        assertEquals(0, read());
+    }
+
+    @Test
+    public void shouldReuseRecordsOnceFreed()
+    {
+        final SessionLatencyHistograms first = histograms.allocate(CONNECTION_ID, SESSION_ID);
+        final SessionLatencyHistograms second = histograms.allocate(CONNECTION_ID + 1, SESSION_ID + 1);
+        first.recordValue(TCP_READ, 10);
+
+        assertFalse(histograms.allocate(CONNECTION_ID + 2, SESSION_ID + 2).isEnabled());
+
+        first.close();
+        assertFalse(first.isEnabled());
+        assertEquals(0, read());
+
+        final SessionLatencyHistograms third = histograms.allocate(CONNECTION_ID + 2, SESSION_ID + 2);
+        assertTrue(third.isEnabled());
+        third.recordValue(TCP_READ, 10);
+        second.recordValue(TCP_READ, 10);
+
+        assertEquals(2, read());
+        assertEquals(1, readHistogram.getTotalCount());
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled()
+    {
+        final SessionLatencyHistograms session = LatencyHistograms.DISABLED.allocate(CONNECTION_ID, SESSION_ID);
+
+        assertSame(SessionLatencyHistograms.DISABLED, session);
+        assertEquals(0, session.recordSince(TCP_READ, 100L));
+        session.recordValue(TCP_READ, 10);
+        session.close();
+    }
+
+    @Test
+    public void shouldMapValuesIntoBucketsThatContainThem()
+    {
+        for (long value = 0; value < 1_000_000; value += 7)
+        {
+            assertBucketContains(value);
+        }
+
+        assertBucketContains(Long.MAX_VALUE >> 30);
+        assertEquals(BUCKET_COUNT - 1, bucketIndex(Long.MAX_VALUE));
+    }
+
+    private void assertBucketContains(final long value)
+    {
+        final int bucket = bucketIndex(value);
+        assertTrue(value + " below " + bucket, lowestEquivalentValue(bucket) <= value);
+        assertTrue(value + " above " + bucket, highestEquivalentValue(bucket) >= value);
+    }
+
+    private int read()
+    {
+        return reader.read((connectionId, sessionId, stage, histogram) ->
+        {
+            readConnectionId = connectionId;
+            readSessionId = sessionId;
+            readStage = stage;
+            readHistogram = histogram;
+        });
+    }
+}
@@ -45,7 +45,8 @@ public final class ReplayQueryChecker
             Throwable::printStackTrace,
             -1,
             DEFAULT_REPLAY_INDEX_RECORD_CAPACITY,
-            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY);
+            DEFAULT_REPLAY_INDEX_SEGMENT_CAPACITY,
+            null);
 
         query.query(
             sessionId,
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2023 Real Logic Limited.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+/**
+ * Compares the word at a time scanning and checksumming in {@link MutableAsciiBuffer} with the
+ * byte at a time loops that it replaced, over a whole message, field by field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AsciiScanBenchmark
+{
+    @Param({ "NewOrderSingle", "ExecutionReport" })
+    public String message;
+
+    private MutableAsciiBuffer buffer;
+    private int length;
+
+    @Setup
+    public void setup()
+    {
+        final UnsafeBuffer data = "NewOrderSingle".equals(message) ?
+            TestData.NEW_ORDER_SINGLE : TestData.EXECUTION_REPORT;
+        length = data.capacity();
+        buffer = new MutableAsciiBuffer(new byte[length]);
+        buffer.putBytes(0, data, 0, length);
+    }
+
+    @Benchmark
+    public void scanFieldsSwar(final Blackhole bh)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = length;
+        int position = 0;
+        while (position < end)
+        {
+            final int equalsPosition = buffer.scan(position, end, '=');
+            final int separatorPosition = buffer.scan(equalsPosition + 1, end, SEPARATOR);
+            bh.consume(equalsPosition);
+            position = separatorPosition + 1;
+        }
+    }
+
+    @Benchmark
+    public void scanFieldsByteAtATime(final Blackhole bh)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int end = length;
+        int position = 0;
+        while (position < end)
+        {
+            final int equalsPosition = scanByteAtATime(buffer, position, end, (byte)'=');
+            final int separatorPosition = scanByteAtATime(buffer, equalsPosition + 1, end, SEPARATOR);
+            bh.consume(equalsPosition);
+            position = separatorPosition + 1;
+        }
+    }
+
+    @Benchmark
+    public int scanToEndSwar()
+    {
+        return buffer.scan(0, length, (byte)'\n');
+    }
+
+    @Benchmark
+    public int scanToEndByteAtATime()
+    {
+        return scanByteAtATime(buffer, 0, length, (byte)'\n');
+    }
+
+    @Benchmark
+    public int checksumSwar()
+    {
+        return buffer.computeChecksum(0, length);
+    }
+
+    @Benchmark
+    public int checksumByteAtATime()
+    {
+        return checksumByteAtATime(buffer, 0, length);
+    }
+
+    private static int scanByteAtATime(
+        final MutableAsciiBuffer buffer, final int startInclusive, final int endExclusive, final byte terminator)
+    {
+        for (int i = startInclusive; i < endExclusive; i++)
+        {
+            if (buffer.getByte(i) == terminator)
+            {
+                return i;
+            }
+        }
+
+        return UNKNOWN_INDEX;
+    }
+
+    private static int checksumByteAtATime(
+        final MutableAsciiBuffer buffer, final int startInclusive, final int endExclusive)
+    {
+        int total = 0;
+        for (int index = startInclusive; index < endExclusive; index++)
+        {
+            total += buffer.getByte(index);
+        }
+
+        return total % 256;
+    }
+}
@@ -31,4 +31,11 @@ public final class TestData
         ("8=FIX.4.4\0019=0103\00135=A\00149=ABC_DEFG01\00156=CCG\00134=10\001" +
         "52=20150514-15:57:31.336\00198=0\001108=10\001383=512\001553=username" +
         "\001554=password\00110=243\001").getBytes(StandardCharsets.US_ASCII));
+
+    public static final UnsafeBuffer EXECUTION_REPORT = new UnsafeBuffer(
+        ("8=FIX.4.2\0019=275\00135=8\00134=1052\00149=CCG\00152=20090323-15:40:35.123\00156=ABC_DEFG01\001" +
+        "1=ACCT-0042\0016=100.25\00111=NF 0542/03232009\00114=100\00117=EXEC-000000001052\00120=0\00122=8\001" +
+        "31=100.25\00132=100\00137=ORD-000000000891\00138=100\00139=2\00140=2\00144=100.25\00148=126650100\001" +
+        "54=1\00155=CVS\00159=0\00160=20090323-15:40:35.122\001150=F\001151=0\001207=N\00110=167\001")
+        .getBytes(StandardCharsets.US_ASCII));
 }
@@ -15,13 +15,21 @@
  */
 package uk.co.real_logic.artio.system_benchmarks;
 
+import org.HdrHistogram.Histogram;
 import uk.co.real_logic.artio.builder.TestRequestEncoder;
+import uk.co.real_logic.artio.timing.HistogramLogReader;
 
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
 
 import static uk.co.real_logic.artio.system_benchmarks.BenchmarkConfiguration.INITIATOR_ID;
+import static uk.co.real_logic.artio.system_benchmarks.BenchmarkConfiguration.MESSAGES_EXCHANGED;
 
+/**
+ * Logs on a large number of sessions and holds them all open, then measures the round trip time of test requests
+ * sent across them. This stresses how the engine polls its TCP connections, for example run the server with
+ * different values of <code>-Dfix.core.iteration.threshold</code> to compare against the default.
+ */
 public final class ManyConnectionsBenchmarkClient extends AbstractBenchmarkClient
 {
     public static void main(final String[] args) throws IOException
@@ -29,31 +37,77 @@ public final class ManyConnectionsBenchmarkClient extends AbstractBenchmarkClien
         new ManyConnectionsBenchmarkClient().runBenchmark();
     }
 
-    public static final int NUMBER_OF_CLIENTS = 10_000;
+    public static final int NUMBER_OF_CLIENTS = Integer.getInteger("fix.benchmark.num_clients", 10_000);
+
+    // Long enough that idle sessions aren't sent heartbeats or test requests during the benchmark.
+    private static final int HEARTBEAT_INTERVAL_IN_S = 3600;
+
+    private final SocketChannel[] socketChannels = new SocketChannel[NUMBER_OF_CLIENTS];
+    private final TestRequestEncoder[] testRequests = new TestRequestEncoder[NUMBER_OF_CLIENTS];
 
     public void runBenchmark() throws IOException
     {
-        for (int i = 0; i < NUMBER_OF_CLIENTS; i++)
+        try
         {
-            final String initiatorId = INITIATOR_ID + i;
-
-            try (SocketChannel socketChannel = open())
+            for (int i = 0; i < NUMBER_OF_CLIENTS; i++)
             {
-                logon(socketChannel, initiatorId, 10);
+                final String initiatorId = INITIATOR_ID + i;
 
-                final TestRequestEncoder testRequest = setupTestRequest(initiatorId);
-                testRequest.header().msgSeqNum(3);
+                final SocketChannel socketChannel = open();
+                socketChannels[i] = socketChannel;
+                logon(socketChannel, initiatorId, HEARTBEAT_INTERVAL_IN_S);
 
-                timestampEncoder.encode(System.currentTimeMillis());
+                final TestRequestEncoder testRequest = setupTestRequest(initiatorId);
+                testRequests[i] = testRequest;
+                exchangeMessage(socketChannel, testRequest, 3);
 
-                write(socketChannel, testRequest.encode(writeFlyweight, 0));
+                System.out.printf("Finished Client: %d%n", i + 1);
+            }
 
-                read(socketChannel);
+            parkAfterWarmup();
 
-                socketChannel.configureBlocking(true);
+            runTimedRuns();
+        }
+        finally
+        {
+            for (final SocketChannel socketChannel : socketChannels)
+            {
+                if (socketChannel != null)
+                {
+                    socketChannel.configureBlocking(true);
+                    socketChannel.close();
+                }
             }
+        }
+    }
+
+    private void runTimedRuns() throws IOException
+    {
+        final Histogram histogram = new Histogram(3);
 
-            System.out.printf("Finished Client: %d%n", i + 1);
+        for (int i = 0; i < MESSAGES_EXCHANGED; i++)
+        {
+            final int client = i % NUMBER_OF_CLIENTS;
+            final int seqNum = 4 + i / NUMBER_OF_CLIENTS;
+
+            final long sendingTime = System.nanoTime();
+            exchangeMessage(socketChannels[client], testRequests[client], seqNum);
+            histogram.recordValue(System.nanoTime() - sendingTime);
         }
+
+        HistogramLogReader.prettyPrint(
+            System.currentTimeMillis(), histogram, "Client in Micros", 1000);
+    }
+
+    private void exchangeMessage(
+        final SocketChannel socketChannel, final TestRequestEncoder testRequest, final int seqNum)
+        throws IOException
+    {
+        testRequest.header().msgSeqNum(seqNum);
+        timestampEncoder.encode(System.currentTimeMillis());
+
+        write(socketChannel, testRequest.encode(writeFlyweight, 0));
+
+        read(socketChannel);
     }
 }
@@ -22,11 +22,13 @@ import org.junit.Test;
 import uk.co.real_logic.artio.decoder.SessionHeaderDecoder;
 import uk.co.real_logic.artio.dictionary.FixDictionary;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.engine.FixEngine;
 import uk.co.real_logic.artio.engine.logger.FixMessageConsumer;
 import uk.co.real_logic.artio.engine.logger.FixMessagePredicate;
 import uk.co.real_logic.artio.engine.logger.FixMessagePredicates;
 import uk.co.real_logic.artio.library.LibraryConfiguration;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.LockSupport;
@@ -34,6 +36,8 @@ import java.util.function.Predicate;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
 import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
 import static uk.co.real_logic.artio.engine.logger.FixMessageConsumerValidator.validateFixMessageConsumer;
@@ -51,7 +55,11 @@ public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySyste
 
         mediaDriver = launchMediaDriver();
 
-        launchAcceptingEngine();
+        final EngineConfiguration acceptingConfig = acceptingConfig(port, ACCEPTOR_ID, INITIATOR_ID, nanoClock);
+        acceptingConfig.sessionMessageTypeIndexEnabled(true);
+        // Index every message so that parallel scans have plenty of boundaries to partition at
+        acceptingConfig.timeIndexReplayFlushIntervalInNs(1);
+        acceptingEngine = FixEngine.launch(acceptingConfig);
         initiatingEngine = launchInitiatingEngine(libraryAeronPort, nanoClock);
 
         final LibraryConfiguration acceptingLibraryConfig = acceptingLibraryConfig(acceptingHandler, nanoClock);
@@ -127,6 +135,124 @@ public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySyste
         canIndexScanArchive(false);
     }
 
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void canSessionMessageTypeIndexScanArchiveClosed()
+    {
+        canSessionMessageTypeIndexScanArchive(true);
+    }
+
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void canSessionMessageTypeIndexScanArchiveNotClosed()
+    {
+        canSessionMessageTypeIndexScanArchive(false);
+    }
+
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void canParallelScanArchiveClosed()
+    {
+        canParallelScanArchive(true, false);
+    }
+
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void canParallelScanArchiveNotClosed()
+    {
+        canParallelScanArchive(false, false);
+    }
+
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void canParallelScanArchiveWithoutTimeIndex()
+    {
+        canParallelScanArchive(true, true);
+    }
+
+    private void canParallelScanArchive(final boolean close, final boolean deleteTimeIndex)
+    {
+        acquireAcceptingSession();
+
+        for (int i = 0; i < 10; i++)
+        {
+            messagesCanBeExchanged(initiatingSession, initiatingOtfAcceptor, testReqId());
+
+            // large messages are fragmented, so can straddle partitions
+            final String testReqID = largeTestReqId();
+            sendTestRequest(testSystem, acceptingSession, testReqID);
+            assertReceivedSingleHeartbeat(testSystem, acceptingOtfAcceptor, testReqID);
+            acceptingOtfAcceptor.messages().clear();
+        }
+
+        if (close)
+        {
+            closeLibrariesAndEngines();
+        }
+
+        final EngineConfiguration configuration = acceptingEngine.configuration();
+        if (deleteTimeIndex)
+        {
+            // Without a time index each recording is too large to be buffered as a single partition
+            final File[] timeIndexFiles = new File(configuration.logFileDir()).listFiles(
+                (dir, name) -> name.startsWith("time-index-"));
+            assertThat(timeIndexFiles, arrayWithSize(greaterThan(0)));
+            for (final File timeIndexFile : timeIndexFiles)
+            {
+                assertTrue(timeIndexFile.delete());
+            }
+        }
+
+        final IntHashSet queryStreamIds = new IntHashSet();
+        queryStreamIds.add(configuration.outboundLibraryStream());
+        queryStreamIds.add(configuration.inboundLibraryStream());
+
+        final List<String> sequentialMessages = new ArrayList<>();
+        SystemTestUtil.getMessagesFromArchive(configuration, queryStreamIds,
+            (message, buffer, offset, length, header) ->
+            sequentialMessages.add(validateFixMessageConsumer(message, buffer, offset, length)),
+            null, false, false, 1, 1);
+
+        final List<String> parallelMessages = new ArrayList<>();
+        SystemTestUtil.getMessagesFromArchive(configuration, queryStreamIds,
+            (message, buffer, offset, length, header) ->
+            parallelMessages.add(validateFixMessageConsumer(message, buffer, offset, length)),
+            null, false, false, 3, 1);
+
+        assertThat(sequentialMessages, hasSize(greaterThan(40)));
+        assertEquals(sequentialMessages, parallelMessages);
+    }
+
+    private void canSessionMessageTypeIndexScanArchive(final boolean close)
+    {
+        acquireAcceptingSession();
+        final long sessionId = acceptingSession.id();
+
+        final String firstTestReqID = testReqId();
+        messagesCanBeExchanged(initiatingSession, initiatingOtfAcceptor, firstTestReqID);
+        final String secondTestReqID = testReqId();
+        messagesCanBeExchanged(initiatingSession, initiatingOtfAcceptor, secondTestReqID);
+
+        if (close)
+        {
+            closeLibrariesAndEngines();
+        }
+
+        final EngineConfiguration configuration = acceptingEngine.configuration();
+        final IntHashSet queryStreamIds = new IntHashSet();
+        queryStreamIds.add(configuration.outboundLibraryStream());
+
+        final List<String> messages = new ArrayList<>();
+        final FixMessageConsumer fixMessageConsumer =
+            (message, buffer, offset, length, header) ->
+            messages.add(validateFixMessageConsumer(message, buffer, offset, length));
+
+        final FixMessagePredicate predicate = sessionOf(sessionId).and(messageTypeOf("0"));
+
+        SystemTestUtil.getMessagesFromArchive(configuration, queryStreamIds,
+            FixMessagePredicates.filterBy(fixMessageConsumer, predicate),
+            null, false, true);
+
+        assertThat(messages.toString(), messages, contains(
+            containsString("\001112=" + firstTestReqID),
+            containsString("\001112=" + secondTestReqID)));
+    }
+
     private void canIndexScanArchive(final boolean close)
     {
         messagesCanBeExchanged(initiatingSession, initiatingOtfAcceptor, testReqId());
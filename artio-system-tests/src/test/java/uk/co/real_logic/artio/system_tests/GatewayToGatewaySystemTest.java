@@ -45,6 +45,7 @@ import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
@@ -117,6 +118,47 @@ public class GatewayToGatewaySystemTest extends AbstractGatewayToGatewaySystemTe
         messageTimingHandler.verifyConsecutiveSequenceNumbers(2);
     }
 
+    @Test(timeout = TEST_TIMEOUT_IN_MS)
+    public void messagesCanBeClaimedAndEncodedInPlace()
+    {
+        acquireAcceptingSession();
+
+        // Test request ids of different lengths change the number of digits in the body length
+        final int[] testReqIdLengths = {1, 64, 1024, 1, 64};
+        final ExampleMessageEncoder exampleMessage = new ExampleMessageEncoder();
+        int sentSeqNum = initiatingSession.lastSentMsgSeqNum();
+        String resentTestReqId = null;
+        for (final int testReqIdLength : testReqIdLengths)
+        {
+            final char[] testReqIdChars = new char[testReqIdLength];
+            Arrays.fill(testReqIdChars, 'A');
+            final String testReqId = new String(testReqIdChars);
+            exampleMessage.testReqID(testReqId);
+
+            testSystem.awaitSend(() -> initiatingSession.tryClaim(1200));
+            assertThat(initiatingSession.commit(exampleMessage), greaterThan(0L));
+            sentSeqNum++;
+
+            assertEquals(sentSeqNum, initiatingSession.lastSentMsgSeqNum());
+            testSystem.awaitMessageOf(
+                acceptingOtfAcceptor, EXAMPLE_MESSAGE_MESSAGE_AS_STR, msg -> msg.testReqId().equals(testReqId));
+            if (testReqIdLength == 1024)
+            {
+                resentTestReqId = testReqId;
+            }
+        }
+
+        testSystem.awaitSend(() -> initiatingSession.tryClaim(1200));
+        initiatingSession.abort();
+        assertEquals(sentSeqNum, initiatingSession.lastSentMsgSeqNum());
+        messagesCanBeExchanged();
+
+        final int resentSeqNum = sentSeqNum - 2;
+        acceptorSendsResendRequest(resentSeqNum);
+        final FixMessage resentMessage = assertMessageResent(resentSeqNum, EXAMPLE_MESSAGE_MESSAGE_AS_STR, false);
+        assertEquals(resentTestReqId, resentMessage.testReqId());
+    }
+
     @Theory
     public void shouldProcessResendRequests(final boolean testWithMetaData)
     {
@@ -612,12 +612,45 @@ public final class SystemTestUtil
         final FixMessageConsumer fixMessageConsumer,
         final FixPMessageConsumer fixPConsumer,
         final boolean follow)
+    {
+        getMessagesFromArchive(configuration, queryStreamIds, fixMessageConsumer, fixPConsumer, follow, false);
+    }
+
+    public static void getMessagesFromArchive(
+        final EngineConfiguration configuration,
+        final IntHashSet queryStreamIds,
+        final FixMessageConsumer fixMessageConsumer,
+        final FixPMessageConsumer fixPConsumer,
+        final boolean follow,
+        final boolean enableIndexScan)
+    {
+        getMessagesFromArchive(
+            configuration, queryStreamIds, fixMessageConsumer, fixPConsumer, follow, enableIndexScan, 1, 1);
+    }
+
+    public static void getMessagesFromArchive(
+        final EngineConfiguration configuration,
+        final IntHashSet queryStreamIds,
+        final FixMessageConsumer fixMessageConsumer,
+        final FixPMessageConsumer fixPConsumer,
+        final boolean follow,
+        final boolean enableIndexScan,
+        final int scanThreads,
+        final long scanPartitionSize)
     {
         final FixArchiveScanner.Configuration context = new FixArchiveScanner.Configuration()
             .aeronDirectoryName(configuration.aeronContext().aeronDirectoryName())
             .archiveContext(aeronArchiveContext())
             .idleStrategy(CommonConfiguration.backoffIdleStrategy())
-            .compactionSize(TEST_COMPACTION_SIZE);
+            .compactionSize(TEST_COMPACTION_SIZE)
+            .scanThreads(scanThreads)
+            .scanPartitionSize(scanPartitionSize);
+
+        if (enableIndexScan || scanThreads > 1)
+        {
+            context.logFileDir(configuration.logFileDir());
+            context.enableIndexScan(enableIndexScan);
+        }
 
         try (FixArchiveScanner scanner = new FixArchiveScanner(context))
         {